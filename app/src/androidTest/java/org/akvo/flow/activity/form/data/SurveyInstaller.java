@@ -113,10 +113,11 @@ public class SurveyInstaller {
                     cascadeResourceName = cascadeResourceName.replaceAll("-", "_");
                     int cascadeResId = context.getResources()
                             .getIdentifier(cascadeResourceName, "raw", context.getPackageName());
-                    FileOutputStream output = new FileOutputStream(
-                            new File(cascadeFolder, cascadeFileName));
+                    File cascadeFile = new File(cascadeFolder, cascadeFileName);
+                    FileOutputStream output = new FileOutputStream(cascadeFile);
                     InputStream input = context.getResources().openRawResource(cascadeResId);
                     FileUtil.copy(input, output);
+                    CascadeDB.prepare(context, cascadeFile.getAbsolutePath());
                 }
             }
         }
@@ -42,6 +42,7 @@ import android.widget.Toast;
 
 import org.akvo.flow.R;
 import org.akvo.flow.app.FlowApp;
+import org.akvo.flow.async.MediaDownloadQueue;
 import org.akvo.flow.data.dao.SurveyDao;
 import org.akvo.flow.data.database.SurveyDbDataSource;
 import org.akvo.flow.data.migration.FlowMigrationListener;
@@ -51,25 +52,30 @@ import org.akvo.flow.database.SurveyDbAdapter;
 import org.akvo.flow.database.SurveyInstanceStatus;
 import org.akvo.flow.database.SurveyLanguagesDataSource;
 import org.akvo.flow.database.SurveyLanguagesDbDataSource;
+import org.akvo.flow.domain.Question;
 import org.akvo.flow.domain.QuestionGroup;
 import org.akvo.flow.domain.QuestionResponse;
 import org.akvo.flow.domain.Survey;
 import org.akvo.flow.domain.SurveyGroup;
+import org.akvo.flow.domain.response.value.Media;
 import org.akvo.flow.event.QuestionInteractionEvent;
 import org.akvo.flow.event.QuestionInteractionListener;
 import org.akvo.flow.event.SurveyListener;
 import org.akvo.flow.injector.component.ApplicationComponent;
 import org.akvo.flow.injector.component.DaggerViewComponent;
 import org.akvo.flow.injector.component.ViewComponent;
+import org.akvo.flow.serialization.response.value.MediaValue;
 import org.akvo.flow.ui.Navigator;
 import org.akvo.flow.ui.adapter.LanguageAdapter;
 import org.akvo.flow.ui.adapter.SurveyTabAdapter;
+import org.akvo.flow.ui.model.FormValidation;
 import org.akvo.flow.ui.model.Language;
 import org.akvo.flow.ui.model.LanguageMapper;
 import org.akvo.flow.ui.view.QuestionView;
 import org.akvo.flow.ui.view.geolocation.GeoFieldsResetConfirmDialogFragment;
 import org.akvo.flow.ui.view.geolocation.GeoQuestionView;
 import org.akvo.flow.util.ConstantUtil;
+import org.akvo.flow.util.FileUtil;
 import org.akvo.flow.util.files.FormFileBrowser;
 import org.akvo.flow.util.MediaFileHelper;
 import org.akvo.flow.util.PlatformUtil;
@@ -81,6 +87,8 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -108,6 +116,9 @@ public class FormActivity extends BackActivity implements SurveyListener,
     @Inject
     Prefs prefs;
 
+    @Inject
+    MediaDownloadQueue mediaDownloadQueue;
+
     private final Navigator navigator = new Navigator();
     private final StorageHelper storageHelper = new StorageHelper();
 
@@ -136,6 +147,7 @@ public class FormActivity extends BackActivity implements SurveyListener,
     private LanguageMapper languageMapper;
 
     private Map<String, QuestionResponse> mQuestionResponses; // QuestionId - QuestionResponse
+    private FormValidation mValidation;
     private String surveyId;
 
     private String imagePath;
@@ -155,6 +167,14 @@ public class FormActivity extends BackActivity implements SurveyListener,
 
         mQuestionResponses = new HashMap<>();
         mDatabase.open();
+        if (mDatabase.hasPendingMigrations()) {
+            // Restored before the responses were migrated, wait for them in the launcher
+            navigator.navigateToMainActivity(this);
+            finish();
+            return;
+        }
+        // Archived responses are loaded from the archive, and can only be viewed
+        mReadOnly = mReadOnly || mDatabase.isArchived(mSurveyInstanceId);
 
         Context context = getApplicationContext();
         languageMapper = new LanguageMapper(context);
@@ -175,6 +195,9 @@ public class FormActivity extends BackActivity implements SurveyListener,
             getSupportActionBar().setTitle(mSurvey.getName());
             getSupportActionBar().setSubtitle("v " + getVersion());
 
+            mValidation = new FormValidation(mSurvey.getQuestionGroups());
+            mValidation.load(mQuestionResponses);
+
             mPager = (ViewPager) findViewById(R.id.pager);
             TabLayout tabLayout = (TabLayout) findViewById(R.id.tabs);
             tabLayout.setupWithViewPager(mPager);
@@ -291,7 +314,35 @@ public class FormActivity extends BackActivity implements SurveyListener,
      */
     private void displayResponses(Map<String, QuestionResponse> responses) {
         mQuestionResponses = responses;
+        mValidation.load(responses);
         mAdapter.reset();// Propagate the change
+        if (mReadOnly && prefs
+                .getBoolean(Prefs.KEY_MEDIA_PREFETCH, Prefs.DEFAULT_VALUE_MEDIA_PREFETCH)) {
+            prefetchMedia(responses.values());
+        }
+    }
+
+    /**
+     * Media of synced responses is not in the filesystem until downloaded, start downloading it
+     * in the background so that it is likely to be there once its question is displayed
+     */
+    private void prefetchMedia(Collection<QuestionResponse> responses) {
+        List<File> files = new ArrayList<>();
+        File mediaDir = FileUtil.getFilesDir(FileUtil.FileType.MEDIA);
+        for (QuestionResponse response : responses) {
+            if (!ConstantUtil.IMAGE_RESPONSE_TYPE.equals(response.getType())
+                    && !ConstantUtil.VIDEO_RESPONSE_TYPE.equals(response.getType())) {
+                continue;
+            }
+            Media media = MediaValue.deserialize(response.getValue());
+            String filename = media != null ? media.getFilename() : null;
+            if (!TextUtils.isEmpty(filename) && !new File(filename).exists()) {
+                files.add(new File(mediaDir, new File(filename).getName()));
+            }
+        }
+        if (!files.isEmpty()) {
+            mediaDownloadQueue.prefetch(files);
+        }
     }
 
     /**
@@ -609,6 +660,11 @@ public class FormActivity extends BackActivity implements SurveyListener,
 
     @Override
     public void onSurveySubmit() {
+        Question invalidQuestion = mValidation.getFirstInvalidQuestion();
+        if (invalidQuestion != null) {
+            openQuestion(invalidQuestion.getId());
+            return;
+        }
         recordDuration(false);
         saveState();
 
@@ -661,11 +717,37 @@ public class FormActivity extends BackActivity implements SurveyListener,
         } else {
             mDatabase.deleteResponse(mSurveyInstanceId, questionId);
         }
+        mValidation.onResponseChanged(questionId);
+    }
+
+    @Override
+    public void deleteRepetition(Collection<String> questionIds, int repetitionId) {
+        if (questionIds.isEmpty()) {
+            return;
+        }
+        for (String questionId : questionIds) {
+            mQuestionResponses.remove(questionId + "|" + repetitionId);
+            if (repetitionId == 0) {
+                mQuestionResponses.remove(questionId);
+            }
+        }
+        mDatabase.deleteRepetition(mSurveyInstanceId, questionIds, repetitionId);
+        mValidation.removeRepetition(questionIds.iterator().next(), repetitionId);
     }
 
-    public void deleteResponse(String questionId, String iteration) {
-        mQuestionResponses.remove(questionId);
-        mDatabase.deleteResponse(mSurveyInstanceId, questionId, iteration);
+    @Override
+    public void onRepetitionAdded(QuestionGroup group, int repetitionId) {
+        mValidation.addRepetition(group, repetitionId);
+    }
+
+    @Override
+    public void onQuestionErrorChanged(String questionId, boolean error) {
+        mValidation.setQuestionError(questionId, error);
+    }
+
+    @Override
+    public List<Question> getInvalidQuestions() {
+        return mValidation.getInvalidQuestions();
     }
 
     @Override
@@ -741,8 +823,8 @@ public class FormActivity extends BackActivity implements SurveyListener,
 
         // Store the response if it contains a value. Otherwise, delete it
         if (eventResponse != null && eventResponse.hasValue()) {
-            Long id = mQuestionResponses.containsKey(questionIdKey) ?
-                    mQuestionResponses.get(questionIdKey).getId() : null;
+            QuestionResponse previousResponse = mQuestionResponses.get(questionIdKey);
+            Long id = previousResponse != null ? previousResponse.getId() : null;
             QuestionResponse responseToSave = new QuestionResponse.QuestionResponseBuilder()
                     .setValue(eventResponse.getValue())
                     .setType(eventResponse.getType())
@@ -755,12 +837,32 @@ public class FormActivity extends BackActivity implements SurveyListener,
                     .createQuestionResponse();
             responseToSave = mDatabase.createOrUpdateSurveyResponse(responseToSave);
             mQuestionResponses.put(questionIdKey, responseToSave);
+            deleteReplacedSignature(previousResponse, responseToSave);
+            mValidation.onResponseChanged(questionIdKey);
         } else {
             event.getSource().setResponse(null, true);// Invalidate previous response
             deleteResponse(questionIdKey);
         }
     }
 
+    /**
+     * A new signature is written to a new file, the one it replaces is only deleted once the
+     * new response is saved
+     */
+    private void deleteReplacedSignature(QuestionResponse previousResponse,
+            QuestionResponse savedResponse) {
+        if (previousResponse == null
+                || !ConstantUtil.SIGNATURE_RESPONSE_TYPE.equals(previousResponse.getType())) {
+            return;
+        }
+        String previousFilename = previousResponse.getFilename();
+        if (!TextUtils.isEmpty(previousFilename)
+                && !previousFilename.equals(savedResponse.getFilename())
+                && !new File(previousFilename).delete()) {
+            Timber.w("Could not delete the previous signature %s", previousFilename);
+        }
+    }
+
     private void clearQuestion(QuestionInteractionEvent event) {
         String questionId = event.getSource().getQuestion().getId();
         deleteResponse(questionId);
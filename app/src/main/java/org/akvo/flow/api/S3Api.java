@@ -19,12 +19,16 @@
 
 package org.akvo.flow.api;
 
+import android.support.annotation.Nullable;
 import android.util.Base64;
 
 import org.akvo.flow.BuildConfig;
+import org.akvo.flow.data.net.RequestSigner;
 import org.akvo.flow.exception.HttpException;
 import org.akvo.flow.util.FileUtil;
 import org.akvo.flow.util.HttpUtil;
+import org.akvo.flow.util.files.ResourceManifest;
+import org.akvo.flow.util.files.ZipStreamExtractor;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -36,17 +40,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.security.InvalidKeyException;
-import java.security.Key;
-import java.security.NoSuchAlgorithmException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
-
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+import java.util.Map;
 
 import timber.log.Timber;
 
@@ -57,14 +51,14 @@ public class S3Api {
     private static final String PAYLOAD_PUT_PRIVATE = "PUT\n%s\n%s\n%s\n/%s/%s";// md5, type, date, bucket, obj
     private static final String PAYLOAD_HEAD = "HEAD\n\n\n%s\n/%s/%s";// date, bucket, obj
 
+    private static final RequestSigner SIGNER = new RequestSigner(BuildConfig.AWS_SECRET_KEY);
+
     private String mBucket;
     private String mAccessKey;
-    private String mSecret;
 
     public S3Api() {
         mBucket = BuildConfig.AWS_BUCKET;
         mAccessKey = BuildConfig.AWS_ACCESS_KEY_ID;
-        mSecret = BuildConfig.AWS_SECRET_KEY;
     }
 
     public String getEtag(String objectKey) throws IOException {
@@ -95,16 +89,32 @@ public class S3Api {
         }
     }
 
-    public void syncFile(String objectKey, File dst) throws IOException {
-        final String etag = getEtag(objectKey);
-        if (etag == null) {
-            throw new HttpException("Could not read ETag from object: " + objectKey, 404);
-        }
-        if (dst.exists() && etag.equals(FileUtil.hexMd5(dst))) {
-            // No need to re-fetch the file. The integrity of the local copy has been verified
+    /**
+     * Downloads and extracts a zip archive, unless the files extracted last time are still
+     * intact and the object has not changed since. The check is a conditional GET
+     * (If-None-Match), so unchanged objects cost a single request and no local hashing.
+     */
+    public void syncArchive(String objectKey, File dstDir, ResourceManifest manifest)
+            throws IOException {
+        syncArchive(objectKey, dstDir, manifest, null);
+    }
+
+    /**
+     * @param listener notified of the extracted files before they are recorded in the manifest,
+     *                 so that it can still modify them
+     */
+    public void syncArchive(String objectKey, File dstDir, ResourceManifest manifest,
+            @Nullable ExtractionListener listener) throws IOException {
+        String localEtag = manifest.getEtag(objectKey);
+        ExtractedArchive archive = getAndExtract(objectKey, dstDir, localEtag);
+        if (archive == null) {
+            // No need to re-fetch the files. They have not changed since they were extracted
             return;
         }
-        get(objectKey, dst);
+        if (listener != null) {
+            listener.onExtracted(archive.files);
+        }
+        manifest.put(objectKey, archive.etag, archive.files);
     }
 
     public void get(String objectKey, File dst) throws IOException {
@@ -140,6 +150,61 @@ public class S3Api {
         }
     }
 
+    /**
+     * Downloads a zip archive and extracts it into the given folder, without storing the archive.
+     * The integrity of the download is verified against the ETag (the MD5 of the object)
+     *
+     * @return the extracted files, by zip entry name
+     */
+    public Map<String, File> getAndExtract(String objectKey, File dstDir) throws IOException {
+        return getAndExtract(objectKey, dstDir, null).files;
+    }
+
+    /**
+     * @param ifNoneMatch ETag of the local copy, if any
+     * @return the extracted archive, null if the object still matches ifNoneMatch
+     */
+    @Nullable
+    private ExtractedArchive getAndExtract(String objectKey, File dstDir,
+            @Nullable String ifNoneMatch) throws IOException {
+        // Get date and signature
+        final String date = getDate();
+        final String payload = String.format(PAYLOAD_GET, date, mBucket, objectKey);
+        final String signature = getSignature(payload);
+        final URL url = new URL(String.format(URL, mBucket, objectKey));
+
+        InputStream in = null;
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) url.openConnection();
+            conn.setRequestProperty("Date", date);
+            conn.setRequestProperty("Authorization", "AWS " + mAccessKey + ":" + signature);
+            if (ifNoneMatch != null) {
+                conn.setRequestProperty("If-None-Match", "\"" + ifNoneMatch + "\"");
+            }
+
+            int status = conn.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && ifNoneMatch != null) {
+                return null;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new HttpException("Status Code: " + status + ". Expected: 200 - OK",
+                        status);
+            }
+
+            in = new BufferedInputStream(conn.getInputStream());
+            String etag = getEtag(conn);
+            Map<String, File> files = new ZipStreamExtractor()
+                    .extract(in, dstDir, getMd5Etag(etag));
+            return new ExtractedArchive(etag, files);
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+            FileUtil.close(in);
+        }
+    }
+
     public boolean put(String objectKey, File file, String type, boolean isPublic) throws IOException {
         // Calculate data size, up to 2 GB
         final int size = file.length() < Integer.MAX_VALUE ? (int)file.length() : -1;
@@ -204,25 +269,19 @@ public class S3Api {
     }
 
     private String getDate() {
-        final DateFormat df = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss ", Locale.US);
-        df.setTimeZone(TimeZone.getTimeZone("GMT"));
-        return df.format(new Date()) + "GMT";
+        return RequestSigner.getRfc1123Date();
     }
 
     private String getSignature(String payload) {
-        try {
-            Key signingKey = new SecretKeySpec(mSecret.getBytes(), "HmacSHA1");
-            Mac mac = Mac.getInstance("HmacSHA1");
-            mac.init(signingKey);
-            byte[] rawHmac = mac.doFinal(payload.getBytes());
-            return Base64.encodeToString(rawHmac, Base64.NO_WRAP);
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            return null;
-        } catch (InvalidKeyException e) {
-            e.printStackTrace();
-            return null;
-        }
+        return Base64.encodeToString(SIGNER.sign(payload), Base64.NO_WRAP);
+    }
+
+    /**
+     * ETags of multipart uploads are not the MD5 of the object, they contain a dash
+     */
+    @Nullable
+    private String getMd5Etag(@Nullable String etag) {
+        return etag != null && !etag.contains("-") ? etag : null;
     }
 
     private String getEtag(HttpURLConnection conn) {
@@ -230,4 +289,23 @@ public class S3Api {
         return etag != null ? etag.replaceAll("\"", "") : null;// Remove quotes
     }
 
+    public interface ExtractionListener {
+
+        /**
+         * @param files the extracted files, by zip entry name
+         */
+        void onExtracted(Map<String, File> files) throws IOException;
+    }
+
+    private static class ExtractedArchive {
+
+        @Nullable
+        final String etag;
+        final Map<String, File> files;
+
+        ExtractedArchive(@Nullable String etag, Map<String, File> files) {
+            this.etag = etag;
+            this.files = files;
+        }
+    }
 }
@@ -30,6 +30,7 @@ import android.text.TextUtils;
 import com.squareup.leakcanary.LeakCanary;
 
 import org.akvo.flow.broadcast.SyncDataReceiver;
+import org.akvo.flow.data.database.cascade.CascadeIndexer;
 import org.akvo.flow.data.migration.FlowMigrationListener;
 import org.akvo.flow.data.migration.languages.MigrationLanguageMapper;
 import org.akvo.flow.data.preference.Prefs;
@@ -40,6 +41,8 @@ import org.akvo.flow.injector.component.ApplicationComponent;
 import org.akvo.flow.injector.component.DaggerApplicationComponent;
 import org.akvo.flow.injector.module.ApplicationModule;
 import org.akvo.flow.service.ApkUpdateService;
+import org.akvo.flow.service.DatabaseMaintenanceService;
+import org.akvo.flow.service.DatabaseMigrationService;
 import org.akvo.flow.service.FileChangeTrackingService;
 import org.akvo.flow.util.logging.LoggingHelper;
 
@@ -72,6 +75,7 @@ public class FlowApp extends Application {
         startUpdateService();
         app = this;
         startBootstrapFolderTracker();
+        DatabaseMaintenanceService.scheduleMaintenance(this);
         updateLoggingInfo();
         registerReceiver(new SyncDataReceiver(), new IntentFilter(SyncDataReceiver.CONNECTIVITY_ACTION));
     }
@@ -178,6 +182,10 @@ public class FlowApp extends Application {
                 new FlowMigrationListener(prefs, new MigrationLanguageMapper(context)));
         database.open();
 
+        if (database.hasPendingMigrations() || new CascadeIndexer(context, prefs).isPending()) {
+            DatabaseMigrationService.start(context);
+        }
+
         // Consider the app set up if the DB contains users. This is relevant for v2.2.0 app upgrades
         if (!prefs.getBoolean(Prefs.KEY_SETUP, false)) {
             prefs.setBoolean(Prefs.KEY_SETUP, database.getUsers().getCount() > 0);
@@ -0,0 +1,398 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.async;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import org.akvo.flow.data.preference.Prefs;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Downloads the media files (images, videos) of synced forms, a few at a time. Files requested
+ * by a question being displayed are downloaded before the ones prefetched in the background,
+ * and a file is only downloaded once however many times it is requested.
+ * <p>
+ * The prefetched files are kept within a budget of bytes, so that prefetching does not fill the
+ * storage. Only the files downloaded by prefetching count, not the photos taken on the device
+ * nor the files displayed: they are recorded with their size, from least to most recently
+ * prefetched, and the record is kept across restarts. Once the budget is spent, the least
+ * recently prefetched files are deleted to make room for those of the form being opened, which
+ * are displayed again later from the server if needed. Prefetching stops when the files of that
+ * form alone spend the budget.
+ */
+@Singleton
+public class MediaDownloadQueue {
+
+    private static final int MAX_CONCURRENT_DOWNLOADS = 2;
+    private static final long PREFETCH_BUDGET_BYTES = 50 * 1024 * 1024;
+    private static final String RECORD_SEPARATOR = "\n";
+    private static final char SIZE_SEPARATOR = ' ';
+
+    public interface DownloadListener {
+        void onResourceDownload(boolean done);
+    }
+
+    interface Downloader {
+        boolean download(@NonNull File file);
+    }
+
+    /**
+     * Keeps the record of the prefetched files across restarts
+     */
+    interface PrefetchStore {
+        @Nullable
+        String load();
+
+        void save(@NonNull String prefetchedFiles);
+    }
+
+    private final Downloader downloader;
+    private final Executor downloadExecutor;
+    private final Executor resultExecutor;
+    private final int maxConcurrentDownloads;
+    private final long prefetchBudgetBytes;
+    private final PrefetchStore prefetchStore;
+
+    private final Map<String, Download> downloads = new HashMap<>();
+    private final Deque<Download> visible = new ArrayDeque<>();
+    private final Deque<Download> prefetched = new ArrayDeque<>();
+    // path -> size of the prefetched files on disk, least recently prefetched first
+    private final LinkedHashMap<String, Long> prefetchedFiles = new LinkedHashMap<>();
+    // files of the form being opened, never deleted to make room
+    private final Set<String> currentFiles = new HashSet<>();
+    private long prefetchedBytes;
+    private int running;
+
+    @Inject
+    public MediaDownloadQueue(Context context) {
+        this(new MediaDownloader(context.getApplicationContext()),
+                Executors.newFixedThreadPool(MAX_CONCURRENT_DOWNLOADS),
+                new MainThreadExecutor(), MAX_CONCURRENT_DOWNLOADS, PREFETCH_BUDGET_BYTES,
+                new PrefsPrefetchStore(new Prefs(context.getApplicationContext())));
+    }
+
+    MediaDownloadQueue(Downloader downloader, Executor downloadExecutor,
+            Executor resultExecutor, int maxConcurrentDownloads, long prefetchBudgetBytes,
+            PrefetchStore prefetchStore) {
+        this.downloader = downloader;
+        this.downloadExecutor = downloadExecutor;
+        this.resultExecutor = resultExecutor;
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
+        this.prefetchBudgetBytes = prefetchBudgetBytes;
+        this.prefetchStore = prefetchStore;
+        loadPrefetchedFiles();
+    }
+
+    /**
+     * Downloads a file displayed to the user, before any prefetched one. The listener is notified
+     * on the main thread, unless cancelled. Provided file must be already updated to use the
+     * local filesystem path.
+     */
+    public synchronized void download(@NonNull File file, @NonNull DownloadListener listener) {
+        Download download = downloads.get(file.getAbsolutePath());
+        if (download == null) {
+            download = new Download(file, false);
+            downloads.put(download.path, download);
+            visible.addLast(download);
+        } else if (download.prefetch) {
+            download.prefetch = false;
+            if (prefetched.remove(download)) {
+                visible.addLast(download);
+            }
+        }
+        download.listeners.add(new WeakReference<>(listener));
+        schedule();
+    }
+
+    /**
+     * Downloads the missing files in the background, those of the most recently opened form
+     * first. The given files become the most recently prefetched ones.
+     */
+    public synchronized void prefetch(@NonNull Collection<File> files) {
+        List<File> missing = new ArrayList<>();
+        currentFiles.clear();
+        boolean touched = false;
+        for (File file : files) {
+            String path = file.getAbsolutePath();
+            currentFiles.add(path);
+            Long size = prefetchedFiles.remove(path);
+            if (size != null) {
+                prefetchedFiles.put(path, size);
+                touched = true;
+            }
+            if (!file.exists() && !downloads.containsKey(path)) {
+                missing.add(file);
+            }
+        }
+        if (touched) {
+            savePrefetchedFiles();
+        }
+        for (int i = missing.size() - 1; i >= 0; i--) {
+            Download download = new Download(missing.get(i), true);
+            downloads.put(download.path, download);
+            prefetched.addFirst(download);
+        }
+        schedule();
+    }
+
+    /**
+     * Stops notifying the listener, typically when its screen is left. The files only it was
+     * waiting for are not downloaded if not started yet.
+     */
+    public synchronized void cancel(@NonNull DownloadListener listener) {
+        Iterator<Download> iterator = visible.iterator();
+        while (iterator.hasNext()) {
+            Download download = iterator.next();
+            download.removeListener(listener);
+            if (download.listeners.isEmpty()) {
+                iterator.remove();
+                downloads.remove(download.path);
+            }
+        }
+        for (Download download : downloads.values()) {
+            download.removeListener(listener);
+        }
+    }
+
+    synchronized int getPendingCount() {
+        return visible.size() + prefetched.size();
+    }
+
+    private void schedule() {
+        while (running < maxConcurrentDownloads) {
+            final Download download = next();
+            if (download == null) {
+                return;
+            }
+            running++;
+            downloadExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    boolean done = downloader.download(download.file);
+                    onDownloadFinished(download, done);
+                }
+            });
+        }
+    }
+
+    private Download next() {
+        if (!visible.isEmpty()) {
+            return visible.pollFirst();
+        }
+        if (prefetched.isEmpty()) {
+            return null;
+        }
+        if (prefetchedBytes >= prefetchBudgetBytes) {
+            evictPrefetchedFiles();
+        }
+        if (prefetchedBytes >= prefetchBudgetBytes) {
+            for (Download download : prefetched) {
+                downloads.remove(download.path);
+            }
+            prefetched.clear();
+        }
+        return prefetched.pollFirst();
+    }
+
+    /**
+     * Deletes the least recently prefetched files, but those of the form being opened, until
+     * the budget is not spent. The files are deleted in the background.
+     */
+    private void evictPrefetchedFiles() {
+        final List<File> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> iterator = prefetchedFiles.entrySet().iterator();
+        while (prefetchedBytes >= prefetchBudgetBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            String path = entry.getKey();
+            if (currentFiles.contains(path) || downloads.containsKey(path)) {
+                continue;
+            }
+            iterator.remove();
+            prefetchedBytes -= entry.getValue();
+            evicted.add(new File(path));
+        }
+        if (evicted.isEmpty()) {
+            return;
+        }
+        savePrefetchedFiles();
+        downloadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (File file : evicted) {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+        });
+    }
+
+    private void loadPrefetchedFiles() {
+        String record = prefetchStore.load();
+        if (TextUtils.isEmpty(record)) {
+            return;
+        }
+        for (String line : record.split(RECORD_SEPARATOR)) {
+            int separator = line.indexOf(SIZE_SEPARATOR);
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                long size = Long.parseLong(line.substring(0, separator));
+                prefetchedFiles.put(line.substring(separator + 1), size);
+                prefetchedBytes += size;
+            } catch (NumberFormatException e) {
+                // Skip the malformed line, its file is no longer accounted for
+            }
+        }
+    }
+
+    private void savePrefetchedFiles() {
+        StringBuilder record = new StringBuilder();
+        for (Map.Entry<String, Long> entry : prefetchedFiles.entrySet()) {
+            record.append(entry.getValue()).append(SIZE_SEPARATOR).append(entry.getKey())
+                    .append(RECORD_SEPARATOR);
+        }
+        prefetchStore.save(record.toString());
+    }
+
+    /**
+     * Records the prefetched files, a displayed file is no longer a prefetched one
+     */
+    private void updatePrefetchedFiles(@NonNull Download download) {
+        Long previousSize = prefetchedFiles.remove(download.path);
+        if (previousSize != null) {
+            prefetchedBytes -= previousSize;
+        }
+        if (download.prefetch) {
+            long size = download.file.length();
+            prefetchedFiles.put(download.path, size);
+            prefetchedBytes += size;
+        }
+        if (previousSize != null || download.prefetch) {
+            savePrefetchedFiles();
+        }
+    }
+
+    private void onDownloadFinished(Download download, final boolean done) {
+        final List<DownloadListener> listeners = new ArrayList<>();
+        synchronized (this) {
+            running--;
+            downloads.remove(download.path);
+            if (done) {
+                updatePrefetchedFiles(download);
+            }
+            for (WeakReference<DownloadListener> reference : download.listeners) {
+                DownloadListener listener = reference.get();
+                if (listener != null) {
+                    listeners.add(listener);
+                }
+            }
+            schedule();
+        }
+        if (!listeners.isEmpty()) {
+            resultExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (DownloadListener listener : listeners) {
+                        listener.onResourceDownload(done);
+                    }
+                }
+            });
+        }
+    }
+
+    private static class Download {
+
+        final File file;
+        final String path;
+        final List<WeakReference<DownloadListener>> listeners = new ArrayList<>();
+        boolean prefetch;
+
+        Download(File file, boolean prefetch) {
+            this.file = file;
+            this.path = file.getAbsolutePath();
+            this.prefetch = prefetch;
+        }
+
+        void removeListener(DownloadListener listener) {
+            Iterator<WeakReference<DownloadListener>> iterator = listeners.iterator();
+            while (iterator.hasNext()) {
+                DownloadListener referent = iterator.next().get();
+                if (referent == null || referent == listener) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static class PrefsPrefetchStore implements PrefetchStore {
+
+        private final Prefs prefs;
+
+        PrefsPrefetchStore(Prefs prefs) {
+            this.prefs = prefs;
+        }
+
+        @Nullable
+        @Override
+        public String load() {
+            return prefs.getString(Prefs.KEY_PREFETCHED_MEDIA, null);
+        }
+
+        @Override
+        public void save(@NonNull String prefetchedFiles) {
+            prefs.setString(Prefs.KEY_PREFETCHED_MEDIA, prefetchedFiles);
+        }
+    }
+
+    private static class MainThreadExecutor implements Executor {
+
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            handler.post(command);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.async;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import org.akvo.flow.api.S3Api;
+import org.akvo.flow.data.preference.Prefs;
+import org.akvo.flow.util.ConnectivityStateManager;
+import org.akvo.flow.util.ConstantUtil;
+
+import java.io.File;
+import java.io.IOException;
+
+import timber.log.Timber;
+
+/**
+ * Downloads a media file of a synced form from S3, if the connection allows it. The file is
+ * written under a temporary name and only renamed once complete, so that a partial file is
+ * never displayed.
+ */
+class MediaDownloader implements MediaDownloadQueue.Downloader {
+
+    private static final String TEMP_PREFIX = ".";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final ConnectivityStateManager connectivityStateManager;
+    private final Prefs prefs;
+
+    MediaDownloader(Context context) {
+        this.connectivityStateManager = new ConnectivityStateManager(context);
+        this.prefs = new Prefs(context);
+    }
+
+    @Override
+    public boolean download(@NonNull File file) {
+        if (!connectivityStateManager.isConnectionAvailable(
+                prefs.getBoolean(Prefs.KEY_CELL_UPLOAD, Prefs.DEFAULT_VALUE_CELL_UPLOAD))) {
+            Timber.d("No internet connection available. Can't perform the requested operation");
+            return false;
+        }
+
+        File tempFile = new File(file.getParentFile(), TEMP_PREFIX + file.getName() + TEMP_SUFFIX);
+        try {
+            S3Api s3 = new S3Api();
+            s3.get(ConstantUtil.S3_IMAGE_DIR + file.getName(), tempFile);
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Could not move file to " + file);
+            }
+            return true;
+        } catch (IOException e) {
+            Timber.e(e.getMessage());
+            if (tempFile.exists()) {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+        }
+        return false;
+    }
+}
@@ -25,6 +25,7 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.squareup.sqlbrite2.BriteDatabase;
@@ -32,6 +33,7 @@ import com.squareup.sqlbrite2.BriteDatabase;
 import org.akvo.flow.data.migration.FlowMigrationListener;
 import org.akvo.flow.data.migration.languages.MigrationLanguageMapper;
 import org.akvo.flow.data.preference.Prefs;
+import org.akvo.flow.database.DatabaseSize;
 import org.akvo.flow.database.RecordColumns;
 import org.akvo.flow.database.ResponseColumns;
 import org.akvo.flow.database.SurveyColumns;
@@ -51,6 +53,7 @@ import org.akvo.flow.util.ConstantUtil;
 import org.akvo.flow.util.PlatformUtil;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -169,68 +172,60 @@ public class SurveyDbDataSource {
         return resp;
     }
 
-    @NonNull
-    private QuestionResponse getResponseToSave(@NonNull QuestionResponse newResponse) {
-        QuestionResponse resp;
-        Long surveyInstanceId = newResponse.getSurveyInstanceId();
-        String questionId = newResponse.getQuestionId();
-
+    /**
+     * Responses saved without a type keep the type of the response they replace
+     */
+    @Nullable
+    private String getSavedType(@NonNull QuestionResponse newResponse) {
         Cursor cursor;
         if (newResponse.isAnswerToRepeatableGroup()) {
-            cursor = surveyDbAdapter
-                    .getResponse(surveyInstanceId, questionId, newResponse.getIteration());
-        } else {
-            cursor = surveyDbAdapter.getResponse(surveyInstanceId, questionId);
-        }
-        if (cursor != null && cursor.moveToFirst()) {
-            String type = cursor.getString(cursor.getColumnIndexOrThrow(ResponseColumns.TYPE));
-            if (newResponse.getType() != null) {
-                type = newResponse.getType();
-            }
-            Long id = cursor.getLong(cursor.getColumnIndexOrThrow(ResponseColumns._ID));
-            int iteration = cursor.getInt(cursor.getColumnIndexOrThrow(ResponseColumns.ITERATION));
-            resp = new QuestionResponse.QuestionResponseBuilder()
-                    .setValue(newResponse.getValue())
-                    .setType(type)
-                    .setId(id)
-                    .setSurveyInstanceId(surveyInstanceId)
-                    .setQuestionId(questionId)
-                    .setFilename(newResponse.getFilename())
-                    .setIncludeFlag(newResponse.getIncludeFlag())
-                    .setIteration(iteration)
-                    .createQuestionResponse();
+            cursor = surveyDbAdapter.getResponse(newResponse.getSurveyInstanceId(),
+                    newResponse.getQuestionId(), newResponse.getIteration());
         } else {
-            resp = new QuestionResponse.QuestionResponseBuilder()
-                    .createFromQuestionResponse(newResponse);
+            cursor = surveyDbAdapter.getResponse(newResponse.getSurveyInstanceId(),
+                    newResponse.getQuestionId());
         }
-
+        String type = null;
         if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                type = cursor.getString(cursor.getColumnIndexOrThrow(ResponseColumns.TYPE));
+            }
             cursor.close();
         }
-        return resp;
+        return type;
     }
 
-
     /**
-     * inserts or updates a question response after first looking to see if it
-     * already exists in the database.
+     * inserts or replaces a question response, the unique response index taking care of
+     * replacing any response already saved for the same question and iteration.
      *
      * @param newResponse new QuestionResponseData to insert
      * @return
      */
     public QuestionResponse createOrUpdateSurveyResponse(@NonNull QuestionResponse newResponse) {
-        QuestionResponse responseToSave = getResponseToSave(newResponse);
+        String type = newResponse.getType();
+        if (type == null) {
+            type = getSavedType(newResponse);
+        }
         ContentValues initialValues = new ContentValues();
-        initialValues.put(ResponseColumns.ANSWER, responseToSave.getValue());
-        initialValues.put(ResponseColumns.TYPE, responseToSave.getType());
-        initialValues.put(ResponseColumns.QUESTION_ID, responseToSave.getQuestionId());
-        initialValues.put(ResponseColumns.SURVEY_INSTANCE_ID, responseToSave.getSurveyInstanceId());
-        initialValues.put(ResponseColumns.FILENAME, responseToSave.getFilename());
-        initialValues.put(ResponseColumns.INCLUDE, responseToSave.getIncludeFlag() ? 1 : 0);
-        initialValues.put(ResponseColumns.ITERATION, responseToSave.getIteration());
-        long id = surveyDbAdapter.updateSurveyResponse(responseToSave.getId(), initialValues);
-        return new QuestionResponse.QuestionResponseBuilder().createFromQuestionResponse(
-                responseToSave, id);
+        initialValues.put(ResponseColumns.ANSWER, newResponse.getValue());
+        initialValues.put(ResponseColumns.TYPE, type);
+        initialValues.put(ResponseColumns.QUESTION_ID, newResponse.getQuestionId());
+        initialValues.put(ResponseColumns.SURVEY_INSTANCE_ID, newResponse.getSurveyInstanceId());
+        initialValues.put(ResponseColumns.FILENAME, newResponse.getFilename());
+        initialValues.put(ResponseColumns.INCLUDE, newResponse.getIncludeFlag() ? 1 : 0);
+        initialValues.put(ResponseColumns.ITERATION, newResponse.getIteration());
+        long id = surveyDbAdapter.saveResponse(initialValues);
+        return new QuestionResponse.QuestionResponseBuilder()
+                .setId(id)
+                .setValue(newResponse.getValue())
+                .setIteration(newResponse.getIteration())
+                .setFilename(newResponse.getFilename())
+                .setIncludeFlag(newResponse.getIncludeFlag())
+                .setQuestionId(newResponse.getQuestionId())
+                .setSurveyInstanceId(newResponse.getSurveyInstanceId())
+                .setType(type)
+                .createQuestionResponse();
     }
 
     public long createSurveyRespondent(String surveyId, double version, User user,
@@ -260,22 +255,42 @@ public class SurveyDbDataSource {
      * @return
      */
     public List<Survey> fetchOutDatedSurveys(List<Survey> surveys) {
+        Map<String, Double> installedVersions = getInstalledSurveyVersions();
         List<Survey> outOfDateSurveys = new ArrayList<>();
         for (int i = 0; i < surveys.size(); i++) {
             Survey survey = surveys.get(i);
-            Cursor cursor = briteSurveyDbAdapter.getSurveys(survey.getId(),
-                    survey.getVersion() + "");
-
-            if (cursor == null || cursor.getCount() <= 0) {
+            Double installedVersion = installedVersions.get(survey.getId());
+            if (installedVersion == null || installedVersion < survey.getVersion()) {
                 outOfDateSurveys.add(survey);
             }
-            if (cursor != null) {
-                cursor.close();
-            }
         }
         return outOfDateSurveys;
     }
 
+    /**
+     * Deleted surveys are reported as up to date, they are never re-downloaded automatically
+     */
+    @NonNull
+    private Map<String, Double> getInstalledSurveyVersions() {
+        Map<String, Double> versions = new HashMap<>();
+        Cursor cursor = briteSurveyDbAdapter.getSurveyVersions();
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                int idColumn = cursor.getColumnIndexOrThrow(SurveyColumns.SURVEY_ID);
+                int versionColumn = cursor.getColumnIndexOrThrow(SurveyColumns.VERSION);
+                int deletedColumn = cursor.getColumnIndexOrThrow(SurveyColumns.DELETED);
+                do {
+                    double version = cursor.getInt(deletedColumn) == 1 ?
+                            Double.MAX_VALUE :
+                            cursor.getDouble(versionColumn);
+                    versions.put(cursor.getString(idColumn), version);
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+        }
+        return versions;
+    }
+
     /**
      * updates a survey in the db and resets the deleted flag to "N"
      *
@@ -377,6 +392,15 @@ public class SurveyDbDataSource {
         return getFileTransmissions(cursor);
     }
 
+    /**
+     * Starts a transaction for the writes done through this data source. It has to be ended with
+     * {@link BriteDatabase.Transaction#end()}, and will only be committed if
+     * {@link BriteDatabase.Transaction#markSuccessful()} was called before.
+     */
+    public BriteDatabase.Transaction beginTransaction() {
+        return briteSurveyDbAdapter.beginTransaction();
+    }
+
     public void addSurveyGroup(SurveyGroup surveyGroup) {
         ContentValues values = new ContentValues();
         values.put(SurveyGroupColumns.SURVEY_GROUP_ID, surveyGroup.getId());
@@ -590,6 +614,11 @@ public class SurveyDbDataSource {
         surveyDbAdapter.deleteResponse(mSurveyInstanceId, questionId, iteration);
     }
 
+    public void deleteRepetition(long mSurveyInstanceId, Collection<String> questionIds,
+            int iteration) {
+        surveyDbAdapter.deleteRepetition(mSurveyInstanceId, questionIds, iteration);
+    }
+
     public void createTransmission(long id, String formId, String filename) {
         surveyDbAdapter.createTransmission(id, formId, filename);
     }
@@ -629,4 +658,31 @@ public class SurveyDbDataSource {
     public void deleteAllResponses() {
         surveyDbAdapter.deleteAllResponses();
     }
+
+    public DatabaseSize getDatabaseSize() {
+        return briteSurveyDbAdapter.getDatabaseSize();
+    }
+
+    public int archiveResponses(long syncedBefore) {
+        return briteSurveyDbAdapter.archiveResponses(syncedBefore);
+    }
+
+    /**
+     * @return true if data migrations scheduled by a database upgrade have not completed yet, in
+     * which case the responses must not be read nor exported
+     */
+    public boolean hasPendingMigrations() {
+        return surveyDbAdapter.hasPendingMigrations();
+    }
+
+    /**
+     * @return true if the responses of the instance were archived, and can not be edited
+     */
+    public boolean isArchived(long surveyInstanceId) {
+        return surveyDbAdapter.isArchived(surveyInstanceId);
+    }
+
+    public void runMaintenance() {
+        briteSurveyDbAdapter.runMaintenance();
+    }
 }
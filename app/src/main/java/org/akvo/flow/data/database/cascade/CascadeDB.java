@@ -24,69 +24,188 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
 import android.util.SparseArray;
 
 import org.akvo.flow.domain.Node;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import timber.log.Timber;
+
+/**
+ * Read access to the nodes of a cascade resource. The children of the most recently used nodes
+ * are cached, as every level change and every question using the resource lists them again.
+ * Instances are shared through {@link CascadeDBRegistry}, hence safe to use from any thread.
+ * <p>
+ * Opening a resource never builds its indexes, as forms open it on the main thread. They are
+ * built in the background by {@link #prepare(Context, String)}, once the resource is installed.
+ * A resource not prepared yet can still be browsed, but not searched.
+ */
 public class CascadeDB {
 
-    private static final String TABLE_NODE = "nodes";
+    private static final long ID_ROOT = 0;
+    private static final int CHILDREN_CACHE_SIZE = 20000; // in nodes
+    private static final int NODE_CACHE_SIZE = 500;
+    private static final int MAX_DEPTH = 64; // guards against cycles in malformed resources
 
     private final String mDBPath;
     private final Context mContext;
     private final NodeMapper nodeMapper = new NodeMapper();
+    private final LruCache<Long, List<Node>> mChildren =
+            new LruCache<Long, List<Node>>(CHILDREN_CACHE_SIZE) {
+                @Override
+                protected int sizeOf(Long parent, List<Node> nodes) {
+                    return nodes.size() + 1;
+                }
+            };
+    private final LruCache<Long, Node> mNodes = new LruCache<>(NODE_CACHE_SIZE);
 
     private SQLiteDatabase mDatabase;
-    private CascadeDatabaseHelper mHelper;
+    private boolean mIndexed;
 
     public CascadeDB(Context context, String dbPath) {
         mContext = context;
         mDBPath = dbPath;
     }
 
-    public void open() throws SQLException {
-        mHelper = new CascadeDatabaseHelper(mContext, mDBPath);
-        mDatabase = mHelper.getReadableDatabase();
+    /**
+     * Builds the indexes of the resource, unless it already has them. It can take a while on
+     * large resources, so it must be called away from the main thread, right after the resource
+     * is installed.
+     */
+    public static void prepare(Context context, String dbPath) throws SQLException {
+        CascadeDatabaseHelper helper = new CascadeDatabaseHelper(context, dbPath);
+        try {
+            helper.getWritableDatabase();
+        } finally {
+            helper.close();
+        }
+    }
+
+    public String getPath() {
+        return mDBPath;
+    }
+
+    public synchronized void open() throws SQLException {
+        mDatabase = SQLiteDatabase.openDatabase(mDBPath, null,
+                SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        mIndexed = mDatabase.getVersion() >= CascadeDatabaseHelper.VERSION;
+        if (!mIndexed) {
+            Timber.w("Cascade resource not prepared yet: " + mDBPath);
+        }
     }
 
-    public void close() {
-        mHelper.close();
+    public synchronized void close() {
+        if (mDatabase != null) {
+            mDatabase.close();
+        }
         mDatabase = null;
+        mChildren.evictAll();
+        mNodes.evictAll();
     }
 
-    public boolean isOpen() {
+    public synchronized boolean isOpen() {
         return mDatabase != null;
     }
 
-    public List<Node> getValues(long parent) {
-        List<Node> result = new ArrayList<>();
+    /**
+     * @return a new list with the children of the given node, by name
+     */
+    public synchronized List<Node> getValues(long parent) {
         if (!isOpen()) {
-            return result;
+            return new ArrayList<>();
         }
-        Cursor c = mDatabase.query(TABLE_NODE, null,
-                NodeColumns.PARENT + "=?",
-                new String[]{String.valueOf(parent)},
-                null, null, NodeColumns.NAME);
-
-        if (c != null) {
-            result = nodeMapper.mapNodes(c);
+        List<Node> values = mChildren.get(parent);
+        if (values == null) {
+            Cursor c = mDatabase.query(NodeIndexes.TABLE_NODE, null,
+                    NodeColumns.PARENT + "=?",
+                    new String[]{String.valueOf(parent)},
+                    null, null, NodeColumns.NAME);
+            values = c != null ? Collections.unmodifiableList(nodeMapper.mapNodes(c))
+                    : Collections.<Node>emptyList();
+            mChildren.put(parent, values);
         }
-        return result;
+        return new ArrayList<>(values);
     }
 
-    public SparseArray<List<Node>> getValues() {
+    public synchronized SparseArray<List<Node>> getValues() {
         SparseArray<List<Node>> result = new SparseArray<>();
         if (!isOpen()) {
             return result;
         }
-        Cursor c = mDatabase.query(TABLE_NODE, null, null, null, null, null, NodeColumns.NAME);
+        Cursor c = mDatabase.query(NodeIndexes.TABLE_NODE, null, null, null, null, null,
+                NodeColumns.NAME);
 
         if (c != null) {
             result = nodeMapper.nodesAsMap(c);
         }
         return result;
     }
+
+    /**
+     * Looks up the nodes of any level whose name has words starting with the typed ones
+     *
+     * @return the matching nodes by name, each one with its ancestors, from the root level. Empty
+     * if the resource has not been prepared yet
+     */
+    @NonNull
+    public synchronized List<List<Node>> search(String text, int limit) {
+        List<List<Node>> result = new ArrayList<>();
+        String query = NodeIndexes.getMatchQuery(text);
+        if (!isOpen() || !mIndexed || query == null) {
+            return result;
+        }
+        Cursor c = mDatabase.rawQuery(NodeIndexes.getSearchSql(limit), new String[] { query });
+        if (c == null) {
+            return result;
+        }
+        for (Node node : nodeMapper.mapNodes(c)) {
+            List<Node> path = getPath(node);
+            if (path != null) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the node preceded by its ancestors, null if any of them is missing
+     */
+    @Nullable
+    private List<Node> getPath(@NonNull Node node) {
+        List<Node> path = new ArrayList<>();
+        path.add(node);
+        while (node.getParent() != ID_ROOT) {
+            node = getNode(node.getParent());
+            if (node == null || path.size() > MAX_DEPTH) {
+                return null;
+            }
+            path.add(0, node);
+        }
+        return path;
+    }
+
+    @Nullable
+    private Node getNode(long id) {
+        Node node = mNodes.get(id);
+        if (node == null) {
+            Cursor c = mDatabase.query(NodeIndexes.TABLE_NODE, null, NodeColumns.ID + "=?",
+                    new String[] { String.valueOf(id) }, null, null, null);
+            if (c == null) {
+                return null;
+            }
+            List<Node> nodes = nodeMapper.mapNodes(c);
+            if (nodes.isEmpty()) {
+                return null;
+            }
+            node = nodes.get(0);
+            mNodes.put(id, node);
+        }
+        return node;
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.database.cascade;
+
+import android.content.Context;
+import android.database.SQLException;
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Process-wide registry of the open cascade resources, so that all the questions using the same
+ * resource share one connection and one cache of nodes. A resource is opened when first
+ * acquired and closed once every question using it has released it.
+ */
+@Singleton
+public class CascadeDBRegistry {
+
+    private final Context context;
+    private final Map<String, OpenDatabase> databases = new HashMap<>();
+
+    @Inject
+    public CascadeDBRegistry(Context context) {
+        this.context = context;
+    }
+
+    @NonNull
+    public synchronized CascadeDB acquire(@NonNull String dbPath) throws SQLException {
+        OpenDatabase openDatabase = databases.get(dbPath);
+        if (openDatabase == null) {
+            CascadeDB database = new CascadeDB(context, dbPath);
+            database.open();
+            openDatabase = new OpenDatabase(database);
+            databases.put(dbPath, openDatabase);
+        }
+        openDatabase.references++;
+        return openDatabase.database;
+    }
+
+    public synchronized void release(@NonNull CascadeDB database) {
+        OpenDatabase openDatabase = databases.get(database.getPath());
+        if (openDatabase == null || openDatabase.database != database) {
+            return;
+        }
+        openDatabase.references--;
+        if (openDatabase.references == 0) {
+            databases.remove(database.getPath());
+            database.close();
+        }
+    }
+
+    private static class OpenDatabase {
+
+        final CascadeDB database;
+        int references;
+
+        OpenDatabase(CascadeDB database) {
+            this.database = database;
+        }
+    }
+}
@@ -24,21 +24,37 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+/**
+ * Builds the indexes of a cascade resource, see {@link CascadeDB#prepare(Context, String)}. The
+ * database version tells whether they have been built.
+ */
 public class CascadeDatabaseHelper extends SQLiteOpenHelper {
 
-    private static final int VERSION = 1;
+    private static final int VER_NODE_INDEXES = 2;
+    static final int VERSION = VER_NODE_INDEXES;
 
     public CascadeDatabaseHelper(Context context, String dbPath) {
         super(context, dbPath, null, VERSION);
     }
 
+    /**
+     * Downloaded resources have no version, so this is invoked the first time they are prepared
+     */
     @Override
     public void onCreate(SQLiteDatabase db) {
-        //EMPTY
+        createIndexes(db);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        //EMPTY
+        if (oldVersion < VER_NODE_INDEXES) {
+            createIndexes(db);
+        }
+    }
+
+    private void createIndexes(SQLiteDatabase db) {
+        for (String sql : NodeIndexes.getCreateSql()) {
+            db.execSQL(sql);
+        }
     }
 }
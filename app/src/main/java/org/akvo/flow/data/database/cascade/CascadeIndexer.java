@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.database.cascade;
+
+import android.content.Context;
+import android.database.SQLException;
+import android.support.annotation.NonNull;
+
+import org.akvo.flow.data.preference.Prefs;
+import org.akvo.flow.util.ConstantUtil;
+
+import java.io.File;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Builds the indexes of the installed cascade resources away from the main thread (see
+ * {@link CascadeDB#prepare(Context, String)}). The indexes version they were built for is kept
+ * in the preferences: resources installed by an older app version, or which could not be
+ * prepared when installed, are prepared again the next time the app starts.
+ */
+public class CascadeIndexer {
+
+    private static final int NOT_INDEXED = 0;
+
+    private final Context context;
+    private final Prefs prefs;
+
+    public CascadeIndexer(Context context, Prefs prefs) {
+        this.context = context;
+        this.prefs = prefs;
+    }
+
+    /**
+     * @return true if some installed resources may not have been prepared yet
+     */
+    public boolean isPending() {
+        return prefs.getInt(Prefs.KEY_CASCADE_INDEX_VERSION, NOT_INDEXED)
+                < CascadeDatabaseHelper.VERSION;
+    }
+
+    /**
+     * Prepares a newly installed resource
+     *
+     * @return false if it could not be prepared, it is then retried when the app starts
+     */
+    public boolean prepare(@NonNull File file) {
+        try {
+            CascadeDB.prepare(context, file.getAbsolutePath());
+            return true;
+        } catch (SQLException e) {
+            Timber.e(e, "Could not index cascade resource: " + file.getName());
+            prefs.setInt(Prefs.KEY_CASCADE_INDEX_VERSION, NOT_INDEXED);
+            return false;
+        }
+    }
+
+    /**
+     * Prepares all the resources found in the given folders. Those already prepared are only
+     * opened, to check their version.
+     */
+    public void prepareAll(@NonNull List<File> folders) {
+        boolean prepared = true;
+        for (File folder : folders) {
+            File[] files = folder.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (file.getName().endsWith(ConstantUtil.CASCADE_DB_SUFFIX) && !prepare(file)) {
+                    prepared = false;
+                }
+            }
+        }
+        if (prepared) {
+            prefs.setInt(Prefs.KEY_CASCADE_INDEX_VERSION, CascadeDatabaseHelper.VERSION);
+        }
+    }
+}
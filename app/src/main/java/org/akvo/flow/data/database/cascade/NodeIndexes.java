@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.database.cascade;
+
+import android.support.annotation.Nullable;
+
+import java.util.Locale;
+
+/**
+ * Indexes built over the nodes of a cascade resource: one listing the children of a node by
+ * name, and a full text one looking nodes up by the first letters of the words of their names.
+ * They are built once, when the resource is downloaded or first opened.
+ */
+final class NodeIndexes {
+
+    static final String TABLE_NODE = "nodes";
+    static final String TABLE_NODE_SEARCH = "nodes_search";
+
+    private static final String PARENT_INDEX = "node_parent_idx";
+
+    private NodeIndexes() {
+    }
+
+    static String[] getCreateSql() {
+        return new String[] {
+                "CREATE INDEX IF NOT EXISTS " + PARENT_INDEX + " ON " + TABLE_NODE + " ("
+                        + NodeColumns.PARENT + ", " + NodeColumns.NAME + ")",
+                "DROP TABLE IF EXISTS " + TABLE_NODE_SEARCH,
+                "CREATE VIRTUAL TABLE " + TABLE_NODE_SEARCH + " USING fts3(" + NodeColumns.NAME
+                        + ")",
+                "INSERT INTO " + TABLE_NODE_SEARCH + " (docid, " + NodeColumns.NAME + ") SELECT "
+                        + NodeColumns.ID + ", " + NodeColumns.NAME + " FROM " + TABLE_NODE
+        };
+    }
+
+    /**
+     * @return the query of the nodes matching the full text query bound to it, by name
+     */
+    static String getSearchSql(int limit) {
+        return "SELECT " + TABLE_NODE + ".* FROM " + TABLE_NODE_SEARCH + " JOIN " + TABLE_NODE
+                + " ON " + TABLE_NODE + "." + NodeColumns.ID + " = " + TABLE_NODE_SEARCH
+                + ".docid WHERE " + TABLE_NODE_SEARCH + " MATCH ? ORDER BY " + TABLE_NODE + "."
+                + NodeColumns.NAME + " LIMIT " + limit;
+    }
+
+    /**
+     * Turns the text typed by the user into a full text query matching the names which contain
+     * words starting with every typed word. Anything else than letters and digits is dropped, so
+     * the text can not be taken as query syntax.
+     *
+     * @return the query, null if the text has no word
+     */
+    @Nullable
+    static String getMatchQuery(@Nullable String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() > 0) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append(word).append('*');
+            }
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.loader;
+
+import android.support.annotation.NonNull;
+
+import org.akvo.flow.data.loader.models.Stats;
+import org.akvo.flow.database.StatsTable;
+
+import java.util.Calendar;
+
+/**
+ * Builds {@link Stats} out of the bucketed counters of {@link StatsTable}. Buckets are mapped to
+ * local days, so the per day figures follow the device time zone and daylight saving changes.
+ */
+public class StatsCalculator {
+
+    private final long[] dayStarts;
+    private final Stats stats = new Stats();
+
+    /**
+     * @param days number of days, including today, to compute daily stats for
+     * @param now  the current time, in the local time zone
+     */
+    public StatsCalculator(int days, @NonNull Calendar now) {
+        Calendar calendar = (Calendar) now.clone();
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        dayStarts = new long[days];
+        for (int i = 0; i < days; i++) {
+            dayStarts[i] = calendar.getTimeInMillis();
+            stats.mDays.add(new Stats.DailyStats(dayStarts[i]));
+            calendar.add(Calendar.DAY_OF_MONTH, -1);
+        }
+    }
+
+    /**
+     * @return start of the oldest day, buckets before it only count towards totals
+     */
+    public long getSinceTime() {
+        return dayStarts[dayStarts.length - 1];
+    }
+
+    /**
+     * @param bucket the bucket, or -1 for counts older than {@link #getSinceTime()}
+     */
+    public void add(int kind, long bucket, int count) {
+        if (kind == StatsTable.KIND_RECORD_MODIFIED) {
+            stats.mTotal += count;
+        }
+        int day = bucket < 0 ? -1 : getDay(bucket * StatsTable.BUCKET_MS);
+        if (day < 0) {
+            return;
+        }
+        Stats.DailyStats dailyStats = stats.mDays.get(day);
+        switch (kind) {
+            case StatsTable.KIND_RECORD_MODIFIED:
+                dailyStats.mModified += count;
+                stats.mThisWeek += count;
+                if (day == 0) {
+                    stats.mToday += count;
+                }
+                break;
+            case StatsTable.KIND_FORM_SUBMITTED:
+                dailyStats.mSubmitted += count;
+                break;
+            case StatsTable.KIND_FORM_EXPORTED:
+                dailyStats.mExported += count;
+                break;
+            case StatsTable.KIND_FORM_SYNCED:
+                dailyStats.mSynced += count;
+                break;
+            default:
+                break;
+        }
+    }
+
+    @NonNull
+    public Stats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return the index of the day containing the given time, -1 if older than the oldest day.
+     * Times in the future (ie: clock changes) count as today.
+     */
+    private int getDay(long time) {
+        for (int i = 0; i < dayStarts.length; i++) {
+            if (time >= dayStarts[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
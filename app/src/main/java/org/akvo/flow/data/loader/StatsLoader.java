@@ -1,5 +1,5 @@
 /*
- *  Copyright (C) 2014-2017 Stichting Akvo (Akvo Foundation)
+ *  Copyright (C) 2014-2018 Stichting Akvo (Akvo Foundation)
  *
  * This file is part of Akvo Flow.
  *
@@ -28,18 +28,15 @@ import org.akvo.flow.data.loader.models.Stats;
 import org.akvo.flow.data.migration.FlowMigrationListener;
 import org.akvo.flow.data.migration.languages.MigrationLanguageMapper;
 import org.akvo.flow.data.preference.Prefs;
-import org.akvo.flow.database.RecordColumns;
 import org.akvo.flow.database.SurveyDbAdapter;
-import org.akvo.flow.database.SurveyDbAdapter.RecordQuery;
-import org.akvo.flow.database.Tables;
 
 import java.util.Calendar;
 
 public class StatsLoader extends AsyncLoader<Stats> {
 
-    private final long mSurveyGroupId;
+    private static final int DAYS = 7;
 
-    private static final long WEEK_IN_MS = 1000 * 60 * 60 * 24 * 7;// Week milliseconds
+    private final long mSurveyGroupId;
 
     public StatsLoader(Context context, long surveyGroupId) {
         super(context);
@@ -52,43 +49,15 @@ public class StatsLoader extends AsyncLoader<Stats> {
         SurveyDbAdapter database = new SurveyDbAdapter(context,
                 new FlowMigrationListener(new Prefs(context), new MigrationLanguageMapper(context)));
         database.open();
-        Stats stats = new Stats();
-
-        Cursor c = queryRecords(database, 0);
-        if (c != null) {
-            stats.mTotal = c.getCount();
-            c.close();
-        }
-
-        c = queryRecords(database, System.currentTimeMillis() - WEEK_IN_MS);
+        StatsCalculator calculator = new StatsCalculator(DAYS, Calendar.getInstance());
+        Cursor c = database.getStats(mSurveyGroupId, calculator.getSinceTime());
         if (c != null) {
-            stats.mThisWeek = c.getCount();
-            c.close();
-        }
-
-        // Setup a calendar with last midnight's date
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-
-        c = queryRecords(database, calendar.getTimeInMillis());
-        if (c != null) {
-            stats.mToday = c.getCount();
+            while (c.moveToNext()) {
+                calculator.add(c.getInt(0), c.getLong(1), c.getInt(2));
+            }
             c.close();
         }
         database.close();
-        return stats;
-    }
-
-    private Cursor queryRecords(SurveyDbAdapter db, long minDate) {
-        return db.query(Tables.RECORD, RecordQuery.PROJECTION,
-                RecordColumns.SURVEY_GROUP_ID + " = ? AND " + RecordColumns.LAST_MODIFIED + " > ?",
-                new String[] {
-                        String.valueOf(mSurveyGroupId),
-                        String.valueOf(minDate)
-                },
-                null, null, null);
+        return calculator.getStats();
     }
 }
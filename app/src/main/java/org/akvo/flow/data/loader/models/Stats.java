@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2010-2017 Stichting Akvo (Akvo Foundation)
+ * Copyright (C) 2010-2018 Stichting Akvo (Akvo Foundation)
  *
  * This file is part of Akvo Flow.
  *
@@ -20,8 +20,28 @@
 
 package org.akvo.flow.data.loader.models;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class Stats {
     public int mTotal;
     public int mThisWeek;
     public int mToday;
+
+    /**
+     * One entry per day, today first
+     */
+    public final List<DailyStats> mDays = new ArrayList<>();
+
+    public static class DailyStats {
+        public final long mDate;// Local midnight of the day, in ms
+        public int mModified;
+        public int mSubmitted;
+        public int mExported;
+        public int mSynced;
+
+        public DailyStats(long date) {
+            this.mDate = date;
+        }
+    }
 }
@@ -30,8 +30,11 @@ import org.akvo.flow.data.migration.preferences.InsertablePreferences;
 import org.akvo.flow.data.migration.preferences.MigratablePreferences;
 import org.akvo.flow.data.migration.preferences.PreferenceExtractor;
 import org.akvo.flow.data.migration.preferences.PreferenceMapper;
+import org.akvo.flow.data.migration.signatures.ArchivedSignatureFilesMigration;
+import org.akvo.flow.data.migration.signatures.ResponseSignatureFilesMigration;
 import org.akvo.flow.data.preference.Prefs;
 import org.akvo.flow.database.migration.MigrationListener;
+import org.akvo.flow.database.migration.ResumableMigration;
 
 import java.util.Set;
 
@@ -72,4 +75,14 @@ public class FlowMigrationListener implements MigrationListener {
         InsertablePreferences insertablePreferences = mapper.transform(migratablePreferences);
         prefs.insertUserPreferences(insertablePreferences);
     }
+
+    @Override
+    public ResumableMigration getSignatureMigration() {
+        return new ResponseSignatureFilesMigration();
+    }
+
+    @Override
+    public ResumableMigration getArchivedSignatureMigration() {
+        return new ArchivedSignatureFilesMigration();
+    }
 }
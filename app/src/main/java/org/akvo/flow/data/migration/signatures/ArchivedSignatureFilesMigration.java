@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.migration.signatures;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+
+import org.akvo.flow.database.ResponseArchive;
+import org.akvo.flow.database.ResponseArchiveTable;
+import org.akvo.flow.database.ResponseColumns;
+import org.akvo.flow.domain.response.value.Signature;
+import org.akvo.flow.serialization.response.value.SignatureValue;
+import org.akvo.flow.util.ConstantUtil;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Moves the base64 images of the signature responses kept in the {@link ResponseArchiveTable}
+ * to media files, rewriting the archive of every instance which had any
+ */
+public class ArchivedSignatureFilesMigration extends SignatureFilesMigration {
+
+    private static final int BATCH_SIZE = 20;
+
+    private final ResponseArchiveTable responseArchiveTable = new ResponseArchiveTable();
+
+    /**
+     * Moves the signatures of the next archived instances after the given instance id
+     *
+     * @return the id of the last instance of the batch, or {@link #DONE} if there is no instance
+     * left. If a signature can not be written, the id of the last instance rewritten before it,
+     * or the given one if none was.
+     */
+    @Override
+    long moveSignatures(SQLiteDatabase database, long position) {
+        List<Long> instanceIds = responseArchiveTable
+                .getInstanceIds(database, position, BATCH_SIZE);
+        int moved = 0;
+        long completed = position;
+        for (long instanceId : instanceIds) {
+            ResponseArchive archive = responseArchiveTable.read(database, instanceId);
+            if (archive == null) {
+                completed = instanceId;
+                continue;
+            }
+            int writtenFiles = getWrittenFileCount();
+            try {
+                int archiveMoved = moveSignatures(archive);
+                if (archiveMoved > 0) {
+                    responseArchiveTable.update(database, instanceId, archive);
+                    moved += archiveMoved;
+                }
+            } catch (IOException e) {
+                // The archive is not rewritten, so none of its new files is referenced
+                deleteFilesWrittenAfter(writtenFiles);
+                Timber.w(e, "Moved %d archived signatures to files before failing", moved);
+                return completed;
+            }
+            completed = instanceId;
+        }
+        Timber.i("Moved %d archived signatures to files", moved);
+        if (instanceIds.size() < BATCH_SIZE) {
+            return DONE;
+        }
+        return instanceIds.get(instanceIds.size() - 1);
+    }
+
+    /**
+     * @return the number of signatures moved, their rows updated in place
+     */
+    private int moveSignatures(ResponseArchive archive) throws IOException {
+        List<String> columns = Arrays.asList(archive.getColumns());
+        int answerColumn = columns.indexOf(ResponseColumns.ANSWER);
+        int typeColumn = columns.indexOf(ResponseColumns.TYPE);
+        int filenameColumn = columns.indexOf(ResponseColumns.FILENAME);
+        if (answerColumn == -1 || typeColumn == -1 || filenameColumn == -1) {
+            return 0;
+        }
+        int moved = 0;
+        for (String[] row : archive.getRows()) {
+            if (!ConstantUtil.SIGNATURE_RESPONSE_TYPE.equals(row[typeColumn])
+                    || !TextUtils.isEmpty(row[filenameColumn])) {
+                continue;
+            }
+            Signature signature = moveImageToFile(row[answerColumn]);
+            if (signature != null) {
+                row[answerColumn] = SignatureValue.serialize(signature);
+                row[filenameColumn] = signature.getFilename();
+                moved++;
+            }
+        }
+        return moved;
+    }
+}
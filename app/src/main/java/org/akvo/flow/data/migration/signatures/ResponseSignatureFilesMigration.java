@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.migration.signatures;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.akvo.flow.database.ResponseColumns;
+import org.akvo.flow.database.Tables;
+import org.akvo.flow.domain.response.value.Signature;
+import org.akvo.flow.serialization.response.value.SignatureValue;
+import org.akvo.flow.util.ConstantUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Moves the base64 images of the signature responses to media files referenced by {@link
+ * ResponseColumns#FILENAME}
+ */
+public class ResponseSignatureFilesMigration extends SignatureFilesMigration {
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final String SELECTION = ResponseColumns.TYPE + " = ? AND ("
+            + ResponseColumns.FILENAME + " IS NULL OR " + ResponseColumns.FILENAME + " = '')"
+            + " AND " + ResponseColumns.ANSWER + " LIKE '%\"image\"%'";
+
+    /**
+     * Moves the signatures of the next responses after the given response id
+     *
+     * @return the id of the last response of the batch, or {@link #DONE} if there is no signature
+     * left to move. If a signature can not be written, the id of the last response moved before
+     * it, or the given one if none was.
+     */
+    @Override
+    long moveSignatures(SQLiteDatabase database, long position) {
+        List<Long> responseIds = getResponseIds(database, position);
+        int moved = 0;
+        long completed = position;
+        for (long responseId : responseIds) {
+            Signature signature;
+            try {
+                signature = moveImageToFile(getAnswer(database, responseId));
+            } catch (IOException e) {
+                Timber.w(e, "Moved %d signatures to files before failing", moved);
+                return completed;
+            }
+            completed = responseId;
+            if (signature == null) {
+                continue;
+            }
+            ContentValues values = new ContentValues(2);
+            values.put(ResponseColumns.ANSWER, SignatureValue.serialize(signature));
+            values.put(ResponseColumns.FILENAME, signature.getFilename());
+            database.update(Tables.RESPONSE, values, ResponseColumns._ID + " = ?",
+                    new String[] { String.valueOf(responseId) });
+            moved++;
+        }
+        Timber.i("Moved %d signatures to files", moved);
+        if (responseIds.size() < BATCH_SIZE) {
+            return DONE;
+        }
+        return responseIds.get(responseIds.size() - 1);
+    }
+
+    /**
+     * Ids are loaded first, as the rows leave the selection once they are updated
+     */
+    private List<Long> getResponseIds(SQLiteDatabase database, long afterId) {
+        List<Long> ids = new ArrayList<>();
+        Cursor cursor = database.query(Tables.RESPONSE, new String[] { ResponseColumns._ID },
+                ResponseColumns._ID + " > ? AND " + SELECTION,
+                new String[] { String.valueOf(afterId), ConstantUtil.SIGNATURE_RESPONSE_TYPE },
+                null, null, ResponseColumns._ID, String.valueOf(BATCH_SIZE));
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+            cursor.close();
+        }
+        return ids;
+    }
+
+    private String getAnswer(SQLiteDatabase database, long responseId) {
+        String answer = null;
+        Cursor cursor = database.query(Tables.RESPONSE, new String[] { ResponseColumns.ANSWER },
+                ResponseColumns._ID + " = ?", new String[] { String.valueOf(responseId) }, null,
+                null, null);
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                answer = cursor.getString(0);
+            }
+            cursor.close();
+        }
+        return answer;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.migration.signatures;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import org.akvo.flow.database.migration.ResumableMigration;
+import org.akvo.flow.database.migration.UndoableMigration;
+import org.akvo.flow.domain.response.value.Signature;
+import org.akvo.flow.serialization.response.value.SignatureValue;
+import org.akvo.flow.util.ImageUtil;
+import org.akvo.flow.util.files.SignatureFileBrowser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moving the base64 images of signature responses to media files, a batch at a time. The files
+ * written by a batch are deleted if its transaction is rolled back, so that none is left without
+ * a response referencing it.
+ * <p>
+ * If a signature can not be written, when the storage is not available, the batch stops after
+ * the last row completed and the migration stays pending, to be resumed later. Until then the
+ * signatures keep their base64 image, which is still displayed and submitted.
+ */
+abstract class SignatureFilesMigration implements UndoableMigration {
+
+    private final List<File> writtenFiles = new ArrayList<>();
+
+    @Override
+    public long migrateBatch(SQLiteDatabase db, long position) {
+        writtenFiles.clear();
+        return moveSignatures(db, position);
+    }
+
+    /**
+     * @see ResumableMigration#migrateBatch(SQLiteDatabase, long)
+     */
+    abstract long moveSignatures(SQLiteDatabase db, long position);
+
+    @Override
+    public void onBatchRolledBack() {
+        deleteFilesWrittenAfter(0);
+    }
+
+    /**
+     * @return the number of files written by the current batch
+     */
+    int getWrittenFileCount() {
+        return writtenFiles.size();
+    }
+
+    /**
+     * Deletes the files written by the current batch after the given number of them, when the
+     * rows referencing them are not saved
+     */
+    void deleteFilesWrittenAfter(int count) {
+        while (writtenFiles.size() > count) {
+            File file = writtenFiles.remove(writtenFiles.size() - 1);
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    /**
+     * Writes the base64 image of a signature answer to a new media file
+     *
+     * @return the signature referencing the file instead of holding the image, null if the answer
+     * holds no image
+     * @throws IOException if the file can not be written, in which case it is deleted
+     */
+    @Nullable
+    Signature moveImageToFile(String answer) throws IOException {
+        Signature signature = SignatureValue.deserialize(answer);
+        if (signature == null || TextUtils.isEmpty(signature.getImage())) {
+            return null;
+        }
+        File file = SignatureFileBrowser.getSignatureMediaFile();
+        writtenFiles.add(file);
+        if (!ImageUtil.decodeBase64(signature.getImage(), file)) {
+            deleteFilesWrittenAfter(writtenFiles.size() - 1);
+            throw new IOException("Could not write signature " + file.getName());
+        }
+        signature.setImage(null);
+        signature.setFilename(file.getAbsolutePath());
+        return signature;
+    }
+}
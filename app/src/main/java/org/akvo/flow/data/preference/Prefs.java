@@ -45,6 +45,14 @@ public class Prefs {
     public static final String KEY_DEVICE_IDENTIFIER = "device.identifier";
     public static final String KEY_MAX_IMG_SIZE = "media.img.maxsize";
     public static final String KEY_SPACE_AVAILABLE = "cardMBAvaliable";
+    public static final String KEY_DATABASE_MAINTENANCE_TIME = "database.maintenance.time";
+    public static final String KEY_DATABASE_SIZE_BEFORE = "database.size.before";
+    public static final String KEY_DATABASE_SIZE_AFTER = "database.size.after";
+    public static final String KEY_DATABASE_TABLE_ROWS = "database.table.rows";
+    public static final String KEY_RESPONSE_ARCHIVE_DAYS = "response.archive.days";
+    public static final String KEY_CASCADE_INDEX_VERSION = "cascade.index.version";
+    public static final String KEY_MEDIA_PREFETCH = "media.prefetch";
+    public static final String KEY_PREFETCHED_MEDIA = "media.prefetched";
 
     private static final String PREFS_NAME = "flow_prefs";
     private static final int PREFS_MODE = Context.MODE_PRIVATE;
@@ -53,8 +61,10 @@ public class Prefs {
     public static final int DEFAULT_VALUE_IMAGE_SIZE = ConstantUtil.IMAGE_SIZE_320_240;
     public static final boolean DEFAULT_VALUE_CELL_UPLOAD = false;
     public static final boolean DEFAULT_VALUE_SCREEN_ON = true;
+    public static final boolean DEFAULT_VALUE_MEDIA_PREFETCH = true;
     public static final long DEF_VALUE_SPACE_AVAILABLE = 101L;
     public static final long DEFAULT_VALUE_USER_ID = -1;
+    public static final int DEFAULT_VALUE_RESPONSE_ARCHIVE_DAYS = 90;
 
     private final Context context;
 
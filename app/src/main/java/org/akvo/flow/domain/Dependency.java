@@ -21,7 +21,9 @@ package org.akvo.flow.domain;
 
 import org.akvo.flow.serialization.response.value.OptionValue;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * data structure representing a dependency between questions. A dependency
@@ -36,6 +38,11 @@ public class Dependency {
     private String question;
     private String answer;
 
+    // Parsed once, as dependencies are checked again every time a response changes
+    private Set<String> answerTexts;
+    private String lastValue;
+    private boolean lastMatch;
+
     public Dependency() {
     }
 
@@ -61,22 +68,41 @@ public class Dependency {
 
     public void setAnswer(String answer) {
         this.answer = answer;
+        this.answerTexts = null;
+        this.lastValue = null;
     }
 
     public boolean isMatch(String val) {
         if (answer == null || val == null) {
             return answer == val;
         }
+        if (val.equals(lastValue)) {
+            return lastMatch;
+        }
 
+        boolean match = false;
+        Set<String> texts = getAnswerTexts();
         List<Option> values = OptionValue.deserialize(val);
         for (Option o : values) {
-            for (String a : answer.split("\\|", -1)) {
-                if (o.getText().trim().equals(a.trim())) {
-                    return true;
-                }
+            if (texts.contains(o.getText().trim())) {
+                match = true;
+                break;
             }
         }
 
-        return false;
+        lastValue = val;
+        lastMatch = match;
+        return match;
+    }
+
+    private Set<String> getAnswerTexts() {
+        if (answerTexts == null) {
+            Set<String> texts = new HashSet<>();
+            for (String a : answer.split("\\|", -1)) {
+                texts.add(a.trim());
+            }
+            answerTexts = texts;
+        }
+        return answerTexts;
     }
 }
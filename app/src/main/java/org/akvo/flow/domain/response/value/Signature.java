@@ -24,6 +24,7 @@ import android.text.TextUtils;
 public class Signature {
     private String name;
     private String image;
+    private String filename;
 
     public String getName() {
         return name;
@@ -41,12 +42,27 @@ public class Signature {
         this.image = image;
     }
 
+    /**
+     * @return the image file, null for older signatures which only have the base64 image
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public boolean hasImage() {
+        return !TextUtils.isEmpty(image) || !TextUtils.isEmpty(filename);
+    }
+
     public boolean isValid() {
         // Either both or none
         if (TextUtils.isEmpty(name)) {
-            return TextUtils.isEmpty(image);
+            return !hasImage();
         }
-        return !TextUtils.isEmpty(image);
+        return hasImage();
     }
 
 }
@@ -19,10 +19,12 @@
 
 package org.akvo.flow.event;
 
+import org.akvo.flow.domain.Question;
 import org.akvo.flow.domain.QuestionGroup;
 import org.akvo.flow.domain.QuestionResponse;
 import org.akvo.flow.ui.view.QuestionView;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -36,7 +38,10 @@ public interface SurveyListener {
     void openQuestion(String questionId);
     Map<String, QuestionResponse> getResponses();
     void deleteResponse(String questionId);
-    void deleteResponse(String questionId, String iteration);
+    void deleteRepetition(Collection<String> questionIds, int repetitionId);
+    void onRepetitionAdded(QuestionGroup group, int repetitionId);
+    void onQuestionErrorChanged(String questionId, boolean error);
+    List<Question> getInvalidQuestions();
     QuestionView getQuestionView(String questionId);
     String getDatapointId();
     String getFormId();
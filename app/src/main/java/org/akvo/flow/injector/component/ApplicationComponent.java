@@ -25,6 +25,8 @@ import android.content.Context;
 import com.squareup.sqlbrite2.BriteDatabase;
 
 import org.akvo.flow.app.FlowApp;
+import org.akvo.flow.async.MediaDownloadQueue;
+import org.akvo.flow.data.database.cascade.CascadeDBRegistry;
 import org.akvo.flow.domain.executor.PostExecutionThread;
 import org.akvo.flow.domain.executor.ThreadExecutor;
 import org.akvo.flow.domain.repository.FileRepository;
@@ -35,8 +37,10 @@ import org.akvo.flow.injector.module.ViewModule;
 import org.akvo.flow.presentation.BaseActivity;
 import org.akvo.flow.service.BootstrapService;
 import org.akvo.flow.service.DataSyncService;
+import org.akvo.flow.service.DatabaseMaintenanceService;
 import org.akvo.flow.service.FileChangeTrackingService;
 import org.akvo.flow.service.SurveyDownloadService;
+import org.akvo.flow.util.image.ThumbnailCache;
 import org.akvo.flow.util.logging.LoggingHelper;
 
 import javax.inject.Singleton;
@@ -69,6 +73,12 @@ public interface ApplicationComponent {
 
     UserRepository userRepository();
 
+    CascadeDBRegistry cascadeDBRegistry();
+
+    ThumbnailCache thumbnailCache();
+
+    MediaDownloadQueue mediaDownloadQueue();
+
     void inject(FileChangeTrackingService fileChangeTrackingService);
 
     void inject(SurveyDownloadService surveyDownloadService);
@@ -76,4 +86,6 @@ public interface ApplicationComponent {
     void inject(BootstrapService bootstrapService);
 
     void inject(DataSyncService dataSyncService);
+
+    void inject(DatabaseMaintenanceService databaseMaintenanceService);
 }
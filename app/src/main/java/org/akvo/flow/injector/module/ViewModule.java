@@ -26,15 +26,20 @@ import org.akvo.flow.domain.interactor.DeleteSurvey;
 import org.akvo.flow.domain.interactor.DeleteUser;
 import org.akvo.flow.domain.interactor.EditUser;
 import org.akvo.flow.domain.interactor.GetAllSurveys;
-import org.akvo.flow.domain.interactor.GetSavedDataPoints;
+import org.akvo.flow.domain.interactor.GetDataPointChanges;
+import org.akvo.flow.domain.interactor.GetDataPointClusters;
+import org.akvo.flow.domain.interactor.GetDataPointsPage;
 import org.akvo.flow.domain.interactor.GetUserSettings;
 import org.akvo.flow.domain.interactor.GetUsers;
+import org.akvo.flow.domain.interactor.RefreshDataPoints;
 import org.akvo.flow.domain.interactor.SaveAppLanguage;
 import org.akvo.flow.domain.interactor.SaveEnableMobileData;
 import org.akvo.flow.domain.interactor.SaveImage;
 import org.akvo.flow.domain.interactor.SaveImageSize;
 import org.akvo.flow.domain.interactor.SaveKeepScreenOn;
+import org.akvo.flow.domain.interactor.SaveMediaPrefetch;
 import org.akvo.flow.domain.interactor.SaveSelectedSurvey;
+import org.akvo.flow.domain.interactor.SearchDataPoints;
 import org.akvo.flow.domain.interactor.SelectUser;
 import org.akvo.flow.domain.interactor.SaveResizedImage;
 import org.akvo.flow.domain.interactor.UseCase;
@@ -54,9 +59,33 @@ public class ViewModule {
     }
 
     @Provides
-    @Named("getSavedDataPoints")
-    UseCase provideGetSavedDataPointsUseCase(GetSavedDataPoints getSavedDataPoints) {
-        return getSavedDataPoints;
+    @Named("getDataPointsPage")
+    UseCase provideGetDataPointsPageUseCase(GetDataPointsPage getDataPointsPage) {
+        return getDataPointsPage;
+    }
+
+    @Provides
+    @Named("searchDataPoints")
+    UseCase provideSearchDataPointsUseCase(SearchDataPoints searchDataPoints) {
+        return searchDataPoints;
+    }
+
+    @Provides
+    @Named("getDataPointChanges")
+    UseCase provideGetDataPointChangesUseCase(GetDataPointChanges getDataPointChanges) {
+        return getDataPointChanges;
+    }
+
+    @Provides
+    @Named("refreshDataPoints")
+    UseCase provideRefreshDataPointsUseCase(RefreshDataPoints refreshDataPoints) {
+        return refreshDataPoints;
+    }
+
+    @Provides
+    @Named("getDataPointClusters")
+    UseCase provideGetDataPointClustersUseCase(GetDataPointClusters getDataPointClusters) {
+        return getDataPointClusters;
     }
 
     @Provides
@@ -95,6 +124,12 @@ public class ViewModule {
         return saveKeepScreenOn;
     }
 
+    @Provides
+    @Named("saveMediaPrefetch")
+    UseCase provideSaveMediaPrefetch(SaveMediaPrefetch saveMediaPrefetch) {
+        return saveMediaPrefetch;
+    }
+
     @Provides
     @Named("getAllSurveys")
     UseCase provideGetAllSurveys(GetAllSurveys getAllSurveys) {
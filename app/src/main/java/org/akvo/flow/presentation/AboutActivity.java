@@ -22,16 +22,23 @@ package org.akvo.flow.presentation;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.TextUtils;
+import android.text.format.DateFormat;
+import android.text.format.Formatter;
+import android.view.View;
 import android.widget.TextView;
 
 import org.akvo.flow.BuildConfig;
 import org.akvo.flow.R;
 import org.akvo.flow.activity.BackActivity;
+import org.akvo.flow.data.preference.Prefs;
 import org.akvo.flow.injector.component.DaggerViewComponent;
 import org.akvo.flow.injector.component.ViewComponent;
 import org.akvo.flow.service.UserRequestedApkUpdateService;
 import org.akvo.flow.ui.Navigator;
 
+import java.util.Date;
+
 import javax.inject.Inject;
 
 import butterknife.BindView;
@@ -43,12 +50,21 @@ public class AboutActivity extends BackActivity {
     @Inject
     Navigator navigator;
 
+    @Inject
+    Prefs prefs;
+
     @BindView(R.id.text_version)
     TextView version;
 
     @BindView(R.id.text_copyright)
     TextView copyright;
 
+    @BindView(R.id.text_database_size)
+    TextView databaseSize;
+
+    @BindView(R.id.text_database_tables)
+    TextView databaseTables;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -62,6 +78,29 @@ public class AboutActivity extends BackActivity {
     private void initializeViews() {
         version.setText(getString(R.string.about_view_version, BuildConfig.VERSION_NAME));
         copyright.setText(getString(R.string.about_view_copyright, BuildConfig.BUILD_YEAR));
+        initializeDatabaseSize();
+    }
+
+    /**
+     * Displays the result of the last database maintenance, if there was any
+     */
+    private void initializeDatabaseSize() {
+        long time = prefs.getLong(Prefs.KEY_DATABASE_MAINTENANCE_TIME, 0);
+        if (time == 0) {
+            return;
+        }
+        long sizeBefore = prefs.getLong(Prefs.KEY_DATABASE_SIZE_BEFORE, 0);
+        long sizeAfter = prefs.getLong(Prefs.KEY_DATABASE_SIZE_AFTER, 0);
+        databaseSize.setText(getString(R.string.about_view_database_size,
+                Formatter.formatFileSize(this, sizeAfter),
+                Formatter.formatFileSize(this, sizeBefore),
+                DateFormat.getDateFormat(this).format(new Date(time))));
+        databaseSize.setVisibility(View.VISIBLE);
+        String tableRows = prefs.getString(Prefs.KEY_DATABASE_TABLE_ROWS, null);
+        if (!TextUtils.isEmpty(tableRows)) {
+            databaseTables.setText(tableRows);
+            databaseTables.setVisibility(View.VISIBLE);
+        }
     }
 
     private void initializeInjector() {
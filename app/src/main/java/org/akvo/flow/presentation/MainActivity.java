@@ -20,16 +20,31 @@
 
 package org.akvo.flow.presentation;
 
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
+import android.support.v4.content.LocalBroadcastManager;
+import android.view.View;
+import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.TextView;
 
+import org.akvo.flow.R;
 import org.akvo.flow.data.preference.Prefs;
 import org.akvo.flow.injector.component.DaggerViewComponent;
 import org.akvo.flow.injector.component.ViewComponent;
+import org.akvo.flow.service.DatabaseMigrationService;
 import org.akvo.flow.ui.Navigator;
 
 import javax.inject.Inject;
 
+import butterknife.BindView;
+import butterknife.ButterKnife;
+import butterknife.OnClick;
+
 public class MainActivity extends BaseActivity {
 
     @Inject
@@ -38,10 +53,73 @@ public class MainActivity extends BaseActivity {
     @Inject
     Prefs prefs;
 
+    @BindView(R.id.migration_pb)
+    ProgressBar migrationProgress;
+
+    @BindView(R.id.migration_tv)
+    TextView migrationMessage;
+
+    @BindView(R.id.migration_retry_btn)
+    Button migrationRetryButton;
+
+    private boolean navigated;
+
+    private final BroadcastReceiver migrationsReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            updateMigrationState();
+        }
+    };
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         initializeInjector();
+        if (DatabaseMigrationService.isRunning() || DatabaseMigrationService.hasFailed()) {
+            // The responses can not be used until they are migrated
+            setContentView(R.layout.activity_main);
+            ButterKnife.bind(this);
+            IntentFilter filter = new IntentFilter(DatabaseMigrationService.ACTION_MIGRATIONS_DONE);
+            filter.addAction(DatabaseMigrationService.ACTION_MIGRATIONS_FAILED);
+            LocalBroadcastManager.getInstance(this).registerReceiver(migrationsReceiver, filter);
+            // The service may have stopped before the receiver was registered
+            updateMigrationState();
+        } else {
+            navigate();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        LocalBroadcastManager.getInstance(this).unregisterReceiver(migrationsReceiver);
+        super.onDestroy();
+    }
+
+    @OnClick(R.id.migration_retry_btn)
+    void retryMigrations() {
+        DatabaseMigrationService.start(getApplicationContext());
+        updateMigrationState();
+    }
+
+    private void updateMigrationState() {
+        if (DatabaseMigrationService.isRunning()) {
+            migrationProgress.setVisibility(View.VISIBLE);
+            migrationMessage.setText(R.string.database_migration_message);
+            migrationRetryButton.setVisibility(View.GONE);
+        } else if (DatabaseMigrationService.hasFailed()) {
+            migrationProgress.setVisibility(View.GONE);
+            migrationMessage.setText(R.string.database_migration_error);
+            migrationRetryButton.setVisibility(View.VISIBLE);
+        } else {
+            navigate();
+        }
+    }
+
+    private void navigate() {
+        if (navigated) {
+            return;
+        }
+        navigated = true;
         if (prefs.getBoolean(Prefs.KEY_SETUP, false)) {
             navigator.navigateToSurveyActivity(this);
         } else {
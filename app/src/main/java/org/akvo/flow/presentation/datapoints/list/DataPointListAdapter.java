@@ -47,14 +47,29 @@ import java.util.List;
 
 class DataPointListAdapter extends BaseAdapter {
 
+    /**
+     * Number of rows left to display before the next or previous page is requested
+     */
+    private static final int PREFETCH_DISTANCE = 10;
+
+    interface OnEdgeReachedListener {
+
+        void onStartReached();
+
+        void onEndReached();
+    }
+
     private Double latitude;
     private Double longitude;
     private final LayoutInflater inflater;
     private final String dataLabel;
     private final List<ListDataPoint> dataPoints;
+    private final OnEdgeReachedListener onEdgeReachedListener;
 
     DataPointListAdapter(Context context, @Nullable Double latitude,
-            @Nullable Double longitude, SurveyGroup surveyGroup) {
+            @Nullable Double longitude, SurveyGroup surveyGroup,
+            OnEdgeReachedListener onEdgeReachedListener) {
+        this.onEdgeReachedListener = onEdgeReachedListener;
         this.latitude = latitude;
         this.longitude = longitude;
         this.inflater = LayoutInflater.from(context);
@@ -90,6 +105,12 @@ class DataPointListAdapter extends BaseAdapter {
     @NonNull
     @Override
     public View getView(int position, View convertView, @NonNull ViewGroup parent) {
+        if (position >= getCount() - PREFETCH_DISTANCE) {
+            onEdgeReachedListener.onEndReached();
+        }
+        if (position < PREFETCH_DISTANCE) {
+            onEdgeReachedListener.onStartReached();
+        }
         View view;
         if (convertView == null) {
             view = inflater.inflate(R.layout.surveyed_locale_item, parent, false);
@@ -179,12 +200,52 @@ class DataPointListAdapter extends BaseAdapter {
         }
     }
 
+    /**
+     * Replaces the displayed datapoints. ListView can only be told the whole data set changed,
+     * which rebinds the visible rows, so nothing is done when the refreshed list holds the same
+     * datapoints as before: the presenter reuses the instances of the unchanged ones.
+     */
     void setDataPoints(List<ListDataPoint> dataPoints) {
+        if (isDisplayed(dataPoints)) {
+            return;
+        }
         this.dataPoints.clear();
         this.dataPoints.addAll(dataPoints);
         notifyDataSetChanged();
     }
 
+    private boolean isDisplayed(List<ListDataPoint> dataPoints) {
+        if (dataPoints.size() != this.dataPoints.size()) {
+            return false;
+        }
+        for (int i = 0; i < dataPoints.size(); i++) {
+            if (dataPoints.get(i) != this.dataPoints.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void appendDataPoints(List<ListDataPoint> dataPoints) {
+        this.dataPoints.addAll(dataPoints);
+        notifyDataSetChanged();
+    }
+
+    void prependDataPoints(List<ListDataPoint> dataPoints) {
+        this.dataPoints.addAll(0, dataPoints);
+        notifyDataSetChanged();
+    }
+
+    void removeFirstDataPoints(int count) {
+        dataPoints.subList(0, Math.min(count, dataPoints.size())).clear();
+        notifyDataSetChanged();
+    }
+
+    void removeLastDataPoints(int count) {
+        dataPoints.subList(Math.max(0, dataPoints.size() - count), dataPoints.size()).clear();
+        notifyDataSetChanged();
+    }
+
     void updateLocation(double latitude, double longitude) {
         this.latitude = latitude;
         this.longitude = longitude;
@@ -94,6 +94,7 @@ public class DataPointsListFragment extends Fragment implements LocationListener
     private Double mLongitude = null;
 
     private DataPointListAdapter mAdapter;
+    private ListView listView;
     private RecordListListener mListener;
 
     private TextView emptyTitleTv;
@@ -151,7 +152,7 @@ public class DataPointsListFragment extends Fragment implements LocationListener
                 .getSystemService(Context.LOCATION_SERVICE);
         weakLocationListener = new WeakLocationListener(this);
         View view = getView();
-        ListView listView = (ListView) view.findViewById(R.id.locales_lv);
+        listView = (ListView) view.findViewById(R.id.locales_lv);
         View emptyView = view.findViewById(R.id.empty_view);
         listView.setEmptyView(emptyView);
         emptyTitleTv = (TextView) view.findViewById(R.id.empty_title_tv);
@@ -159,7 +160,18 @@ public class DataPointsListFragment extends Fragment implements LocationListener
         emptyIv = (ImageView) view.findViewById(R.id.empty_iv);
         SurveyGroup surveyGroup = (SurveyGroup) getArguments()
                 .getSerializable(ConstantUtil.SURVEY_GROUP_EXTRA);
-        mAdapter = new DataPointListAdapter(getActivity(), mLatitude, mLongitude, surveyGroup);
+        mAdapter = new DataPointListAdapter(getActivity(), mLatitude, mLongitude, surveyGroup,
+                new DataPointListAdapter.OnEdgeReachedListener() {
+                    @Override
+                    public void onStartReached() {
+                        presenter.onListStartReached();
+                    }
+
+                    @Override
+                    public void onEndReached() {
+                        presenter.onListEndReached();
+                    }
+                });
         listView.setAdapter(mAdapter);
         listView.setOnItemClickListener(this);
         progressBar = (ProgressBar) view.findViewById(R.id.progress);
@@ -407,6 +419,49 @@ public class DataPointsListFragment extends Fragment implements LocationListener
         }
     }
 
+    @Override
+    public void appendData(List<ListDataPoint> listDataPoints) {
+        if (mAdapter != null) {
+            mAdapter.appendDataPoints(listDataPoints);
+        }
+    }
+
+    @Override
+    public void prependData(List<ListDataPoint> listDataPoints) {
+        if (mAdapter != null) {
+            int first = listView.getFirstVisiblePosition();
+            int top = getFirstVisibleTop();
+            mAdapter.prependDataPoints(listDataPoints);
+            listView.setSelectionFromTop(first + listDataPoints.size(), top);
+        }
+    }
+
+    @Override
+    public void removeFirstData(int count) {
+        if (mAdapter != null) {
+            int first = listView.getFirstVisiblePosition();
+            int top = getFirstVisibleTop();
+            mAdapter.removeFirstDataPoints(count);
+            listView.setSelectionFromTop(Math.max(0, first - count), top);
+        }
+    }
+
+    @Override
+    public void removeLastData(int count) {
+        if (mAdapter != null) {
+            mAdapter.removeLastDataPoints(count);
+        }
+    }
+
+    /**
+     * @return the offset of the first visible row, to keep the rows in place when rows are added
+     * or removed before them
+     */
+    private int getFirstVisibleTop() {
+        View firstRow = listView.getChildAt(0);
+        return firstRow == null ? 0 : firstRow.getTop() - listView.getPaddingTop();
+    }
+
     @Override
     public void showErrorMissingLocation() {
         //TODO: should we prompt the user to enable location?
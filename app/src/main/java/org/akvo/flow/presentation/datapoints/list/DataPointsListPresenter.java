@@ -23,12 +23,15 @@ package org.akvo.flow.presentation.datapoints.list;
 import android.support.annotation.NonNull;
 
 import org.akvo.flow.domain.SurveyGroup;
-import org.akvo.flow.domain.entity.DataPoint;
+import org.akvo.flow.domain.entity.DataPointPage;
+import org.akvo.flow.domain.entity.DataPointWindow;
 import org.akvo.flow.domain.entity.SyncResult;
 import org.akvo.flow.domain.interactor.DefaultFlowableObserver;
 import org.akvo.flow.domain.interactor.DefaultObserver;
 import org.akvo.flow.domain.interactor.ErrorComposable;
-import org.akvo.flow.domain.interactor.GetSavedDataPoints;
+import org.akvo.flow.domain.interactor.GetDataPointsPage;
+import org.akvo.flow.domain.interactor.RefreshDataPoints;
+import org.akvo.flow.domain.interactor.SearchDataPoints;
 import org.akvo.flow.domain.interactor.SyncDataPoints;
 import org.akvo.flow.domain.interactor.UseCase;
 import org.akvo.flow.presentation.Presenter;
@@ -36,10 +39,14 @@ import org.akvo.flow.presentation.datapoints.list.entity.ListDataPoint;
 import org.akvo.flow.presentation.datapoints.list.entity.ListDataPointMapper;
 import org.akvo.flow.util.ConstantUtil;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -50,7 +57,17 @@ import static org.akvo.flow.domain.entity.SyncResult.ResultCode.SUCCESS;
 
 public class DataPointsListPresenter implements Presenter {
 
-    private final UseCase getSavedDataPoints;
+    static final int PAGE_SIZE = 50;
+
+    /**
+     * Number of pages the list holds at most, pages scrolled past are dropped
+     */
+    static final int MAX_PAGES = 4;
+
+    private final UseCase getDataPointsPage;
+    private final UseCase searchDataPoints;
+    private final UseCase getDataPointChanges;
+    private final UseCase refreshDataPoints;
     private final SyncDataPoints syncDataPoints;
     private final UseCase allowedToConnect;
     private final ListDataPointMapper mapper;
@@ -61,11 +78,46 @@ public class DataPointsListPresenter implements Presenter {
     private Double latitude;
     private Double longitude;
 
+    /**
+     * Text searched by the user, null if all the datapoints are listed
+     */
+    private String searchText;
+
+    /**
+     * Keys of the displayed datapoints and of the pages before and after them
+     */
+    private final ListWindow window = new ListWindow(PAGE_SIZE, MAX_PAGES);
+    private boolean loadingPage;
+
+    /**
+     * Whether the list reached its end or its start while another load was running, so that the
+     * page is loaded once it is done
+     */
+    private boolean pendingEnd;
+    private boolean pendingStart;
+
+    /**
+     * Displayed datapoints by id, in list order, reused when the list is refreshed
+     */
+    private final Map<String, ListDataPoint> displayedDataPoints = new LinkedHashMap<>();
+
+    /**
+     * Ids of the datapoints which changed since the list was last loaded or refreshed
+     */
+    private final Set<String> changedIds = new HashSet<>();
+    private boolean refreshing;
+
     @Inject
-    DataPointsListPresenter(@Named("getSavedDataPoints") UseCase getSavedDataPoints,
+    DataPointsListPresenter(@Named("getDataPointsPage") UseCase getDataPointsPage,
+            @Named("searchDataPoints") UseCase searchDataPoints,
+            @Named("getDataPointChanges") UseCase getDataPointChanges,
+            @Named("refreshDataPoints") UseCase refreshDataPoints,
             ListDataPointMapper mapper, SyncDataPoints syncDataPoints,
             @Named("allowedToConnect") UseCase allowedToConnect) {
-        this.getSavedDataPoints = getSavedDataPoints;
+        this.getDataPointsPage = getDataPointsPage;
+        this.searchDataPoints = searchDataPoints;
+        this.getDataPointChanges = getDataPointChanges;
+        this.refreshDataPoints = refreshDataPoints;
         this.mapper = mapper;
         this.syncDataPoints = syncDataPoints;
         this.allowedToConnect = allowedToConnect;
@@ -86,74 +138,371 @@ public class DataPointsListPresenter implements Presenter {
                 view.showNonMonitoredMenu();
             }
         }
+        observeDataPointChanges();
     }
 
+    /**
+     * Datapoints are saved and synced in batches, so instead of loading the list again after
+     * every change, only the datapoints of the batch which are displayed are read again
+     */
+    private void observeDataPointChanges() {
+        getDataPointChanges.dispose();
+        getDataPointChanges.execute(new DefaultObserver<Set<String>>() {
+
+            @Override
+            public void onError(Throwable e) {
+                Timber.e(e, "Error observing datapoint changes");
+            }
+
+            @Override
+            public void onNext(Set<String> ids) {
+                changedIds.addAll(ids);
+                refreshDataPoints();
+            }
+        }, null);
+    }
+
+    /**
+     * Lists the displayed datapoints again, keeping the ones which did not change. If the last
+     * page is displayed, new ones are included too.
+     */
+    private void refreshDataPoints() {
+        if (surveyGroup == null || loadingPage || refreshing || changedIds.isEmpty()) {
+            return;
+        }
+        refreshing = true;
+        Set<String> changes = new HashSet<>(changedIds);
+        changedIds.clear();
+        int displayedCount = window.size();
+        int limit = window.getNextKey() == null ? displayedCount + changes.size()
+                : displayedCount;
+        Map<String, Object> params = new HashMap<>(16);
+        params.put(RefreshDataPoints.KEY_SURVEY_GROUP_ID, surveyGroup.getId());
+        params.put(RefreshDataPoints.KEY_ORDER_BY, orderBy);
+        params.put(RefreshDataPoints.KEY_LATITUDE, latitude);
+        params.put(RefreshDataPoints.KEY_LONGITUDE, longitude);
+        params.put(RefreshDataPoints.KEY_TEXT, searchText);
+        params.put(RefreshDataPoints.KEY_AFTER, window.getStartKey());
+        params.put(RefreshDataPoints.KEY_LIMIT, Math.max(PAGE_SIZE, limit));
+        params.put(RefreshDataPoints.KEY_CHANGED_IDS, changes);
+        params.put(RefreshDataPoints.KEY_DISPLAYED_IDS,
+                new HashSet<>(displayedDataPoints.keySet()));
+        refreshDataPoints.execute(new DefaultObserver<DataPointWindow>() {
+
+            @Override
+            public void onError(Throwable e) {
+                Timber.e(e, "Error refreshing datapoints");
+                refreshing = false;
+                loadPendingPage();
+            }
+
+            @Override
+            public void onNext(DataPointWindow window) {
+                refreshing = false;
+                displayWindow(window);
+                onLoadDone();
+            }
+        }, params);
+    }
+
+    private void displayWindow(DataPointWindow dataPointWindow) {
+        Map<String, ListDataPoint> loaded = new HashMap<>();
+        for (ListDataPoint dataPoint : mapper.transform(dataPointWindow.getDataPoints())) {
+            loaded.put(dataPoint.getId(), dataPoint);
+        }
+        List<DataPointPage.Key> keys = new ArrayList<>(dataPointWindow.getKeys().size());
+        List<ListDataPoint> dataPoints = new ArrayList<>(dataPointWindow.getKeys().size());
+        for (DataPointPage.Key key : dataPointWindow.getKeys()) {
+            ListDataPoint dataPoint = loaded.get(key.getId());
+            if (dataPoint == null) {
+                dataPoint = displayedDataPoints.get(key.getId());
+            }
+            if (dataPoint != null) {
+                keys.add(key);
+                dataPoints.add(dataPoint);
+            }
+        }
+        if (dataPoints.isEmpty() && window.getStartKey() != null) {
+            // All the displayed datapoints are gone, start again from the first page
+            if (searchText != null) {
+                getFilteredDataPoints(searchText);
+            } else {
+                window.reset();
+                loadDataPoints();
+            }
+            return;
+        }
+        window.set(keys, dataPointWindow.getNextKey());
+        int dropped = window.trimEnd();
+        dataPoints = dataPoints.subList(0, dataPoints.size() - dropped);
+        setDisplayedDataPoints(dataPoints);
+        view.displayData(dataPoints);
+        if (dataPoints.isEmpty()) {
+            if (searchText != null) {
+                view.displayNoSearchResultsFound();
+            } else {
+                view.showNoDataPoints(surveyGroup.isMonitored());
+            }
+        }
+    }
+
+    private void setDisplayedDataPoints(List<ListDataPoint> dataPoints) {
+        displayedDataPoints.clear();
+        for (ListDataPoint dataPoint : dataPoints) {
+            displayedDataPoints.put(dataPoint.getId(), dataPoint);
+        }
+    }
+
+    /**
+     * Lists the displayed datapoints in the order of the window keys, after pages were added or
+     * dropped
+     *
+     * @param loaded the datapoints of the added page
+     */
+    private void updateDisplayedDataPoints(List<ListDataPoint> loaded) {
+        Map<String, ListDataPoint> dataPoints = new HashMap<>(displayedDataPoints);
+        for (ListDataPoint dataPoint : loaded) {
+            dataPoints.put(dataPoint.getId(), dataPoint);
+        }
+        displayedDataPoints.clear();
+        for (DataPointPage.Key key : window.getKeys()) {
+            displayedDataPoints.put(key.getId(), dataPoints.get(key.getId()));
+        }
+    }
+
+    /**
+     * Stops any refresh, as the list is about to be loaded again
+     */
+    private void cancelRefresh() {
+        refreshDataPoints.dispose();
+        refreshing = false;
+        changedIds.clear();
+        pendingEnd = false;
+        pendingStart = false;
+    }
+
+    /**
+     * Applies the changes made while a load was running, then loads the page the list asked
+     * for meanwhile
+     */
+    private void onLoadDone() {
+        refreshDataPoints();
+        if (!refreshing) {
+            loadPendingPage();
+        }
+    }
+
+    private void loadPendingPage() {
+        if (pendingEnd) {
+            pendingEnd = false;
+            onListEndReached();
+        } else if (pendingStart) {
+            pendingStart = false;
+            onListStartReached();
+        }
+    }
+
+    /**
+     * Loads the first page of datapoints, or the datapoints currently displayed if the list is
+     * being refreshed, so that the scroll position is kept
+     */
     void loadDataPoints() {
-        getSavedDataPoints.dispose();
+        getDataPointsPage.dispose();
+        searchDataPoints.dispose();
+        cancelRefresh();
+        if (searchText != null) {
+            searchText = null;
+            window.reset();
+        }
         if (surveyGroup != null) {
-            Map<String, Object> params = new HashMap<>(8);
-            params.put(GetSavedDataPoints.KEY_SURVEY_GROUP_ID, surveyGroup.getId());
-            params.put(GetSavedDataPoints.KEY_ORDER_BY, orderBy);
-            params.put(GetSavedDataPoints.KEY_LATITUDE, latitude);
-            params.put(GetSavedDataPoints.KEY_LONGITUDE, longitude);
-            getSavedDataPoints.execute(new DefaultObserver<List<DataPoint>>() {
+            loadingPage = true;
+            int limit = Math.max(PAGE_SIZE, window.size());
+            getDataPointsPage.execute(new DefaultObserver<DataPointPage>() {
 
                 @Override
                 public void onError(Throwable e) {
                     Timber.e(e, "Error loading saved datapoints");
+                    loadingPage = false;
+                    window.reset();
+                    setDisplayedDataPoints(Collections.<ListDataPoint>emptyList());
                     view.displayData(Collections.EMPTY_LIST);
                     view.showNoDataPoints(surveyGroup.isMonitored());
                 }
 
                 @Override
-                public void onNext(List<DataPoint> dataPoints) {
-                    List<ListDataPoint> mapDataPoints = mapper.transform(dataPoints);
+                public void onNext(DataPointPage page) {
+                    loadingPage = false;
+                    window.set(page.getKeys(), page.getNextKey());
+                    List<ListDataPoint> mapDataPoints = mapper.transform(page.getDataPoints());
+                    setDisplayedDataPoints(mapDataPoints);
                     view.displayData(mapDataPoints);
                     if (mapDataPoints.isEmpty()) {
                         view.showNoDataPoints(surveyGroup.isMonitored());
                     }
+                    refreshDataPoints();
                 }
-            }, params);
+            }, createPageParams(window.getStartKey(), limit));
         } else {
             noSurveySelected();
         }
     }
 
+    /**
+     * Called when the list is about to display its last datapoints
+     */
+    void onListEndReached() {
+        DataPointPage.Key nextKey = window.getNextKey();
+        if (surveyGroup == null || nextKey == null) {
+            return;
+        }
+        if (loadingPage || refreshing) {
+            pendingEnd = true;
+            return;
+        }
+        loadingPage = true;
+        DefaultObserver<DataPointPage> observer = new DefaultObserver<DataPointPage>() {
+
+            @Override
+            public void onError(Throwable e) {
+                // The page will be requested again when the list is scrolled
+                Timber.e(e, "Error loading datapoints page");
+                loadingPage = false;
+                onLoadDone();
+            }
+
+            @Override
+            public void onNext(DataPointPage page) {
+                loadingPage = false;
+                int dropped = window.append(page.getKeys(), page.getNextKey());
+                List<ListDataPoint> mapDataPoints = mapper.transform(page.getDataPoints());
+                updateDisplayedDataPoints(mapDataPoints);
+                view.appendData(mapDataPoints);
+                if (dropped > 0) {
+                    view.removeFirstData(dropped);
+                }
+                onLoadDone();
+            }
+        };
+        loadPage(observer, nextKey);
+    }
+
+    /**
+     * Called when the list is about to display its first datapoints, to load the last page
+     * dropped from the start of the list again
+     */
+    void onListStartReached() {
+        if (surveyGroup == null || !window.hasPrevious()) {
+            return;
+        }
+        if (loadingPage || refreshing) {
+            pendingStart = true;
+            return;
+        }
+        loadingPage = true;
+        DefaultObserver<DataPointPage> observer = new DefaultObserver<DataPointPage>() {
+
+            @Override
+            public void onError(Throwable e) {
+                // The page will be requested again when the list is scrolled
+                Timber.e(e, "Error loading previous datapoints page");
+                loadingPage = false;
+                onLoadDone();
+            }
+
+            @Override
+            public void onNext(DataPointPage page) {
+                loadingPage = false;
+                int added = window.prepend(page.getKeys());
+                int dropped = window.trimEnd();
+                List<ListDataPoint> mapDataPoints = mapper
+                        .transform(page.getDataPoints().subList(0, added));
+                updateDisplayedDataPoints(mapDataPoints);
+                view.prependData(mapDataPoints);
+                if (dropped > 0) {
+                    view.removeLastData(dropped);
+                }
+                onLoadDone();
+            }
+        };
+        loadPage(observer, window.getPreviousKey());
+    }
+
+    private void loadPage(DefaultObserver<DataPointPage> observer, DataPointPage.Key after) {
+        if (searchText != null) {
+            searchDataPoints.execute(observer, createSearchParams(after));
+        } else {
+            getDataPointsPage.execute(observer, createPageParams(after, PAGE_SIZE));
+        }
+    }
+
+    private Map<String, Object> createPageParams(DataPointPage.Key after, int limit) {
+        Map<String, Object> params = new HashMap<>(12);
+        params.put(GetDataPointsPage.KEY_SURVEY_GROUP_ID, surveyGroup.getId());
+        params.put(GetDataPointsPage.KEY_ORDER_BY, orderBy);
+        params.put(GetDataPointsPage.KEY_LATITUDE, latitude);
+        params.put(GetDataPointsPage.KEY_LONGITUDE, longitude);
+        params.put(GetDataPointsPage.KEY_AFTER, after);
+        params.put(GetDataPointsPage.KEY_LIMIT, limit);
+        return params;
+    }
+
+    private Map<String, Object> createSearchParams(DataPointPage.Key after) {
+        Map<String, Object> params = new HashMap<>(8);
+        params.put(SearchDataPoints.KEY_SURVEY_GROUP_ID, surveyGroup.getId());
+        params.put(SearchDataPoints.KEY_TEXT, searchText);
+        params.put(SearchDataPoints.KEY_AFTER, after);
+        params.put(SearchDataPoints.KEY_LIMIT, PAGE_SIZE);
+        return params;
+    }
+
+    /**
+     * Loads the first page of the datapoints matching the searched text, the best matches first
+     */
     void getFilteredDataPoints(String filter) {
-        getSavedDataPoints.dispose();
+        getDataPointsPage.dispose();
+        searchDataPoints.dispose();
+        cancelRefresh();
+        searchText = filter;
+        window.reset();
+        setDisplayedDataPoints(Collections.<ListDataPoint>emptyList());
         if (surveyGroup != null) {
-            Map<String, Object> params = new HashMap<>(8);
-            params.put(GetSavedDataPoints.KEY_SURVEY_GROUP_ID, surveyGroup.getId());
-            params.put(GetSavedDataPoints.KEY_ORDER_BY, orderBy);
-            params.put(GetSavedDataPoints.KEY_LATITUDE, latitude);
-            params.put(GetSavedDataPoints.KEY_LONGITUDE, longitude);
-            params.put(GetSavedDataPoints.KEY_FILTER, filter);
-            getSavedDataPoints.execute(new DefaultObserver<List<DataPoint>>() {
+            loadingPage = true;
+            searchDataPoints.execute(new DefaultObserver<DataPointPage>() {
 
                 @Override
                 public void onError(Throwable e) {
-                    Timber.e(e, "Error loading saved datapoints");
+                    Timber.e(e, "Error searching saved datapoints");
+                    loadingPage = false;
+                    setDisplayedDataPoints(Collections.<ListDataPoint>emptyList());
                     view.displayData(Collections.EMPTY_LIST);
                     view.displayNoSearchResultsFound();
                 }
 
                 @Override
-                public void onNext(List<DataPoint> dataPoints) {
-                    List<ListDataPoint> mapDataPoints = mapper.transform(dataPoints);
+                public void onNext(DataPointPage page) {
+                    loadingPage = false;
+                    window.set(page.getKeys(), page.getNextKey());
+                    List<ListDataPoint> mapDataPoints = mapper.transform(page.getDataPoints());
+                    setDisplayedDataPoints(mapDataPoints);
                     view.displayData(mapDataPoints);
                     if (mapDataPoints.isEmpty()) {
                         view.displayNoSearchResultsFound();
                     }
+                    refreshDataPoints();
                 }
-            }, params);
+            }, createSearchParams(null));
         } else {
+            loadingPage = false;
             noSurveySelected();
         }
     }
 
     @Override
     public void destroy() {
-        getSavedDataPoints.dispose();
+        getDataPointsPage.dispose();
+        searchDataPoints.dispose();
+        getDataPointChanges.dispose();
+        refreshDataPoints.dispose();
         syncDataPoints.dispose();
         allowedToConnect.dispose();
     }
@@ -191,6 +540,7 @@ public class DataPointsListPresenter implements Presenter {
         syncDataPoints.execute(new DefaultFlowableObserver<SyncResult>() {
             @Override
             public void onComplete() {
+                // Synced datapoints are listed as their changes are notified
                 view.hideLoading();
             }
 
@@ -235,6 +585,7 @@ public class DataPointsListPresenter implements Presenter {
                 return;
             }
             this.orderBy = order;
+            window.reset();
             loadDataPoints();
         }
     }
@@ -249,7 +600,10 @@ public class DataPointsListPresenter implements Presenter {
     }
 
     void onNewSurveySelected(SurveyGroup surveyGroup) {
-        getSavedDataPoints.dispose();
+        getDataPointsPage.dispose();
+        searchDataPoints.dispose();
+        cancelRefresh();
+        window.reset();
         syncDataPoints.dispose();
         view.hideLoading();
         onDataReady(surveyGroup);
@@ -42,6 +42,14 @@ interface DataPointsListView {
 
     void displayData(List<ListDataPoint> mapDataPoints);
 
+    void appendData(List<ListDataPoint> mapDataPoints);
+
+    void prependData(List<ListDataPoint> mapDataPoints);
+
+    void removeFirstData(int count);
+
+    void removeLastData(int count);
+
     void showErrorMissingLocation();
 
     void showNoSurveySelected();
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.presentation.datapoints.list;
+
+import android.support.annotation.Nullable;
+
+import org.akvo.flow.domain.entity.DataPointPage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keys of the datapoints displayed by the list, which only keeps a bounded number of pages. Pages
+ * scrolled past are dropped from the start and remembered by the key of the datapoint before
+ * them, so that they can be loaded again when the list is scrolled back. Pages are dropped from
+ * the end when the list is scrolled back, and are loaded again from the key of the last displayed
+ * datapoint.
+ * <p>
+ * As pages are always loaded after a key, a page loaded again may miss datapoints saved after it
+ * was dropped, if there are more than a page of them. Those are listed when the list is loaded
+ * again.
+ */
+class ListWindow {
+
+    private final int pageSize;
+    private final int maxSize;
+
+    /**
+     * Keys of the datapoints before the dropped pages, the last dropped page first. The first
+     * page has no key before it, so the deque has to accept null.
+     */
+    private final Deque<DataPointPage.Key> droppedStartKeys = new LinkedList<>();
+    private final List<DataPointPage.Key> keys = new ArrayList<>();
+
+    @Nullable
+    private DataPointPage.Key startKey;
+
+    @Nullable
+    private DataPointPage.Key nextKey;
+
+    ListWindow(int pageSize, int maxPages) {
+        this.pageSize = pageSize;
+        this.maxSize = pageSize * maxPages;
+    }
+
+    /**
+     * Moves back to the start of the list, with no datapoints
+     */
+    void reset() {
+        droppedStartKeys.clear();
+        keys.clear();
+        startKey = null;
+        nextKey = null;
+    }
+
+    /**
+     * Replaces the displayed datapoints, listed after the start key
+     */
+    void set(List<DataPointPage.Key> keys, @Nullable DataPointPage.Key nextKey) {
+        this.keys.clear();
+        this.keys.addAll(keys);
+        this.nextKey = nextKey;
+    }
+
+    /**
+     * Adds a page loaded after the next key, dropping pages from the start if the list holds too
+     * many
+     *
+     * @return the number of datapoints dropped from the start
+     */
+    int append(List<DataPointPage.Key> page, @Nullable DataPointPage.Key nextKey) {
+        keys.addAll(page);
+        this.nextKey = nextKey;
+        int dropped = 0;
+        while (keys.size() > maxSize) {
+            droppedStartKeys.push(startKey);
+            startKey = keys.get(pageSize - 1);
+            keys.subList(0, pageSize).clear();
+            dropped += pageSize;
+        }
+        return dropped;
+    }
+
+    /**
+     * Adds the page loaded after the previous key. Since datapoints may have been deleted since the
+     * page was dropped, the page may reach already displayed datapoints, which are not added again.
+     * Pages are dropped from the end if the list holds too many.
+     *
+     * @return the number of datapoints of the page to add before the displayed ones
+     */
+    int prepend(List<DataPointPage.Key> page) {
+        Set<String> displayedIds = new HashSet<>(keys.size() * 2);
+        for (DataPointPage.Key key : keys) {
+            displayedIds.add(key.getId());
+        }
+        int added = 0;
+        while (added < page.size() && !displayedIds.contains(page.get(added).getId())) {
+            added++;
+        }
+        keys.addAll(0, page.subList(0, added));
+        startKey = droppedStartKeys.pop();
+        return added;
+    }
+
+    /**
+     * Drops datapoints from the end of the list if it holds too many
+     *
+     * @return the number of datapoints dropped from the end
+     */
+    int trimEnd() {
+        int dropped = keys.size() - maxSize;
+        if (dropped <= 0) {
+            return 0;
+        }
+        keys.subList(maxSize, keys.size()).clear();
+        nextKey = keys.get(maxSize - 1);
+        return dropped;
+    }
+
+    /**
+     * @return whether pages were dropped from the start of the list
+     */
+    boolean hasPrevious() {
+        return !droppedStartKeys.isEmpty();
+    }
+
+    /**
+     * @return the key to load the last dropped page after, null if it is the first page
+     */
+    @Nullable
+    DataPointPage.Key getPreviousKey() {
+        return droppedStartKeys.peek();
+    }
+
+    /**
+     * @return the key of the datapoint before the first displayed one, null if the list starts
+     * at the first datapoint
+     */
+    @Nullable
+    DataPointPage.Key getStartKey() {
+        return startKey;
+    }
+
+    /**
+     * @return the key to load the following page after, null if the last page is displayed
+     */
+    @Nullable
+    DataPointPage.Key getNextKey() {
+        return nextKey;
+    }
+
+    List<DataPointPage.Key> getKeys() {
+        return Collections.unmodifiableList(keys);
+    }
+
+    int size() {
+        return keys.size();
+    }
+}
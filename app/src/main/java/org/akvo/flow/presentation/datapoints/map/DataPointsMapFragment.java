@@ -46,7 +46,6 @@ import com.google.android.gms.maps.model.CameraPosition;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
-import com.google.maps.android.clustering.ClusterManager;
 
 import org.akvo.flow.R;
 import org.akvo.flow.app.FlowApp;
@@ -60,7 +59,6 @@ import org.akvo.flow.ui.Navigator;
 import org.akvo.flow.ui.fragment.RecordListListener;
 import org.akvo.flow.util.ConstantUtil;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -69,6 +67,7 @@ public class DataPointsMapFragment extends SupportMapFragment implements OnInfoW
         OnMapReadyCallback, DataPointsMapView {
 
     private static final int MAP_ZOOM_LEVEL = 10;
+    private static final int CLUSTER_CLICK_ZOOM_INCREMENT = 2;
     private static final String MAP_OPTIONS = "MapOptions";
 
     @Inject
@@ -83,15 +82,15 @@ public class DataPointsMapFragment extends SupportMapFragment implements OnInfoW
     @Nullable
     private RecordListListener mListener;
 
-    private List<MapDataPoint> mItems;
-
     @Nullable
     private ProgressBar progressBar;
 
     @Nullable
     private GoogleMap mMap;
 
-    private ClusterManager<MapDataPoint> mClusterManager;
+    @Nullable
+    private PointRenderer renderer;
+
     private boolean activityJustCreated;
     private Integer menuRes = null;
 
@@ -109,7 +108,6 @@ public class DataPointsMapFragment extends SupportMapFragment implements OnInfoW
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        mItems = new ArrayList<>();
         setHasOptionsMenu(true);
     }
 
@@ -177,48 +175,46 @@ public class DataPointsMapFragment extends SupportMapFragment implements OnInfoW
         if (mMap != null) {
             mMap.setMyLocationEnabled(true);
             mMap.setOnInfoWindowClickListener(this);
-            mClusterManager = new ClusterManager<>(getActivity(), mMap);
-            mClusterManager.setRenderer(new PointRenderer(mMap, getActivity(), mClusterManager));
-            mMap.setOnMarkerClickListener(mClusterManager);
+            renderer = new PointRenderer(mMap, getActivity());
+            mMap.setOnMarkerClickListener(new GoogleMap.OnMarkerClickListener() {
+                @Override
+                public boolean onMarkerClick(Marker marker) {
+                    return onClusterClick(marker);
+                }
+            });
             mMap.setOnCameraChangeListener(new GoogleMap.OnCameraChangeListener() {
                 @Override
                 public void onCameraChange(CameraPosition cameraPosition) {
-                    cluster();
+                    onViewportChanged(cameraPosition);
                 }
             });
             centerMapOnUserLocation();
         }
     }
 
-    private void cluster() {
+    private void onViewportChanged(CameraPosition cameraPosition) {
         if (mMap == null) {
             return;
         }
+        LatLngBounds bounds = mMap.getProjection().getVisibleRegion().latLngBounds;
+        presenter.onViewportChanged(bounds.northeast.latitude, bounds.northeast.longitude,
+                bounds.southwest.latitude, bounds.southwest.longitude,
+                (int) cameraPosition.zoom);
+    }
 
-        final LatLngBounds bounds = mMap.getProjection().getVisibleRegion().latLngBounds;
-        LatLng ne = bounds.northeast;
-        LatLng sw = bounds.southwest;
-        double latDst = Math.abs(ne.latitude - sw.latitude);
-        double lonDst = Math.abs(ne.longitude - sw.longitude);
-
-        final double scale = 1d;
-        LatLngBounds newBounds =
-                bounds.including(
-                        new LatLng(ne.latitude + latDst / scale, ne.longitude + lonDst / scale))
-                        .including(new LatLng(sw.latitude - latDst / scale,
-                                ne.longitude + lonDst / scale))
-                        .including(new LatLng(sw.latitude - latDst / scale,
-                                sw.longitude - lonDst / scale))
-                        .including(new LatLng(ne.latitude + latDst / scale,
-                                sw.longitude - lonDst / scale));
-
-        mClusterManager.clearItems();
-        for (MapDataPoint item : mItems) {
-            if (item.getPosition() != null && newBounds.contains(item.getPosition())) {
-                mClusterManager.addItem(item);
-            }
+    /**
+     * Zooms in on the clicked cluster so that its datapoints are spread out
+     *
+     * @return true if the marker was a cluster, false to display the datapoint info window
+     */
+    private boolean onClusterClick(Marker marker) {
+        MapDataPoint item = renderer == null ? null : renderer.getItem(marker);
+        if (mMap == null || item == null || !item.isCluster()) {
+            return false;
         }
-        mClusterManager.cluster();
+        float zoom = mMap.getCameraPosition().zoom + CLUSTER_CLICK_ZOOM_INCREMENT;
+        mMap.animateCamera(CameraUpdateFactory.newLatLngZoom(item.getPosition(), zoom));
+        return true;
     }
 
     private void centerMapOnUserLocation() {
@@ -313,9 +309,9 @@ public class DataPointsMapFragment extends SupportMapFragment implements OnInfoW
 
     @Override
     public void displayData(List<MapDataPoint> surveyedLocales) {
-        mItems.clear();
-        mItems.addAll(surveyedLocales);
-        cluster();
+        if (renderer != null) {
+            renderer.render(surveyedLocales);
+        }
     }
 
     @Override
@@ -23,12 +23,12 @@ package org.akvo.flow.presentation.datapoints.map;
 import android.support.annotation.NonNull;
 
 import org.akvo.flow.domain.SurveyGroup;
-import org.akvo.flow.domain.entity.DataPoint;
+import org.akvo.flow.domain.entity.DataPointCluster;
 import org.akvo.flow.domain.entity.SyncResult;
 import org.akvo.flow.domain.interactor.DefaultFlowableObserver;
 import org.akvo.flow.domain.interactor.DefaultObserver;
 import org.akvo.flow.domain.interactor.ErrorComposable;
-import org.akvo.flow.domain.interactor.GetSavedDataPoints;
+import org.akvo.flow.domain.interactor.GetDataPointClusters;
 import org.akvo.flow.domain.interactor.SyncDataPoints;
 import org.akvo.flow.domain.interactor.UseCase;
 import org.akvo.flow.presentation.Presenter;
@@ -38,6 +38,7 @@ import org.akvo.flow.presentation.datapoints.map.entity.MapDataPointMapper;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -48,7 +49,8 @@ import static org.akvo.flow.domain.entity.SyncResult.ResultCode.SUCCESS;
 
 public class DataPointsMapPresenter implements Presenter {
 
-    private final UseCase getSavedDataPoints;
+    private final UseCase getDataPointClusters;
+    private final UseCase getDataPointChanges;
     private final MapDataPointMapper mapper;
     private final SyncDataPoints syncDataPoints;
     private final UseCase allowedToConnect;
@@ -56,11 +58,18 @@ public class DataPointsMapPresenter implements Presenter {
     private DataPointsMapView view;
     private SurveyGroup surveyGroup;
 
+    /**
+     * Visible bounds of the map, null until it has been laid out
+     */
+    private Viewport viewport;
+
     @Inject
-    DataPointsMapPresenter(@Named("getSavedDataPoints") UseCase getSavedDataPoints,
+    DataPointsMapPresenter(@Named("getDataPointClusters") UseCase getDataPointClusters,
+            @Named("getDataPointChanges") UseCase getDataPointChanges,
             MapDataPointMapper mapper, SyncDataPoints syncDataPoints,
             @Named("allowedToConnect") UseCase allowedToConnect) {
-        this.getSavedDataPoints = getSavedDataPoints;
+        this.getDataPointClusters = getDataPointClusters;
+        this.getDataPointChanges = getDataPointChanges;
         this.mapper = mapper;
         this.syncDataPoints = syncDataPoints;
         this.allowedToConnect = allowedToConnect;
@@ -81,26 +90,59 @@ public class DataPointsMapPresenter implements Presenter {
                 view.showNonMonitoredMenu();
             }
         }
+        observeDataPointChanges();
+    }
+
+    /**
+     * Loads the datapoints in view again whenever datapoints are saved, synced or deleted
+     */
+    private void observeDataPointChanges() {
+        getDataPointChanges.dispose();
+        getDataPointChanges.execute(new DefaultObserver<Set<String>>() {
+
+            @Override
+            public void onError(Throwable e) {
+                Timber.e(e, "Error observing datapoint changes");
+            }
+
+            @Override
+            public void onNext(Set<String> ids) {
+                loadDataPoints();
+            }
+        }, null);
     }
 
     void onViewReady() {
         loadDataPoints();
     }
 
+    /**
+     * Called whenever the map stops moving, only the datapoints within the bounds are loaded
+     */
+    void onViewportChanged(double north, double east, double south, double west, int zoom) {
+        viewport = new Viewport(north, east, south, west, zoom);
+        loadDataPoints();
+    }
+
     void loadDataPoints() {
-        getSavedDataPoints.dispose();
-        if (surveyGroup != null) {
-            Map<String, Object> params = new HashMap<>(2);
-            params.put(GetSavedDataPoints.KEY_SURVEY_GROUP_ID, surveyGroup.getId());
-            getSavedDataPoints.execute(new DefaultObserver<List<DataPoint>>() {
+        getDataPointClusters.dispose();
+        if (surveyGroup != null && viewport != null) {
+            Map<String, Object> params = new HashMap<>(12);
+            params.put(GetDataPointClusters.KEY_SURVEY_GROUP_ID, surveyGroup.getId());
+            params.put(GetDataPointClusters.KEY_NORTH, viewport.north);
+            params.put(GetDataPointClusters.KEY_EAST, viewport.east);
+            params.put(GetDataPointClusters.KEY_SOUTH, viewport.south);
+            params.put(GetDataPointClusters.KEY_WEST, viewport.west);
+            params.put(GetDataPointClusters.KEY_ZOOM, viewport.zoom);
+            getDataPointClusters.execute(new DefaultObserver<List<DataPointCluster>>() {
                 @Override
                 public void onError(Throwable e) {
                     Timber.e(e, "Error loading saved datapoints");
                 }
 
                 @Override
-                public void onNext(List<DataPoint> dataPoints) {
-                    List<MapDataPoint> mapDataPoints = mapper.transform(dataPoints);
+                public void onNext(List<DataPointCluster> clusters) {
+                    List<MapDataPoint> mapDataPoints = mapper.transform(clusters);
                     view.displayData(mapDataPoints);
                 }
             }, params);
@@ -109,7 +151,8 @@ public class DataPointsMapPresenter implements Presenter {
 
     @Override
     public void destroy() {
-        getSavedDataPoints.dispose();
+        getDataPointClusters.dispose();
+        getDataPointChanges.dispose();
         syncDataPoints.dispose();
     }
 
@@ -146,6 +189,7 @@ public class DataPointsMapPresenter implements Presenter {
         syncDataPoints.execute(new DefaultFlowableObserver<SyncResult>() {
             @Override
             public void onComplete() {
+                // Synced datapoints are displayed as their changes are notified
                 view.hideProgress();
             }
 
@@ -184,10 +228,27 @@ public class DataPointsMapPresenter implements Presenter {
     }
 
     public void onNewSurveySelected(SurveyGroup surveyGroup) {
-        getSavedDataPoints.dispose();
+        getDataPointClusters.dispose();
         syncDataPoints.dispose();
         view.hideProgress();
         onDataReady(surveyGroup);
         loadDataPoints();
     }
+
+    private static class Viewport {
+
+        private final double north;
+        private final double east;
+        private final double south;
+        private final double west;
+        private final int zoom;
+
+        Viewport(double north, double east, double south, double west, int zoom) {
+            this.north = north;
+            this.east = east;
+            this.south = south;
+            this.west = west;
+            this.zoom = zoom;
+        }
+    }
 }
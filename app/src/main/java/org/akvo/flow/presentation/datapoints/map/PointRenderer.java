@@ -21,38 +21,89 @@
 package org.akvo.flow.presentation.datapoints.map;
 
 import android.content.Context;
+import android.support.annotation.Nullable;
 
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
-import com.google.maps.android.clustering.Cluster;
-import com.google.maps.android.clustering.ClusterManager;
-import com.google.maps.android.clustering.view.DefaultClusterRenderer;
+import com.google.maps.android.ui.IconGenerator;
 
 import org.akvo.flow.presentation.datapoints.map.entity.MapDataPoint;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
 /**
- * This custom renderer overrides original 'bucketed' names, in order to display the accurate
- * number of markers within a cluster.
+ * Displays the datapoints and clusters loaded for the visible part of the map. Markers which are
+ * still displayed after the map moves are kept, so only the ones entering or leaving the
+ * bounds are added or removed. Clusters display the accurate number of datapoints they contain.
  */
-class PointRenderer extends DefaultClusterRenderer<MapDataPoint> {
+class PointRenderer {
+
+    private final GoogleMap map;
+    private final IconGenerator iconGenerator;
+    private final Map<String, Marker> markers = new HashMap<>();
+    private final Map<Marker, MapDataPoint> items = new HashMap<>();
+
+    PointRenderer(GoogleMap map, Context context) {
+        this.map = map;
+        this.iconGenerator = new IconGenerator(context);
+        this.iconGenerator.setStyle(IconGenerator.STYLE_BLUE);
+    }
 
-    public PointRenderer(GoogleMap map, Context context,
-            ClusterManager<MapDataPoint> clusterManager) {
-        super(context, map, clusterManager);
+    void render(List<MapDataPoint> dataPoints) {
+        Map<String, MapDataPoint> displayed = new HashMap<>(dataPoints.size());
+        for (MapDataPoint dataPoint : dataPoints) {
+            displayed.put(getKey(dataPoint), dataPoint);
+        }
+        Iterator<Map.Entry<String, Marker>> iterator = markers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Marker> entry = iterator.next();
+            if (!displayed.containsKey(entry.getKey())) {
+                Marker marker = entry.getValue();
+                items.remove(marker);
+                marker.remove();
+                iterator.remove();
+            }
+        }
+        for (Map.Entry<String, MapDataPoint> entry : displayed.entrySet()) {
+            if (!markers.containsKey(entry.getKey())) {
+                Marker marker = map.addMarker(createMarkerOptions(entry.getValue()));
+                markers.put(entry.getKey(), marker);
+                items.put(marker, entry.getValue());
+            }
+        }
     }
 
-    @Override
-    protected void onBeforeClusterItemRendered(MapDataPoint item, MarkerOptions markerOptions) {
-        markerOptions.title(item.getName()).snippet(item.getId());
+    @Nullable
+    MapDataPoint getItem(Marker marker) {
+        return items.get(marker);
     }
 
-    @Override
-    protected int getBucket(Cluster<MapDataPoint> cluster) {
-        return cluster.getSize();
+    private MarkerOptions createMarkerOptions(MapDataPoint dataPoint) {
+        MarkerOptions markerOptions = new MarkerOptions().position(dataPoint.getPosition());
+        if (dataPoint.isCluster()) {
+            String text = String.valueOf(dataPoint.getCount());
+            markerOptions.icon(BitmapDescriptorFactory.fromBitmap(iconGenerator.makeIcon(text)))
+                    .anchor(iconGenerator.getAnchorU(), iconGenerator.getAnchorV());
+        } else {
+            markerOptions.title(dataPoint.getName()).snippet(dataPoint.getId());
+        }
+        return markerOptions;
     }
 
-    @Override
-    protected String getClusterText(int bucket) {
-        return String.valueOf(bucket);
+    /**
+     * Datapoints are identified by their id and name, clusters by their position and size, which
+     * change whenever their content does
+     */
+    private String getKey(MapDataPoint dataPoint) {
+        if (!dataPoint.isCluster()) {
+            return dataPoint.getId() + "," + dataPoint.getName();
+        }
+        return dataPoint.getPosition().latitude + "," + dataPoint.getPosition().longitude + ","
+                + dataPoint.getCount();
     }
 }
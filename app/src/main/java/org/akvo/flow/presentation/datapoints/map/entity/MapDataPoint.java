@@ -21,18 +21,23 @@
 package org.akvo.flow.presentation.datapoints.map.entity;
 
 import com.google.android.gms.maps.model.LatLng;
-import com.google.maps.android.clustering.ClusterItem;
 
-public class MapDataPoint implements ClusterItem {
+/**
+ * A datapoint displayed on the map, or a cluster of them if the count is greater than 1, in which
+ * case it has no id nor name
+ */
+public class MapDataPoint {
 
     private final String id;
     private final String name;
     private final LatLng position;
+    private final int count;
 
-    public MapDataPoint(String id, String name, LatLng position) {
+    public MapDataPoint(String id, String name, LatLng position, int count) {
         this.id = id;
         this.name = name;
         this.position = position;
+        this.count = count;
     }
 
     public String getId() {
@@ -43,8 +48,15 @@ public class MapDataPoint implements ClusterItem {
         return name;
     }
 
-    @Override
     public LatLng getPosition() {
         return position;
     }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isCluster() {
+        return count > 1;
+    }
 }
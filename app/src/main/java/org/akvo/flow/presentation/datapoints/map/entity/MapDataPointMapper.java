@@ -25,7 +25,7 @@ import android.support.annotation.Nullable;
 
 import com.google.android.gms.maps.model.LatLng;
 
-import org.akvo.flow.domain.entity.DataPoint;
+import org.akvo.flow.domain.entity.DataPointCluster;
 import org.akvo.flow.presentation.datapoints.DisplayNameMapper;
 
 import java.util.ArrayList;
@@ -44,26 +44,26 @@ public class MapDataPointMapper {
     }
 
     @Nullable
-    private MapDataPoint transform(@Nullable DataPoint dataPoint) {
-        if (dataPoint == null || dataPoint.getLatitude() == null
-                || dataPoint.getLongitude() == null) {
-            //a map datapoint needs to have location data or it will not be displayed
-            // so no need to add it
+    private MapDataPoint transform(@Nullable DataPointCluster cluster) {
+        if (cluster == null || cluster.getCount() < 1) {
             return null;
         }
-        LatLng position = new LatLng(dataPoint.getLatitude(), dataPoint.getLongitude());
-        String displayName = displayNameMapper.createDisplayName(dataPoint.getName());
-        return new MapDataPoint(dataPoint.getId(), displayName, position);
+        LatLng position = new LatLng(cluster.getLatitude(), cluster.getLongitude());
+        if (cluster.getCount() > 1) {
+            return new MapDataPoint(null, null, position, cluster.getCount());
+        }
+        String displayName = displayNameMapper.createDisplayName(cluster.getDataPointName());
+        return new MapDataPoint(cluster.getDataPointId(), displayName, position, 1);
     }
 
     @NonNull
-    public List<MapDataPoint> transform(@Nullable List<DataPoint> dataPoints) {
-        if (dataPoints == null) {
+    public List<MapDataPoint> transform(@Nullable List<DataPointCluster> clusters) {
+        if (clusters == null) {
             return Collections.emptyList();
         }
-        List<MapDataPoint> mapDataPoints = new ArrayList<>(dataPoints.size());
-        for (DataPoint dataPoint : dataPoints) {
-            MapDataPoint mapDataPoint = transform(dataPoint);
+        List<MapDataPoint> mapDataPoints = new ArrayList<>(clusters.size());
+        for (DataPointCluster cluster : clusters) {
+            MapDataPoint mapDataPoint = transform(cluster);
             if (mapDataPoint != null) {
                 mapDataPoints.add(mapDataPoint);
             }
@@ -96,6 +96,9 @@ public class PreferenceActivity extends BackActivity implements PreferenceView {
     @BindView(R.id.switch_enable_data)
     SwitchCompat enableDataSc;
 
+    @BindView(R.id.switch_media_prefetch)
+    SwitchCompat mediaPrefetchSc;
+
     @BindView(R.id.preference_language)
     Spinner appLanguageSp;
 
@@ -297,6 +300,13 @@ public class PreferenceActivity extends BackActivity implements PreferenceView {
         }
     }
 
+    @OnCheckedChanged(R.id.switch_media_prefetch)
+    void onMediaPrefetchCheckChanged(boolean checked) {
+        if (trackChanges) {
+            presenter.saveMediaPrefetch(checked);
+        }
+    }
+
     @OnItemSelected(R.id.preference_language)
     void onLanguageSelected(int position) {
         if (trackChanges) {
@@ -380,6 +390,7 @@ public class PreferenceActivity extends BackActivity implements PreferenceView {
         deviceIdentifierTv.setText(viewUserSettings.getIdentifier());
         screenOnSc.setChecked(viewUserSettings.isScreenOn());
         enableDataSc.setChecked(viewUserSettings.isDataEnabled());
+        mediaPrefetchSc.setChecked(viewUserSettings.isMediaPrefetch());
         appLanguageSp.setSelection(viewUserSettings.getLanguage());
         imageSizeSp.setSelection(viewUserSettings.getImageSize());
         delayListeners();
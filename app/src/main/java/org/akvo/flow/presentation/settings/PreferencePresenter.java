@@ -26,6 +26,7 @@ import org.akvo.flow.domain.interactor.SaveAppLanguage;
 import org.akvo.flow.domain.interactor.SaveEnableMobileData;
 import org.akvo.flow.domain.interactor.SaveImageSize;
 import org.akvo.flow.domain.interactor.SaveKeepScreenOn;
+import org.akvo.flow.domain.interactor.SaveMediaPrefetch;
 import org.akvo.flow.domain.interactor.UseCase;
 import org.akvo.flow.presentation.Presenter;
 
@@ -45,6 +46,7 @@ public class PreferencePresenter implements Presenter {
     private final UseCase saveEnableMobileData;
     private final UseCase saveImageSize;
     private final UseCase saveKeepScreenOn;
+    private final UseCase saveMediaPrefetch;
     private final ViewUserSettingsMapper mapper;
 
     private PreferenceView view;
@@ -54,12 +56,14 @@ public class PreferencePresenter implements Presenter {
             @Named("saveAppLanguage") UseCase saveAppLanguage,
             @Named("saveEnableMobileData") UseCase saveEnableMobileData,
             @Named("saveImageSize") UseCase saveImageSize,
-            @Named("saveKeepScreenOn") UseCase saveKeepScreenOn, ViewUserSettingsMapper mapper) {
+            @Named("saveKeepScreenOn") UseCase saveKeepScreenOn,
+            @Named("saveMediaPrefetch") UseCase saveMediaPrefetch, ViewUserSettingsMapper mapper) {
         this.getUserSettings = getUserSettings;
         this.saveAppLanguage = saveAppLanguage;
         this.saveEnableMobileData = saveEnableMobileData;
         this.saveImageSize = saveImageSize;
         this.saveKeepScreenOn = saveKeepScreenOn;
+        this.saveMediaPrefetch = saveMediaPrefetch;
         this.mapper = mapper;
     }
 
@@ -129,6 +133,17 @@ public class PreferencePresenter implements Presenter {
         }, params);
     }
 
+    public void saveMediaPrefetch(boolean enable) {
+        Map<String, Object> params = new HashMap<>(2);
+        params.put(SaveMediaPrefetch.PARAM_MEDIA_PREFETCH, enable);
+        saveMediaPrefetch.execute(new DefaultObserver<Boolean>() {
+            @Override
+            public void onError(Throwable e) {
+                Timber.e(e);
+            }
+        }, params);
+    }
+
     @Override
     public void destroy() {
         getUserSettings.dispose();
@@ -136,5 +151,6 @@ public class PreferencePresenter implements Presenter {
         saveEnableMobileData.dispose();
         saveImageSize.dispose();
         saveKeepScreenOn.dispose();
+        saveMediaPrefetch.dispose();
     }
 }
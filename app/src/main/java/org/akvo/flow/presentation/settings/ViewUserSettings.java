@@ -26,14 +26,16 @@ public class ViewUserSettings {
     private final int language;
     private final int imageSize;
     private final String identifier;
+    private final boolean mediaPrefetch;
 
     public ViewUserSettings(boolean screenOn, boolean dataEnabled, int language, int imageSize,
-            String identifier) {
+            String identifier, boolean mediaPrefetch) {
         this.screenOn = screenOn;
         this.dataEnabled = dataEnabled;
         this.language = language;
         this.imageSize = imageSize;
         this.identifier = identifier;
+        this.mediaPrefetch = mediaPrefetch;
     }
 
     public boolean isScreenOn() {
@@ -55,4 +57,8 @@ public class ViewUserSettings {
     public String getIdentifier() {
         return identifier;
     }
+
+    public boolean isMediaPrefetch() {
+        return mediaPrefetch;
+    }
 }
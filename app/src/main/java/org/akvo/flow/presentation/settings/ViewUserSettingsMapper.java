@@ -44,7 +44,7 @@ public class ViewUserSettingsMapper {
             @NonNull List<String> languages) {
         if (userSettings == null) {
             int englishPosition = getEnglishLanguagePosition(languages);
-            return new ViewUserSettings(false, false, englishPosition, 0, "");
+            return new ViewUserSettings(false, false, englishPosition, 0, "", true);
         }
         String language = userSettings.getLanguage();
         if (TextUtils.isEmpty(language)) {
@@ -52,7 +52,8 @@ public class ViewUserSettingsMapper {
         }
         int languagePosition = getLanguagePosition(languages, language);
         return new ViewUserSettings(userSettings.isScreenOn(), userSettings.isDataEnabled(),
-                languagePosition, userSettings.getImageSize(), userSettings.getIdentifier());
+                languagePosition, userSettings.getImageSize(), userSettings.getIdentifier(),
+                userSettings.isMediaPrefetch());
     }
 
     private int getLanguagePosition(@NonNull List<String> languages, String language) {
@@ -55,20 +55,23 @@ public class OptionValue {
     }
 
     public static List<Option> deserialize(String data) {
-        try {
-            List<Option> options = new ArrayList<>();
-            JSONArray jOptions = new JSONArray(data);
-            for (int i=0; i<jOptions.length(); i++) {
-                JSONObject jOption = jOptions.getJSONObject(i);
-                Option option = new Option();
-                option.setText(jOption.optString(Attrs.TEXT));
-                option.setCode(jOption.optString(Attrs.CODE, null));
-                option.setIsOther(jOption.optBoolean(Attrs.IS_OTHER));
-                options.add(option);
+        // Values in the old format are not even handed to the JSON parser
+        if (isJson(data)) {
+            try {
+                List<Option> options = new ArrayList<>();
+                JSONArray jOptions = new JSONArray(data);
+                for (int i = 0; i < jOptions.length(); i++) {
+                    JSONObject jOption = jOptions.getJSONObject(i);
+                    Option option = new Option();
+                    option.setText(jOption.optString(Attrs.TEXT));
+                    option.setCode(jOption.optString(Attrs.CODE, null));
+                    option.setIsOther(jOption.optBoolean(Attrs.IS_OTHER));
+                    options.add(option);
+                }
+                return options;
+            } catch (JSONException e) {
+                Timber.e(e.getMessage());
             }
-            return options;
-        } catch (JSONException e) {
-            Timber.e(e.getMessage());
         }
 
         // Default to old format
@@ -82,6 +85,16 @@ public class OptionValue {
         return options;
     }
 
+    private static boolean isJson(String data) {
+        for (int i = 0; i < data.length(); i++) {
+            char c = data.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '[';
+            }
+        }
+        return false;
+    }
+
     public static String getDatapointName(String value) {
         StringBuilder builder = new StringBuilder();
         boolean first = true;
@@ -26,9 +26,13 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import com.squareup.sqlbrite2.BriteDatabase;
+
 import org.akvo.flow.R;
 import org.akvo.flow.app.FlowApp;
 import org.akvo.flow.data.database.SurveyDbDataSource;
+import org.akvo.flow.data.database.cascade.CascadeIndexer;
+import org.akvo.flow.data.preference.Prefs;
 import org.akvo.flow.domain.Survey;
 import org.akvo.flow.domain.SurveyMetadata;
 import org.akvo.flow.serialization.form.SurveyMetadataParser;
@@ -41,18 +45,22 @@ import org.akvo.flow.util.SurveyIdGenerator;
 import org.akvo.flow.util.ViewUtil;
 import org.akvo.flow.util.files.FormFileBrowser;
 import org.akvo.flow.util.files.FormResourcesFileBrowser;
+import org.akvo.flow.util.files.PendingFiles;
+import org.akvo.flow.util.files.ZipStreamExtractor;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipInputStream;
 
 import javax.inject.Inject;
 
@@ -81,6 +89,7 @@ public class BootstrapService extends IntentService {
     public volatile static boolean isProcessing = false;
 
     private static final String TAG = "BOOTSTRAP_SERVICE";
+    private static final int MAX_PARALLEL_EXTRACTIONS = 4;
 
     @Inject
     FormFileBrowser formFileBrowser;
@@ -91,6 +100,9 @@ public class BootstrapService extends IntentService {
     @Inject
     SurveyDbDataSource databaseAdapter;
 
+    @Inject
+    Prefs prefs;
+
     private final SurveyIdGenerator surveyIdGenerator = new SurveyIdGenerator();
     private final SurveyFileNameGenerator surveyFileNameGenerator = new SurveyFileNameGenerator();
     private final ZipFileLister zipFileLister = new ZipFileLister();
@@ -172,85 +184,196 @@ public class BootstrapService extends IntentService {
     }
 
     /**
-     * processes a bootstrap zip file
+     * processes a bootstrap zip file. Entries are extracted in parallel into temporary files and
+     * the survey metadata is parsed while the survey files are copied. Only when every entry
+     * succeeded are the surveys saved, within a single transaction, and then the files moved
+     * into place, so a failure leaves no partial state behind.
      */
     private void processFile(File file) throws Exception {
         final ZipFile zipFile = new ZipFile(file);
-        Enumeration<? extends ZipEntry> entries = zipFile.entries();
-        while (entries.hasMoreElements()) {
-            ZipEntry entry = entries.nextElement();
-            String entryName = entry.getName();
-
-            // Skip directories and hidden/unwanted files
-            if (entry.isDirectory() || TextUtils
-                    .isEmpty(entryName) || entryName.startsWith(".") ||
-                    entryName.endsWith(ConstantUtil.BOOTSTRAP_ROLLBACK_FILE) || entryName
-                    .endsWith(ConstantUtil.BOOTSTRAP_DB_FILE)) {
-                continue;
+        final File formsFolder = formFileBrowser
+                .getExistingAppInternalFolder(getApplicationContext());
+        final File resourcesFolder = resourcesFileUtil
+                .getExistingAppInternalFolder(getApplicationContext());
+        final PendingFiles pendingFiles = new PendingFiles();
+        final List<BootstrapSurvey> surveys = Collections
+                .synchronizedList(new ArrayList<BootstrapSurvey>());
+        final List<File> cascadeFiles = Collections.synchronizedList(new ArrayList<File>());
+        DownloadScheduler<String> scheduler = new DownloadScheduler<>(MAX_PARALLEL_EXTRACTIONS);
+        try {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                String entryName = entry.getName();
+
+                // Skip directories and hidden/unwanted files
+                if (entry.isDirectory() || TextUtils
+                        .isEmpty(entryName) || entryName.startsWith(".") ||
+                        entryName.endsWith(ConstantUtil.BOOTSTRAP_ROLLBACK_FILE) || entryName
+                        .endsWith(ConstantUtil.BOOTSTRAP_DB_FILE)) {
+                    continue;
+                }
+
+                scheduler.schedule(entryName, new DownloadScheduler.Task() {
+                    @Override
+                    public void run() throws Exception {
+                        BootstrapSurvey survey = extractEntry(zipFile, entry, formsFolder,
+                                resourcesFolder, pendingFiles, cascadeFiles);
+                        if (survey != null) {
+                            surveys.add(survey);
+                        }
+                    }
+                });
             }
 
-            if (entryName.endsWith(ConstantUtil.CASCADE_RES_SUFFIX)) {
-                // Cascade resource
-                FileUtil.extract(new ZipInputStream(zipFile.getInputStream(entry)),
-                        resourcesFileUtil.getExistingAppInternalFolder(getApplicationContext()));
-            } else if (entryName.endsWith(ConstantUtil.XML_SUFFIX)) {
-                String filename = surveyFileNameGenerator.generateFileName(entryName);
-                String id = surveyIdGenerator.getSurveyIdFromFilePath(entryName);
-                processSurveyFile(zipFile, entry, filename, id);
-            } else {
-                String filename = surveyFileNameGenerator.generateFileName(entryName);
-                String id = surveyIdGenerator.getSurveyIdFromFilePath(entryName);
-                // Help media file
-                File helpDir = new File(formFileBrowser.getExistingAppInternalFolder(getApplicationContext()),
-                        id);
-                if (!helpDir.exists()) {
-                    helpDir.mkdir();
+            final List<Exception> errors = new ArrayList<>();
+            boolean finished = scheduler.runAll(new DownloadScheduler.Listener<String>() {
+                @Override
+                public void onTaskFinished(String entryName, @Nullable Exception error,
+                        int completed, int failed, int total) {
+                    if (error != null) {
+                        Timber.e(error, "Could not extract bootstrap entry: " + entryName);
+                        errors.add(error);
+                    }
                 }
-                FileUtil.copy(zipFile.getInputStream(entry),
-                        new FileOutputStream(new File(helpDir, filename)));
+            });
+            if (!errors.isEmpty()) {
+                throw errors.get(0);
             }
+            if (!finished) {
+                throw new InterruptedException("Bootstrap extraction was interrupted");
+            }
+
+            installSurveys(surveys, pendingFiles);
+        } finally {
+            scheduler.shutdown();
+            pendingFiles.discard();
+            closeZipFile(zipFile);
+        }
+
+        // The cascade resources are installed, index them before any form opens them
+        CascadeIndexer cascadeIndexer = new CascadeIndexer(getApplicationContext(), prefs);
+        for (File cascadeFile : cascadeFiles) {
+            cascadeIndexer.prepare(cascadeFile);
         }
 
         // now rename the zip file so we don't process it again
         file.renameTo(new File(file.getAbsolutePath() + ConstantUtil.PROCESSED_OK_SUFFIX));
     }
 
-    private void processSurveyFile(@NonNull ZipFile zipFile, @NonNull ZipEntry entry,
-            @NonNull String filename, @NonNull String idFromFolderName) throws IOException {
-
-        Survey survey = databaseAdapter.getSurvey(idFromFolderName);
-
-        String surveyFolderName = generateSurveyFolder(entry);
-
-        // in both cases (new survey and existing), we need to update the xml
-        File surveyFile = generateNewSurveyFile(filename, surveyFolderName);
-        FileUtil.copy(zipFile.getInputStream(entry), new FileOutputStream(surveyFile));
-        // now read the survey XML back into memory to see if there is a version
-        SurveyMetadata surveyMetadata = readBasicSurveyData(surveyFile);
-        if (surveyMetadata == null) {
-            // Something went wrong, we cannot continue with this survey
-            return;
+    private void closeZipFile(@NonNull ZipFile zipFile) {
+        try {
+            // ZipFile is not Closeable before api level 19
+            zipFile.close();
+        } catch (IOException e) {
+            Timber.e(e, "Could not close bootstrap file");
         }
+    }
 
-        verifyAppId(surveyMetadata);
+    /**
+     * Extracts a single entry of the bootstrap file into a pending file. Runs in a worker thread.
+     *
+     * @param cascadeFiles where the extracted cascade databases are added
+     * @return the survey found in the entry, if the entry is a survey xml file
+     */
+    @Nullable
+    private BootstrapSurvey extractEntry(@NonNull ZipFile zipFile, @NonNull ZipEntry entry,
+            @NonNull File formsFolder, @NonNull File resourcesFolder,
+            @NonNull PendingFiles pendingFiles, @NonNull List<File> cascadeFiles)
+            throws IOException {
+        String entryName = entry.getName();
+        if (entryName.endsWith(ConstantUtil.CASCADE_RES_SUFFIX)) {
+            // Cascade resource
+            InputStream in = zipFile.getInputStream(entry);
+            try {
+                for (File file : new ZipStreamExtractor()
+                        .extract(in, resourcesFolder, null, pendingFiles).values()) {
+                    if (file.getName().endsWith(ConstantUtil.CASCADE_DB_SUFFIX)) {
+                        cascadeFiles.add(file);
+                    }
+                }
+            } finally {
+                FileUtil.close(in);
+            }
+            return null;
+        }
 
-        survey = updateSurvey(filename, idFromFolderName, survey, surveyFolderName, surveyMetadata);
+        String filename = surveyFileNameGenerator.generateFileName(entryName);
+        String id = surveyIdGenerator.getSurveyIdFromFilePath(entryName);
+        if (entryName.endsWith(ConstantUtil.XML_SUFFIX)) {
+            String surveyFolderName = generateSurveyFolder(entry);
+            // in both cases (new survey and existing), we need to update the xml
+            File surveyFile = generateNewSurveyFile(formsFolder, filename, surveyFolderName);
+            SurveyMetadata surveyMetadata = copySurveyFile(zipFile.getInputStream(entry),
+                    pendingFiles.add(surveyFile));
+            if (surveyMetadata == null) {
+                // Something went wrong, we cannot continue with this survey
+                return null;
+            }
+            return new BootstrapSurvey(filename, id, surveyFolderName, surveyMetadata);
+        }
 
-        // Save the Survey, SurveyGroup, and languages.
-        updateSurveyStorage(survey);
+        // Help media file
+        File helpDir = new File(formsFolder, id);
+        if (!helpDir.exists()) {
+            helpDir.mkdir();
+        }
+        InputStream in = zipFile.getInputStream(entry);
+        OutputStream out = new FileOutputStream(pendingFiles.add(new File(helpDir, filename)));
+        try {
+            FileUtil.copy(in, out);
+        } finally {
+            FileUtil.close(in);
+            FileUtil.close(out);
+        }
+        return null;
     }
 
+    /**
+     * Copies the survey xml while reading its metadata from the same stream, so the file does not
+     * have to be read back
+     */
     @Nullable
-    private SurveyMetadata readBasicSurveyData(File surveyFile) {
-        SurveyMetadata surveyMetadata = null;
+    private SurveyMetadata copySurveyFile(@NonNull InputStream in, @NonNull File dst)
+            throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(dst));
+        InputStream teeStream = new TeeInputStream(in, out);
+        try {
+            SurveyMetadata surveyMetadata = new SurveyMetadataParser().parse(teeStream);
+            // The parser may stop before the end of the stream, copy the remaining bytes
+            FileUtil.copy(teeStream, new NullOutputStream());
+            return surveyMetadata;
+        } finally {
+            FileUtil.close(in);
+            FileUtil.close(out);
+        }
+    }
+
+    /**
+     * Saves all the surveys of a bootstrap file in a single transaction, then installs its files
+     */
+    private void installSurveys(@NonNull List<BootstrapSurvey> bootstrapSurveys,
+            @NonNull PendingFiles pendingFiles) throws IOException {
+        List<Survey> surveys = new ArrayList<>(bootstrapSurveys.size());
+        for (BootstrapSurvey bootstrapSurvey : bootstrapSurveys) {
+            verifyAppId(bootstrapSurvey.metadata);
+            Survey survey = databaseAdapter.getSurvey(bootstrapSurvey.id);
+            surveys.add(updateSurvey(bootstrapSurvey.filename, bootstrapSurvey.id, survey,
+                    bootstrapSurvey.folderName, bootstrapSurvey.metadata));
+        }
+
+        BriteDatabase.Transaction transaction = databaseAdapter.beginTransaction();
         try {
-            InputStream in = new FileInputStream(surveyFile);
-            SurveyMetadataParser parser = new SurveyMetadataParser();
-            surveyMetadata = parser.parse(in);
-        } catch (FileNotFoundException e) {
-            Timber.e("Could not load survey xml file");
+            for (Survey survey : surveys) {
+                // Save the Survey, SurveyGroup, and languages.
+                updateSurveyStorage(survey);
+            }
+            transaction.markSuccessful();
+        } finally {
+            transaction.end();
         }
-        return surveyMetadata;
+        // Files are installed once the surveys are saved, so a failed save installs none of them
+        pendingFiles.commit();
     }
 
     @NonNull
@@ -321,9 +444,8 @@ public class BootstrapService extends IntentService {
     }
 
     @NonNull
-    private File generateNewSurveyFile(@NonNull String filename,
+    private File generateNewSurveyFile(@NonNull File filesDir, @NonNull String filename,
             @Nullable String surveyFolderName) {
-        File filesDir = formFileBrowser.getExistingAppInternalFolder(getApplicationContext());
         if (TextUtils.isEmpty(surveyFolderName)) {
             return new File(filesDir, filename);
         } else {
@@ -353,4 +475,85 @@ public class BootstrapService extends IntentService {
         String entryPaths[] = entryName == null ? new String[0] : entryName.split(File.separator);
         return entryPaths.length < 2 ? "" : entryPaths[entryPaths.length - 2];
     }
+
+    /**
+     * A survey xml file found in a bootstrap file
+     */
+    private static class BootstrapSurvey {
+
+        final String filename;
+        final String id;
+        final String folderName;
+        final SurveyMetadata metadata;
+
+        BootstrapSurvey(String filename, String id, String folderName,
+                SurveyMetadata metadata) {
+            this.filename = filename;
+            this.id = id;
+            this.folderName = folderName;
+            this.metadata = metadata;
+        }
+    }
+
+    /**
+     * Writes every byte read from the wrapped stream to the given output stream
+     */
+    private static class TeeInputStream extends FilterInputStream {
+
+        private final OutputStream out;
+
+        TeeInputStream(InputStream in, OutputStream out) {
+            super(in);
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                out.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int count) throws IOException {
+            int read = super.read(buffer, offset, count);
+            if (read > 0) {
+                out.write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes would be missing from the copy
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // The parser must not close the stream, the remaining bytes still have to be copied
+        }
+    }
+
+    private static class NullOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+            // Discard
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) {
+            // Discard
+        }
+    }
 }
@@ -34,6 +34,7 @@ import org.akvo.flow.api.FlowApi;
 import org.akvo.flow.api.S3Api;
 import org.akvo.flow.app.FlowApp;
 import org.akvo.flow.data.database.SurveyDbDataSource;
+import org.akvo.flow.data.net.RequestSigner;
 import org.akvo.flow.data.preference.Prefs;
 import org.akvo.flow.database.ResponseColumns;
 import org.akvo.flow.database.SurveyInstanceColumns;
@@ -44,12 +45,15 @@ import org.akvo.flow.domain.FileTransmission;
 import org.akvo.flow.domain.Survey;
 import org.akvo.flow.domain.response.FormInstance;
 import org.akvo.flow.domain.response.Response;
+import org.akvo.flow.domain.response.value.Signature;
 import org.akvo.flow.exception.HttpException;
+import org.akvo.flow.serialization.response.value.SignatureValue;
 import org.akvo.flow.util.ConnectivityStateManager;
 import org.akvo.flow.util.ConstantUtil;
 import org.akvo.flow.util.FileUtil;
 import org.akvo.flow.util.FileUtil.FileType;
 import org.akvo.flow.util.GsonMapper;
+import org.akvo.flow.util.ImageUtil;
 import org.akvo.flow.util.NotificationHelper;
 import org.akvo.flow.util.StringUtil;
 import org.json.JSONArray;
@@ -60,9 +64,6 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.HttpURLConnection;
-import java.security.InvalidKeyException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -72,8 +73,6 @@ import java.util.zip.CheckedOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import javax.inject.Inject;
 
 import timber.log.Timber;
@@ -98,7 +97,7 @@ public class DataSyncService extends IntentService {
     private static final String DELIMITER = "\t";
     private static final String SPACE = "\u0020"; // safe from source whitespace reformatting
 
-    private static final String SIGNING_ALGORITHM = "HmacSHA1";
+    private static final RequestSigner SIGNER = new RequestSigner(BuildConfig.SIGNING_KEY);
 
     private static final String SURVEY_DATA_FILE_JSON = "data.json";
     private static final String SIG_FILE_NAME = ".sig";
@@ -142,6 +141,11 @@ public class DataSyncService extends IntentService {
     protected void onHandleIntent(Intent intent) {
         try {
             mDatabase.open();
+            if (mDatabase.hasPendingMigrations()) {
+                // Responses must not be exported before they are migrated
+                Timber.w("Database migrations pending, skipping sync");
+                return;
+            }
             exportSurveys();// Create zip files, if necessary
 
             if (connectivityStateManager.isConnectionAvailable(preferences
@@ -269,16 +273,8 @@ public class DataSyncService extends IntentService {
             ZipOutputStream zos = new ZipOutputStream(checkedOutStream);
 
             writeTextToZip(zos, zipFileData.data, SURVEY_DATA_FILE_JSON);
-            String signingKeyString = BuildConfig.SIGNING_KEY;
-            if (!StringUtil.isNullOrEmpty(signingKeyString)) {
-                MessageDigest sha1Digest = MessageDigest.getInstance("SHA1");
-                byte[] digest = sha1Digest.digest(zipFileData.data.getBytes(UTF_8_CHARSET));
-                SecretKeySpec signingKey = new SecretKeySpec(
-                        signingKeyString.getBytes(UTF_8_CHARSET),
-                        SIGNING_ALGORITHM);
-                Mac mac = Mac.getInstance(SIGNING_ALGORITHM);
-                mac.init(signingKey);
-                byte[] hmac = mac.doFinal(digest);
+            if (!StringUtil.isNullOrEmpty(BuildConfig.SIGNING_KEY)) {
+                byte[] hmac = SIGNER.signDigest(zipFileData.data);
                 String encodedHmac = Base64.encodeToString(hmac, Base64.DEFAULT);
                 writeTextToZip(zos, encodedHmac, SIG_FILE_NAME);
             }
@@ -287,7 +283,7 @@ public class DataSyncService extends IntentService {
             zos.close();
             Timber.i("Closed zip output stream for file: " + fileName + ". Checksum: " + checksum);
             return zipFileData;
-        } catch (@NonNull IOException | NoSuchAlgorithmException | InvalidKeyException e) {
+        } catch (IOException e) {
             Timber.e(e, e.getMessage());
             return null;
         }
@@ -339,8 +335,14 @@ public class DataSyncService extends IntentService {
             // Note: No need to query the surveyInstanceId, we already have that value
 
             do {
-                // Sanitize answer value. No newlines or tabs!
                 String value = data.getString(answer_col);
+                String type = data.getString(answer_type_col);
+                String filename = data.getString(filename_col);
+                if (ConstantUtil.SIGNATURE_RESPONSE_TYPE.equals(type)
+                        && !TextUtils.isEmpty(filename)) {
+                    value = inlineSignature(value, filename);
+                }
+                // Sanitize answer value. No newlines or tabs!
                 if (value != null) {
                     value = value.replace("\n", SPACE);
                     value = value.replace(DELIMITER, SPACE);
@@ -364,14 +366,14 @@ public class DataSyncService extends IntentService {
                     formInstance.setEmail(cleanVal(data.getString(email_col)));
                 }
 
-                // If the response has any file attached, enqueue it to the image list
-                String filename = data.getString(filename_col);
-                if (!TextUtils.isEmpty(filename)) {
+                // If the response has any file attached, enqueue it to the image list.
+                // Signature files are already sent inline, as the server expects them
+                if (!TextUtils.isEmpty(filename)
+                        && !ConstantUtil.SIGNATURE_RESPONSE_TYPE.equals(type)) {
                     imagePaths.add(filename);
                 }
 
                 // Ensure backwards compatibility. Old image responses may contain filenames
-                String type = data.getString(answer_type_col);
                 if (ConstantUtil.IMAGE_RESPONSE_TYPE.equals(type)
                         || ConstantUtil.VIDEO_RESPONSE_TYPE.equals(type)) {
                     if (!TextUtils.isEmpty(value) && new File(value).exists()) {
@@ -403,6 +405,24 @@ public class DataSyncService extends IntentService {
         return formInstance;
     }
 
+    /**
+     * Signatures are kept in media files, but the server still expects their base64 image in the
+     * response value, without the local file name
+     */
+    private String inlineSignature(String value, @NonNull String filename) {
+        Signature signature = SignatureValue.deserialize(value);
+        if (signature == null) {
+            return value;
+        }
+        String image = ImageUtil.encodeBase64(new File(filename));
+        if (image == null) {
+            Timber.e("Signature file not found: %s", filename);
+        }
+        signature.setImage(image);
+        signature.setFilename(null);
+        return SignatureValue.serialize(signature);
+    }
+
     // replace troublesome chars in user-provided values
     // replaceAll() compiles a Pattern, and so is inefficient inside a loop
     @Nullable
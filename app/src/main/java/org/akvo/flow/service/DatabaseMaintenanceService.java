@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.service;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.PowerManager;
+
+import com.google.android.gms.gcm.GcmNetworkManager;
+import com.google.android.gms.gcm.GcmTaskService;
+import com.google.android.gms.gcm.PeriodicTask;
+import com.google.android.gms.gcm.Task;
+import com.google.android.gms.gcm.TaskParams;
+
+import org.akvo.flow.app.FlowApp;
+import org.akvo.flow.data.database.SurveyDbDataSource;
+import org.akvo.flow.data.preference.Prefs;
+import org.akvo.flow.database.DatabaseSize;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import timber.log.Timber;
+
+/**
+ * Archives the responses of old synced form instances, reclaims the space of deleted rows and
+ * refreshes the query planner statistics once a day, while the device is charging and not in
+ * use. The database size before and after is kept in the preferences, so it can be displayed
+ * in the about screen. Responses are archived after {@link Prefs#KEY_RESPONSE_ARCHIVE_DAYS}
+ * days, never if it is 0.
+ */
+public class DatabaseMaintenanceService extends GcmTaskService {
+
+    private static final String TAG = "DatabaseMaintenanceService";
+    private static final long PERIOD_SECONDS = 24 * 60 * 60;
+    private static final long FLEX_SECONDS = 6 * 60 * 60;
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    @Inject
+    SurveyDbDataSource database;
+
+    @Inject
+    Prefs prefs;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        FlowApp application = (FlowApp) getApplicationContext();
+        application.getApplicationComponent().inject(this);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent == null) {
+            // GcmTaskService doesn't check for null intent
+            Timber.w("Invalid GcmTask null intent.");
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        return super.onStartCommand(intent, flags, startId);
+    }
+
+    public static void scheduleMaintenance(Context context) {
+        Task periodicTask = new PeriodicTask.Builder()
+                .setService(DatabaseMaintenanceService.class)
+                .setTag(TAG)
+                .setPeriod(PERIOD_SECONDS)
+                .setFlex(FLEX_SECONDS)
+                .setRequiredNetwork(Task.NETWORK_STATE_ANY)
+                .setRequiresCharging(true)
+                .setPersisted(true)
+                .setUpdateCurrent(true)
+                .build();
+        GcmNetworkManager.getInstance(context).schedule(periodicTask);
+    }
+
+    @Override
+    public void onInitializeTasks() {
+        super.onInitializeTasks();
+        scheduleMaintenance(getApplicationContext());
+    }
+
+    @Override
+    public int onRunTask(TaskParams taskParams) {
+        if (isDeviceInUse()) {
+            // Vacuuming locks the database, so it waits until the user leaves the device
+            return GcmNetworkManager.RESULT_RESCHEDULE;
+        }
+        if (hasPendingMigrations()) {
+            // Responses must not be archived before they are migrated
+            return GcmNetworkManager.RESULT_RESCHEDULE;
+        }
+        try {
+            DatabaseSize before = database.getDatabaseSize();
+            archiveResponses();
+            database.runMaintenance();
+            DatabaseSize after = database.getDatabaseSize();
+            Timber.i("Database maintenance: %d bytes before, %d bytes after",
+                    before.getTotalBytes(), after.getTotalBytes());
+            saveReport(before, after);
+            return GcmNetworkManager.RESULT_SUCCESS;
+        } catch (Exception e) {
+            Timber.e(e, "Error running database maintenance");
+            return GcmNetworkManager.RESULT_FAILURE;
+        }
+    }
+
+    private boolean hasPendingMigrations() {
+        database.open();
+        try {
+            return database.hasPendingMigrations();
+        } finally {
+            database.close();
+        }
+    }
+
+    private void archiveResponses() {
+        int days = prefs.getInt(Prefs.KEY_RESPONSE_ARCHIVE_DAYS,
+                Prefs.DEFAULT_VALUE_RESPONSE_ARCHIVE_DAYS);
+        if (days > 0) {
+            int archived = database
+                    .archiveResponses(System.currentTimeMillis() - days * DAY_MILLIS);
+            Timber.i("Archived the responses of %d form instances", archived);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private boolean isDeviceInUse() {
+        PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        return powerManager != null && powerManager.isScreenOn();
+    }
+
+    private void saveReport(DatabaseSize before, DatabaseSize after) {
+        StringBuilder tableRows = new StringBuilder();
+        for (Map.Entry<String, Long> table : after.getTableRows().entrySet()) {
+            Long rowsBefore = before.getTableRows().get(table.getKey());
+            if (tableRows.length() > 0) {
+                tableRows.append('\n');
+            }
+            tableRows.append(table.getKey()).append(": ").append(rowsBefore).append(" -> ")
+                    .append(table.getValue());
+        }
+        prefs.setLong(Prefs.KEY_DATABASE_MAINTENANCE_TIME, System.currentTimeMillis());
+        prefs.setLong(Prefs.KEY_DATABASE_SIZE_BEFORE, before.getTotalBytes());
+        prefs.setLong(Prefs.KEY_DATABASE_SIZE_AFTER, after.getTotalBytes());
+        prefs.setString(Prefs.KEY_DATABASE_TABLE_ROWS, tableRows.toString());
+    }
+}
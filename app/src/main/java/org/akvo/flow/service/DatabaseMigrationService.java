@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package org.akvo.flow.service;
+
+import android.app.IntentService;
+import android.content.Context;
+import android.content.Intent;
+import android.support.v4.content.LocalBroadcastManager;
+
+import org.akvo.flow.data.database.cascade.CascadeIndexer;
+import org.akvo.flow.data.migration.FlowMigrationListener;
+import org.akvo.flow.data.migration.languages.MigrationLanguageMapper;
+import org.akvo.flow.data.preference.Prefs;
+import org.akvo.flow.database.SurveyDbAdapter;
+import org.akvo.flow.util.files.FileBrowser;
+import org.akvo.flow.util.files.FormResourcesFileBrowser;
+
+import timber.log.Timber;
+
+/**
+ * Completes the data migrations scheduled by a database upgrade, which can take a while on large
+ * databases, away from the main thread. The launcher activity waits for
+ * {@link #ACTION_MIGRATIONS_DONE} or {@link #ACTION_MIGRATIONS_FAILED} while
+ * {@link #isRunning()}, so that forms are not opened on responses which are still being
+ * migrated. The other users of the responses check that no migration is pending before reading
+ * them.
+ * <p>
+ * The cascade resources installed by previous app versions are indexed here too, so that forms
+ * never build their indexes on the main thread.
+ */
+public class DatabaseMigrationService extends IntentService {
+
+    private static final String TAG = "DatabaseMigrationService";
+
+    public static final String ACTION_MIGRATIONS_DONE = "org.akvo.flow.MIGRATIONS_DONE";
+    public static final String ACTION_MIGRATIONS_FAILED = "org.akvo.flow.MIGRATIONS_FAILED";
+
+    private static volatile boolean running;
+    private static volatile boolean failed;
+
+    public DatabaseMigrationService() {
+        super(TAG);
+    }
+
+    public static void start(Context context) {
+        running = true;
+        failed = false;
+        context.startService(new Intent(context, DatabaseMigrationService.class));
+    }
+
+    public static boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return true if the last run stopped with migrations still pending
+     */
+    public static boolean hasFailed() {
+        return failed;
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        Context context = getApplicationContext();
+        Prefs prefs = new Prefs(context);
+        boolean done = false;
+        try {
+            done = resumeMigrations(context, prefs);
+            prepareCascadeResources(context, prefs);
+        } finally {
+            failed = !done;
+            running = false;
+            LocalBroadcastManager.getInstance(this).sendBroadcast(
+                    new Intent(done ? ACTION_MIGRATIONS_DONE : ACTION_MIGRATIONS_FAILED));
+        }
+    }
+
+    /**
+     * @return true if no migration is left pending
+     */
+    private boolean resumeMigrations(Context context, Prefs prefs) {
+        SurveyDbAdapter database = new SurveyDbAdapter(context,
+                new FlowMigrationListener(prefs, new MigrationLanguageMapper(context)));
+        try {
+            database.open();
+            return database.resumeMigrations();
+        } catch (Exception e) {
+            // Left pending, they are resumed the next time the service is started
+            Timber.e(e, "Error running database migrations");
+            return false;
+        } finally {
+            database.close();
+        }
+    }
+
+    private void prepareCascadeResources(Context context, Prefs prefs) {
+        CascadeIndexer cascadeIndexer = new CascadeIndexer(context, prefs);
+        if (cascadeIndexer.isPending()) {
+            cascadeIndexer.prepareAll(new FormResourcesFileBrowser(new FileBrowser())
+                    .findAllPossibleFolders(context));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import timber.log.Timber;
+
+/**
+ * Runs download tasks, or any other blocking I/O tasks such as extractions, with a bounded number
+ * of parallel workers. Tasks are deduplicated by key, so a resource shared by many forms is only
+ * fetched once.
+ * <p>
+ * Results are delivered to the {@link Listener} on the thread calling {@link #runAll}, so
+ * callers can safely touch the database or post notifications from there.
+ */
+public class DownloadScheduler<K> {
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    public interface Listener<K> {
+
+        /**
+         * @param key       key of the finished task
+         * @param error     the error which made the task fail, null if it succeeded
+         * @param completed number of finished tasks so far, including failed ones
+         * @param failed    number of failed tasks so far
+         * @param total     total number of tasks
+         */
+        void onTaskFinished(K key, @Nullable Exception error, int completed, int failed,
+                int total);
+    }
+
+    private final ExecutorService executor;
+    private final Map<K, Task> tasks = new LinkedHashMap<>();
+
+    public DownloadScheduler(int maxParallelDownloads) {
+        this.executor = Executors.newFixedThreadPool(maxParallelDownloads);
+    }
+
+    /**
+     * Adds a task, unless one already exists for the same key
+     *
+     * @return true if the task was added, false if it was a duplicate
+     */
+    public boolean schedule(@NonNull K key, @NonNull Task task) {
+        if (tasks.containsKey(key)) {
+            return false;
+        }
+        tasks.put(key, task);
+        return true;
+    }
+
+    /**
+     * Runs all the scheduled tasks and blocks until every one of them is finished. The scheduler
+     * can be reused afterwards.
+     *
+     * @return false if the calling thread was interrupted before all the tasks finished, in which
+     * case the remaining ones are cancelled
+     */
+    public boolean runAll(@NonNull Listener<K> listener) {
+        CompletionService<K> completionService = new ExecutorCompletionService<>(executor);
+        final Map<Future<K>, K> keys = new LinkedHashMap<>();
+        for (Map.Entry<K, Task> entry : tasks.entrySet()) {
+            final K key = entry.getKey();
+            final Task task = entry.getValue();
+            keys.put(completionService.submit(new Callable<K>() {
+                @Override
+                public K call() throws Exception {
+                    task.run();
+                    return key;
+                }
+            }), key);
+        }
+        tasks.clear();
+
+        int total = keys.size();
+        int completed = 0;
+        int failed = 0;
+        while (completed < total) {
+            Future<K> future;
+            try {
+                future = completionService.take();
+            } catch (InterruptedException e) {
+                Timber.e(e, "Interrupted while waiting for downloads");
+                Thread.currentThread().interrupt();
+                cancel(keys);
+                return false;
+            }
+            completed++;
+            Exception error = null;
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failed++;
+                Throwable cause = e.getCause();
+                error = cause instanceof Exception ? (Exception) cause : e;
+            } catch (InterruptedException e) {
+                // Can't happen, the future is done already
+                failed++;
+                error = e;
+            }
+            listener.onTaskFinished(keys.get(future), error, completed, failed, total);
+        }
+        return true;
+    }
+
+    /**
+     * Stops the workers, the scheduler can not be used anymore after this call
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void cancel(Map<Future<K>, K> futures) {
+        for (Future<K> future : futures.keySet()) {
+            future.cancel(true);
+        }
+    }
+}
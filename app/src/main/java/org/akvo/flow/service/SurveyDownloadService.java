@@ -30,6 +30,7 @@ import org.akvo.flow.api.FlowApi;
 import org.akvo.flow.api.S3Api;
 import org.akvo.flow.app.FlowApp;
 import org.akvo.flow.data.dao.SurveyDao;
+import org.akvo.flow.data.database.cascade.CascadeIndexer;
 import org.akvo.flow.data.database.SurveyDbDataSource;
 import org.akvo.flow.data.preference.Prefs;
 import org.akvo.flow.domain.Question;
@@ -42,6 +43,7 @@ import org.akvo.flow.util.ConstantUtil;
 import org.akvo.flow.util.FileUtil;
 import org.akvo.flow.util.files.FormFileBrowser;
 import org.akvo.flow.util.files.FormResourcesFileBrowser;
+import org.akvo.flow.util.files.ResourceManifest;
 import org.akvo.flow.util.HttpUtil;
 import org.akvo.flow.util.NotificationHelper;
 
@@ -51,10 +53,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.zip.ZipInputStream;
 
 import javax.inject.Inject;
 
@@ -76,6 +79,7 @@ public class SurveyDownloadService extends IntentService {
     private static final String TEST_SURVEY_ID = "0";
     private static final String TAG = "SURVEY_DOWNLOAD_SERVICE";
     private static final String DEFAULT_TYPE = "Survey";
+    private static final int MAX_PARALLEL_DOWNLOADS = 4;
 
     @Inject
     FormFileBrowser formFileBrowser;
@@ -106,6 +110,11 @@ public class SurveyDownloadService extends IntentService {
     public void onHandleIntent(@Nullable Intent intent) {
         try {
             databaseAdaptor.open();
+            if (databaseAdaptor.hasPendingMigrations()) {
+                // Deleted or replaced forms would leave responses half migrated
+                Timber.w("Database migrations pending, skipping form download");
+                return;
+            }
             if (intent != null && intent.hasExtra(EXTRA_SURVEY_ID)) {
                 downloadSurvey(intent);
             } else if (intent != null && intent.getBooleanExtra(EXTRA_DELETE_SURVEYS, false)) {
@@ -163,33 +172,62 @@ public class SurveyDownloadService extends IntentService {
         // Check synced versions, and omit up-to-date surveys
         surveys = databaseAdaptor.fetchOutDatedSurveys(surveys);
 
+        DownloadProgress progress = new DownloadProgress(surveys.size());
         if (!surveys.isEmpty()) {
-            int synced = 0, failed = 0;
-            displayNotification(synced, failed, surveys.size());
-            for (Survey survey : surveys) {
-                try {
-                    downloadSurvey(survey);
-                    databaseAdaptor.saveSurvey(survey);
-                    downloadResources(survey);
-                    synced++;
-                } catch (IOException e) {
-                    failed++;
-                    Timber.e(e, "Error downloading survey: " + survey.getId());
-                    displayErrorNotification(ConstantUtil.NOTIFICATION_FORM_ERROR,
-                            getString(R.string.error_form_download));
-                }
-                displayNotification(synced, failed, surveys.size());
-            }
+            displayNotification(progress);
+            downloadSurveys(surveys, progress);
         }
 
         // now check if any previously downloaded surveys still need
         // don't have their help media pre-cached
-        surveys = databaseAdaptor.getSurveyList(SurveyGroup.ID_NONE);
-        for (Survey survey : surveys) {
+        List<Survey> missingResources = new ArrayList<>();
+        for (Survey survey : databaseAdaptor.getSurveyList(SurveyGroup.ID_NONE)) {
             if (!survey.isHelpDownloaded()) {
-                downloadResources(survey);
+                missingResources.add(survey);
             }
         }
+        downloadResources(missingResources, progress);
+    }
+
+    /**
+     * Downloads and extracts the given surveys in parallel. Each survey is saved as soon as its
+     * files are ready.
+     */
+    private void downloadSurveys(@NonNull List<Survey> surveys,
+            @NonNull final DownloadProgress progress) {
+        final File formFolder = formFileBrowser
+                .getExistingAppInternalFolder(getApplicationContext());
+        final Map<String, Survey> surveysById = new HashMap<>();
+        DownloadScheduler<String> scheduler = new DownloadScheduler<>(MAX_PARALLEL_DOWNLOADS);
+        for (final Survey survey : surveys) {
+            surveysById.put(survey.getId(), survey);
+            scheduler.schedule(survey.getId(), new DownloadScheduler.Task() {
+                @Override
+                public void run() throws Exception {
+                    downloadSurvey(survey, formFolder);
+                }
+            });
+        }
+        try {
+            scheduler.runAll(new DownloadScheduler.Listener<String>() {
+                @Override
+                public void onTaskFinished(String surveyId, @Nullable Exception error,
+                        int completed, int failed, int total) {
+                    if (error == null) {
+                        databaseAdaptor.saveSurvey(surveysById.get(surveyId));
+                        progress.formsSynced++;
+                    } else {
+                        progress.formsFailed++;
+                        Timber.e(error, "Error downloading survey: " + surveyId);
+                        displayErrorNotification(ConstantUtil.NOTIFICATION_FORM_ERROR,
+                                getString(R.string.error_form_download));
+                    }
+                    displayNotification(progress);
+                }
+            });
+        } finally {
+            scheduler.shutdown();
+        }
     }
 
     private void syncSurveyGroups(@NonNull List<Survey> surveys) {
@@ -207,22 +245,12 @@ public class SurveyDownloadService extends IntentService {
      * Downloads the survey based on the ID and then updates the survey object
      * with the filename and location
      */
-    private void downloadSurvey(@NonNull Survey survey) throws IOException {
+    private void downloadSurvey(@NonNull Survey survey, @NonNull File formFolder)
+            throws IOException {
         final String filename = survey.getId() + ConstantUtil.ARCHIVE_SUFFIX;
         final String objectKey = ConstantUtil.S3_SURVEYS_DIR + filename;
-        File formFolder = formFileBrowser.getExistingAppInternalFolder(getApplicationContext());
-        final File surveyFormsZipArchive = new File(formFolder, filename);
-
         S3Api s3Api = new S3Api();
-        s3Api.get(objectKey, surveyFormsZipArchive); // Download zip file
-
-        FileUtil.extract(new ZipInputStream(new FileInputStream(surveyFormsZipArchive)),
-                formFolder);
-
-        // Compressed file is not needed any more
-        if (!surveyFormsZipArchive.delete()) {
-            Timber.e("Could not delete survey zip file: " + filename);
-        }
+        s3Api.getAndExtract(objectKey, formFolder);
 
         survey.setFileName(survey.getId() + ConstantUtil.XML_SUFFIX);
         survey.setType(DEFAULT_TYPE);
@@ -255,82 +283,147 @@ public class SurveyDownloadService extends IntentService {
     }
 
     /**
-     * checks to see if we should pre-cache help media files (based on the
-     * property in the settings db) and, if we should, downloads the files
-     *
+     * Collects the help media files and common resources of the given surveys and downloads them
+     * in parallel. Cascade resources shared by several surveys are only fetched once. A survey is
+     * marked as help downloaded if ALL its files succeeded.
      */
-    private void downloadResources(@NonNull Survey survey) {
-        Survey hydratedSurvey = loadSurvey(survey);
-        if (hydratedSurvey != null) {
-            // collect files in a set just in case the same binary is
-            // used in multiple questions we only need to download once
-            Set<String> resources = new HashSet<>();
-            for (QuestionGroup group : hydratedSurvey.getQuestionGroups()) {
-                for (Question question : group.getQuestions()) {
-                    if (!question.getHelpByType(ConstantUtil.VIDEO_HELP_TYPE).isEmpty()) {
-                        resources.add(question.getHelpByType(ConstantUtil.VIDEO_HELP_TYPE)
-                                .get(0).getValue());
+    private void downloadResources(@NonNull List<Survey> surveys,
+            @NonNull final DownloadProgress progress) {
+        if (surveys.isEmpty()) {
+            return;
+        }
+        final File formFolder = formFileBrowser
+                .getExistingAppInternalFolder(getApplicationContext());
+        final File resDir = resourcesFileUtil.getExistingAppInternalFolder(getApplicationContext());
+        final ResourceManifest manifest = new ResourceManifest(resDir);
+        final Map<FormResource, Set<String>> resourceSurveys = new HashMap<>();
+        final Set<String> failedSurveys = new HashSet<>();
+        DownloadScheduler<FormResource> scheduler =
+                new DownloadScheduler<>(MAX_PARALLEL_DOWNLOADS);
+
+        for (Survey survey : surveys) {
+            final String sid = survey.getId();
+            databaseAdaptor.markSurveyHelpDownloaded(sid, false);
+            Set<String> resources = getResources(survey);
+            if (resources == null) {
+                // Survey file could not be parsed, it will be retried on next check
+                failedSurveys.add(sid);
+                continue;
+            }
+            for (final String resource : resources) {
+                // Handle both absolute URL (media help files) and S3 object IDs (survey resources)
+                // Naive check to determine whether or not this is an absolute filename
+                final boolean isGaeResource = resource.startsWith("http");
+                // Help media is stored per survey, common resources are shared by all of them
+                FormResource key = new FormResource(isGaeResource ? sid : null, resource);
+                scheduler.schedule(key, new DownloadScheduler.Task() {
+                    @Override
+                    public void run() throws Exception {
+                        Timber.i("Downloading resource: " + resource);
+                        if (isGaeResource) {
+                            downloadGaeResource(formFolder, sid, resource);
+                        } else {
+                            downloadS3Resource(resDir, manifest, resource);
+                        }
                     }
-                    for (QuestionHelp help : question.getHelpByType(ConstantUtil.IMAGE_HELP_TYPE)) {
-                        resources.add(help.getValue());
+                });
+                Set<String> sids = resourceSurveys.get(key);
+                if (sids == null) {
+                    sids = new HashSet<>();
+                    resourceSurveys.put(key, sids);
+                }
+                sids.add(sid);
+            }
+        }
+
+        progress.total += resourceSurveys.size();
+        try {
+            scheduler.runAll(new DownloadScheduler.Listener<FormResource>() {
+                @Override
+                public void onTaskFinished(FormResource resource, @Nullable Exception error,
+                        int completed, int failed, int total) {
+                    progress.resourcesCompleted++;
+                    if (error != null) {
+                        failedSurveys.addAll(resourceSurveys.get(resource));
+                        // Display cascade-specific error message. If at any point we include
+                        // support for more resource types, this message should be accordingly
+                        // customized.
+                        displayErrorNotification(ConstantUtil.NOTIFICATION_RESOURCE_ERROR,
+                                getString(R.string.error_missing_cascade));
+                        Timber.e(error, "Could not download resource " + resource.name
+                                + " for surveys " + resourceSurveys.get(resource));
                     }
-                    // Question src data (i.e. cascading question resources)
-                    if (question.getSrc() != null) {
-                        resources.add(question.getSrc());
+                    if (progress.formsTotal > 0) {
+                        displayNotification(progress);
                     }
                 }
+            });
+        } finally {
+            scheduler.shutdown();
+        }
+
+        for (Survey survey : surveys) {
+            if (!failedSurveys.contains(survey.getId())) {
+                databaseAdaptor.markSurveyHelpDownloaded(survey.getId(), true);
             }
-            // Download help media files (images & videos) and common resources
-            downloadResources(survey.getId(), resources);
         }
     }
 
-    private void downloadResources(@NonNull final String sid,
-            @NonNull final Set<String> resources) {
-        databaseAdaptor.markSurveyHelpDownloaded(sid, false);
-        boolean ok = true;
-        for (String resource : resources) {
-            Timber.i("Downloading resource: " + resource);
-            try {
-                // Handle both absolute URL (media help files) and S3 object IDs (survey resources)
-                // Naive check to determine whether or not this is an absolute filename
-                if (resource.startsWith("http")) {
-                    downloadGaeResource(sid, resource);
-                } else {
-                    downloadS3Resource(resource);
+    /**
+     * collect files in a set just in case the same binary is
+     * used in multiple questions we only need to download once
+     *
+     * @return the resources of the survey, null if the survey file could not be loaded
+     */
+    @Nullable
+    private Set<String> getResources(@NonNull Survey survey) {
+        Survey hydratedSurvey = loadSurvey(survey);
+        if (hydratedSurvey == null) {
+            return null;
+        }
+        Set<String> resources = new HashSet<>();
+        for (QuestionGroup group : hydratedSurvey.getQuestionGroups()) {
+            for (Question question : group.getQuestions()) {
+                if (!question.getHelpByType(ConstantUtil.VIDEO_HELP_TYPE).isEmpty()) {
+                    resources.add(question.getHelpByType(ConstantUtil.VIDEO_HELP_TYPE)
+                            .get(0).getValue());
+                }
+                for (QuestionHelp help : question.getHelpByType(ConstantUtil.IMAGE_HELP_TYPE)) {
+                    resources.add(help.getValue());
+                }
+                // Question src data (i.e. cascading question resources)
+                if (question.getSrc() != null) {
+                    resources.add(question.getSrc());
                 }
-            } catch (Exception e) {
-                ok = false;
-                // Display cascade-specific error message. If at any point we include support for
-                // more resource types, this message should be accordingly customized.
-                displayErrorNotification(ConstantUtil.NOTIFICATION_RESOURCE_ERROR,
-                        getString(R.string.error_missing_cascade));
-                Timber.e(e, "Could not download resource " + resource + " for survey " + sid);
             }
         }
-        // Mark help (survey resources) as downloaded if ALL files succeeded.
-        if (ok) {
-            databaseAdaptor.markSurveyHelpDownloaded(sid, true);
-        }
+        return resources;
     }
 
-    private void downloadS3Resource(String resource) throws IOException {
+    private void downloadS3Resource(@NonNull File resDir, @NonNull ResourceManifest manifest,
+            String resource) throws IOException {
         // resource is just a filename
         final String filename = resource + ConstantUtil.ARCHIVE_SUFFIX;
         final String objectKey = ConstantUtil.S3_SURVEYS_DIR + filename;
-        final File resDir = resourcesFileUtil.getExistingAppInternalFolder(getApplicationContext());
-        final File file = new File(resDir, filename);
+        final CascadeIndexer cascadeIndexer = new CascadeIndexer(getApplicationContext(), prefs);
         S3Api s3 = new S3Api();
-        s3.syncFile(objectKey, file);
-        FileUtil.extract(new ZipInputStream(new FileInputStream(file)), resDir);
-        if (!file.delete()) {
-            Timber.e("Error deleting resource zip file");
-        }
+        s3.syncArchive(objectKey, resDir, manifest, new S3Api.ExtractionListener() {
+            @Override
+            public void onExtracted(Map<String, File> files) {
+                // Cascade resources are indexed here, so that forms do not have to
+                for (File file : files.values()) {
+                    if (file.getName().endsWith(ConstantUtil.CASCADE_DB_SUFFIX)) {
+                        cascadeIndexer.prepare(file);
+                    }
+                }
+            }
+        });
     }
 
-    private void downloadGaeResource(@NonNull String sid, @NonNull String url) throws IOException {
+    private void downloadGaeResource(@NonNull File formFolder, @NonNull String sid,
+            @NonNull String url) throws IOException {
         final String filename = new File(url).getName();
-        final File surveyDir = new File(formFileBrowser.getExistingAppInternalFolder(getApplicationContext()), sid);
+        final File surveyDir = new File(formFolder, sid);
         if (!surveyDir.exists()) {
             surveyDir.mkdir();
         }
@@ -390,16 +483,76 @@ public class SurveyDownloadService extends IntentService {
                 .displayErrorNotification(getString(R.string.error_form_sync_title), msg, this, id);
     }
 
-    private void displayNotification(int synced, int failed, int total) {
-        boolean finished = synced + failed >= total;
+    private void displayNotification(@NonNull DownloadProgress progress) {
+        int synced = progress.formsSynced;
+        int failed = progress.formsFailed;
+        boolean finished = progress.getCompleted() >= progress.total;
         String title = getString(R.string.downloading_forms);
         // Do not show failed if there is none
         String text = failed > 0 ? String.format(getString(R.string.data_sync_all),
                 synced, failed)
                 : String.format(getString(R.string.data_sync_synced), synced);
 
-        NotificationHelper.displayNotification(this, total, title, text,
+        NotificationHelper.displayNotification(this, progress.total, title, text,
                 ConstantUtil.NOTIFICATION_FORMS_SYNCED, !finished,
-                synced + failed);
+                progress.getCompleted());
+    }
+
+    /**
+     * Aggregated progress of a download check: forms first, then their resources, which are
+     * added to the total once they are known
+     */
+    private static class DownloadProgress {
+
+        final int formsTotal;
+        int total;
+        int formsSynced;
+        int formsFailed;
+        int resourcesCompleted;
+
+        DownloadProgress(int formsTotal) {
+            this.formsTotal = formsTotal;
+            this.total = formsTotal;
+        }
+
+        int getCompleted() {
+            return formsSynced + formsFailed + resourcesCompleted;
+        }
+    }
+
+    /**
+     * A resource to download. Help media files belong to one survey, while common resources
+     * (cascades) have no survey id, as they are shared by all the surveys using them.
+     */
+    private static class FormResource {
+
+        @Nullable
+        final String surveyId;
+        final String name;
+
+        FormResource(@Nullable String surveyId, String name) {
+            this.surveyId = surveyId;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FormResource that = (FormResource) o;
+            return (surveyId != null ? surveyId.equals(that.surveyId) : that.surveyId == null)
+                    && name.equals(that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = surveyId != null ? surveyId.hashCode() : 0;
+            result = 31 * result + name.hashCode();
+            return result;
+        }
     }
 }
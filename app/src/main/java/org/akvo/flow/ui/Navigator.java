@@ -47,6 +47,7 @@ import org.akvo.flow.domain.apkupdate.ViewApkData;
 import org.akvo.flow.presentation.AboutActivity;
 import org.akvo.flow.presentation.AppDownloadDialogFragment;
 import org.akvo.flow.presentation.FullImageActivity;
+import org.akvo.flow.presentation.MainActivity;
 import org.akvo.flow.presentation.help.HelpActivity;
 import org.akvo.flow.presentation.legal.LegalNoticesActivity;
 import org.akvo.flow.presentation.settings.PreferenceActivity;
@@ -317,6 +318,13 @@ public class Navigator {
         context.startActivity(intent);
     }
 
+    /**
+     * Goes back to the launcher activity, which waits for the pending database migrations
+     */
+    public void navigateToMainActivity(Context context) {
+        context.startActivity(new Intent(context, MainActivity.class));
+    }
+
     /**
      * Install the newest version of the app. This method will be called
      * either after the file download is completed, or upon the app being started,
@@ -27,7 +27,6 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import org.akvo.flow.R;
-import org.akvo.flow.domain.Question;
 import org.akvo.flow.domain.QuestionGroup;
 import org.akvo.flow.event.QuestionInteractionListener;
 import org.akvo.flow.event.SurveyListener;
@@ -36,13 +35,16 @@ import org.akvo.flow.ui.view.QuestionView;
 import org.akvo.flow.ui.view.SubmitTab;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import timber.log.Timber;
 
-public class SurveyTabAdapter extends PagerAdapter implements ViewPager.OnPageChangeListener {
+public class SurveyTabAdapter extends PagerAdapter implements ViewPager.OnPageChangeListener,
+        QuestionGroupTab.OnQuestionsInflatedListener {
 
     private final ViewPager mPager;
+    private SurveyListener mSurveyListener;
     private List<QuestionGroup> mQuestionGroups;
     private List<QuestionGroupTab> mQuestionGroupTabs;
     private SubmitTab mSubmitTab;
@@ -55,12 +57,14 @@ public class SurveyTabAdapter extends PagerAdapter implements ViewPager.OnPageCh
 
     private void init(Context context, SurveyListener surveyListener,
             QuestionInteractionListener questionListener) {
+        mSurveyListener = surveyListener;
         mQuestionGroups = surveyListener.getQuestionGroups();
         mQuestionGroupTabs = new ArrayList<>();
 
         for (QuestionGroup group : mQuestionGroups) {
             QuestionGroupTab questionGroupTab =
                     new QuestionGroupTab(context, group, surveyListener, questionListener);
+            questionGroupTab.setOnQuestionsInflatedListener(this);
             mQuestionGroupTabs.add(questionGroupTab);
         }
 
@@ -85,8 +89,7 @@ public class SurveyTabAdapter extends PagerAdapter implements ViewPager.OnPageCh
         if (!tab.isLoaded()) {
             Timber.d("Loading Tab #%d", position);
             tab.load();
-            tab.loadState();
-            setupDependencies();// Dependencies might occur across tabs
+            tab.loadState();// Wires the dependencies of the views it inflates
         }
     }
 
@@ -107,8 +110,9 @@ public class SurveyTabAdapter extends PagerAdapter implements ViewPager.OnPageCh
     public int displayQuestion(String questionId) {
         for (int i = 0; i < mQuestionGroupTabs.size(); i++) {
             QuestionGroupTab questionGroupTab = mQuestionGroupTabs.get(i);
-            if (questionGroupTab.displayQuestion(questionId)) {
-                return i;
+            if (questionGroupTab.containsQuestion(questionId)) {
+                loadTab(i);// Invalid questions may belong to tabs not displayed yet
+                return questionGroupTab.displayQuestion(questionId) ? i : -1;
             }
         }
         return -1;
@@ -153,18 +157,13 @@ public class SurveyTabAdapter extends PagerAdapter implements ViewPager.OnPageCh
     }
 
     /**
-     * Sets up question dependencies across question groups and registers
-     * questionInteractionListeners on the dependent views. This should be
-     * called each time a new tab is hydrated. It will iterate over all
-     * questions in the survey and install dependencies and the
-     * questionInteractionListeners. After installation, it will check to see if
-     * the parent question contains a response. If so, it will fire a
-     * questionInteractionEvent to ensure dependent questions are put into the
-     * correct state
+     * Dependencies can occur across question groups, so the views of every tab waiting for the
+     * new views are registered on them
      */
-    private void setupDependencies() {
+    @Override
+    public void onQuestionsInflated(Collection<QuestionView> questionViews) {
         for (QuestionGroupTab tab : mQuestionGroupTabs) {
-            tab.setupDependencies();
+            tab.setupDependents(questionViews);
         }
     }
 
@@ -215,12 +214,7 @@ public class SurveyTabAdapter extends PagerAdapter implements ViewPager.OnPageCh
     @Override
     public void onPageSelected(int position) {
         if (position == mQuestionGroupTabs.size() && mSubmitTab != null) {
-            // Check all the tabs have been populated by now
-            int i = 0;
-            while (i < position) {
-                loadTab(i++);
-            }
-            mSubmitTab.refresh(checkInvalidQuestions());
+            mSubmitTab.refresh(mSurveyListener.getInvalidQuestions());
         }
     }
 
@@ -228,16 +222,4 @@ public class SurveyTabAdapter extends PagerAdapter implements ViewPager.OnPageCh
     public void onPageScrollStateChanged(int state) {
         // EMPTY
     }
-
-    /**
-     * Checks if all the mandatory questions (on all tabs) have responses
-     */
-    private List<Question> checkInvalidQuestions() {
-        List<Question> invalidQuestions = new ArrayList<>();
-        for (QuestionGroupTab questionGroupTab : mQuestionGroupTabs) {
-            invalidQuestions.addAll(questionGroupTab.checkInvalidQuestions());
-        }
-
-        return invalidQuestions;
-    }
 }
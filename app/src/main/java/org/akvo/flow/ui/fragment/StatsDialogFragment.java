@@ -28,12 +28,17 @@ import android.support.v4.app.LoaderManager.LoaderCallbacks;
 import android.support.v4.content.Loader;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.widget.TableLayout;
+import android.widget.TableRow;
 import android.widget.TextView;
 
 import org.akvo.flow.R;
 import org.akvo.flow.data.loader.models.Stats;
 import org.akvo.flow.data.loader.StatsLoader;
 
+import java.text.DateFormat;
+import java.util.Date;
+
 import timber.log.Timber;
 
 import static org.akvo.flow.util.ConstantUtil.SURVEY_GROUP_ID_EXTRA;
@@ -43,6 +48,7 @@ public class StatsDialogFragment extends DialogFragment implements LoaderCallbac
     private long mSurveyGroupId;
 
     private TextView mTotalView, mWeekView, mDayView;
+    private TableLayout mDailyStatsView;
 
     public static StatsDialogFragment newInstance(long surveyGroupId) {
         StatsDialogFragment f = new StatsDialogFragment();
@@ -71,6 +77,7 @@ public class StatsDialogFragment extends DialogFragment implements LoaderCallbac
         mTotalView = (TextView)v.findViewById(R.id.total);
         mWeekView = (TextView)v.findViewById(R.id.week);
         mDayView = (TextView)v.findViewById(R.id.day);
+        mDailyStatsView = (TableLayout)v.findViewById(R.id.daily_stats);
 
         AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
         builder.setTitle(R.string.stats);
@@ -102,6 +109,27 @@ public class StatsDialogFragment extends DialogFragment implements LoaderCallbac
         mTotalView.setText(String.valueOf(stats.mTotal));
         mWeekView.setText(String.valueOf(stats.mThisWeek));
         mDayView.setText(String.valueOf(stats.mToday));
+        displayDailyStats(stats);
+    }
+
+    private void displayDailyStats(Stats stats) {
+        // Keep the header row
+        mDailyStatsView.removeViews(1, mDailyStatsView.getChildCount() - 1);
+        DateFormat dateFormat = android.text.format.DateFormat.getDateFormat(getActivity());
+        for (Stats.DailyStats day : stats.mDays) {
+            TableRow row = new TableRow(getActivity());
+            row.addView(createCell(dateFormat.format(new Date(day.mDate))));
+            row.addView(createCell(String.valueOf(day.mSubmitted)));
+            row.addView(createCell(String.valueOf(day.mExported)));
+            row.addView(createCell(String.valueOf(day.mSynced)));
+            mDailyStatsView.addView(row);
+        }
+    }
+
+    private TextView createCell(String text) {
+        TextView textView = new TextView(getActivity());
+        textView.setText(text);
+        return textView;
     }
 
     @Override
@@ -0,0 +1,391 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.ui.model;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.akvo.flow.domain.Dependency;
+import org.akvo.flow.domain.Question;
+import org.akvo.flow.domain.QuestionGroup;
+import org.akvo.flow.domain.QuestionResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Validation state of a form being filled in, updated as its responses change so that neither
+ * submitting it nor listing its invalid questions has to create the question views.
+ * <p>
+ * A question is invalid if its dependencies are satisfied and either it is mandatory without a
+ * valid response, or its view reported an error. Only the question whose response changed and
+ * the questions depending on it are evaluated again. Invalid questions are kept sorted in form
+ * order, so checking whether the form can be submitted and finding the first question to fix
+ * do not go through the whole form. Questions of repeatable groups are copied for every
+ * repetition, with questionId|repetitionId ids like their views.
+ */
+public class FormValidation {
+
+    private static final Comparator<Instance> FORM_ORDER = new Comparator<Instance>() {
+        @Override
+        public int compare(Instance i1, Instance i2) {
+            if (i1.entry.group.position != i2.entry.group.position) {
+                return i1.entry.group.position < i2.entry.group.position ? -1 : 1;
+            }
+            if (i1.repetition != i2.repetition) {
+                return i1.repetition < i2.repetition ? -1 : 1;
+            }
+            if (i1.entry.position != i2.entry.position) {
+                return i1.entry.position < i2.entry.position ? -1 : 1;
+            }
+            return 0;
+        }
+    };
+
+    private final Map<String, QuestionEntry> questions = new HashMap<>();
+    private final Map<QuestionGroup, GroupEntry> groups = new HashMap<>();
+
+    /**
+     * Questions depending on each question, by question id
+     */
+    private final Map<String, List<QuestionEntry>> dependents = new HashMap<>();
+
+    private final Map<String, Instance> instances = new HashMap<>();
+    private final Set<String> viewErrors = new HashSet<>();
+    private final TreeSet<Instance> invalid = new TreeSet<>(FORM_ORDER);
+    private Map<String, QuestionResponse> responses = Collections.emptyMap();
+
+    public FormValidation(@NonNull List<QuestionGroup> questionGroups) {
+        for (int i = 0; i < questionGroups.size(); i++) {
+            QuestionGroup questionGroup = questionGroups.get(i);
+            GroupEntry group = new GroupEntry(questionGroup.isRepeatable(), i);
+            groups.put(questionGroup, group);
+            List<Question> groupQuestions = questionGroup.getQuestions();
+            for (int j = 0; j < groupQuestions.size(); j++) {
+                QuestionEntry entry = new QuestionEntry(groupQuestions.get(j), group, j);
+                group.questions.add(entry);
+                questions.put(entry.question.getId(), entry);
+            }
+        }
+        for (QuestionEntry entry : questions.values()) {
+            List<Dependency> dependencies = entry.question.getDependencies();
+            if (dependencies == null) {
+                continue;
+            }
+            for (Dependency dependency : dependencies) {
+                List<QuestionEntry> entries = dependents.get(dependency.getQuestion());
+                if (entries == null) {
+                    entries = new ArrayList<>();
+                    dependents.put(dependency.getQuestion(), entries);
+                }
+                entries.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Evaluates every question with a new set of responses. Errors reported by the views are
+     * discarded, as the views are reset along with the responses.
+     *
+     * @param responses responses by response key, which must then be kept up to date and
+     *                  reported to {@link #onResponseChanged(String)}
+     */
+    public void load(@NonNull Map<String, QuestionResponse> responses) {
+        this.responses = responses;
+        instances.clear();
+        viewErrors.clear();
+        invalid.clear();
+        for (GroupEntry group : groups.values()) {
+            group.repetitions.clear();
+            if (group.repeatable) {
+                // Same repetitions as the ones displayed, one if there is no response yet
+                for (QuestionResponse response : responses.values()) {
+                    QuestionEntry entry = questions.get(response.getQuestionId());
+                    if (entry != null && entry.group == group
+                            && response.isAnswerToRepeatableGroup()) {
+                        group.repetitions.add(response.getIteration());
+                    }
+                }
+                if (group.repetitions.isEmpty()) {
+                    group.repetitions.add(QuestionResponse.ONE_ITERATION);
+                }
+            } else {
+                group.repetitions.add(QuestionResponse.NO_ITERATION);
+            }
+            for (int repetition : group.repetitions) {
+                addInstances(group, repetition);
+            }
+        }
+        for (Instance instance : instances.values()) {
+            evaluate(instance);
+        }
+    }
+
+    /**
+     * Evaluates again the question answered with the given response key, and its dependents
+     */
+    public void onResponseChanged(@NonNull String responseKey) {
+        QuestionEntry entry = questions.get(getQuestionId(responseKey));
+        if (entry == null) {
+            return;
+        }
+        int repetition = getRepetition(entry, responseKey);
+        if (entry.group.repeatable && !entry.group.repetitions.contains(repetition)) {
+            addRepetition(entry.group, repetition);
+        } else {
+            evaluate(instances.get(getInstanceId(entry, repetition)));
+        }
+        evaluateDependents(entry, repetition);
+    }
+
+    /**
+     * Sets whether the view of a question has an error, such as a response not passing the
+     * validation rules or not complete yet
+     */
+    public void setQuestionError(@NonNull String questionId, boolean error) {
+        Instance instance = instances.get(questionId);
+        if (instance == null) {
+            return;
+        }
+        if (error) {
+            viewErrors.add(questionId);
+        } else {
+            viewErrors.remove(questionId);
+        }
+        evaluate(instance);
+    }
+
+    public void addRepetition(@NonNull QuestionGroup questionGroup, int repetitionId) {
+        GroupEntry group = groups.get(questionGroup);
+        if (group != null && group.repeatable) {
+            addRepetition(group, repetitionId);
+        }
+    }
+
+    /**
+     * Removes the copies of a repetition's questions, given any question of its group
+     */
+    public void removeRepetition(@NonNull String questionId, int repetitionId) {
+        QuestionEntry entry = questions.get(questionId);
+        if (entry == null || !entry.group.repetitions.remove(repetitionId)) {
+            return;
+        }
+        for (QuestionEntry groupEntry : entry.group.questions) {
+            String instanceId = getInstanceId(groupEntry, repetitionId);
+            Instance instance = instances.remove(instanceId);
+            if (instance != null) {
+                invalid.remove(instance);
+            }
+            viewErrors.remove(instanceId);
+        }
+        for (QuestionEntry groupEntry : entry.group.questions) {
+            evaluateDependents(groupEntry, repetitionId);
+        }
+    }
+
+    public boolean isValid() {
+        return invalid.isEmpty();
+    }
+
+    /**
+     * @return the first invalid question, in form order, or null if the form can be submitted
+     */
+    @Nullable
+    public Question getFirstInvalidQuestion() {
+        return invalid.isEmpty() ? null : invalid.first().getQuestion();
+    }
+
+    @NonNull
+    public List<Question> getInvalidQuestions() {
+        List<Question> invalidQuestions = new ArrayList<>(invalid.size());
+        for (Instance instance : invalid) {
+            invalidQuestions.add(instance.getQuestion());
+        }
+        return invalidQuestions;
+    }
+
+    private void addRepetition(GroupEntry group, int repetition) {
+        if (group.repetitions.add(repetition)) {
+            for (Instance instance : addInstances(group, repetition)) {
+                evaluate(instance);
+            }
+        }
+    }
+
+    private List<Instance> addInstances(GroupEntry group, int repetition) {
+        List<Instance> added = new ArrayList<>(group.questions.size());
+        for (QuestionEntry entry : group.questions) {
+            Instance instance = new Instance(entry, repetition);
+            instances.put(instance.id, instance);
+            added.add(instance);
+        }
+        return added;
+    }
+
+    private void evaluateDependents(QuestionEntry entry, int repetition) {
+        List<QuestionEntry> entries = dependents.get(entry.question.getId());
+        if (entries == null) {
+            return;
+        }
+        for (QuestionEntry dependent : entries) {
+            if (dependent.group == entry.group) {
+                // Dependencies within a repeatable group apply to the same repetition
+                evaluate(instances.get(getInstanceId(dependent, repetition)));
+            } else {
+                for (int dependentRepetition : dependent.group.repetitions) {
+                    evaluate(instances.get(getInstanceId(dependent, dependentRepetition)));
+                }
+            }
+        }
+    }
+
+    private void evaluate(@Nullable Instance instance) {
+        if (instance == null) {
+            return;
+        }
+        boolean error = viewErrors.contains(instance.id) || instance.entry.question.isMandatory()
+                && !isValid(getResponse(instance.entry, instance.repetition));
+        if (error && areDependenciesSatisfied(instance)) {
+            invalid.add(instance);
+        } else {
+            invalid.remove(instance);
+        }
+    }
+
+    private boolean areDependenciesSatisfied(Instance instance) {
+        List<Dependency> dependencies = instance.entry.question.getDependencies();
+        if (dependencies == null) {
+            return true;
+        }
+        for (Dependency dependency : dependencies) {
+            QuestionEntry parent = questions.get(dependency.getQuestion());
+            QuestionResponse response;
+            if (parent != null && parent.group == instance.entry.group) {
+                response = getResponse(parent, instance.repetition);
+            } else {
+                response = responses.get(dependency.getQuestion());
+            }
+            if (response == null || !response.hasValue()
+                    || !dependency.isMatch(response.getValue())
+                    || !response.getIncludeFlag()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    private QuestionResponse getResponse(QuestionEntry entry, int repetition) {
+        QuestionResponse response = responses.get(getInstanceId(entry, repetition));
+        if (response == null && repetition == QuestionResponse.ONE_ITERATION) {
+            // Responses to the first repetition are loaded with the question id as key
+            response = responses.get(entry.question.getId());
+        }
+        return response;
+    }
+
+    private boolean isValid(@Nullable QuestionResponse response) {
+        return response != null && response.isValid();
+    }
+
+    private static String getQuestionId(String instanceId) {
+        int separator = instanceId.indexOf('|');
+        return separator == -1 ? instanceId : instanceId.substring(0, separator);
+    }
+
+    private static int getRepetition(QuestionEntry entry, String instanceId) {
+        if (!entry.group.repeatable) {
+            return QuestionResponse.NO_ITERATION;
+        }
+        int separator = instanceId.indexOf('|');
+        if (separator == -1) {
+            return QuestionResponse.ONE_ITERATION;
+        }
+        try {
+            return Integer.parseInt(instanceId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return QuestionResponse.ONE_ITERATION;
+        }
+    }
+
+    private static String getInstanceId(QuestionEntry entry, int repetition) {
+        String questionId = entry.question.getId();
+        return entry.group.repeatable ? questionId + "|" + repetition : questionId;
+    }
+
+    private static class GroupEntry {
+
+        private final boolean repeatable;
+        private final int position;
+        private final List<QuestionEntry> questions = new ArrayList<>();
+        private final Set<Integer> repetitions = new TreeSet<>();
+
+        GroupEntry(boolean repeatable, int position) {
+            this.repeatable = repeatable;
+            this.position = position;
+        }
+    }
+
+    private static class QuestionEntry {
+
+        private final Question question;
+        private final GroupEntry group;
+        private final int position;
+
+        QuestionEntry(Question question, GroupEntry group, int position) {
+            this.question = question;
+            this.group = group;
+            this.position = position;
+        }
+    }
+
+    /**
+     * A question as displayed, that is a copy of it for every repetition in repeatable groups
+     */
+    private static class Instance {
+
+        private final QuestionEntry entry;
+        private final int repetition;
+        private final String id;
+        private Question question;
+
+        Instance(QuestionEntry entry, int repetition) {
+            this.entry = entry;
+            this.repetition = repetition;
+            this.id = getInstanceId(entry, repetition);
+        }
+
+        Question getQuestion() {
+            if (question == null) {
+                question = entry.group.repeatable ? Question.copy(entry.question, id)
+                        : entry.question;
+            }
+            return question;
+        }
+    }
+}
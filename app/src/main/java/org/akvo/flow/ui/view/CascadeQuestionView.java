@@ -28,6 +28,10 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.AutoCompleteTextView;
+import android.widget.BaseAdapter;
+import android.widget.Filter;
+import android.widget.Filterable;
 import android.widget.LinearLayout;
 import android.widget.Spinner;
 import android.widget.SpinnerAdapter;
@@ -35,6 +39,7 @@ import android.widget.TextView;
 
 import org.akvo.flow.R;
 import org.akvo.flow.data.database.cascade.CascadeDB;
+import org.akvo.flow.data.database.cascade.CascadeDBRegistry;
 import org.akvo.flow.domain.Level;
 import org.akvo.flow.domain.Node;
 import org.akvo.flow.domain.Question;
@@ -49,6 +54,7 @@ import org.akvo.flow.util.files.FormResourcesFileBrowser;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -61,14 +67,21 @@ public class CascadeQuestionView extends QuestionView
     @Inject
     FormResourcesFileBrowser resourcesFileUtil;
 
+    @Inject
+    CascadeDBRegistry cascadeDBRegistry;
+
     private static final int POSITION_NONE = -1; // no spinner position id
     private static final long ID_NONE = -1; // no node id
     private static final long ID_ROOT = 0; // root node id
+    private static final int SEARCH_LIMIT = 20;
 
     private String[] mLevels;
     private LinearLayout mSpinnerContainer;
+    private AutoCompleteTextView mSearchView;
     private boolean mFinished;
-    private CascadeDB mDatabase;
+    private String mDatabasePath;
+    private volatile CascadeDB mDatabase;
+    private boolean mAcquired;
 
     public CascadeQuestionView(Context context, Question q, SurveyListener surveyListener) {
         super(context, q, surveyListener);
@@ -95,10 +108,25 @@ public class CascadeQuestionView extends QuestionView
         if (!TextUtils.isEmpty(src)) {
             File db = resourcesFileUtil.findFile(getContext().getApplicationContext(), src);
             if (db.exists()) {
-                mDatabase = new CascadeDB(getContext(), db.getAbsolutePath());
-                mDatabase.open();
+                mDatabasePath = db.getAbsolutePath();
+                acquireDatabase();
             }
         }
+        mSearchView = (AutoCompleteTextView) findViewById(R.id.cascade_search);
+        if (mDatabase != null && !isReadOnly()) {
+            mSearchView.setAdapter(new CascadeSearchAdapter());
+            mSearchView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public void onItemClick(AdapterView<?> parent, View view, int position,
+                        long id) {
+                    List<Node> path = (List<Node>) parent.getItemAtPosition(position);
+                    mSearchView.setText(null);
+                    selectPath(path);
+                }
+            });
+            mSearchView.setVisibility(VISIBLE);
+        }
         updateSpinners(POSITION_NONE);
     }
 
@@ -111,15 +139,33 @@ public class CascadeQuestionView extends QuestionView
 
     @Override
     public void onResume() {
-        if (mDatabase != null && !mDatabase.isOpen()) {
-            mDatabase.open();
+        if (mDatabase != null && !mAcquired) {
+            acquireDatabase();
         }
     }
 
     @Override
     public void onPause() {
-        if (mDatabase != null) {
-            mDatabase.close();
+        releaseDatabase();
+    }
+
+    @Override
+    public void onDestroy() {
+        releaseDatabase();
+    }
+
+    /**
+     * The resource is shared with the other questions using it, along with its cache of nodes
+     */
+    private void acquireDatabase() {
+        mDatabase = cascadeDBRegistry.acquire(mDatabasePath);
+        mAcquired = true;
+    }
+
+    private void releaseDatabase() {
+        if (mAcquired) {
+            cascadeDBRegistry.release(mDatabase);
+            mAcquired = false;
         }
     }
 
@@ -240,7 +286,46 @@ public class CascadeQuestionView extends QuestionView
         }
         if (!isReadOnly()) {
             updateSpinners(index - 1);// Last updated item position
+            setError(null);// Report whether the restored response is complete
+        }
+    }
+
+    /**
+     * Selects a node found by name, along with all its ancestors
+     *
+     * @param path the node preceded by its ancestors, from the root level
+     */
+    private void selectPath(List<Node> path) {
+        if (mDatabase == null || path.isEmpty()) {
+            return;
         }
+        mSpinnerContainer.removeAllViews();
+        long parentId = ID_ROOT;
+        for (int index = 0; index < path.size(); index++) {
+            Node node = path.get(index);
+            List<Node> spinnerValues = mDatabase.getValues(parentId);
+            int valuePosition = getPosition(spinnerValues, node.getId());
+            if (valuePosition == POSITION_NONE) {
+                // The resource changed since it was searched
+                mSpinnerContainer.removeAllViews();
+                updateSpinners(POSITION_NONE);
+                return;
+            }
+            addLevelView(index, spinnerValues, valuePosition);
+            parentId = node.getId();
+        }
+        updateSpinners(path.size() - 1);
+        captureResponse();
+        setError(null);
+    }
+
+    private int getPosition(List<Node> nodes, long id) {
+        for (int pos = 0; pos < nodes.size(); pos++) {
+            if (nodes.get(pos).getId() == id) {
+                return pos;
+            }
+        }
+        return POSITION_NONE;
     }
 
     @Override
@@ -282,6 +367,15 @@ public class CascadeQuestionView extends QuestionView
         return (Spinner) mSpinnerContainer.getChildAt(position).findViewById(R.id.cascade_level_spinner);
     }
 
+    /**
+     * Responses only selecting some of the levels can not be submitted
+     */
+    @Override
+    protected boolean isComplete() {
+        QuestionResponse response = getResponse();
+        return mFinished || response == null || !response.hasValue();
+    }
+
     @Override
     public boolean isValid() {
         boolean valid = super.isValid() && mFinished;
@@ -291,6 +385,92 @@ public class CascadeQuestionView extends QuestionView
         return valid;
     }
 
+    /**
+     * Suggests the nodes of any level matching the typed text, looked up in a worker thread
+     */
+    private class CascadeSearchAdapter extends BaseAdapter implements Filterable {
+
+        private List<List<Node>> mResults = Collections.emptyList();
+
+        @Override
+        public int getCount() {
+            return mResults.size();
+        }
+
+        @Override
+        public List<Node> getItem(int position) {
+            return mResults.get(position);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            List<Node> path = getItem(position);
+            return path.get(path.size() - 1).getId();
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            View view = convertView;
+            if (view == null) {
+                view = LayoutInflater.from(parent.getContext())
+                        .inflate(R.layout.cascade_spinner_item, parent, false);
+            }
+            TextView text = (TextView) view.findViewById(R.id.cascade_spinner_item_text);
+            text.setText(getLabel(getItem(position)));
+            return view;
+        }
+
+        /**
+         * @return the name of the node followed by the ones of its ancestors, closest first
+         */
+        private String getLabel(List<Node> path) {
+            StringBuilder label = new StringBuilder(path.get(path.size() - 1).getName());
+            for (int i = path.size() - 2; i >= 0; i--) {
+                label.append(i == path.size() - 2 ? " (" : ", ").append(path.get(i).getName());
+            }
+            if (path.size() > 1) {
+                label.append(')');
+            }
+            return label.toString();
+        }
+
+        @Override
+        public Filter getFilter() {
+            return new Filter() {
+                @Override
+                protected FilterResults performFiltering(CharSequence constraint) {
+                    FilterResults results = new FilterResults();
+                    CascadeDB database = mDatabase;
+                    List<List<Node>> paths = database != null && constraint != null ?
+                            database.search(constraint.toString(), SEARCH_LIMIT) :
+                            Collections.<List<Node>>emptyList();
+                    results.values = paths;
+                    results.count = paths.size();
+                    return results;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                protected void publishResults(CharSequence constraint, FilterResults results) {
+                    mResults = results.values != null ? (List<List<Node>>) results.values
+                            : Collections.<List<Node>>emptyList();
+                    if (mResults.isEmpty()) {
+                        notifyDataSetInvalidated();
+                    } else {
+                        notifyDataSetChanged();
+                    }
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public CharSequence convertResultToString(Object resultValue) {
+                    List<Node> path = (List<Node>) resultValue;
+                    return path.get(path.size() - 1).getName();
+                }
+            };
+        }
+    }
+
     private static class CascadeAdapter extends ArrayAdapter<Node> {
 
         CascadeAdapter(Context context, List<Node> objects) {
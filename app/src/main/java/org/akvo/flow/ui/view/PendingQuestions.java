@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.ui.view;
+
+import org.akvo.flow.domain.Question;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Questions of a tab whose views are not inflated yet, in display order
+ */
+class PendingQuestions {
+
+    private final LinkedList<PendingQuestion> questions = new LinkedList<>();
+
+    void add(Question question, int repetitionId) {
+        questions.add(new PendingQuestion(question, repetitionId));
+    }
+
+    boolean isEmpty() {
+        return questions.isEmpty();
+    }
+
+    PendingQuestion removeFirst() {
+        return questions.removeFirst();
+    }
+
+    /**
+     * @return the number of questions to inflate to get the view of the given one, 0 if it is
+     * not pending
+     */
+    int countUntil(String questionId) {
+        int count = 0;
+        for (PendingQuestion pendingQuestion : questions) {
+            count++;
+            if (pendingQuestion.question.getId().equals(questionId)) {
+                return count;
+            }
+        }
+        return 0;
+    }
+
+    void removeRepetition(int repetitionId) {
+        Iterator<PendingQuestion> iterator = questions.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().repetitionId == repetitionId) {
+                iterator.remove();
+            }
+        }
+    }
+
+    void clear() {
+        questions.clear();
+    }
+
+    /**
+     * Questions of a repetition go before the header of the next displayed repetition, or at the
+     * end
+     *
+     * @param repetitionIds the repetition ids, in display order
+     * @param headerIndexes the position of the displayed repetition headers, by repetition id
+     * @param childCount    the number of views displayed
+     */
+    static int getInsertionIndex(Iterable<Integer> repetitionIds, int repetitionId,
+            Map<Integer, Integer> headerIndexes, int childCount) {
+        for (Integer id : repetitionIds) {
+            Integer headerIndex = headerIndexes.get(id);
+            if (id > repetitionId && headerIndex != null) {
+                return headerIndex;
+            }
+        }
+        return childCount;
+    }
+
+    static class PendingQuestion {
+
+        final Question question;
+        final int repetitionId;
+
+        PendingQuestion(Question question, int repetitionId) {
+            this.question = question;
+            this.repetitionId = repetitionId;
+        }
+    }
+}
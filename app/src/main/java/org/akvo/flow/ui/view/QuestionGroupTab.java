@@ -26,6 +26,7 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.LinearLayout;
 import android.widget.ScrollView;
 import android.widget.TextView;
@@ -55,13 +56,35 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public class QuestionGroupTab extends LinearLayout implements QuestionGroupIterationHeader.OnDeleteListener {
+/**
+ * Displays the questions of a group, and of every repetition of repeatable groups.
+ * <p>
+ * Question views are only inflated when they are about to be scrolled into view, so opening a
+ * large group costs about one screen of views. The questions not inflated yet wait in the
+ * pending list, in display order. Their responses and validation state are kept by the survey
+ * listener, so they do not need a view until displayed.
+ */
+public class QuestionGroupTab extends LinearLayout implements QuestionGroupIterationHeader.OnDeleteListener,
+        ViewTreeObserver.OnGlobalLayoutListener, ViewTreeObserver.OnScrollChangedListener {
+
+    /**
+     * Number of question views inflated at once, before checking whether the visible part of
+     * the tab is filled
+     */
+    private static final int INFLATION_BATCH_SIZE = 5;
 
     private final QuestionGroup mQuestionGroup;
     private final QuestionInteractionListener mQuestionListener;
     private final SurveyListener mSurveyListener;
 
     private final Map<String, QuestionView> mQuestionViews;
+    private final PendingQuestions mPendingQuestions;
+
+    /**
+     * Views of this tab depending on questions whose view is not inflated yet, by the id of that
+     * question, so that they are wired as soon as it is
+     */
+    private final Map<String, List<QuestionView>> mWaitingDependents;
     private final Set<String> mQuestions;// Map group's questions for a quick look-up
     private LinearLayout mContainer;
     private ScrollView mScroller;
@@ -72,6 +95,8 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
     private final Map<Integer, QuestionGroupIterationHeader> groupIterationHeaders;
     private final RepeatableGroupIterations groupIterations;
 
+    private OnQuestionsInflatedListener mInflatedListener;
+
     public QuestionGroupTab(Context context, QuestionGroup group, SurveyListener surveyListener,
             QuestionInteractionListener questionListener) {
         super(context);
@@ -79,6 +104,8 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
         mSurveyListener = surveyListener;
         mQuestionListener = questionListener;
         mQuestionViews = new HashMap<>();
+        mPendingQuestions = new PendingQuestions();
+        mWaitingDependents = new HashMap<>();
         groupIterationHeaders = new HashMap<>();
         groupIterations = new RepeatableGroupIterations();
         mLoaded = false;
@@ -122,16 +149,20 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
                 @Override
                 public void onClick(View v) {
                     loadGroup();
-                    setupDependencies();
+                    inflateVisibleQuestions();
                 }
             });
         }
         setTag(mQuestionGroup.getOrder());
     }
 
+    public void setOnQuestionsInflatedListener(OnQuestionsInflatedListener listener) {
+        mInflatedListener = listener;
+    }
+
     /**
-     * Pre-load all the QuestionViews in memory. getView() will simply
-     * retrieve them from the corresponding position in mQuestionViews.
+     * Prepare the questions of the group. Their views are inflated as the tab is scrolled,
+     * starting once the state is loaded.
      */
     public void load() {
         mLoaded = true;
@@ -151,21 +182,6 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
         }
     }
 
-    /**
-     * Checks to make sure the mandatory questions in this tab have a response
-     */
-    public List<Question> checkInvalidQuestions() {
-        List<Question> missingQuestions = new ArrayList<>();
-        for (QuestionView qv : mQuestionViews.values()) {
-            qv.checkMandatory();
-            if (!qv.isValid() && qv.areDependenciesSatisfied()) {
-                // Only considered invalid if the dependencies are fulfilled
-                missingQuestions.add(qv.getQuestion());
-            }
-        }
-        return missingQuestions;
-    }
-
     public void loadState() {
         for (QuestionView qv : mQuestionViews.values()) {
             qv.resetQuestion(false);// Clean start
@@ -175,8 +191,13 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
 
         // If the group is repeatable, delete multiple iterations
         if (mQuestionGroup.isRepeatable()) {
+            for (QuestionView qv : mQuestionViews.values()) {
+                qv.onDestroy();
+            }
             mContainer.removeAllViews();
             mQuestionViews.clear();
+            mPendingQuestions.clear();
+            mWaitingDependents.clear();
 
             // Load existing iterations. If no iteration is available, show one by default.
             groupIterations.loadIDs(mQuestions, mSurveyListener.getResponses().values());
@@ -188,6 +209,7 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
         }
 
         displayResponses();
+        inflateVisibleQuestions();
     }
 
     private void updateGroupIterationHeaders() {
@@ -205,16 +227,20 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
     }
 
     private void displayResponses() {
-        Map<String, QuestionResponse> responses = mSurveyListener.getResponses();
         for (QuestionView qv : mQuestionViews.values()) {
-            String questionId = qv.getQuestion().getId();
+            displayResponse(qv);
+        }
+    }
+
+    private void displayResponse(QuestionView qv) {
+        Map<String, QuestionResponse> responses = mSurveyListener.getResponses();
+        String questionId = qv.getQuestion().getId();
+        if (responses.containsKey(questionId)) {
+            qv.rehydrate(responses.get(questionId));
+        } else if (qv.getQuestion().isRepeatable() && !TextUtils.isEmpty(questionId)) {
+            questionId = questionId.split("\\|")[0];
             if (responses.containsKey(questionId)) {
                 qv.rehydrate(responses.get(questionId));
-            } else if (qv.getQuestion().isRepeatable() && !TextUtils.isEmpty(questionId)) {
-                questionId = questionId.split("\\|")[0];
-                if (responses.containsKey(questionId)) {
-                    qv.rehydrate(responses.get(questionId));
-                }
             }
         }
     }
@@ -227,14 +253,29 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
      * Attempt to display a particular question, based on the given question ID.
      */
     public boolean displayQuestion(String questionId) {
-        QuestionView qv = getQuestionView(questionId);
+        inflatePendingQuestion(questionId);
+        final QuestionView qv = getQuestionView(questionId);
         if (qv != null) {
-            mScroller.scrollTo(qv.getLeft(), qv.getTop());
+            qv.checkMandatory();
+            // The tab may have just been loaded, scroll once the views are laid out
+            mScroller.post(new Runnable() {
+                @Override
+                public void run() {
+                    mScroller.scrollTo(qv.getLeft(), qv.getTop());
+                }
+            });
             return true;
         }
         return false;
     }
 
+    /**
+     * @param questionId id of the question, or of its copy in a repetition
+     */
+    public boolean containsQuestion(String questionId) {
+        return mQuestions.contains(questionId.split("\\|")[0]);
+    }
+
     public void onPause() {
         // Propagate onPause callback
         for (QuestionView qv : mQuestionViews.values()) {
@@ -260,6 +301,33 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
         return mLoaded;
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        ViewTreeObserver observer = getViewTreeObserver();
+        observer.addOnGlobalLayoutListener(this);
+        observer.addOnScrollChangedListener(this);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    protected void onDetachedFromWindow() {
+        ViewTreeObserver observer = getViewTreeObserver();
+        observer.removeGlobalOnLayoutListener(this);
+        observer.removeOnScrollChangedListener(this);
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public void onGlobalLayout() {
+        inflateVisibleQuestions();
+    }
+
+    @Override
+    public void onScrollChanged() {
+        inflateVisibleQuestions();
+    }
+
     private void updateRepetitionsHeader() {
         //TODO: replace string concatenation by replaceable params inside string and/or plurals
         mRepetitionsText
@@ -285,51 +353,115 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
                             mSurveyListener.isReadOnly() ? null : this);
             groupIterationHeaders.put(repetitionId, header);
             mContainer.addView(header);
+            mSurveyListener.onRepetitionAdded(mQuestionGroup, repetitionId);
         }
 
-        final Context context = getContext();
         for (Question q : mQuestionGroup.getQuestions()) {
             if (mQuestionGroup.isRepeatable()) {
                 q = Question.copy(q, q.getId() + "|" + repetitionId);
             }
+            mPendingQuestions.add(q, repetitionId);
+        }
+    }
 
-            QuestionView questionView;
-            if (ConstantUtil.OPTION_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
-                questionView = OptionQuestionFactory.createOptionQuestion(context, q, mSurveyListener);
-            } else if (ConstantUtil.FREE_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
-                questionView = new FreetextQuestionView(context, q, mSurveyListener);
-            } else if (ConstantUtil.PHOTO_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
-                questionView = new PhotoQuestionView(context, q, mSurveyListener);
-            } else if (ConstantUtil.VIDEO_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
-                questionView = new VideoQuestionView(context, q, mSurveyListener);
-            } else if (ConstantUtil.GEO_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
-                questionView = new GeoQuestionView(context, q, mSurveyListener);
-            } else if (ConstantUtil.SCAN_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
-                questionView = BarcodeQuestionViewFactory
-                        .createBarcodeQuestion(context, q, mSurveyListener);
-            } else if (ConstantUtil.DATE_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
-                questionView = new DateQuestionView(context, q, mSurveyListener);
-            } else if (ConstantUtil.CASCADE_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
-                questionView = new CascadeQuestionView(context, q, mSurveyListener);
-            } else if (ConstantUtil.GEOSHAPE_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
-                questionView = new GeoshapeQuestionView(context, q, mSurveyListener);
-            } else if (ConstantUtil.SIGNATURE_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
-                questionView = new SignatureQuestionView(context, q, mSurveyListener);
-            } else if (ConstantUtil.CADDISFLY_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
-                questionView = new CaddisflyQuestionView(context, q, mSurveyListener);
-            } else {
-                questionView = new QuestionHeaderView(context, q, mSurveyListener);
+    /**
+     * Inflates the pending questions needed to fill the visible part of the tab, and one more
+     * screen below it, so that views are ready before they are scrolled into view
+     */
+    private void inflateVisibleQuestions() {
+        if (mPendingQuestions.isEmpty()) {
+            return;
+        }
+        int height = mScroller.getHeight();
+        if (height == 0) {
+            // Not laid out yet, display the first questions and check again after the layout
+            if (mQuestionViews.isEmpty()) {
+                inflateQuestions(INFLATION_BATCH_SIZE);
             }
+        } else if (mContainer.getBottom() < mScroller.getScrollY() + 2 * height) {
+            inflateQuestions(INFLATION_BATCH_SIZE);
+        }
+    }
+
+    private void inflatePendingQuestion(String questionId) {
+        int count = mPendingQuestions.countUntil(questionId);
+        if (count > 0) {
+            inflateQuestions(count);
+        }
+    }
+
+    private void inflateQuestions(int count) {
+        List<QuestionView> inflated = new ArrayList<>(count);
+        for (int i = 0; i < count && !mPendingQuestions.isEmpty(); i++) {
+            PendingQuestions.PendingQuestion pendingQuestion = mPendingQuestions.removeFirst();
+            QuestionView questionView = createQuestionView(pendingQuestion.question);
 
             // Add question interaction listener
             questionView.addQuestionInteractionListener(mQuestionListener);
 
-            mQuestionViews.put(q.getId(), questionView);// Store the reference to the View
+            mQuestionViews.put(pendingQuestion.question.getId(), questionView);
 
             // Add divider (within the View)
             inflate(getContext(), R.layout.divider, questionView);
-            mContainer.addView(questionView);
+            mContainer.addView(questionView, getInsertionIndex(pendingQuestion.repetitionId));
+            displayResponse(questionView);
+            inflated.add(questionView);
+        }
+
+        // New views may depend on, or be the dependency of, questions of any tab
+        for (QuestionView questionView : inflated) {
+            setupDependencies(questionView);
+        }
+        if (mInflatedListener != null) {
+            mInflatedListener.onQuestionsInflated(inflated);
+        } else {
+            setupDependents(inflated);
+        }
+    }
+
+    private int getInsertionIndex(int repetitionId) {
+        if (!mQuestionGroup.isRepeatable()) {
+            return mContainer.getChildCount();
+        }
+        Map<Integer, Integer> headerIndexes = new HashMap<>();
+        for (Map.Entry<Integer, QuestionGroupIterationHeader> header : groupIterationHeaders
+                .entrySet()) {
+            headerIndexes.put(header.getKey(), mContainer.indexOfChild(header.getValue()));
         }
+        return PendingQuestions.getInsertionIndex(groupIterations, repetitionId, headerIndexes,
+                mContainer.getChildCount());
+    }
+
+    private QuestionView createQuestionView(Question q) {
+        final Context context = getContext();
+        QuestionView questionView;
+        if (ConstantUtil.OPTION_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
+            questionView = OptionQuestionFactory.createOptionQuestion(context, q, mSurveyListener);
+        } else if (ConstantUtil.FREE_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
+            questionView = new FreetextQuestionView(context, q, mSurveyListener);
+        } else if (ConstantUtil.PHOTO_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
+            questionView = new PhotoQuestionView(context, q, mSurveyListener);
+        } else if (ConstantUtil.VIDEO_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
+            questionView = new VideoQuestionView(context, q, mSurveyListener);
+        } else if (ConstantUtil.GEO_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
+            questionView = new GeoQuestionView(context, q, mSurveyListener);
+        } else if (ConstantUtil.SCAN_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
+            questionView = BarcodeQuestionViewFactory
+                    .createBarcodeQuestion(context, q, mSurveyListener);
+        } else if (ConstantUtil.DATE_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
+            questionView = new DateQuestionView(context, q, mSurveyListener);
+        } else if (ConstantUtil.CASCADE_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
+            questionView = new CascadeQuestionView(context, q, mSurveyListener);
+        } else if (ConstantUtil.GEOSHAPE_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
+            questionView = new GeoshapeQuestionView(context, q, mSurveyListener);
+        } else if (ConstantUtil.SIGNATURE_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
+            questionView = new SignatureQuestionView(context, q, mSurveyListener);
+        } else if (ConstantUtil.CADDISFLY_QUESTION_TYPE.equalsIgnoreCase(q.getType())) {
+            questionView = new CaddisflyQuestionView(context, q, mSurveyListener);
+        } else {
+            questionView = new QuestionHeaderView(context, q, mSurveyListener);
+        }
+        return questionView;
     }
 
     private int getRepetitionId(int index) {
@@ -348,9 +480,11 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
                 qv.onDestroy();
                 mQuestionViews.remove(qid);
                 mContainer.removeView(qv);
+                removeWaitingDependent(qv);
             }
-            mSurveyListener.deleteResponse(questionId, String.valueOf(repetitionID));
         }
+        mSurveyListener.deleteRepetition(mQuestions, repetitionID);
+        mPendingQuestions.removeRepetition(repetitionID);
 
         // Rearrange header positions (just the visual indicator).
         for (Integer id : groupIterations) {
@@ -370,12 +504,10 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
         updateGroupIterationHeaders();
     }
 
-    public void setupDependencies() {
-        for (QuestionView qv : mQuestionViews.values()) {
-            setupDependencies(qv);
-        }
-    }
-
+    /**
+     * Registers a new view on the views of the questions it depends on, or waits for them to be
+     * inflated, and displays it only if its dependencies are satisfied
+     */
     private void setupDependencies(QuestionView qv) {
         final List<Dependency> dependencies = qv.getQuestion().getDependencies();
         if (dependencies == null) {
@@ -394,9 +526,49 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
                 parentQ = mSurveyListener.getQuestionView(parentQId);// Global search
             }
 
-            if (parentQ != null && qv != parentQ) {
+            if (parentQ == null) {
+                List<QuestionView> dependents = mWaitingDependents.get(parentQId);
+                if (dependents == null) {
+                    dependents = new ArrayList<>();
+                    mWaitingDependents.put(parentQId, dependents);
+                }
+                dependents.add(qv);
+            } else if (qv != parentQ) {
                 parentQ.addQuestionInteractionListener(qv);
-                qv.checkDependencies();
+            }
+        }
+        qv.checkDependencies();
+    }
+
+    /**
+     * Registers the views of this tab waiting for the given new views, possibly of another tab
+     */
+    public void setupDependents(Collection<QuestionView> parents) {
+        if (mWaitingDependents.isEmpty()) {
+            return;
+        }
+        for (QuestionView parent : parents) {
+            List<QuestionView> dependents = mWaitingDependents
+                    .remove(parent.getQuestion().getId());
+            if (dependents == null) {
+                continue;
+            }
+            for (QuestionView dependent : dependents) {
+                if (dependent != parent) {
+                    parent.addQuestionInteractionListener(dependent);
+                    dependent.checkDependencies();
+                }
+            }
+        }
+    }
+
+    private void removeWaitingDependent(QuestionView qv) {
+        Iterator<List<QuestionView>> waiting = mWaitingDependents.values().iterator();
+        while (waiting.hasNext()) {
+            List<QuestionView> dependents = waiting.next();
+            dependents.remove(qv);
+            if (dependents.isEmpty()) {
+                waiting.remove();
             }
         }
     }
@@ -409,6 +581,14 @@ public class QuestionGroupTab extends LinearLayout implements QuestionGroupItera
         return -1;
     }
 
+    public interface OnQuestionsInflatedListener {
+
+        /**
+         * @param questionViews the new views, whose questions may have dependents in any tab
+         */
+        void onQuestionsInflated(Collection<QuestionView> questionViews);
+    }
+
     static class RepeatableGroupIterations implements Iterable<Integer> {
 
         List<Integer> mIDs = new ArrayList<>();
@@ -548,6 +548,18 @@ public abstract class QuestionView extends LinearLayout implements QuestionInter
     public void setError(String error) {
         mError = error;
         displayError(mError);
+        mSurveyListener.onQuestionErrorChanged(mQuestion.getId(), mError != null || !isComplete());
+    }
+
+    /**
+     * isComplete tells whether the response held by the view is the one to submit. Subclasses
+     * building the response in several steps may override it, and must then call setError(String)
+     * once the response is complete so that the form validation is updated.
+     *
+     * @return true if the response is complete, false otherwise
+     */
+    protected boolean isComplete() {
+        return true;
     }
 
     /**
@@ -31,7 +31,7 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import org.akvo.flow.R;
-import org.akvo.flow.async.MediaSyncTask;
+import org.akvo.flow.async.MediaDownloadQueue;
 import org.akvo.flow.domain.Question;
 import org.akvo.flow.domain.QuestionResponse;
 import org.akvo.flow.domain.response.value.Location;
@@ -50,6 +50,7 @@ import org.akvo.flow.util.FileUtil;
 import org.akvo.flow.util.ImageUtil;
 import org.akvo.flow.util.image.ImageLoader;
 import org.akvo.flow.util.image.PicassoImageLoader;
+import org.akvo.flow.util.image.ThumbnailCache;
 
 import java.io.File;
 
@@ -66,7 +67,7 @@ import butterknife.OnClick;
  * @author Christopher Fagiani
  */
 public class PhotoQuestionView extends QuestionView implements
-        TimedLocationListener.Listener, MediaSyncTask.DownloadListener, IPhotoQuestionView {
+        TimedLocationListener.Listener, MediaDownloadQueue.DownloadListener, IPhotoQuestionView {
 
     @Inject
     SnackBarManager snackBarManager;
@@ -74,6 +75,12 @@ public class PhotoQuestionView extends QuestionView implements
     @Inject
     Navigator navigator;
 
+    @Inject
+    ThumbnailCache thumbnailCache;
+
+    @Inject
+    MediaDownloadQueue mediaDownloadQueue;
+
     @Inject
     PhotoQuestionPresenter presenter;
 
@@ -109,7 +116,7 @@ public class PhotoQuestionView extends QuestionView implements
 
         presenter.setView(this);
 
-        imageLoader = new PicassoImageLoader(getContext());
+        imageLoader = new PicassoImageLoader(getContext(), thumbnailCache);
         mMediaButton.setText(R.string.takephoto);
         if (isReadOnly()) {
             mMediaButton.setVisibility(GONE);
@@ -145,9 +152,7 @@ public class PhotoQuestionView extends QuestionView implements
     void onVideoDownloadClick() {
         showLoading();
 
-        MediaSyncTask downloadTask = new MediaSyncTask(getContext(),
-                new File(mMedia.getFilename()), this);
-        downloadTask.execute();
+        mediaDownloadQueue.download(new File(mMedia.getFilename()), this);
     }
 
     @Override
@@ -157,7 +162,7 @@ public class PhotoQuestionView extends QuestionView implements
     }
 
     private void displayImage(String filename, ImageView imageView) {
-        imageLoader.loadFromFile(new File(filename), imageView);
+        imageLoader.loadThumbnail(new File(filename), imageView);
     }
 
     /**
@@ -260,6 +265,7 @@ public class PhotoQuestionView extends QuestionView implements
 
     @Override
     public void onDestroy() {
+        mediaDownloadQueue.cancel(this);
         if (mLocationListener.isListening()) {
             mLocationListener.stop();
         }
@@ -29,7 +29,7 @@ import android.widget.ImageView;
 import android.widget.ProgressBar;
 
 import org.akvo.flow.R;
-import org.akvo.flow.async.MediaSyncTask;
+import org.akvo.flow.async.MediaDownloadQueue;
 import org.akvo.flow.domain.Question;
 import org.akvo.flow.domain.QuestionResponse;
 import org.akvo.flow.domain.response.value.Media;
@@ -46,6 +46,7 @@ import org.akvo.flow.util.FileUtil;
 import org.akvo.flow.util.image.ImageLoader;
 import org.akvo.flow.util.image.ImageLoaderListener;
 import org.akvo.flow.util.image.PicassoImageLoader;
+import org.akvo.flow.util.image.ThumbnailCache;
 
 import java.io.File;
 
@@ -60,7 +61,7 @@ import butterknife.OnClick;
  *
  * @author Christopher Fagiani
  */
-public class VideoQuestionView extends QuestionView implements MediaSyncTask.DownloadListener {
+public class VideoQuestionView extends QuestionView implements MediaDownloadQueue.DownloadListener {
 
     @Inject
     SnackBarManager snackBarManager;
@@ -68,6 +69,12 @@ public class VideoQuestionView extends QuestionView implements MediaSyncTask.Dow
     @Inject
     Navigator navigator;
 
+    @Inject
+    ThumbnailCache thumbnailCache;
+
+    @Inject
+    MediaDownloadQueue mediaDownloadQueue;
+
     @BindView(R.id.media_btn)
     Button mMediaButton;
 
@@ -93,7 +100,7 @@ public class VideoQuestionView extends QuestionView implements MediaSyncTask.Dow
         initialiseInjector();
         ButterKnife.bind(this);
 
-        imageLoader = new PicassoImageLoader(getContext());
+        imageLoader = new PicassoImageLoader(getContext(), thumbnailCache);
         mMediaButton.setText(R.string.takevideo);
         if (isReadOnly()) {
             mMediaButton.setVisibility(GONE);
@@ -131,9 +138,7 @@ public class VideoQuestionView extends QuestionView implements MediaSyncTask.Dow
         mDownloadBtn.setVisibility(GONE);
         mProgressBar.setVisibility(VISIBLE);
 
-        MediaSyncTask downloadTask = new MediaSyncTask(getContext(),
-                new File(filename), this);
-        downloadTask.execute();
+        mediaDownloadQueue.download(new File(filename), this);
     }
 
     /**
@@ -250,6 +255,11 @@ public class VideoQuestionView extends QuestionView implements MediaSyncTask.Dow
         });
     }
 
+    @Override
+    public void onDestroy() {
+        mediaDownloadQueue.cancel(this);
+    }
+
     @Override
     public void onResourceDownload(boolean done) {
         if (!done) {
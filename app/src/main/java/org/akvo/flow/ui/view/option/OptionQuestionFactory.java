@@ -27,10 +27,15 @@ import org.akvo.flow.event.SurveyListener;
 
 public class OptionQuestionFactory {
 
+    // Beyond this many options, a button for each of them makes the form slow to load
+    private static final int SEARCHABLE_OPTIONS_THRESHOLD = 50;
+
     public static OptionQuestionView createOptionQuestion(Context context, Question question,
             SurveyListener surveyListener) {
         if (question.getOptions() == null) {
             return new OptionQuestionViewNull(context, question, surveyListener);
+        } else if (question.getOptions().size() > SEARCHABLE_OPTIONS_THRESHOLD) {
+            return new OptionQuestionViewSearchable(context, question, surveyListener);
         } else if (question.isAllowMultiple()) {
             return new OptionQuestionViewMultiple(context, question, surveyListener);
         } else {
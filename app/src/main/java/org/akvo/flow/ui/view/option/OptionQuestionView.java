@@ -41,7 +41,9 @@ import org.akvo.flow.serialization.response.value.OptionValue;
 import org.akvo.flow.ui.view.QuestionView;
 import org.akvo.flow.util.ConstantUtil;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Question type that supports the selection of a single option from a list of
@@ -52,6 +54,7 @@ import java.util.List;
 public abstract class OptionQuestionView extends QuestionView {
 
     private static final String OTHER_CODE = "OTHER";
+    private static final int POSITION_NONE = -1;
 
     final String otherOptionText;
 
@@ -63,6 +66,11 @@ public abstract class OptionQuestionView extends QuestionView {
     private TextView mOtherText;
     private String mLatestOtherText;
 
+    // Option positions by code and by text, matching saved responses without scanning options
+    private final Map<String, Integer> mPositionsByCode = new HashMap<>();
+    private final Map<String, Integer> mPositionsByText = new HashMap<>();
+    private int mOtherPosition = POSITION_NONE;
+
     OptionQuestionView(Context context, Question q, SurveyListener surveyListener) {
         super(context, q, surveyListener);
         otherOptionText = getResources().getString(R.string.othertext);
@@ -78,6 +86,8 @@ public abstract class OptionQuestionView extends QuestionView {
 
         appendOtherOption();
 
+        indexOptions();
+
         initOptionViews();
 
         appendOtherView();
@@ -101,6 +111,43 @@ public abstract class OptionQuestionView extends QuestionView {
         }
     }
 
+    private void indexOptions() {
+        if (mOptions == null) {
+            return;
+        }
+        for (int i = 0; i < mOptions.size(); i++) {
+            Option option = mOptions.get(i);
+            if (option.isOther()) {
+                if (mOtherPosition == POSITION_NONE) {
+                    mOtherPosition = i;
+                }
+                continue;
+            }
+            String code = option.getCode();
+            if (!TextUtils.isEmpty(code) && !mPositionsByCode.containsKey(code)) {
+                mPositionsByCode.put(code, i);
+            }
+            String text = option.getText();
+            if (text != null && !mPositionsByText.containsKey(text)) {
+                mPositionsByText.put(text, i);
+            }
+        }
+    }
+
+    /**
+     * Finds a saved option by code, then by text, as old responses may have no code
+     */
+    private int getOptionPosition(Option savedOption) {
+        Integer position = null;
+        if (!TextUtils.isEmpty(savedOption.getCode())) {
+            position = mPositionsByCode.get(savedOption.getCode());
+        }
+        if (position == null && savedOption.getText() != null) {
+            position = mPositionsByText.get(savedOption.getText());
+        }
+        return position != null ? position : POSITION_NONE;
+    }
+
     private void appendOtherView() {
         if (mQuestion.isAllowOther()) {
             mOtherText = new TextView(getContext());
@@ -232,22 +279,18 @@ public abstract class OptionQuestionView extends QuestionView {
         mSuppressListeners = true;
         if (mOptions != null) {
             for (Option selectedOption : selectedOptions) {
-                for (int i = 0; i < mOptions.size(); i++) {
-                    Option option = mOptions.get(i);
-                    boolean match = selectedOption.equals(option);
-                    if (!match && option.isOther()) {
-                        // Assume this is the OTHER value. A more reliable indicator would be to check
-                        // selected response's `isOther` flag, but this is not guaranteed to be present
-                        // in old responses.
-                        match = true;
-                        mLatestOtherText = selectedOption.getText();
-                        mOtherText.setText(mLatestOtherText);
-                        option.setText(mLatestOtherText);
-                    }
-                    if (match) {
-                        checkMatchingItem(i);
-                        break; // TODO: Break outer loop in single-choice responses?
-                    }
+                int position = getOptionPosition(selectedOption);
+                if (position == POSITION_NONE && mOtherPosition != POSITION_NONE) {
+                    // Assume this is the OTHER value. A more reliable indicator would be to check
+                    // selected response's `isOther` flag, but this is not guaranteed to be present
+                    // in old responses.
+                    position = mOtherPosition;
+                    mLatestOtherText = selectedOption.getText();
+                    mOtherText.setText(mLatestOtherText);
+                    mOptions.get(position).setText(mLatestOtherText);
+                }
+                if (position != POSITION_NONE) {
+                    checkMatchingItem(position);
                 }
             }
         }
@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.ui.view.option;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.text.Editable;
+import android.text.SpannableStringBuilder;
+import android.text.TextWatcher;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.BaseAdapter;
+import android.widget.Button;
+import android.widget.CheckedTextView;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.ListView;
+import android.widget.TextView;
+
+import org.akvo.flow.R;
+import org.akvo.flow.domain.AltText;
+import org.akvo.flow.domain.Option;
+import org.akvo.flow.domain.Question;
+import org.akvo.flow.event.SurveyListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Option question with too many options to render a button for each of them. The selection is
+ * summarised in the question, and options are picked from a dialog which only renders the
+ * visible rows and filters them as the user types.
+ */
+public class OptionQuestionViewSearchable extends OptionQuestionView {
+
+    // Assigned in initOptionViews, invoked from the super constructor: no initializers here
+    private boolean[] mSelected;
+    private String[] mSearchTexts;
+    private TextView mSelectionView;
+    private Button mSelectButton;
+
+    public OptionQuestionViewSearchable(Context context, Question q,
+            SurveyListener surveyListener) {
+        super(context, q, surveyListener);
+    }
+
+    @Override
+    void initOptionViews() {
+        mSelected = new boolean[mOptions != null ? mOptions.size() : 0];
+
+        mSelectionView = new TextView(getContext());
+        mSelectionView.setLayoutParams(
+                new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        addView(mSelectionView);
+
+        mSelectButton = new Button(getContext());
+        mSelectButton.setLayoutParams(
+                new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        mSelectButton.setText(R.string.option_list_select);
+        mSelectButton.setEnabled(!isReadOnly());
+        mSelectButton.setOnClickListener(new OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                displayOptionsDialog();
+            }
+        });
+        mSelectButton.setOnLongClickListener(new OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                onClearAnswer();
+                return true;
+            }
+        });
+        addView(mSelectButton);
+    }
+
+    private boolean isMultiple() {
+        return getQuestion().isAllowMultiple();
+    }
+
+    private void displayOptionsDialog() {
+        if (mOptions == null) {
+            return;
+        }
+        final OptionListAdapter adapter = new OptionListAdapter();
+
+        LinearLayout main = new LinearLayout(getContext());
+        main.setOrientation(LinearLayout.VERTICAL);
+        EditText filterView = new EditText(getContext());
+        filterView.setSingleLine();
+        filterView.setHint(R.string.option_search_hint);
+        filterView.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                adapter.filter(s.toString());
+            }
+        });
+        main.addView(filterView);
+        ListView listView = new ListView(getContext());
+        listView.setAdapter(adapter);
+        main.addView(listView);
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
+        builder.setView(main);
+        if (isMultiple()) {
+            builder.setPositiveButton(R.string.okbutton, null);
+        }
+        final AlertDialog dialog = builder.create();
+        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                int optionPosition = adapter.getItem(position);
+                if (isMultiple()) {
+                    onOptionClicked(optionPosition);
+                    adapter.notifyDataSetChanged();
+                } else {
+                    dialog.dismiss();
+                    onOptionClicked(optionPosition);
+                }
+            }
+        });
+        dialog.show();
+    }
+
+    private void onOptionClicked(int position) {
+        if (isMultiple()) {
+            mSelected[position] = !mSelected[position];
+        } else {
+            Arrays.fill(mSelected, false);
+            mSelected[position] = true;
+        }
+        updateSelectionView();
+        handleSelection(position, mSelected[position]);
+    }
+
+    private void updateSelectionView() {
+        SpannableStringBuilder text = new SpannableStringBuilder();
+        if (mOptions != null) {
+            for (int i = 0; i < mSelected.length; i++) {
+                if (mSelected[i]) {
+                    if (text.length() > 0) {
+                        text.append(", ");
+                    }
+                    text.append(getOptionText(mOptions.get(i)));
+                }
+            }
+        }
+        mSelectionView.setText(text, TextView.BufferType.SPANNABLE);
+    }
+
+    private CharSequence getOptionText(Option option) {
+        return option.isOther() ? otherOptionText : formOptionText(option);
+    }
+
+    /**
+     * @return the texts of the option in every visible language, in lower case
+     */
+    private String getSearchText(int position) {
+        if (mSearchTexts == null) {
+            mSearchTexts = new String[mSelected.length];
+        }
+        if (mSearchTexts[position] == null) {
+            Option option = mOptions.get(position);
+            StringBuilder text = new StringBuilder(String.valueOf(option.getText()));
+            for (String language : getLanguages()) {
+                AltText altText = option.getAltText(language);
+                if (altText != null) {
+                    text.append('\n').append(altText.getText());
+                }
+            }
+            mSearchTexts[position] = text.toString().toLowerCase(Locale.getDefault());
+        }
+        return mSearchTexts[position];
+    }
+
+    @Override
+    public void notifyOptionsChanged() {
+        super.notifyOptionsChanged();
+        mSearchTexts = null;
+        updateSelectionView();
+    }
+
+    @Override
+    void checkMatchingItem(int i) {
+        if (!isMultiple()) {
+            Arrays.fill(mSelected, false);
+        }
+        mSelected[i] = true;
+        updateSelectionView();
+    }
+
+    @Override
+    void resetViews() {
+        Arrays.fill(mSelected, false);
+        updateSelectionView();
+    }
+
+    @Override
+    public void setTextSize(float size) {
+        super.setTextSize(size);
+        mSelectionView.setTextSize(size);
+        mSelectButton.setTextSize(size);
+    }
+
+    @Override
+    List<Option> getSelection() {
+        List<Option> options = new ArrayList<>();
+        if (mOptions != null) {
+            for (int i = 0; i < mSelected.length; i++) {
+                if (mSelected[i]) {
+                    options.add(mOptions.get(i));
+                }
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Lists the positions of the options matching the filter. The other option is always listed.
+     */
+    private class OptionListAdapter extends BaseAdapter {
+
+        private final List<Integer> mPositions = new ArrayList<>();
+
+        OptionListAdapter() {
+            filter(null);
+        }
+
+        void filter(String query) {
+            mPositions.clear();
+            String lowerCaseQuery = query != null ?
+                    query.trim().toLowerCase(Locale.getDefault()) : "";
+            for (int i = 0; i < mSelected.length; i++) {
+                if (lowerCaseQuery.isEmpty() || mOptions.get(i).isOther()
+                        || getSearchText(i).contains(lowerCaseQuery)) {
+                    mPositions.add(i);
+                }
+            }
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public int getCount() {
+            return mPositions.size();
+        }
+
+        @Override
+        public Integer getItem(int position) {
+            return mPositions.get(position);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return mPositions.get(position);
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            CheckedTextView view = (CheckedTextView) convertView;
+            if (view == null) {
+                int layout = isMultiple() ? android.R.layout.simple_list_item_multiple_choice
+                        : android.R.layout.simple_list_item_single_choice;
+                view = (CheckedTextView) LayoutInflater.from(parent.getContext())
+                        .inflate(layout, parent, false);
+            }
+            int optionPosition = getItem(position);
+            view.setText(getOptionText(mOptions.get(optionPosition)),
+                    TextView.BufferType.SPANNABLE);
+            view.setChecked(mSelected[optionPosition]);
+            return view;
+        }
+    }
+}
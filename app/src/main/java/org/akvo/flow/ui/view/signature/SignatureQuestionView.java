@@ -76,7 +76,7 @@ public class SignatureQuestionView extends QuestionView {
             setUpImage(bitmap);
             updateSignButton();
             if (bitmap != null) {
-                mSignature.setImage(ImageUtil.encodeBase64(bitmap));
+                saveImage(bitmap);
             }
             captureResponse();
         }
@@ -150,9 +150,20 @@ public class SignatureQuestionView extends QuestionView {
         }
 
         mSignature = SignatureValue.deserialize(value);
-        final String name = mSignature == null ? "" : mSignature.getName();
-        String base64ImageString = mSignature == null ? "" : mSignature.getImage();
-        if (!TextUtils.isEmpty(base64ImageString)) {
+        if (mSignature == null) {
+            mSignature = new Signature();
+        }
+        final String name = mSignature.getName();
+        String filename = mSignature.getFilename();
+        String base64ImageString = mSignature.getImage();
+        if (!TextUtils.isEmpty(filename)) {
+            setUpName(name);
+            mImage.setVisibility(VISIBLE);
+            //noinspection unchecked
+            imageLoader.loadFromFile(new File(filename), mImage);
+            updateSignButton();
+        } else if (!TextUtils.isEmpty(base64ImageString)) {
+            // Signatures used to be kept in the response itself
             setUpName(name);
             imageLoader.loadFromBase64String(base64ImageString, mImage, new ImageLoaderListener() {
                 @Override
@@ -186,10 +197,27 @@ public class SignatureQuestionView extends QuestionView {
                 .setValue(value)
                 .setType(ConstantUtil.SIGNATURE_RESPONSE_TYPE)
                 .setQuestionId(getQuestion().getId())
+                .setFilename(mSignature.getFilename())
                 .createQuestionResponse();
         setResponse(questionResponse);
     }
 
+    /**
+     * Keeps the signature in a new media file instead of making the response grow. The file it
+     * replaces is deleted once the new response is saved.
+     */
+    private void saveImage(Bitmap bitmap) {
+        File file = SignatureFileBrowser.getSignatureMediaFile();
+        if (!ImageUtil.savePng(bitmap, file)) {
+            // Better a large response than a lost signature
+            mSignature.setImage(ImageUtil.encodeBase64(bitmap));
+            mSignature.setFilename(null);
+            return;
+        }
+        mSignature.setImage(null);
+        mSignature.setFilename(file.getAbsolutePath());
+    }
+
     private void resetResponse(String name) {
         setUpName(name);
         setUpImage(null);
@@ -41,6 +41,7 @@ public class ConstantUtil {
     public static final String PROCESSED_ERROR_SUFFIX = ".error";
     public static final String BOOTSTRAP_ROLLBACK_FILE = "rollback.sql";
     public static final String CASCADE_RES_SUFFIX = ".sqlite.zip";
+    public static final String CASCADE_DB_SUFFIX = ".sqlite";
     public static final String DOT_SEPARATOR = ".";
 
     /**
@@ -19,11 +19,18 @@
 package org.akvo.flow.util;
 
 import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.media.ExifInterface;
 import android.util.Base64;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import timber.log.Timber;
 
@@ -36,6 +43,65 @@ public class ImageUtil {
         return Base64.encodeToString(image, Base64.DEFAULT);
     }
 
+    /**
+     * Encodes a file written by {@link #savePng(Bitmap, File)} or {@link #decodeBase64(String,
+     * File)} exactly like {@link #encodeBase64(Bitmap)} encoded its bitmap
+     *
+     * @return the base64 string, null if the file can not be read
+     */
+    @Nullable
+    public static String encodeBase64(@NonNull File file) {
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            FileUtil.copy(in, stream);
+            return Base64.encodeToString(stream.toByteArray(), Base64.DEFAULT);
+        } catch (IOException e) {
+            Timber.e(e, "Error reading %s", file.getName());
+            return null;
+        } finally {
+            FileUtil.close(in);
+        }
+    }
+
+    /**
+     * Writes a base64 image to a file, as it is
+     *
+     * @return false if the string is not valid base64 or the file can not be written
+     */
+    public static boolean decodeBase64(@NonNull String image, @NonNull File file) {
+        try {
+            return write(Base64.decode(image, Base64.DEFAULT), file);
+        } catch (IllegalArgumentException e) {
+            Timber.e(e, "Invalid base64 image");
+            return false;
+        }
+    }
+
+    /**
+     * @return false if the file can not be written
+     */
+    public static boolean savePng(@NonNull Bitmap bitmap, @NonNull File file) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
+        return write(stream.toByteArray(), file);
+    }
+
+    private static boolean write(byte[] bytes, File file) {
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            out.write(bytes);
+            return true;
+        } catch (IOException e) {
+            Timber.e(e, "Error writing %s", file.getName());
+            return false;
+        } finally {
+            FileUtil.close(out);
+        }
+    }
+
     public static double[] getLocation(String image) {
         try {
             ExifInterface exif = new ExifInterface(image);
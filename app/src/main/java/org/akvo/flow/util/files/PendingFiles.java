@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.util.files;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Files written under a temporary name, next to their final location, so that a set of files can
+ * be installed all together with {@link #commit()} or dropped with {@link #discard()}.
+ * <p>
+ * Files can be added from several threads.
+ */
+public class PendingFiles {
+
+    private static final String TEMP_PREFIX = ".";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String BACKUP_SUFFIX = ".bak";
+
+    // final file -> temporary file
+    private final Map<File, File> files = new LinkedHashMap<>();
+
+    /**
+     * Registers a new file
+     *
+     * @param file the final file
+     * @return the temporary file to write the contents to
+     */
+    @NonNull
+    public synchronized File add(@NonNull File file) {
+        File tempFile = new File(file.getParentFile(), TEMP_PREFIX + file.getName() + TEMP_SUFFIX);
+        files.put(file, tempFile);
+        return tempFile;
+    }
+
+    /**
+     * Renames all the temporary files to their final names. Existing files are replaced. If a file
+     * can not be renamed, the files already renamed are put back as they were, so that either all
+     * the files or none of them are installed.
+     */
+    public synchronized void commit() throws IOException {
+        // final file -> backup of the file it replaces, null if there was none
+        Map<File, File> committed = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<File, File> entry : files.entrySet()) {
+                File file = entry.getKey();
+                File backup = null;
+                if (file.exists()) {
+                    backup = new File(file.getParentFile(),
+                            TEMP_PREFIX + file.getName() + BACKUP_SUFFIX);
+                    if (!file.renameTo(backup)) {
+                        throw new IOException("Could not replace file " + file);
+                    }
+                }
+                committed.put(file, backup);
+                if (!entry.getValue().renameTo(file)) {
+                    throw new IOException("Could not move file to " + file);
+                }
+            }
+        } catch (IOException e) {
+            rollback(committed);
+            throw e;
+        }
+        for (File backup : committed.values()) {
+            if (backup != null) {
+                //noinspection ResultOfMethodCallIgnored
+                backup.delete();
+            }
+        }
+        files.clear();
+    }
+
+    private void rollback(Map<File, File> committed) {
+        for (Map.Entry<File, File> entry : committed.entrySet()) {
+            File file = entry.getKey();
+            File backup = entry.getValue();
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            if (backup != null) {
+                //noinspection ResultOfMethodCallIgnored
+                backup.renameTo(file);
+            }
+        }
+    }
+
+    /**
+     * Deletes the temporary files not committed yet
+     */
+    public synchronized void discard() {
+        for (File tempFile : files.values()) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        }
+        files.clear();
+    }
+}
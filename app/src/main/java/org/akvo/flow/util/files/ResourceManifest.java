@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.util.files;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.JsonParseException;
+
+import org.akvo.flow.util.FileUtil;
+import org.akvo.flow.util.GsonMapper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Remembers the ETag of every S3 object extracted into a folder, together with the size and
+ * modification time of the files it produced.
+ * <p>
+ * While the files are untouched, the stored ETag can be sent as If-None-Match, so unchanged
+ * resources are neither downloaded nor hashed again. The manifest is stored inside the folder it
+ * describes, so clearing the folder also clears the manifest.
+ */
+public class ResourceManifest {
+
+    private static final String MANIFEST_FILE_NAME = ".manifest.json";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String UTF_8_CHARSET = "UTF-8";
+
+    private final File dir;
+    private final File manifestFile;
+    private final GsonMapper mapper = new GsonMapper();
+
+    @Nullable
+    private Manifest manifest;
+
+    public ResourceManifest(@NonNull File dir) {
+        this.dir = dir;
+        this.manifestFile = new File(dir, MANIFEST_FILE_NAME);
+    }
+
+    /**
+     * @return the ETag of the object, or null if it was never extracted here or any of its
+     * files has been modified or deleted since
+     */
+    @Nullable
+    public synchronized String getEtag(@NonNull String objectKey) {
+        Resource resource = getManifest().resources.get(objectKey);
+        if (resource == null || resource.etag == null) {
+            return null;
+        }
+        for (ResourceFile resourceFile : resource.files) {
+            File file = new File(dir, resourceFile.name);
+            if (!file.exists() || file.length() != resourceFile.size
+                    || file.lastModified() != resourceFile.lastModified) {
+                return null;
+            }
+        }
+        return resource.etag;
+    }
+
+    /**
+     * @param files the extracted files, by their path relative to the folder
+     */
+    public synchronized void put(@NonNull String objectKey, @Nullable String etag,
+            @NonNull Map<String, File> files) {
+        if (etag == null) {
+            remove(objectKey);
+            return;
+        }
+        Resource resource = new Resource();
+        resource.etag = etag;
+        for (Map.Entry<String, File> entry : files.entrySet()) {
+            File file = entry.getValue();
+            ResourceFile resourceFile = new ResourceFile();
+            resourceFile.name = entry.getKey();
+            resourceFile.size = file.length();
+            resourceFile.lastModified = file.lastModified();
+            resource.files.add(resourceFile);
+        }
+        getManifest().resources.put(objectKey, resource);
+        save();
+    }
+
+    public synchronized void remove(@NonNull String objectKey) {
+        if (getManifest().resources.remove(objectKey) != null) {
+            save();
+        }
+    }
+
+    @NonNull
+    private Manifest getManifest() {
+        if (manifest == null) {
+            manifest = load();
+        }
+        return manifest;
+    }
+
+    @NonNull
+    private Manifest load() {
+        if (!manifestFile.exists()) {
+            return new Manifest();
+        }
+        InputStream in = null;
+        try {
+            in = new FileInputStream(manifestFile);
+            Manifest loaded = mapper.read(FileUtil.readText(in), Manifest.class);
+            return loaded != null && loaded.resources != null ? loaded : new Manifest();
+        } catch (IOException | JsonParseException e) {
+            // A lost manifest only means resources are downloaded once more
+            Timber.e(e, "Could not read resource manifest");
+            return new Manifest();
+        } finally {
+            FileUtil.close(in);
+        }
+    }
+
+    private void save() {
+        File tempFile = new File(dir, MANIFEST_FILE_NAME + TEMP_SUFFIX);
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tempFile);
+            out.write(mapper.write(getManifest()).getBytes(UTF_8_CHARSET));
+            out.close();
+            out = null;
+            if (!tempFile.renameTo(manifestFile)) {
+                Timber.e("Could not save resource manifest");
+            }
+        } catch (IOException e) {
+            Timber.e(e, "Could not save resource manifest");
+        } finally {
+            FileUtil.close(out);
+        }
+    }
+
+    static class Manifest {
+        Map<String, Resource> resources = new HashMap<>();
+    }
+
+    static class Resource {
+        String etag;
+        List<ResourceFile> files = new ArrayList<>();
+    }
+
+    static class ResourceFile {
+        String name;
+        long size;
+        long lastModified;
+    }
+}
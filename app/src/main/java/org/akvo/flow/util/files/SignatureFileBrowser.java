@@ -23,6 +23,10 @@ package org.akvo.flow.util.files;
 import android.content.Context;
 import android.support.annotation.NonNull;
 
+import org.akvo.flow.util.ConstantUtil;
+import org.akvo.flow.util.FileUtil;
+import org.akvo.flow.util.PlatformUtil;
+
 import java.io.File;
 
 import javax.inject.Inject;
@@ -51,6 +55,16 @@ public class SignatureFileBrowser {
         return new File(fileBrowser.getExistingAppInternalFolder(context, DIR_TMP), fileName);
     }
 
+    /**
+     * @return a new file in the media folder, where the signature of a response is kept until it
+     * is uploaded along with the other media files
+     */
+    @NonNull
+    public static File getSignatureMediaFile() {
+        String fileName = PlatformUtil.uuid() + ConstantUtil.PNG_SUFFIX;
+        return new File(FileUtil.getFilesDir(FileUtil.FileType.MEDIA), fileName);
+    }
+
     private String generateSignatureFileName(String sizeSuffix, String questionId,
             String datapointId) {
         return SIGNATURE_IMAGE_PREFIX + questionId + "_" + datapointId + "_" + sizeSuffix
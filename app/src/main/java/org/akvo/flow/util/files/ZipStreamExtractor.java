@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.util.files;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.akvo.flow.util.FileUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Extracts a zip archive while it is being read (ie: from a network response), without storing
+ * the archive itself.
+ * <p>
+ * Entries are written to temporary files in the destination folder (see {@link PendingFiles}).
+ * The MD5 of the whole archive is computed on the fly, and only once it matches the expected one
+ * are the temporary files renamed to their final names. A truncated or corrupted download never
+ * replaces existing files.
+ */
+public class ZipStreamExtractor {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * @param in          the zip archive, it will be read until the end but not closed
+     * @param dstDir      destination folder
+     * @param expectedMd5 hex MD5 of the archive, if null the checksum is not verified
+     * @return the extracted files, by zip entry name
+     */
+    @NonNull
+    public Map<String, File> extract(@NonNull InputStream in, @NonNull File dstDir,
+            @Nullable String expectedMd5) throws IOException {
+        PendingFiles pendingFiles = new PendingFiles();
+        try {
+            Map<String, File> files = extract(in, dstDir, expectedMd5, pendingFiles);
+            pendingFiles.commit();
+            return files;
+        } finally {
+            pendingFiles.discard();
+        }
+    }
+
+    /**
+     * Same as {@link #extract(InputStream, File, String)}, but the extracted files are left
+     * pending, so they can be committed together with other files
+     *
+     * @param pendingFiles where the extracted files are registered
+     */
+    @NonNull
+    public Map<String, File> extract(@NonNull InputStream in, @NonNull File dstDir,
+            @Nullable String expectedMd5, @NonNull PendingFiles pendingFiles)
+            throws IOException {
+        MessageDigest md5 = getMd5Digest();
+        DigestInputStream digestStream = new DigestInputStream(in, md5);
+        Map<String, File> files = new LinkedHashMap<>();
+        ZipInputStream zis = new ZipInputStream(new NonClosingInputStream(digestStream));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ZipEntry entry;
+        while ((entry = zis.getNextEntry()) != null) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            File file = getFile(dstDir, entry.getName());
+            writeEntry(zis, pendingFiles.add(file), buffer);
+            files.put(entry.getName(), file);
+            zis.closeEntry();
+        }
+
+        // The central directory is not part of any entry, it still needs to be hashed
+        while (digestStream.read(buffer) != -1) {
+            // Read until the end
+        }
+
+        String md5Hex = FileUtil.hexMd5(md5.digest());
+        if (expectedMd5 != null && !expectedMd5.equalsIgnoreCase(md5Hex)) {
+            throw new IOException("Checksum mismatch. Expected: " + expectedMd5
+                    + ". Found: " + md5Hex);
+        }
+        return files;
+    }
+
+    @NonNull
+    private File getFile(@NonNull File dstDir, String entryName) throws IOException {
+        File file = new File(dstDir, entryName);
+        // Zip entries must not escape the destination folder (ie: "../file")
+        if (!file.getCanonicalPath().startsWith(dstDir.getCanonicalPath() + File.separator)) {
+            throw new IOException("Invalid zip entry: " + entryName);
+        }
+        return file;
+    }
+
+    private void writeEntry(@NonNull ZipInputStream zis, @NonNull File file,
+            @NonNull byte[] buffer) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            int read;
+            while ((read = zis.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    @NonNull
+    private MessageDigest getMd5Digest() throws IOException {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * The caller owns the stream: closing the ZipInputStream must not close it
+     */
+    private static class NonClosingInputStream extends FilterInputStream {
+
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+            // Do not close the wrapped stream
+        }
+    }
+}
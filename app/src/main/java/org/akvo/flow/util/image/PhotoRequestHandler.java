@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.util.image;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.media.ExifInterface;
+
+import java.io.File;
+import java.io.IOException;
+
+class PhotoRequestHandler extends ThumbnailRequestHandler {
+
+    public static final String SCHEME_PHOTO = "photo";
+
+    PhotoRequestHandler(@Nullable ThumbnailCache thumbnailCache) {
+        super(SCHEME_PHOTO, thumbnailCache);
+    }
+
+    /**
+     * The photo is decoded sampled down to the thumbnail size, then scaled and rotated as its
+     * EXIF orientation says, as cached thumbnails have no EXIF data
+     */
+    @Nullable
+    @Override
+    Bitmap createThumbnail(@NonNull File media, int size) throws IOException {
+        String path = media.getPath();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        int longestSide = Math.max(options.outWidth, options.outHeight);
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = 1;
+        while (longestSide / (options.inSampleSize * 2) >= size) {
+            options.inSampleSize *= 2;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(path, options);
+        if (bitmap == null) {
+            return null;
+        }
+
+        Matrix matrix = new Matrix();
+        float scale = (float) size / Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (scale < 1) {
+            matrix.postScale(scale, scale);
+        }
+        int rotation = getRotation(path);
+        if (rotation != 0) {
+            matrix.postRotate(rotation);
+        }
+        if (matrix.isIdentity()) {
+            return bitmap;
+        }
+        Bitmap thumbnail = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(),
+                bitmap.getHeight(), matrix, true);
+        if (thumbnail != bitmap) {
+            bitmap.recycle();
+        }
+        return thumbnail;
+    }
+
+    private int getRotation(String path) throws IOException {
+        ExifInterface exif = new ExifInterface(path);
+        switch (exif.getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                ExifInterface.ORIENTATION_NORMAL)) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                return 90;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                return 180;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                return 270;
+            default:
+                return 0;
+        }
+    }
+}
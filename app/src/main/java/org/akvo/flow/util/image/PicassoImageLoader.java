@@ -22,6 +22,7 @@ package org.akvo.flow.util.image;
 
 import android.app.Activity;
 import android.content.Context;
+import android.support.annotation.Nullable;
 import android.widget.ImageView;
 
 import com.squareup.picasso.Callback;
@@ -38,17 +39,25 @@ public class PicassoImageLoader implements ImageLoader<PicassoImageTarget> {
     private final Picasso requestManager;
 
     public PicassoImageLoader(Context context) {
-        requestManager = getPicassoBuilder(context);
+        requestManager = getPicassoBuilder(context, null);
     }
 
     public PicassoImageLoader(Activity activity) {
-        requestManager = getPicassoBuilder(activity);
+        requestManager = getPicassoBuilder(activity, null);
     }
 
-    private Picasso getPicassoBuilder(Context context) {
+    /**
+     * Thumbnails are created once and then read from the given cache
+     */
+    public PicassoImageLoader(Context context, ThumbnailCache thumbnailCache) {
+        requestManager = getPicassoBuilder(context, thumbnailCache);
+    }
+
+    private Picasso getPicassoBuilder(Context context, @Nullable ThumbnailCache thumbnailCache) {
         return new Picasso.Builder(context)
                 .loggingEnabled(BuildConfig.DEBUG)
-                .addRequestHandler(new VideoRequestHandler())
+                .addRequestHandler(new VideoRequestHandler(thumbnailCache))
+                .addRequestHandler(new PhotoRequestHandler(thumbnailCache))
                 .addRequestHandler(new Base64RequestHandler())
                 .build();
     }
@@ -63,6 +72,12 @@ public class PicassoImageLoader implements ImageLoader<PicassoImageTarget> {
         requestManager.load(file).into(imageView);
     }
 
+    @Override
+    public void loadThumbnail(File file, ImageView imageView) {
+        requestManager.load(PhotoRequestHandler.SCHEME_PHOTO + ":" + file.getAbsolutePath())
+                .into(imageView);
+    }
+
     @Override
     public void loadVideoThumbnail(final String filepath, ImageView imageView,
             final ImageLoaderListener listener) {
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.util.image;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Thumbnails of the photo and video responses, stored in the cache folder so that they are
+ * created once, when the media is captured or downloaded, instead of every time a form is
+ * displayed. Entries are named after the path, length and modification date of the media and
+ * the size of the thumbnail, so that a modified media gets a new thumbnail. The cache is
+ * bounded in bytes, and the entries used the longest ago are removed first, also across
+ * restarts as their modification date is updated when used.
+ */
+@Singleton
+public class ThumbnailCache {
+
+    private static final String DIRECTORY = "thumbnails";
+    private static final String EXTENSION = ".jpg";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final long MAX_BYTES = 20 * 1024 * 1024;
+
+    private final File directory;
+    private final long maxBytes;
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private boolean loaded;
+
+    @Inject
+    public ThumbnailCache(Context context) {
+        this(new File(context.getCacheDir(), DIRECTORY), MAX_BYTES);
+    }
+
+    ThumbnailCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the thumbnail of the given size for the media, null if not created yet
+     */
+    @Nullable
+    public synchronized File get(@NonNull File media, int size) {
+        load();
+        String name = getName(media, size);
+        if (entries.get(name) == null) {
+            return null;
+        }
+        File entry = new File(directory, name);
+        if (!entry.exists()) {
+            bytes -= entries.remove(name);
+            return null;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        entry.setLastModified(System.currentTimeMillis());
+        return entry;
+    }
+
+    /**
+     * @return a new file in the cache folder, where a thumbnail can be written before adding it
+     * with {@link #put(File, File, int)}
+     */
+    @NonNull
+    public synchronized File createTempFile() throws IOException {
+        load();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        return File.createTempFile("thumbnail", TEMP_EXTENSION, directory);
+    }
+
+    /**
+     * Adds the thumbnail written to the given temporary file, removing the least recently used
+     * ones if the cache grows over its size
+     *
+     * @return the thumbnail file
+     */
+    @NonNull
+    public synchronized File put(@NonNull File media, int size, @NonNull File tempFile)
+            throws IOException {
+        load();
+        String name = getName(media, size);
+        File entry = new File(directory, name);
+        Long previous = entries.remove(name);
+        if (previous != null) {
+            bytes -= previous;
+        }
+        if (entry.exists() && !entry.delete() || !tempFile.renameTo(entry)) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            throw new IOException("Could not add thumbnail " + name);
+        }
+        long length = entry.length();
+        entries.put(name, length);
+        bytes += length;
+        trim();
+        return entry;
+    }
+
+    synchronized long getBytes() {
+        load();
+        return bytes;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            bytes -= eldest.getValue();
+            //noinspection ResultOfMethodCallIgnored
+            new File(directory, eldest.getKey()).delete();
+        }
+    }
+
+    /**
+     * Reads the existing entries, least recently used first, and removes the temporary files
+     * left by interrupted writes
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                long modified1 = file1.lastModified();
+                long modified2 = file2.lastModified();
+                return modified1 < modified2 ? -1 : (modified1 == modified2 ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(EXTENSION)) {
+                long length = file.length();
+                entries.put(name, length);
+                bytes += length;
+            } else if (name.endsWith(TEMP_EXTENSION)) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        trim();
+    }
+
+    @NonNull
+    private String getName(File media, int size) {
+        String key = media.getAbsolutePath() + "|" + media.length() + "|" + media.lastModified()
+                + "|" + size;
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest) {
+                name.append(String.format("%02x", b));
+            }
+            return name.append(EXTENSION).toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            return Integer.toHexString(key.hashCode()) + EXTENSION;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.util.image;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.Request;
+import com.squareup.picasso.RequestHandler;
+
+import org.akvo.flow.util.FileUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import timber.log.Timber;
+
+/**
+ * Loads the thumbnail of a media file from the {@link ThumbnailCache}, creating and adding it
+ * the first time
+ */
+abstract class ThumbnailRequestHandler extends RequestHandler {
+
+    static final int THUMBNAIL_SIZE = 512;
+    private static final int THUMBNAIL_QUALITY = 80;
+
+    private final String scheme;
+
+    @Nullable
+    private final ThumbnailCache thumbnailCache;
+
+    ThumbnailRequestHandler(String scheme, @Nullable ThumbnailCache thumbnailCache) {
+        this.scheme = scheme;
+        this.thumbnailCache = thumbnailCache;
+    }
+
+    @Override
+    public boolean canHandleRequest(Request data) {
+        return scheme.equals(data.uri.getScheme());
+    }
+
+    @Override
+    public Result load(Request data, int networkPolicy) throws IOException {
+        File media = new File(data.uri.getPath());
+        if (thumbnailCache != null) {
+            File cached = thumbnailCache.get(media, THUMBNAIL_SIZE);
+            Bitmap bitmap = cached != null ? BitmapFactory.decodeFile(cached.getPath()) : null;
+            if (bitmap != null) {
+                return new Result(bitmap, Picasso.LoadedFrom.DISK);
+            }
+        }
+        Bitmap thumbnail = createThumbnail(media, THUMBNAIL_SIZE);
+        if (thumbnail == null) {
+            throw new IOException("Could not create thumbnail of " + media.getName());
+        }
+        if (thumbnailCache != null) {
+            save(thumbnailCache, media, thumbnail);
+        }
+        return new Result(thumbnail, Picasso.LoadedFrom.DISK);
+    }
+
+    /**
+     * @return the thumbnail of the media, its longest side at most the given size, or null if
+     * the media can not be read
+     */
+    @Nullable
+    abstract Bitmap createThumbnail(@NonNull File media, int size) throws IOException;
+
+    private void save(ThumbnailCache thumbnailCache, File media, Bitmap thumbnail) {
+        OutputStream out = null;
+        try {
+            File tempFile = thumbnailCache.createTempFile();
+            out = new FileOutputStream(tempFile);
+            boolean compressed = thumbnail.compress(Bitmap.CompressFormat.JPEG,
+                    THUMBNAIL_QUALITY, out);
+            FileUtil.close(out);
+            out = null;
+            if (compressed) {
+                thumbnailCache.put(media, THUMBNAIL_SIZE, tempFile);
+            } else {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            Timber.e(e, "Error caching thumbnail of %s", media.getName());
+        } finally {
+            FileUtil.close(out);
+        }
+    }
+}
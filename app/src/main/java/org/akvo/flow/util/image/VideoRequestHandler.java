@@ -23,27 +23,26 @@ package org.akvo.flow.util.image;
 import android.graphics.Bitmap;
 import android.media.ThumbnailUtils;
 import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
-import com.squareup.picasso.Picasso;
-import com.squareup.picasso.Request;
-import com.squareup.picasso.RequestHandler;
+import java.io.File;
 
-import java.io.IOException;
-
-class VideoRequestHandler extends RequestHandler {
+class VideoRequestHandler extends ThumbnailRequestHandler {
 
     public static final String SCHEME_VIDEO = "video";
 
-    @Override
-    public boolean canHandleRequest(Request data) {
-        String scheme = data.uri.getScheme();
-        return (SCHEME_VIDEO.equals(scheme));
+    VideoRequestHandler(@Nullable ThumbnailCache thumbnailCache) {
+        super(SCHEME_VIDEO, thumbnailCache);
     }
 
+    /**
+     * Mini thumbnails are at most 512 pixels wide, the size of the cached thumbnails
+     */
+    @Nullable
     @Override
-    public Result load(Request data, int arg1) throws IOException {
-        Bitmap bm = ThumbnailUtils
-                .createVideoThumbnail(data.uri.getPath(), MediaStore.Images.Thumbnails.MINI_KIND);
-        return new Result(bm, Picasso.LoadedFrom.DISK);
+    Bitmap createThumbnail(@NonNull File media, int size) {
+        return ThumbnailUtils
+                .createVideoThumbnail(media.getPath(), MediaStore.Images.Thumbnails.MINI_KIND);
     }
 }
@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.async;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MediaDownloadQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final List<String> downloaded = new ArrayList<>();
+    private final Executor directExecutor = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private final InMemoryPrefetchStore prefetchStore = new InMemoryPrefetchStore();
+
+    private MediaDownloadQueue queue;
+
+    @Before
+    public void setUp() {
+        // The ordering tests should not spend the budget
+        queue = createQueue(1024);
+    }
+
+    @Test
+    public void downloadShouldRunAtMostMaxConcurrentDownloads() {
+        queue.download(file("1.jpg"), new Listener());
+        queue.download(file("2.jpg"), new Listener());
+        queue.download(file("3.jpg"), new Listener());
+
+        assertEquals(2, tasks.size());
+        assertEquals(1, queue.getPendingCount());
+
+        runAll();
+
+        assertEquals(Arrays.asList("1.jpg", "2.jpg", "3.jpg"), downloaded);
+    }
+
+    @Test
+    public void downloadShouldDownloadFileOnceAndNotifyAllListeners() {
+        Listener listener1 = new Listener();
+        Listener listener2 = new Listener();
+
+        queue.download(file("1.jpg"), listener1);
+        queue.download(file("1.jpg"), listener2);
+        runAll();
+
+        assertEquals(Collections.singletonList("1.jpg"), downloaded);
+        assertEquals(Collections.singletonList(true), listener1.results);
+        assertEquals(Collections.singletonList(true), listener2.results);
+    }
+
+    @Test
+    public void downloadShouldRunBeforePrefetchedFiles() {
+        queue.download(file("1.jpg"), new Listener());
+        queue.download(file("2.jpg"), new Listener());
+        queue.prefetch(Arrays.asList(file("3.jpg"), file("4.jpg")));
+        queue.download(file("5.jpg"), new Listener());
+
+        runAll();
+
+        assertEquals(Arrays.asList("1.jpg", "2.jpg", "5.jpg", "3.jpg", "4.jpg"), downloaded);
+    }
+
+    @Test
+    public void downloadShouldPromotePrefetchedFile() {
+        queue.download(file("1.jpg"), new Listener());
+        queue.download(file("2.jpg"), new Listener());
+        queue.prefetch(Arrays.asList(file("3.jpg"), file("4.jpg")));
+        Listener listener = new Listener();
+        queue.download(file("4.jpg"), listener);
+
+        runAll();
+
+        assertEquals(Arrays.asList("1.jpg", "2.jpg", "4.jpg", "3.jpg"), downloaded);
+        assertEquals(Collections.singletonList(true), listener.results);
+    }
+
+    @Test
+    public void cancelShouldDropPendingDownloadAndStopNotifying() {
+        Listener running = new Listener();
+        Listener pending = new Listener();
+        queue.download(file("1.jpg"), running);
+        queue.download(file("2.jpg"), new Listener());
+        queue.download(file("3.jpg"), pending);
+
+        queue.cancel(running);
+        queue.cancel(pending);
+        runAll();
+
+        assertEquals(Arrays.asList("1.jpg", "2.jpg"), downloaded);
+        assertTrue(running.results.isEmpty());
+        assertTrue(pending.results.isEmpty());
+    }
+
+    @Test
+    public void prefetchShouldSkipExistingFiles() throws IOException {
+        File existing = folder.newFile("1.jpg");
+
+        queue.prefetch(Arrays.asList(existing, file("2.jpg")));
+        runAll();
+
+        assertEquals(Collections.singletonList("2.jpg"), downloaded);
+    }
+
+    @Test
+    public void prefetchShouldStopOnceBudgetIsSpent() {
+        queue = createQueue(15);
+        queue.prefetch(Arrays.asList(file("1.jpg"), file("2.jpg"), file("3.jpg"),
+                file("4.jpg")));
+
+        runAll();
+
+        // Once 1.jpg is downloaded 3.jpg starts, and 2.jpg then spends the budget of 15 bytes
+        assertEquals(Arrays.asList("1.jpg", "2.jpg", "3.jpg"), downloaded);
+        assertEquals(0, queue.getPendingCount());
+        // The files of the form being opened are not deleted to make room
+        assertTrue(file("1.jpg").exists());
+        assertTrue(file("2.jpg").exists());
+    }
+
+    @Test
+    public void prefetchShouldNotCountOtherMedia() throws IOException {
+        queue = createQueue(15);
+        FileOutputStream out = new FileOutputStream(folder.newFile("photo.jpg"));
+        out.write(new byte[20]);
+        out.close();
+
+        queue.prefetch(Collections.singletonList(file("1.jpg")));
+        runAll();
+
+        assertEquals(Collections.singletonList("1.jpg"), downloaded);
+        assertTrue(file("photo.jpg").exists());
+    }
+
+    @Test
+    public void prefetchShouldNotCountDisplayedFiles() {
+        queue = createQueue(15);
+        queue.download(file("1.jpg"), new Listener());
+        queue.download(file("2.jpg"), new Listener());
+        runAll();
+
+        queue.prefetch(Collections.singletonList(file("3.jpg")));
+        runAll();
+
+        assertEquals(Arrays.asList("1.jpg", "2.jpg", "3.jpg"), downloaded);
+    }
+
+    @Test
+    public void prefetchShouldDeleteLeastRecentlyPrefetchedFiles() {
+        queue = createQueue(25);
+        queue.prefetch(Collections.singletonList(file("1.jpg")));
+        runAll();
+        queue.prefetch(Collections.singletonList(file("2.jpg")));
+        runAll();
+        queue.prefetch(Collections.singletonList(file("3.jpg")));
+        runAll();
+        // 1.jpg, 2.jpg and 3.jpg spend the budget of 25 bytes, 1.jpg is opened again
+        queue.prefetch(Collections.singletonList(file("1.jpg")));
+        queue.prefetch(Collections.singletonList(file("4.jpg")));
+        runAll();
+
+        assertEquals(Arrays.asList("1.jpg", "2.jpg", "3.jpg", "4.jpg"), downloaded);
+        assertTrue(file("1.jpg").exists());
+        assertFalse(file("2.jpg").exists());
+        assertTrue(file("3.jpg").exists());
+        assertTrue(file("4.jpg").exists());
+    }
+
+    @Test
+    public void prefetchShouldKeepCountingFilesPrefetchedBeforeRestart() {
+        queue = createQueue(15);
+        queue.prefetch(Arrays.asList(file("1.jpg"), file("2.jpg")));
+        runAll();
+
+        queue = createQueue(15);
+        queue.prefetch(Collections.singletonList(file("3.jpg")));
+        runAll();
+
+        // 1.jpg and 2.jpg still spend the budget of 15 bytes, 1.jpg makes room for 3.jpg
+        assertEquals(Arrays.asList("1.jpg", "2.jpg", "3.jpg"), downloaded);
+        assertFalse(file("1.jpg").exists());
+        assertTrue(file("2.jpg").exists());
+        assertTrue(file("3.jpg").exists());
+    }
+
+    @Test
+    public void prefetchShouldStartWithMostRecentFiles() {
+        queue.download(file("1.jpg"), new Listener());
+        queue.download(file("2.jpg"), new Listener());
+        queue.prefetch(Collections.singletonList(file("3.jpg")));
+        queue.prefetch(Collections.singletonList(file("4.jpg")));
+
+        runAll();
+
+        assertEquals(Arrays.asList("1.jpg", "2.jpg", "4.jpg"), downloaded.subList(0, 3));
+    }
+
+    private MediaDownloadQueue createQueue(long budget) {
+        MediaDownloadQueue.Downloader downloader = new MediaDownloadQueue.Downloader() {
+            @Override
+            public boolean download(@NonNull File file) {
+                downloaded.add(file.getName());
+                try {
+                    FileOutputStream out = new FileOutputStream(file);
+                    out.write(new byte[10]);
+                    out.close();
+                    return true;
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+        };
+        Executor queuedExecutor = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                tasks.add(command);
+            }
+        };
+        return new MediaDownloadQueue(downloader, queuedExecutor, directExecutor, 2, budget,
+                prefetchStore);
+    }
+
+    private void runAll() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private File file(String name) {
+        return new File(folder.getRoot(), name);
+    }
+
+    private static class InMemoryPrefetchStore implements MediaDownloadQueue.PrefetchStore {
+
+        String prefetchedFiles;
+
+        @Override
+        public String load() {
+            return prefetchedFiles;
+        }
+
+        @Override
+        public void save(@NonNull String prefetchedFiles) {
+            this.prefetchedFiles = prefetchedFiles;
+        }
+    }
+
+    private static class Listener implements MediaDownloadQueue.DownloadListener {
+
+        final List<Boolean> results = new ArrayList<>();
+
+        @Override
+        public void onResourceDownload(boolean done) {
+            results.add(done);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.database.cascade;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class NodeIndexesTest {
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        Statement statement = connection.createStatement();
+        statement.execute("CREATE TABLE nodes (id integer PRIMARY KEY, code text, name text,"
+                + " parent integer)");
+        statement.execute("INSERT INTO nodes VALUES (1, 'R1', 'Coast Region', 0)");
+        statement.execute("INSERT INTO nodes VALUES (2, 'D1', 'Lower District', 1)");
+        statement.execute("INSERT INTO nodes VALUES (3, 'V1', 'Saint Mary Village', 2)");
+        statement.execute("INSERT INTO nodes VALUES (4, 'V2', 'Mary Hill', 2)");
+        statement.close();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void searchShouldMatchWordPrefixes() throws SQLException {
+        createIndexes();
+
+        assertEquals(Arrays.asList("Mary Hill", "Saint Mary Village"), search("mar"));
+        assertEquals(Arrays.asList("Saint Mary Village"), search("Mar vill"));
+        assertEquals(Arrays.asList("Lower District"), search("DIST"));
+    }
+
+    @Test
+    public void searchShouldNotMatchInsideWords() throws SQLException {
+        createIndexes();
+
+        assertEquals(new ArrayList<String>(), search("ary"));
+    }
+
+    @Test
+    public void createIndexesShouldRebuildSearchTable() throws SQLException {
+        createIndexes();
+        execute("UPDATE nodes SET name = 'Upper District' WHERE id = 2");
+
+        createIndexes();
+
+        assertEquals(Arrays.asList("Upper District"), search("district"));
+    }
+
+    @Test
+    public void matchQueryShouldDropQuerySyntax() {
+        assertEquals("saint* mary*", NodeIndexes.getMatchQuery("  Saint-Mary\" "));
+        assertEquals("são* 12*", NodeIndexes.getMatchQuery("São 12*"));
+        assertNull(NodeIndexes.getMatchQuery(" *\"- "));
+        assertNull(NodeIndexes.getMatchQuery(null));
+    }
+
+    private void createIndexes() throws SQLException {
+        for (String sql : NodeIndexes.getCreateSql()) {
+            execute(sql);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        statement.execute(sql);
+        statement.close();
+    }
+
+    private List<String> search(String text) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(NodeIndexes.getSearchSql(10));
+        statement.setString(1, NodeIndexes.getMatchQuery(text));
+        ResultSet result = statement.executeQuery();
+        List<String> names = new ArrayList<>();
+        while (result.next()) {
+            names.add(result.getString("name"));
+        }
+        statement.close();
+        return names;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.loader;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.akvo.flow.data.loader.models.Stats;
+import org.akvo.flow.database.StatsTable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static junit.framework.Assert.assertEquals;
+
+@SmallTest
+public class StatsCalculatorTest {
+
+    private static final long HOUR_MS = 60 * 60 * 1000;
+
+    private Calendar now;
+
+    @Before
+    public void setUp() {
+        // UTC+5:30, to check local days do not follow UTC days
+        now = Calendar.getInstance(TimeZone.getTimeZone("Asia/Kolkata"));
+        now.set(2018, Calendar.APRIL, 10, 15, 20, 0);
+        now.set(Calendar.MILLISECOND, 0);
+    }
+
+    @Test
+    public void getSinceTime_ShouldReturnOldestLocalMidnight() {
+        StatsCalculator calculator = new StatsCalculator(7, now);
+
+        Calendar expected = (Calendar) now.clone();
+        expected.set(2018, Calendar.APRIL, 4, 0, 0, 0);
+        assertEquals(expected.getTimeInMillis(), calculator.getSinceTime());
+        assertEquals(0, calculator.getSinceTime() % StatsTable.BUCKET_MS);
+    }
+
+    @Test
+    public void add_ShouldCountOldBucketsOnlyInTotal() {
+        StatsCalculator calculator = new StatsCalculator(7, now);
+
+        calculator.add(StatsTable.KIND_RECORD_MODIFIED, -1, 40);
+        calculator.add(StatsTable.KIND_FORM_SUBMITTED, -1, 10);
+
+        Stats stats = calculator.getStats();
+        assertEquals(40, stats.mTotal);
+        assertEquals(0, stats.mThisWeek);
+        assertEquals(0, stats.mToday);
+        assertEquals(0, stats.mDays.get(6).mSubmitted);
+    }
+
+    @Test
+    public void add_ShouldSplitBucketsByLocalDay() {
+        StatsCalculator calculator = new StatsCalculator(7, now);
+        long today = calculator.getStats().mDays.get(0).mDate;
+
+        // Just after and just before local midnight
+        calculator.add(StatsTable.KIND_RECORD_MODIFIED, bucket(today), 3);
+        calculator.add(StatsTable.KIND_RECORD_MODIFIED, bucket(today) - 1, 2);
+        calculator.add(StatsTable.KIND_FORM_SYNCED, bucket(today + HOUR_MS), 5);
+        calculator.add(StatsTable.KIND_FORM_EXPORTED, bucket(today - 20 * HOUR_MS), 4);
+
+        Stats stats = calculator.getStats();
+        assertEquals(5, stats.mTotal);
+        assertEquals(5, stats.mThisWeek);
+        assertEquals(3, stats.mToday);
+        assertEquals(3, stats.mDays.get(0).mModified);
+        assertEquals(5, stats.mDays.get(0).mSynced);
+        assertEquals(2, stats.mDays.get(1).mModified);
+        assertEquals(4, stats.mDays.get(1).mExported);
+    }
+
+    @Test
+    public void add_ShouldCountFutureBucketsAsToday() {
+        StatsCalculator calculator = new StatsCalculator(7, now);
+
+        calculator.add(StatsTable.KIND_FORM_SUBMITTED,
+                bucket(now.getTimeInMillis() + 48 * HOUR_MS), 1);
+
+        assertEquals(1, calculator.getStats().mDays.get(0).mSubmitted);
+    }
+
+    private long bucket(long time) {
+        return time / StatsTable.BUCKET_MS;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.domain;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DependencyTest {
+
+    @Test
+    public void isMatchShouldMatchAnyOfTheAnswers() {
+        Dependency dependency = createDependency("yes | maybe");
+
+        assertTrue(dependency.isMatch("[{\"text\":\"maybe\",\"code\":\"M\"}]"));
+        assertTrue(dependency.isMatch("[{\"text\":\"no\"},{\"text\":\" yes \"}]"));
+        assertFalse(dependency.isMatch("[{\"text\":\"no\"}]"));
+    }
+
+    @Test
+    public void isMatchShouldMatchResponsesInOldFormat() {
+        Dependency dependency = createDependency("yes");
+
+        assertTrue(dependency.isMatch("no|yes"));
+        assertFalse(dependency.isMatch("no"));
+    }
+
+    @Test
+    public void isMatchShouldNotReuseResultsOfPreviousAnswer() {
+        Dependency dependency = createDependency("yes");
+        assertTrue(dependency.isMatch("yes"));
+
+        dependency.setAnswer("no");
+
+        assertFalse(dependency.isMatch("yes"));
+        assertTrue(dependency.isMatch("no"));
+    }
+
+    @Test
+    public void isMatchShouldHandleMissingValues() {
+        assertFalse(createDependency("yes").isMatch(null));
+        assertTrue(createDependency(null).isMatch(null));
+        assertFalse(createDependency(null).isMatch("yes"));
+    }
+
+    private Dependency createDependency(String answer) {
+        Dependency dependency = new Dependency();
+        dependency.setQuestion("1");
+        dependency.setAnswer(answer);
+        return dependency;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.presentation.datapoints.list;
+
+import org.akvo.flow.domain.entity.DataPointPage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ListWindowTest {
+
+    private static final int PAGE_SIZE = 3;
+    private static final int MAX_PAGES = 2;
+
+    private ListWindow window;
+
+    @Before
+    public void setUp() {
+        window = new ListWindow(PAGE_SIZE, MAX_PAGES);
+        window.set(keys(0, 3), key(2));
+    }
+
+    @Test
+    public void appendShouldKeepPagesWithinLimit() {
+        assertEquals(0, window.append(keys(3, 6), key(5)));
+
+        assertEquals(6, window.size());
+        assertFalse(window.hasPrevious());
+        assertNull(window.getStartKey());
+    }
+
+    @Test
+    public void appendShouldDropFirstPageOverLimit() {
+        window.append(keys(3, 6), key(5));
+
+        assertEquals(3, window.append(keys(6, 9), key(8)));
+
+        assertEquals(ids(3, 9), ids(window.getKeys()));
+        assertEquals("2", window.getStartKey().getId());
+        assertTrue(window.hasPrevious());
+        assertNull(window.getPreviousKey());
+        assertEquals("8", window.getNextKey().getId());
+    }
+
+    @Test
+    public void prependShouldRestoreDroppedPage() {
+        window.append(keys(3, 6), key(5));
+        window.append(keys(6, 9), key(8));
+        window.append(keys(9, 12), key(11));
+
+        assertEquals("2", window.getPreviousKey().getId());
+        assertEquals(3, window.prepend(keys(3, 6)));
+        assertEquals(3, window.trimEnd());
+
+        assertEquals(ids(3, 9), ids(window.getKeys()));
+        assertEquals("2", window.getStartKey().getId());
+        assertEquals("8", window.getNextKey().getId());
+        assertTrue(window.hasPrevious());
+    }
+
+    @Test
+    public void prependShouldSkipDisplayedDataPoints() {
+        window.append(keys(3, 6), key(5));
+        window.append(keys(6, 9), key(8));
+        // datapoint 1 was deleted since its page was dropped
+        List<DataPointPage.Key> page = new ArrayList<>();
+        page.add(key(0));
+        page.add(key(2));
+        page.add(key(3));
+
+        assertEquals(2, window.prepend(page));
+
+        List<String> expected = new ArrayList<>();
+        expected.add("0");
+        expected.add("2");
+        expected.addAll(ids(3, 9));
+        assertEquals(expected, ids(window.getKeys()));
+        assertNull(window.getStartKey());
+        assertFalse(window.hasPrevious());
+    }
+
+    @Test
+    public void trimEndShouldKeepShortList() {
+        assertEquals(0, window.trimEnd());
+
+        assertEquals("2", window.getNextKey().getId());
+    }
+
+    @Test
+    public void resetShouldMoveBackToStart() {
+        window.append(keys(3, 6), key(5));
+        window.append(keys(6, 9), key(8));
+
+        window.reset();
+
+        assertEquals(0, window.size());
+        assertFalse(window.hasPrevious());
+        assertNull(window.getStartKey());
+        assertNull(window.getNextKey());
+    }
+
+    private static DataPointPage.Key key(int id) {
+        return new DataPointPage.Key(null, String.valueOf(id));
+    }
+
+    private static List<DataPointPage.Key> keys(int from, int to) {
+        List<DataPointPage.Key> keys = new ArrayList<>();
+        for (int id = from; id < to; id++) {
+            keys.add(key(id));
+        }
+        return keys;
+    }
+
+    private static List<String> ids(int from, int to) {
+        return ids(keys(from, to));
+    }
+
+    private static List<String> ids(List<DataPointPage.Key> keys) {
+        List<String> ids = new ArrayList<>();
+        for (DataPointPage.Key key : keys) {
+            ids.add(key.getId());
+        }
+        return ids;
+    }
+}
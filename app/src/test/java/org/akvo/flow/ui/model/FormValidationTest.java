@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.ui.model;
+
+import org.akvo.flow.domain.Dependency;
+import org.akvo.flow.domain.Question;
+import org.akvo.flow.domain.QuestionGroup;
+import org.akvo.flow.domain.QuestionResponse;
+import org.akvo.flow.util.ConstantUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FormValidationTest {
+
+    private QuestionGroup group;
+    private QuestionGroup repeatableGroup;
+    private Map<String, QuestionResponse> responses;
+    private FormValidation validation;
+
+    @Before
+    public void setUp() {
+        group = createGroup(false,
+                createQuestion("1", false, null),
+                createQuestion("2", true, null),
+                createQuestion("3", true, "1"));
+        repeatableGroup = createGroup(true,
+                createQuestion("4", false, null),
+                createQuestion("5", true, "4"),
+                createQuestion("6", true, "1"));
+        responses = new HashMap<>();
+        validation = new FormValidation(Arrays.asList(group, repeatableGroup));
+    }
+
+    @Test
+    public void loadShouldFindMandatoryQuestionsWithoutResponse() {
+        validation.load(responses);
+
+        assertFalse(validation.isValid());
+        assertEquals(Arrays.asList("2"), getInvalidIds());
+    }
+
+    @Test
+    public void onResponseChangedShouldValidateAnsweredQuestion() {
+        validation.load(responses);
+
+        answer("2", "value");
+
+        assertTrue(validation.isValid());
+        assertNull(validation.getFirstInvalidQuestion());
+
+        responses.remove("2");
+        validation.onResponseChanged("2");
+
+        assertEquals("2", validation.getFirstInvalidQuestion().getId());
+    }
+
+    @Test
+    public void onResponseChangedShouldValidateDependentQuestions() {
+        validation.load(responses);
+
+        answer("1", "yes");
+
+        assertEquals(Arrays.asList("2", "3", "6|0"), getInvalidIds());
+
+        answer("1", "no");
+
+        assertEquals(Arrays.asList("2"), getInvalidIds());
+    }
+
+    @Test
+    public void setQuestionErrorShouldInvalidateQuestion() {
+        answer("2", "value");
+        validation.load(responses);
+
+        validation.setQuestionError("1", true);
+
+        assertEquals(Arrays.asList("1"), getInvalidIds());
+
+        validation.setQuestionError("1", false);
+
+        assertTrue(validation.isValid());
+    }
+
+    @Test
+    public void setQuestionErrorShouldIgnoreQuestionsWithUnsatisfiedDependencies() {
+        answer("2", "value");
+        validation.load(responses);
+
+        validation.setQuestionError("3", true);
+
+        assertTrue(validation.isValid());
+    }
+
+    @Test
+    public void loadShouldCreateRepetitionsOfResponses() {
+        answer("2", "value");
+        answer("4|0", "yes");
+        answer("4|2", "yes");
+        validation.load(responses);
+
+        assertEquals(Arrays.asList("5|0", "5|2"), getInvalidIds());
+    }
+
+    @Test
+    public void dependenciesShouldApplyToSameRepetition() {
+        answer("2", "value");
+        validation.load(responses);
+
+        validation.addRepetition(repeatableGroup, 1);
+        answer("4|1", "yes");
+
+        assertEquals(Arrays.asList("5|1"), getInvalidIds());
+
+        answer("5|1", "value");
+
+        assertTrue(validation.isValid());
+    }
+
+    @Test
+    public void removeRepetitionShouldRemoveItsQuestions() {
+        answer("2", "value");
+        answer("4|0", "yes");
+        answer("4|1", "yes");
+        validation.load(responses);
+
+        validation.removeRepetition("4", 0);
+
+        assertEquals(Arrays.asList("5|1"), getInvalidIds());
+    }
+
+    private void answer(String responseKey, String value) {
+        String[] ids = responseKey.split("\\|");
+        int iteration = ids.length > 1 ? Integer.parseInt(ids[1])
+                : QuestionResponse.NO_ITERATION;
+        responses.put(responseKey, new QuestionResponse.QuestionResponseBuilder()
+                .setValue(value)
+                .setType(ConstantUtil.VALUE_RESPONSE_TYPE)
+                .setQuestionId(ids[0])
+                .setIteration(iteration)
+                .createQuestionResponse());
+        validation.onResponseChanged(responseKey);
+    }
+
+    private List<String> getInvalidIds() {
+        List<String> ids = new ArrayList<>();
+        for (Question question : validation.getInvalidQuestions()) {
+            ids.add(question.getId());
+        }
+        return ids;
+    }
+
+    private QuestionGroup createGroup(boolean repeatable, Question... questions) {
+        QuestionGroup questionGroup = new QuestionGroup();
+        questionGroup.setRepeatable(repeatable);
+        for (Question question : questions) {
+            questionGroup.addQuestion(question);
+        }
+        return questionGroup;
+    }
+
+    private Question createQuestion(String id, boolean mandatory, String dependencyId) {
+        Question question = new Question();
+        question.setId(id);
+        question.setMandatory(mandatory);
+        if (dependencyId != null) {
+            Dependency dependency = new Dependency();
+            dependency.setQuestion(dependencyId);
+            dependency.setAnswer("yes");
+            question.addDependency(dependency);
+        }
+        return question;
+    }
+}
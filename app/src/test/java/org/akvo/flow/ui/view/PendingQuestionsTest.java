@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.ui.view;
+
+import org.akvo.flow.domain.Question;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PendingQuestionsTest {
+
+    private PendingQuestions pendingQuestions;
+
+    @Before
+    public void setUp() {
+        pendingQuestions = new PendingQuestions();
+        pendingQuestions.add(question("a|0"), 0);
+        pendingQuestions.add(question("b|0"), 0);
+        pendingQuestions.add(question("a|1"), 1);
+        pendingQuestions.add(question("b|1"), 1);
+    }
+
+    @Test
+    public void questionsShouldBeInflatedInDisplayOrder() {
+        assertEquals("a|0", pendingQuestions.removeFirst().question.getId());
+        assertEquals("b|0", pendingQuestions.removeFirst().question.getId());
+        PendingQuestions.PendingQuestion next = pendingQuestions.removeFirst();
+        assertEquals("a|1", next.question.getId());
+        assertEquals(1, next.repetitionId);
+    }
+
+    @Test
+    public void countShouldIncludeTheQuestionsBeforeTheOneToDisplay() {
+        assertEquals(1, pendingQuestions.countUntil("a|0"));
+        assertEquals(4, pendingQuestions.countUntil("b|1"));
+    }
+
+    @Test
+    public void countShouldBeZeroIfTheQuestionIsNotPending() {
+        pendingQuestions.removeFirst();
+
+        assertEquals(0, pendingQuestions.countUntil("a|0"));
+        assertEquals(0, pendingQuestions.countUntil("c|0"));
+    }
+
+    @Test
+    public void removedRepetitionShouldNotBeInflated() {
+        pendingQuestions.removeRepetition(0);
+
+        assertEquals(0, pendingQuestions.countUntil("b|0"));
+        assertEquals(2, pendingQuestions.countUntil("b|1"));
+        pendingQuestions.removeRepetition(1);
+        assertTrue(pendingQuestions.isEmpty());
+    }
+
+    @Test
+    public void questionsShouldGoAtTheEndWithoutNextRepetition() {
+        Map<Integer, Integer> headerIndexes = new HashMap<>();
+        headerIndexes.put(0, 0);
+        headerIndexes.put(1, 4);
+
+        assertEquals(7, PendingQuestions.getInsertionIndex(Arrays.asList(0, 1), 1, headerIndexes,
+                7));
+    }
+
+    @Test
+    public void questionsShouldGoBeforeTheNextRepetitionHeader() {
+        Map<Integer, Integer> headerIndexes = new HashMap<>();
+        headerIndexes.put(0, 0);
+        headerIndexes.put(2, 3);
+        headerIndexes.put(5, 6);
+
+        List<Integer> repetitionIds = Arrays.asList(0, 2, 5);
+        assertEquals(3, PendingQuestions.getInsertionIndex(repetitionIds, 0, headerIndexes, 8));
+        assertEquals(6, PendingQuestions.getInsertionIndex(repetitionIds, 2, headerIndexes, 8));
+    }
+
+    @Test
+    public void repetitionsWithoutHeaderShouldBeSkipped() {
+        Map<Integer, Integer> headerIndexes = new HashMap<>();
+        headerIndexes.put(0, 0);
+        headerIndexes.put(5, 6);
+
+        assertEquals(6, PendingQuestions.getInsertionIndex(Arrays.asList(0, 2, 5), 0,
+                headerIndexes, 8));
+    }
+
+    @Test
+    public void questionsShouldGoAtTheEndOfNonRepeatableGroups() {
+        assertEquals(3, PendingQuestions.getInsertionIndex(Arrays.<Integer>asList(), 0,
+                new HashMap<Integer, Integer>(), 3));
+    }
+
+    private Question question(String id) {
+        Question question = new Question();
+        question.setId(id);
+        return question;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.util.files;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.akvo.flow.util.FileUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+@SmallTest
+public class PendingFilesTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void commit_ShouldReplaceExistingFiles() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        File file1 = write(new File(dir, "1.xml"), "old");
+        File file2 = new File(dir, "2.xml");
+        PendingFiles pendingFiles = new PendingFiles();
+        write(pendingFiles.add(file1), "new 1");
+        write(pendingFiles.add(file2), "new 2");
+
+        pendingFiles.commit();
+
+        assertEquals("new 1", read(file1));
+        assertEquals("new 2", read(file2));
+        assertEquals(Arrays.asList("1.xml", "2.xml"), list(dir));
+    }
+
+    @Test
+    public void commit_ShouldRestoreFilesWhenOneCanNotBeMoved() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        File file1 = write(new File(dir, "1.xml"), "old");
+        File file2 = new File(dir, "2.xml");
+        PendingFiles pendingFiles = new PendingFiles();
+        write(pendingFiles.add(file1), "new 1");
+        // The temporary file of the second file is never written, so it can not be moved
+        pendingFiles.add(file2);
+
+        try {
+            pendingFiles.commit();
+            fail("The files should not be committed");
+        } catch (IOException e) {
+            // Expected
+        }
+
+        assertEquals("old", read(file1));
+        assertFalse(file2.exists());
+    }
+
+    @Test
+    public void discard_ShouldDeleteTemporaryFiles() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        PendingFiles pendingFiles = new PendingFiles();
+        write(pendingFiles.add(new File(dir, "1.xml")), "new");
+
+        pendingFiles.discard();
+
+        assertTrue(list(dir).isEmpty());
+    }
+
+    private File write(File file, String text) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(text.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private String read(File file) throws IOException {
+        return FileUtil.readText(new FileInputStream(file));
+    }
+
+    private List<String> list(File dir) {
+        String[] names = dir.list();
+        Arrays.sort(names);
+        return Arrays.asList(names);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.util.files;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+@SmallTest
+public class ResourceManifestTest {
+
+    private static final String OBJECT_KEY = "surveys/cascade-123-v1.zip";
+    private static final String ETAG = "d41d8cd98f00b204e9800998ecf8427e";
+    private static final String FILE_NAME = "cascade-123-v1.sqlite";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = temporaryFolder.newFolder();
+        file = new File(dir, FILE_NAME);
+        write(file, "cascade");
+    }
+
+    @Test
+    public void getEtag_ShouldReturnNullForUnknownObject() throws Exception {
+        ResourceManifest manifest = new ResourceManifest(dir);
+
+        assertNull(manifest.getEtag(OBJECT_KEY));
+    }
+
+    @Test
+    public void getEtag_ShouldReturnStoredEtagAfterReload() throws Exception {
+        new ResourceManifest(dir).put(OBJECT_KEY, ETAG, Collections.singletonMap(FILE_NAME, file));
+
+        ResourceManifest manifest = new ResourceManifest(dir);
+
+        assertEquals(ETAG, manifest.getEtag(OBJECT_KEY));
+    }
+
+    @Test
+    public void getEtag_ShouldReturnNullIfFileWasModified() throws Exception {
+        ResourceManifest manifest = new ResourceManifest(dir);
+        manifest.put(OBJECT_KEY, ETAG, Collections.singletonMap(FILE_NAME, file));
+
+        write(file, "modified cascade");
+
+        assertNull(manifest.getEtag(OBJECT_KEY));
+    }
+
+    @Test
+    public void getEtag_ShouldReturnNullIfFileWasDeleted() throws Exception {
+        ResourceManifest manifest = new ResourceManifest(dir);
+        manifest.put(OBJECT_KEY, ETAG, Collections.singletonMap(FILE_NAME, file));
+
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+
+        assertNull(manifest.getEtag(OBJECT_KEY));
+    }
+
+    private void write(File file, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content.getBytes("UTF-8"));
+        out.close();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.util.files;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.akvo.flow.util.FileUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+@SmallTest
+public class ZipStreamExtractorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void extract_ShouldWriteAllEntriesWhenChecksumMatches() throws Exception {
+        byte[] zip = createZip("1234.xml", "<survey/>", "5678.xml", "<survey></survey>");
+        File dstDir = temporaryFolder.newFolder();
+
+        Map<String, File> files = new ZipStreamExtractor()
+                .extract(new ByteArrayInputStream(zip), dstDir, md5(zip));
+
+        assertEquals(2, files.size());
+        assertEquals("<survey/>", FileUtil.readText(new FileInputStream(
+                new File(dstDir, "1234.xml"))));
+        assertEquals(2, dstDir.list().length);
+    }
+
+    @Test
+    public void extract_ShouldSkipVerificationWhenNoChecksum() throws Exception {
+        byte[] zip = createZip("1234.xml", "<survey/>");
+        File dstDir = temporaryFolder.newFolder();
+
+        new ZipStreamExtractor().extract(new ByteArrayInputStream(zip), dstDir, null);
+
+        assertTrue(new File(dstDir, "1234.xml").exists());
+    }
+
+    @Test
+    public void extract_ShouldLeaveNoFilesWhenChecksumDoesNotMatch() throws Exception {
+        byte[] zip = createZip("1234.xml", "<survey/>");
+        File dstDir = temporaryFolder.newFolder();
+
+        try {
+            new ZipStreamExtractor().extract(new ByteArrayInputStream(zip), dstDir,
+                    "00000000000000000000000000000000");
+            fail("Checksum mismatch should throw");
+        } catch (IOException e) {
+            // expected
+        }
+
+        assertEquals(0, dstDir.list().length);
+    }
+
+    @Test
+    public void extract_ShouldRejectEntriesOutsideDestination() throws Exception {
+        byte[] zip = createZip("../evil.xml", "<survey/>");
+        File dstDir = temporaryFolder.newFolder();
+
+        try {
+            new ZipStreamExtractor().extract(new ByteArrayInputStream(zip), dstDir, null);
+            fail("Entry outside the destination folder should throw");
+        } catch (IOException e) {
+            // expected
+        }
+
+        assertFalse(new File(dstDir.getParentFile(), "evil.xml").exists());
+    }
+
+    private byte[] createZip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipOutputStream zos = new ZipOutputStream(out);
+        for (int i = 0; i < namesAndContents.length; i += 2) {
+            zos.putNextEntry(new ZipEntry(namesAndContents[i]));
+            zos.write(namesAndContents[i + 1].getBytes("UTF-8"));
+            zos.closeEntry();
+        }
+        zos.close();
+        return out.toByteArray();
+    }
+
+    private String md5(byte[] data) throws Exception {
+        return FileUtil.hexMd5(MessageDigest.getInstance("MD5").digest(data));
+    }
+}
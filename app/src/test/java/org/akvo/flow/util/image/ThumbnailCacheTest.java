@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.util.image;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ThumbnailCacheTest {
+
+    private static final int SIZE = 512;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private ThumbnailCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("thumbnails");
+        cache = new ThumbnailCache(directory, 25);
+    }
+
+    @Test
+    public void getShouldReturnThumbnailPutForMedia() throws IOException {
+        File media = createMedia("photo.jpg", "photo");
+
+        assertNull(cache.get(media, SIZE));
+
+        File thumbnail = cache.put(media, SIZE, createThumbnail(10));
+
+        assertEquals(thumbnail, cache.get(media, SIZE));
+        assertNull(cache.get(media, 256));
+    }
+
+    @Test
+    public void getShouldIgnoreThumbnailOfModifiedMedia() throws IOException {
+        File media = createMedia("photo.jpg", "photo");
+        cache.put(media, SIZE, createThumbnail(10));
+
+        write(media, "edited photo");
+
+        assertNull(cache.get(media, SIZE));
+    }
+
+    @Test
+    public void putShouldRemoveLeastRecentlyUsedThumbnails() throws IOException {
+        File media1 = createMedia("1.jpg", "1");
+        File media2 = createMedia("2.jpg", "2");
+        File media3 = createMedia("3.jpg", "3");
+        File thumbnail1 = cache.put(media1, SIZE, createThumbnail(10));
+        File thumbnail2 = cache.put(media2, SIZE, createThumbnail(10));
+        cache.get(media1, SIZE);
+
+        cache.put(media3, SIZE, createThumbnail(10));
+
+        assertTrue(thumbnail1.exists());
+        assertFalse(thumbnail2.exists());
+        assertNull(cache.get(media2, SIZE));
+        assertEquals(20, cache.getBytes());
+    }
+
+    @Test
+    public void putShouldReplaceThumbnailOfSameMedia() throws IOException {
+        File media = createMedia("photo.jpg", "photo");
+        cache.put(media, SIZE, createThumbnail(10));
+
+        cache.put(media, SIZE, createThumbnail(5));
+
+        assertEquals(5, cache.getBytes());
+    }
+
+    @Test
+    public void cacheShouldLoadExistingThumbnails() throws IOException {
+        File media = createMedia("photo.jpg", "photo");
+        cache.put(media, SIZE, createThumbnail(10));
+        File tempFile = cache.createTempFile();
+
+        ThumbnailCache reopened = new ThumbnailCache(directory, 25);
+
+        assertNotNull(reopened.get(media, SIZE));
+        assertEquals(10, reopened.getBytes());
+        assertFalse(tempFile.exists());
+    }
+
+    private File createMedia(String name, String content) throws IOException {
+        File file = folder.newFile(name);
+        write(file, content);
+        return file;
+    }
+
+    private File createThumbnail(int length) throws IOException {
+        File file = cache.createTempFile();
+        write(file, new String(new char[length]).replace('\0', 'x'));
+        return file;
+    }
+
+    private void write(File file, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
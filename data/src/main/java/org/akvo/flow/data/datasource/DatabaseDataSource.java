@@ -30,7 +30,6 @@ import com.squareup.sqlbrite2.BriteDatabase;
 import org.akvo.flow.data.entity.ApiDataPoint;
 import org.akvo.flow.data.entity.ApiQuestionAnswer;
 import org.akvo.flow.data.entity.ApiSurveyInstance;
-import org.akvo.flow.database.Constants;
 import org.akvo.flow.database.RecordColumns;
 import org.akvo.flow.database.ResponseColumns;
 import org.akvo.flow.database.SurveyInstanceColumns;
@@ -41,6 +40,7 @@ import org.akvo.flow.database.britedb.BriteSurveyDbAdapter;
 import org.akvo.flow.domain.entity.User;
 
 import java.util.List;
+import java.util.Set;
 
 import javax.inject.Inject;
 
@@ -63,22 +63,61 @@ public class DatabaseDataSource {
         return briteSurveyDbAdapter.deleteSurveyAndGroup(surveyId);
     }
 
-    public Observable<Cursor> getDataPoints(@NonNull Long surveyGroupId, @Nullable Double latitude,
-            @Nullable Double longitude, @Nullable Integer orderBy) {
-        if (isRequestFiltered(orderBy)) {
-            return briteSurveyDbAdapter
-                    .getFilteredDataPoints(surveyGroupId, latitude, longitude, orderBy);
-        } else {
-            return briteSurveyDbAdapter.getDataPoints(surveyGroupId);
-        }
+    public Cursor getDataPointsPage(long surveyGroupId, int orderBy, @Nullable String afterValue,
+            @Nullable String afterId, int limit) {
+        return briteSurveyDbAdapter.getDataPointsPage(surveyGroupId, orderBy, afterValue, afterId,
+                limit);
+    }
+
+    @Nullable
+    public Cursor searchDataPoints(long surveyGroupId, String text, @Nullable String afterValue,
+            @Nullable String afterId, int limit) {
+        return briteSurveyDbAdapter.searchDataPoints(surveyGroupId, text, afterValue, afterId,
+                limit);
+    }
+
+    public Cursor getDataPointIds(long surveyGroupId, int orderBy, @Nullable String afterValue,
+            @Nullable String afterId, int limit) {
+        return briteSurveyDbAdapter.getDataPointIds(surveyGroupId, orderBy, afterValue, afterId,
+                limit);
+    }
+
+    @Nullable
+    public Cursor searchDataPointIds(long surveyGroupId, String text, @Nullable String afterValue,
+            @Nullable String afterId, int limit) {
+        return briteSurveyDbAdapter.searchDataPointIds(surveyGroupId, text, afterValue, afterId,
+                limit);
+    }
+
+    public Cursor getDataPoints(long surveyGroupId, List<String> dataPointIds) {
+        return briteSurveyDbAdapter.getDataPoints(surveyGroupId, dataPointIds);
+    }
+
+    public Observable<Set<String>> getDataPointChanges() {
+        return briteSurveyDbAdapter.getRecordChanges();
+    }
+
+    public Cursor getDataPointsInBox(long surveyGroupId, double minLatitude, double maxLatitude,
+            double minLongitude, double maxLongitude) {
+        return briteSurveyDbAdapter.getDataPointsInBox(surveyGroupId, minLatitude, maxLatitude,
+                minLongitude, maxLongitude);
+    }
+
+    public Cursor getDataPointLocationsInBox(long surveyGroupId, double minLatitude,
+            double maxLatitude, double minLongitude, double maxLongitude) {
+        return briteSurveyDbAdapter.getDataPointLocationsInBox(surveyGroupId, minLatitude,
+                maxLatitude, minLongitude, maxLongitude);
+    }
 
+    public Cursor getDataPointsWithoutLocation(long surveyGroupId, @Nullable String afterId,
+            int limit) {
+        return briteSurveyDbAdapter.getDataPointsWithoutLocation(surveyGroupId, afterId, limit);
     }
 
-    private boolean isRequestFiltered(@Nullable Integer orderBy) {
-        return orderBy != null && (orderBy == Constants.ORDER_BY_DISTANCE ||
-                orderBy ==  Constants.ORDER_BY_DATE ||
-                orderBy ==  Constants.ORDER_BY_STATUS ||
-                orderBy ==  Constants.ORDER_BY_NAME);
+    public Cursor getDataPointClusters(long surveyGroupId, double north, double east,
+            double south, double west, int zoom) {
+        return briteSurveyDbAdapter.getDataPointClusters(surveyGroupId, north, east, south, west,
+                zoom);
     }
 
     public Cursor getSyncedTime(long surveyGroupId) {
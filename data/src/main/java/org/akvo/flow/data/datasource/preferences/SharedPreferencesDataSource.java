@@ -34,10 +34,14 @@ public class SharedPreferencesDataSource {
     private static final String KEY_SCREEN_ON = "screen.keepon";
     private static final String KEY_DEVICE_IDENTIFIER = "device.identifier";
     private static final String KEY_MAX_IMG_SIZE = "media.img.maxsize";
+    private static final String KEY_IMG_QUALITY = "media.img.quality";
+    private static final String KEY_MEDIA_PREFETCH = "media.prefetch";
 
     private static final String DEFAULT_VALUE_DEVICE_IDENTIFIER = "unset";
     private static final int DEFAULT_VALUE_IMAGE_SIZE = 0;
+    private static final int DEFAULT_VALUE_IMAGE_QUALITY = 85;
     private static final boolean DEFAULT_VALUE_SCREEN_ON = true;
+    private static final boolean DEFAULT_VALUE_MEDIA_PREFETCH = true;
     private static final String KEY_CELL_UPLOAD = "data.cellular.upload";
     private static final String KEY_SURVEY_GROUP_ID = "surveyGroupId";
     private static final String KEY_USER_ID = "userId";
@@ -67,10 +71,21 @@ public class SharedPreferencesDataSource {
         return Observable.just(getInt(KEY_MAX_IMG_SIZE, DEFAULT_VALUE_IMAGE_SIZE));
     }
 
+    /**
+     * @return JPEG quality of the resized images, from 0 to 100
+     */
+    public Observable<Integer> getImageQuality() {
+        return Observable.just(getInt(KEY_IMG_QUALITY, DEFAULT_VALUE_IMAGE_QUALITY));
+    }
+
     public Observable<String> getDeviceId() {
         return Observable.just(getString(KEY_DEVICE_IDENTIFIER, DEFAULT_VALUE_DEVICE_IDENTIFIER));
     }
 
+    public Observable<Boolean> mediaPrefetchEnabled() {
+        return Observable.just(getBoolean(KEY_MEDIA_PREFETCH, DEFAULT_VALUE_MEDIA_PREFETCH));
+    }
+
     public Observable<Long> getSelectedSurvey() {
         return Observable.just(getLong(KEY_SURVEY_GROUP_ID, INVALID_ID));
     }
@@ -136,6 +151,11 @@ public class SharedPreferencesDataSource {
         return Observable.just(true);
     }
 
+    public Observable<Boolean> saveMediaPrefetch(Boolean enable) {
+        setBoolean(KEY_MEDIA_PREFETCH, enable);
+        return Observable.just(true);
+    }
+
     public Observable<Long> getSelectedUser() {
         return Observable.just(getLong(KEY_USER_ID, INVALID_ID));
     }
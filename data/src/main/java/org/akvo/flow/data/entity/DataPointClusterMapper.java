@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.entity;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
+import org.akvo.flow.database.MapClusterTable;
+import org.akvo.flow.database.RecordColumns;
+import org.akvo.flow.domain.entity.DataPoint;
+import org.akvo.flow.domain.entity.DataPointCluster;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+public class DataPointClusterMapper {
+
+    @Inject
+    public DataPointClusterMapper() {
+    }
+
+    @NonNull
+    public List<DataPointCluster> getClusters(Cursor cursor) {
+        List<DataPointCluster> clusters = new ArrayList<>();
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                int latitude = cursor.getColumnIndexOrThrow(MapClusterTable.COLUMN_LATITUDE);
+                int longitude = cursor.getColumnIndexOrThrow(MapClusterTable.COLUMN_LONGITUDE);
+                int count = cursor.getColumnIndexOrThrow(MapClusterTable.COLUMN_COUNT);
+                int recordId = cursor.getColumnIndexOrThrow(MapClusterTable.COLUMN_RECORD_ID);
+                int name = cursor.getColumnIndexOrThrow(RecordColumns.NAME);
+                do {
+                    clusters.add(new DataPointCluster(cursor.getDouble(latitude),
+                            cursor.getDouble(longitude), cursor.getInt(count),
+                            cursor.getString(recordId), cursor.getString(name)));
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+        }
+        return clusters;
+    }
+
+    /**
+     * Wraps every located datapoint in a single datapoint cluster
+     */
+    @NonNull
+    public List<DataPointCluster> getClusters(@NonNull List<DataPoint> dataPoints) {
+        List<DataPointCluster> clusters = new ArrayList<>(dataPoints.size());
+        for (DataPoint dataPoint : dataPoints) {
+            if (dataPoint.getLatitude() != null && dataPoint.getLongitude() != null) {
+                clusters.add(new DataPointCluster(dataPoint.getLatitude(),
+                        dataPoint.getLongitude(), 1, dataPoint.getId(), dataPoint.getName()));
+            }
+        }
+        return clusters;
+    }
+}
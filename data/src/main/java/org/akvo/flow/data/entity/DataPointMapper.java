@@ -23,17 +23,22 @@ package org.akvo.flow.data.entity;
 import android.database.Cursor;
 import android.support.annotation.NonNull;
 
+import org.akvo.flow.database.RecordColumns;
 import org.akvo.flow.database.SurveyDbAdapter;
-import org.akvo.flow.database.SurveyInstanceColumns;
 import org.akvo.flow.domain.entity.DataPoint;
+import org.akvo.flow.domain.entity.DataPointPage;
+import org.akvo.flow.domain.entity.DataPointWindow;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.inject.Inject;
 
 public class DataPointMapper {
 
+    private static final String SORT_VALUE = "sort_value";
+
     @Inject
     public DataPointMapper() {
     }
@@ -52,7 +57,7 @@ public class DataPointMapper {
             latitude = cursor.getDouble(SurveyDbAdapter.RecordQuery.LATITUDE);
             longitude = cursor.getDouble(SurveyDbAdapter.RecordQuery.LONGITUDE);
         }
-        int columnIndex = cursor.getColumnIndex(SurveyInstanceColumns.STATUS);
+        int columnIndex = cursor.getColumnIndex(RecordColumns.STATUS);
         int status = 0;
         if (columnIndex != -1) {
             status = cursor.getInt(columnIndex);
@@ -75,4 +80,50 @@ public class DataPointMapper {
         }
         return items;
     }
+
+    /**
+     * @param limit the page size, a full page means more datapoints may follow
+     */
+    @NonNull
+    public DataPointPage getDataPointsPage(Cursor cursor, int limit) {
+        List<DataPoint> items = new ArrayList<>(limit);
+        List<DataPointPage.Key> keys = new ArrayList<>(limit);
+        if (cursor != null) {
+            int sortValueColumn = cursor.getColumnIndexOrThrow(SORT_VALUE);
+            if (cursor.moveToFirst()) {
+                do {
+                    DataPoint item = getDataPoint(cursor);
+                    items.add(item);
+                    keys.add(new DataPointPage.Key(cursor.getString(sortValueColumn),
+                            item.getId()));
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+        }
+        DataPointPage.Key nextKey = keys.size() == limit ? keys.get(limit - 1) : null;
+        return new DataPointPage(items, keys, nextKey);
+    }
+
+    /**
+     * Reads the keys of the displayed datapoints of a list, without any datapoint
+     *
+     * @param limit the number of datapoints listed, a full list means more datapoints may follow
+     */
+    @NonNull
+    public DataPointWindow getDataPointWindow(Cursor cursor, int limit) {
+        List<DataPointPage.Key> keys = new ArrayList<>(limit);
+        if (cursor != null) {
+            int idColumn = cursor.getColumnIndexOrThrow(RecordColumns.RECORD_ID);
+            int sortValueColumn = cursor.getColumnIndexOrThrow(SORT_VALUE);
+            if (cursor.moveToFirst()) {
+                do {
+                    keys.add(new DataPointPage.Key(cursor.getString(sortValueColumn),
+                            cursor.getString(idColumn)));
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+        }
+        DataPointPage.Key nextKey = keys.size() == limit ? keys.get(limit - 1) : null;
+        return new DataPointWindow(keys, Collections.<DataPoint>emptyList(), nextKey);
+    }
 }
@@ -21,38 +21,29 @@
 package org.akvo.flow.data.net;
 
 import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
 import android.util.Base64;
 
 import java.io.IOException;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-
 import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
-import timber.log.Timber;
 
 import static org.akvo.flow.data.util.Constants.HMAC;
 import static org.akvo.flow.data.util.Constants.TIMESTAMP;
 
 public class HMACInterceptor implements Interceptor {
 
-    private static final String HMAC_SHA_1_ALGORITHM = "HmacSHA1";
-
-    private final String key;
+    private final RequestSigner signer;
     private final SimpleDateFormat dateFormat;
     private final Encoder encoder;
 
-    public HMACInterceptor(String key, SimpleDateFormat dateFormat, Encoder encoder) {
+    public HMACInterceptor(RequestSigner signer, SimpleDateFormat dateFormat, Encoder encoder) {
         this.dateFormat = dateFormat;
-        this.key = key;
+        this.signer = signer;
         this.encoder = encoder;
     }
 
@@ -60,45 +51,34 @@ public class HMACInterceptor implements Interceptor {
     public Response intercept(Chain chain) throws IOException {
         Request request = chain.request();
         HttpUrl url = request.url();
-        String uriString = url.toString();
-        int separator = uriString.indexOf('?') + 1;
-        String query = uriString.substring(separator);
-        String urlBeginning = uriString.substring(0, separator);
+        String encodedQuery = url.encodedQuery();
 
-        query = appendQueryParam(query, TIMESTAMP, getTimestamp());
-        String auth = getAuthorization(query, key);
-        query = appendQueryParam(query, HMAC, auth);
+        StringBuilder query = new StringBuilder(encodedQuery == null ? "" : encodedQuery);
+        appendQueryParam(query, TIMESTAMP, getTimestamp());
+        String auth = getAuthorization(query.toString());
+        appendQueryParam(query, HMAC, auth);
 
-        String reconstructedUrl = urlBeginning + query;
-        request = request.newBuilder().url(HttpUrl.parse(reconstructedUrl)).build();
+        HttpUrl signedUrl = url.newBuilder().encodedQuery(query.toString()).build();
+        request = request.newBuilder().url(signedUrl).build();
         return chain.proceed(request);
     }
 
-    @NonNull
-    private String appendQueryParam(String query, String name, String value) {
-        return query + "&" + name + "=" + value;
+    private void appendQueryParam(@NonNull StringBuilder query, String name, String value) {
+        query.append('&').append(name).append('=').append(value);
     }
 
     private String getTimestamp() {
-        return encoder.encodeParam(dateFormat.format(new Date()));
-    }
-
-    @Nullable
-    private String getAuthorization(@NonNull String query, String apiKey) {
-        String authorization = null;
-        try {
-            SecretKeySpec signingKey = new SecretKeySpec(apiKey.getBytes(), HMAC_SHA_1_ALGORITHM);
-
-            Mac mac = Mac.getInstance(HMAC_SHA_1_ALGORITHM);
-            mac.init(signingKey);
-
-            byte[] rawHmac = mac.doFinal(query.getBytes());
-
-            authorization = Base64.encodeToString(rawHmac, Base64.DEFAULT);
-        } catch (@NonNull NoSuchAlgorithmException | InvalidKeyException e) {
-            Timber.e(e.getMessage());
+        String date;
+        synchronized (dateFormat) {
+            date = dateFormat.format(new Date());
         }
+        return encoder.encodeParam(date);
+    }
 
-        return authorization;
+    @NonNull
+    private String getAuthorization(@NonNull String query) {
+        byte[] rawHmac = signer.sign(query);
+        // NO_WRAP: the trailing line break was only ever dropped when the url got re-parsed
+        return Base64.encodeToString(rawHmac, Base64.NO_WRAP);
     }
-}
\ No newline at end of file
+}
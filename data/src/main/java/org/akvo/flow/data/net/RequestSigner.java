@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.net;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Computes HmacSHA1 signatures for a single secret key.
+ * <p>
+ * {@link Mac} and {@link MessageDigest} lookups are expensive, so each thread keeps its own
+ * initialised instance and reuses it for every subsequent signature. The same goes for the
+ * RFC-1123 date formatter used by S3, which additionally caches the last formatted second.
+ * <p>
+ * This class only depends on the JDK so that it can be benchmarked outside Android.
+ */
+public class RequestSigner {
+
+    public static final String HMAC_SHA_1_ALGORITHM = "HmacSHA1";
+    private static final String SHA_1_ALGORITHM = "SHA1";
+    private static final String RFC_1123_PATTERN = "EEE, dd MMM yyyy HH:mm:ss 'GMT'";
+    private static final String TIMEZONE = "GMT";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ThreadLocal<MessageDigest> SHA_1 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance(SHA_1_ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private static final ThreadLocal<CachedDate> RFC_1123_DATE = new ThreadLocal<CachedDate>() {
+        @Override
+        protected CachedDate initialValue() {
+            return new CachedDate();
+        }
+    };
+
+    private final ThreadLocal<Mac> mac;
+
+    /**
+     * @param key the secret key. It is only read the first time a thread signs something, so
+     *            signers for keys that are never used (ie: empty) can be safely created.
+     */
+    public RequestSigner(final String key) {
+        this.mac = new ThreadLocal<Mac>() {
+            @Override
+            protected Mac initialValue() {
+                try {
+                    Mac mac = Mac.getInstance(HMAC_SHA_1_ALGORITHM);
+                    mac.init(new SecretKeySpec(key.getBytes(UTF_8), HMAC_SHA_1_ALGORITHM));
+                    return mac;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Signs the UTF-8 bytes of the given payload
+     */
+    public byte[] sign(String payload) {
+        return sign(payload.getBytes(UTF_8));
+    }
+
+    public byte[] sign(byte[] payload) {
+        // doFinal resets the Mac, leaving it ready for the next call on this thread
+        return mac.get().doFinal(payload);
+    }
+
+    /**
+     * Signs the SHA1 digest of the UTF-8 bytes of the given data, as done for the form
+     * submission .sig files
+     */
+    public byte[] signDigest(String data) {
+        return sign(SHA_1.get().digest(data.getBytes(UTF_8)));
+    }
+
+    /**
+     * @return the current date formatted as RFC-1123, ie: "Tue, 03 Apr 2018 10:15:30 GMT"
+     */
+    public static String getRfc1123Date() {
+        return getRfc1123Date(System.currentTimeMillis());
+    }
+
+    public static String getRfc1123Date(long timeMillis) {
+        return RFC_1123_DATE.get().format(timeMillis);
+    }
+
+    /**
+     * RFC-1123 dates have a resolution of one second, consecutive requests within the same
+     * second share the formatted value
+     */
+    private static class CachedDate {
+
+        private final DateFormat dateFormat;
+        private final Date date = new Date();
+        private long second = Long.MIN_VALUE;
+        private String formatted;
+
+        CachedDate() {
+            dateFormat = new SimpleDateFormat(RFC_1123_PATTERN, Locale.US);
+            dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
+        }
+
+        String format(long timeMillis) {
+            long currentSecond = timeMillis / 1000;
+            if (currentSecond != second) {
+                date.setTime(timeMillis);
+                formatted = dateFormat.format(date);
+                second = currentSecond;
+            }
+            return formatted;
+        }
+    }
+}
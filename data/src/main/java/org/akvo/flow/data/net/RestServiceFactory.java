@@ -44,7 +44,7 @@ public class RestServiceFactory {
     private final HttpLoggingInterceptor loggingInterceptor;
     private final SimpleDateFormat dateFormat;
     private final Encoder encoder;
-    private final String key;
+    private final RequestSigner signer;
     private final String baseUrl;
 
     @Inject
@@ -53,7 +53,7 @@ public class RestServiceFactory {
         this.loggingInterceptor = loggingInterceptor;
         this.dateFormat = simpleDateFormat;
         this.encoder = encoder;
-        this.key = key;
+        this.signer = new RequestSigner(key);
         this.baseUrl = baseUrl;
     }
 
@@ -62,7 +62,7 @@ public class RestServiceFactory {
         httpClient.addInterceptor(loggingInterceptor);
         httpClient.connectTimeout(CONNECTION_TIMEOUT, TimeUnit.SECONDS);
         httpClient.readTimeout(NO_TIMEOUT, TimeUnit.SECONDS);
-        httpClient.addInterceptor(new HMACInterceptor(key, dateFormat, encoder));
+        httpClient.addInterceptor(new HMACInterceptor(signer, dateFormat, encoder));
         Retrofit retrofit = new Retrofit.Builder()
                 .baseUrl(baseUrl)
                 .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
@@ -46,7 +46,9 @@ public class FileDataRepository implements FileRepository {
     }
 
     @Override
-    public Observable<Boolean> saveResizedImage(String originalImagePath, String resizedImagePath, int imageSize) {
-        return dataSourceFactory.getImageDataSource().saveResizedImage(originalImagePath, resizedImagePath, imageSize);
+    public Observable<Boolean> saveResizedImage(String originalImagePath, String resizedImagePath,
+            int imageSize, int quality) {
+        return dataSourceFactory.getImageDataSource()
+                .saveResizedImage(originalImagePath, resizedImagePath, imageSize, quality);
     }
 }
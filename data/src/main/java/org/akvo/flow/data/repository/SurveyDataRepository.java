@@ -23,15 +23,23 @@ package org.akvo.flow.data.repository;
 import android.database.Cursor;
 
 import org.akvo.flow.data.datasource.DataSourceFactory;
+import org.akvo.flow.data.datasource.DatabaseDataSource;
 import org.akvo.flow.data.entity.ApiDataPoint;
 import org.akvo.flow.data.entity.ApiLocaleResult;
 import org.akvo.flow.data.entity.ApiSurveyInstance;
+import org.akvo.flow.data.entity.DataPointClusterMapper;
 import org.akvo.flow.data.entity.DataPointMapper;
 import org.akvo.flow.data.entity.SurveyMapper;
 import org.akvo.flow.data.entity.SyncedTimeMapper;
 import org.akvo.flow.data.entity.UserMapper;
 import org.akvo.flow.data.net.FlowRestApi;
+import org.akvo.flow.data.util.NearestDataPoints;
+import org.akvo.flow.database.MapClusterTable;
+import org.akvo.flow.database.RecordColumns;
 import org.akvo.flow.domain.entity.DataPoint;
+import org.akvo.flow.domain.entity.DataPointCluster;
+import org.akvo.flow.domain.entity.DataPointPage;
+import org.akvo.flow.domain.entity.DataPointWindow;
 import org.akvo.flow.domain.entity.Survey;
 import org.akvo.flow.domain.entity.User;
 import org.akvo.flow.domain.exception.AssignmentRequiredException;
@@ -41,7 +49,10 @@ import org.reactivestreams.Publisher;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
@@ -57,25 +68,35 @@ import io.reactivex.functions.Function;
 import io.reactivex.functions.Predicate;
 import retrofit2.HttpException;
 
+import static org.akvo.flow.database.Constants.ORDER_BY_DISTANCE;
+
 public class SurveyDataRepository implements SurveyRepository {
 
+    /**
+     * First radius searched for the datapoints nearest to the user, in meters
+     */
+    private static final double INITIAL_NEAREST_RADIUS = 1000;
+
     private final DataSourceFactory dataSourceFactory;
     private final DataPointMapper dataPointMapper;
     private final SyncedTimeMapper syncedTimeMapper;
     private final FlowRestApi restApi;
     private final SurveyMapper surveyMapper;
     private final UserMapper userMapper;
+    private final DataPointClusterMapper clusterMapper;
 
     @Inject
     public SurveyDataRepository(DataSourceFactory dataSourceFactory,
             DataPointMapper dataPointMapper, SyncedTimeMapper syncedTimeMapper, FlowRestApi restApi,
-            SurveyMapper surveyMapper, UserMapper userMapper) {
+            SurveyMapper surveyMapper, UserMapper userMapper,
+            DataPointClusterMapper clusterMapper) {
         this.dataSourceFactory = dataSourceFactory;
         this.dataPointMapper = dataPointMapper;
         this.syncedTimeMapper = syncedTimeMapper;
         this.restApi = restApi;
         this.surveyMapper = surveyMapper;
         this.userMapper = userMapper;
+        this.clusterMapper = clusterMapper;
     }
 
     @Override
@@ -90,16 +111,212 @@ public class SurveyDataRepository implements SurveyRepository {
     }
 
     @Override
-    public Observable<List<DataPoint>> getDataPoints(Long surveyGroupId,
-            Double latitude, Double longitude, Integer orderBy) {
-        return dataSourceFactory.getDataBaseDataSource()
-                .getDataPoints(surveyGroupId, latitude, longitude, orderBy).concatMap(
-                        new Function<Cursor, Observable<List<DataPoint>>>() {
-                            @Override
-                            public Observable<List<DataPoint>> apply(Cursor cursor) {
-                                return Observable.just(dataPointMapper.getDataPoints(cursor));
-                            }
-                        });
+    public Observable<DataPointPage> getDataPointsPage(final long surveyGroupId,
+            final Double latitude, final Double longitude, final int orderBy,
+            final DataPointPage.Key after, final int limit) {
+        return Observable.fromCallable(new Callable<DataPointPage>() {
+            @Override
+            public DataPointPage call() {
+                DatabaseDataSource dataSource = dataSourceFactory.getDataBaseDataSource();
+                if (isDistanceOrder(orderBy, latitude, longitude)) {
+                    return getNearestDataPointsPage(dataSource, surveyGroupId, latitude,
+                            longitude, after, limit);
+                }
+                Cursor cursor = dataSource.getDataPointsPage(surveyGroupId, orderBy,
+                        after == null ? null : after.getValue(),
+                        after == null ? null : after.getId(), limit);
+                return dataPointMapper.getDataPointsPage(cursor, limit);
+            }
+        });
+    }
+
+    @Override
+    public Observable<DataPointPage> searchDataPoints(final long surveyGroupId,
+            final String text, final DataPointPage.Key after, final int limit) {
+        return Observable.fromCallable(new Callable<DataPointPage>() {
+            @Override
+            public DataPointPage call() {
+                Cursor cursor = dataSourceFactory.getDataBaseDataSource()
+                        .searchDataPoints(surveyGroupId, text,
+                                after == null ? null : after.getValue(),
+                                after == null ? null : after.getId(), limit);
+                return dataPointMapper.getDataPointsPage(cursor, limit);
+            }
+        });
+    }
+
+    @Override
+    public Observable<DataPointWindow> getDataPointWindow(final long surveyGroupId,
+            final Double latitude, final Double longitude, final int orderBy, final String text,
+            final DataPointPage.Key after, final int limit, final Set<String> changedIds,
+            final Set<String> displayedIds) {
+        return Observable.fromCallable(new Callable<DataPointWindow>() {
+            @Override
+            public DataPointWindow call() {
+                DatabaseDataSource dataSource = dataSourceFactory.getDataBaseDataSource();
+                if (text == null && isDistanceOrder(orderBy, latitude, longitude)) {
+                    DataPointPage page = getNearestDataPointsPage(dataSource, surveyGroupId,
+                            latitude, longitude, after, limit);
+                    return new DataPointWindow(page.getKeys(), page.getDataPoints(),
+                            page.getNextKey());
+                }
+                String afterValue = after == null ? null : after.getValue();
+                String afterId = after == null ? null : after.getId();
+                Cursor idsCursor = text == null ?
+                        dataSource.getDataPointIds(surveyGroupId, orderBy, afterValue, afterId,
+                                limit) :
+                        dataSource.searchDataPointIds(surveyGroupId, text, afterValue, afterId,
+                                limit);
+                DataPointWindow window = dataPointMapper.getDataPointWindow(idsCursor, limit);
+                List<String> missingIds = new ArrayList<>();
+                for (DataPointPage.Key key : window.getKeys()) {
+                    String id = key.getId();
+                    if (changedIds.contains(id) || !displayedIds.contains(id)) {
+                        missingIds.add(id);
+                    }
+                }
+                if (missingIds.isEmpty()) {
+                    return window;
+                }
+                Cursor cursor = dataSource.getDataPoints(surveyGroupId, missingIds);
+                return new DataPointWindow(window.getKeys(),
+                        dataPointMapper.getDataPoints(cursor), window.getNextKey());
+            }
+        });
+    }
+
+    @Override
+    public Observable<Set<String>> getDataPointChanges() {
+        return dataSourceFactory.getDataBaseDataSource().getDataPointChanges();
+    }
+
+    @Override
+    public Observable<List<DataPoint>> getNearestDataPoints(final long surveyGroupId,
+            final double latitude, final double longitude, final double radius,
+            final int count) {
+        return Observable.fromCallable(new Callable<List<DataPoint>>() {
+            @Override
+            public List<DataPoint> call() {
+                DatabaseDataSource dataSource = dataSourceFactory.getDataBaseDataSource();
+                NearestDataPoints nearest = new NearestDataPoints(latitude, longitude, radius,
+                        count, null);
+                Cursor cursor = dataSource.getDataPointLocationsInBox(surveyGroupId,
+                        nearest.getMinLatitude(), nearest.getMaxLatitude(),
+                        nearest.getMinLongitude(), nearest.getMaxLongitude());
+                addLocations(nearest, cursor);
+                return getDataPoints(dataSource, surveyGroupId, nearest.getKeys());
+            }
+        });
+    }
+
+    private boolean isDistanceOrder(int orderBy, Double latitude, Double longitude) {
+        return orderBy == ORDER_BY_DISTANCE && latitude != null && longitude != null;
+    }
+
+    /**
+     * Loads a page of the datapoints sorted by distance, the ones without location last. Located
+     * ones are looked up in the record location index, within a radius which grows until it
+     * holds a full page, instead of sorting the whole survey group for every page. Only the
+     * datapoints of the page are read in full.
+     */
+    private DataPointPage getNearestDataPointsPage(DatabaseDataSource dataSource,
+            long surveyGroupId, double latitude, double longitude, DataPointPage.Key after,
+            int limit) {
+        List<DataPointPage.Key> keys = new ArrayList<>(limit);
+        List<DataPoint> dataPoints = new ArrayList<>(limit);
+        boolean afterLocated = after == null || after.getValue() != null;
+        if (afterLocated) {
+            double radius = INITIAL_NEAREST_RADIUS;
+            if (after != null) {
+                radius = Math.max(radius, 2 * Double.parseDouble(after.getValue()));
+            }
+            NearestDataPoints nearest;
+            do {
+                nearest = new NearestDataPoints(latitude, longitude, radius, limit, after);
+                Cursor cursor = dataSource.getDataPointLocationsInBox(surveyGroupId,
+                        nearest.getMinLatitude(), nearest.getMaxLatitude(),
+                        nearest.getMinLongitude(), nearest.getMaxLongitude());
+                addLocations(nearest, cursor);
+                radius *= 4;
+            } while (!nearest.isComplete());
+            keys.addAll(nearest.getKeys());
+            dataPoints.addAll(getDataPoints(dataSource, surveyGroupId, keys));
+        }
+        if (keys.size() < limit) {
+            Cursor cursor = dataSource.getDataPointsWithoutLocation(surveyGroupId,
+                    afterLocated ? null : after.getId(), limit - keys.size());
+            for (DataPoint dataPoint : dataPointMapper.getDataPoints(cursor)) {
+                keys.add(new DataPointPage.Key(null, dataPoint.getId()));
+                dataPoints.add(dataPoint);
+            }
+        }
+        return new DataPointPage(dataPoints, keys,
+                keys.size() == limit ? keys.get(limit - 1) : null);
+    }
+
+    private void addLocations(NearestDataPoints nearest, Cursor cursor) {
+        if (cursor == null) {
+            return;
+        }
+        try {
+            int idColumn = cursor.getColumnIndexOrThrow(RecordColumns.RECORD_ID);
+            int latitudeColumn = cursor.getColumnIndexOrThrow(RecordColumns.LATITUDE);
+            int longitudeColumn = cursor.getColumnIndexOrThrow(RecordColumns.LONGITUDE);
+            while (cursor.moveToNext()) {
+                nearest.add(cursor.getString(idColumn), cursor.getDouble(latitudeColumn),
+                        cursor.getDouble(longitudeColumn));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return the datapoints of the keys, in the same order
+     */
+    private List<DataPoint> getDataPoints(DatabaseDataSource dataSource, long surveyGroupId,
+            List<DataPointPage.Key> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> ids = new ArrayList<>(keys.size());
+        for (DataPointPage.Key key : keys) {
+            ids.add(key.getId());
+        }
+        Map<String, DataPoint> loaded = new HashMap<>(keys.size() * 2);
+        for (DataPoint dataPoint : dataPointMapper
+                .getDataPoints(dataSource.getDataPoints(surveyGroupId, ids))) {
+            loaded.put(dataPoint.getId(), dataPoint);
+        }
+        List<DataPoint> dataPoints = new ArrayList<>(keys.size());
+        for (String id : ids) {
+            DataPoint dataPoint = loaded.get(id);
+            if (dataPoint != null) {
+                dataPoints.add(dataPoint);
+            }
+        }
+        return dataPoints;
+    }
+
+    @Override
+    public Observable<List<DataPointCluster>> getDataPointClusters(final long surveyGroupId,
+            final double north, final double east, final double south, final double west,
+            final int zoom) {
+        return Observable.fromCallable(new Callable<List<DataPointCluster>>() {
+            @Override
+            public List<DataPointCluster> call() {
+                DatabaseDataSource dataSource = dataSourceFactory.getDataBaseDataSource();
+                if (zoom > MapClusterTable.MAX_ZOOM) {
+                    Cursor cursor = dataSource
+                            .getDataPointsInBox(surveyGroupId, south, north, west, east);
+                    return clusterMapper.getClusters(dataPointMapper.getDataPoints(cursor));
+                }
+                Cursor cursor = dataSource
+                        .getDataPointClusters(surveyGroupId, north, east, south, west,
+                                Math.max(0, zoom));
+                return clusterMapper.getClusters(cursor);
+            }
+        });
     }
 
     @Override
@@ -56,11 +56,21 @@ public class UserDataRepository implements UserRepository {
         return dataSourceFactory.getSharedPreferencesDataSource().getImageSize();
     }
 
+    @Override
+    public Observable<Integer> getImageQuality() {
+        return dataSourceFactory.getSharedPreferencesDataSource().getImageQuality();
+    }
+
     @Override
     public Observable<String> getDeviceId() {
         return dataSourceFactory.getSharedPreferencesDataSource().getDeviceId();
     }
 
+    @Override
+    public Observable<Boolean> mediaPrefetchEnabled() {
+        return dataSourceFactory.getSharedPreferencesDataSource().mediaPrefetchEnabled();
+    }
+
     @Override
     public Observable<Boolean> saveScreenOnPreference(Boolean keepScreenOn) {
         return dataSourceFactory.getSharedPreferencesDataSource().saveScreenOn(keepScreenOn);
@@ -81,6 +91,11 @@ public class UserDataRepository implements UserRepository {
         return dataSourceFactory.getSharedPreferencesDataSource().saveImageSize(size);
     }
 
+    @Override
+    public Observable<Boolean> saveMediaPrefetchPreference(Boolean enable) {
+        return dataSourceFactory.getSharedPreferencesDataSource().saveMediaPrefetch(enable);
+    }
+
     @Override
     public Observable<Long> getSelectedSurvey() {
         return dataSourceFactory.getSharedPreferencesDataSource().getSelectedSurvey();
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.util;
+
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Compares files by the MD5 checksum of their content. Checksums are only computed once the
+ * sizes of both files match, and the most recent ones are kept, together with the size and
+ * modification date they were computed for, so that a file is not read again while unchanged.
+ */
+public class FileFingerprints {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Map<String, Fingerprint> fingerprints;
+
+    public FileFingerprints(final int maxEntries) {
+        this.fingerprints = new LinkedHashMap<String, Fingerprint>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Fingerprint> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return true if both files exist and have the same content, false otherwise
+     */
+    public boolean sameContent(File file1, File file2) {
+        long length = file1.length();
+        if (length == 0 || length != file2.length()) {
+            return false;
+        }
+        byte[] checksum1 = getChecksum(file1);
+        return checksum1 != null && Arrays.equals(checksum1, getChecksum(file2));
+    }
+
+    @Nullable
+    synchronized byte[] getChecksum(File file) {
+        String path = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        Fingerprint fingerprint = fingerprints.get(path);
+        if (fingerprint != null && fingerprint.length == length
+                && fingerprint.lastModified == lastModified) {
+            return fingerprint.checksum;
+        }
+        byte[] checksum = computeChecksum(file);
+        if (checksum != null) {
+            fingerprints.put(path, new Fingerprint(length, lastModified, checksum));
+        } else {
+            fingerprints.remove(path);
+        }
+        return checksum;
+    }
+
+    synchronized int size() {
+        return fingerprints.size();
+    }
+
+    @Nullable
+    private byte[] computeChecksum(File file) {
+        InputStream in = null;
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            in = new BufferedInputStream(new FileInputStream(file));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+            return md.digest();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            Timber.e(e.getMessage());
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    //Ignored
+                }
+            }
+        }
+        return null;
+    }
+
+    private static class Fingerprint {
+
+        private final long length;
+        private final long lastModified;
+        private final byte[] checksum;
+
+        Fingerprint(long length, long lastModified, byte[] checksum) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+        }
+    }
+}
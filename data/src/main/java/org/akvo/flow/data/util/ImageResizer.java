@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.util;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.media.ExifInterface;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import timber.log.Timber;
+
+/**
+ * Shrinks images into JPEG files following the plans of {@link ResizePlanner}: camera images are
+ * decoded strip by strip, subsampled, and scaled into an output bitmap, both taken from a
+ * {@link BitmapPool}. Their EXIF orientation and date are written along with the output.
+ */
+public class ImageResizer {
+
+    private final ResizePlanner planner;
+    private final BitmapPool pool;
+
+    public ImageResizer(ResizePlanner planner, BitmapPool pool) {
+        this.planner = planner;
+        this.pool = pool;
+    }
+
+    public void resize(@NonNull String sourcePath, @NonNull String outputPath,
+            @NonNull ImageSize size, int quality) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(sourcePath, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Could not decode image: " + sourcePath);
+        }
+        ResizePlanner.ResizePlan plan = planner.plan(bounds.outWidth, bounds.outHeight, size);
+        Timber.d("Image of %d x %d resized to %d x %d, sampled by %d", bounds.outWidth,
+                bounds.outHeight, plan.getTargetWidth(), plan.getTargetHeight(),
+                plan.getSampleSize());
+
+        Bitmap output = pool.get(plan.getTargetWidth(), plan.getTargetHeight());
+        try {
+            Canvas canvas = new Canvas(output);
+            try {
+                drawStrips(sourcePath, bounds.outWidth, bounds.outHeight, plan, canvas);
+            } catch (IOException e) {
+                // Not supported by the region decoder: decode the whole subsampled image
+                Timber.w(e, "Could not decode image regions");
+                drawSampled(sourcePath, plan, canvas);
+            }
+            write(output, outputPath, quality, getExifSegment(sourcePath));
+        } finally {
+            pool.put(output);
+        }
+    }
+
+    /**
+     * Shrinks an image which is already decoded
+     */
+    public void resize(@NonNull Bitmap source, @NonNull String outputPath,
+            @NonNull ImageSize size, int quality) throws IOException {
+        ResizePlanner.ResizePlan plan = planner.plan(source.getWidth(), source.getHeight(), size);
+        Bitmap output = pool.get(plan.getTargetWidth(), plan.getTargetHeight());
+        try {
+            new Canvas(output).drawBitmap(source, null,
+                    new RectF(0, 0, plan.getTargetWidth(), plan.getTargetHeight()),
+                    new Paint(Paint.FILTER_BITMAP_FLAG));
+            write(output, outputPath, quality, null);
+        } finally {
+            pool.put(output);
+        }
+    }
+
+    private void drawStrips(String sourcePath, int width, int height,
+            ResizePlanner.ResizePlan plan, Canvas canvas) throws IOException {
+        BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(sourcePath, false);
+        Bitmap strip = null;
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = plan.getSampleSize();
+            float scaleY = (float) plan.getTargetHeight() / height;
+            Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+            Rect region = new Rect();
+            Rect decoded = new Rect();
+            RectF destination = new RectF();
+            for (int i = 0; i < plan.getStripCount(); i++) {
+                int top = plan.getStripTop(i);
+                int bottom = plan.getStripBottom(i);
+                region.set(0, top, width, bottom);
+                strip = decodeRegion(decoder, region, options, strip);
+                // A reused strip keeps its size, rows below the decoded ones are stale
+                decoded.set(0, 0, Math.min(strip.getWidth(), plan.getDecodedWidth()),
+                        Math.min(strip.getHeight(), plan.getDecodedHeight(i)));
+                destination.set(0, top * scaleY, plan.getTargetWidth(), bottom * scaleY);
+                canvas.drawBitmap(strip, decoded, destination, paint);
+            }
+        } finally {
+            decoder.recycle();
+            pool.put(strip);
+        }
+    }
+
+    /**
+     * Decodes a region into the previous strip, or into a pooled bitmap for the first one, where
+     * decoding into an existing bitmap is supported
+     */
+    @NonNull
+    private Bitmap decodeRegion(BitmapRegionDecoder decoder, Rect region,
+            BitmapFactory.Options options, @Nullable Bitmap previousStrip) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            options.inBitmap = previousStrip != null ? previousStrip : pool.get(
+                    ceilDiv(region.width(), options.inSampleSize),
+                    ceilDiv(region.height(), options.inSampleSize));
+        }
+        Bitmap strip;
+        try {
+            strip = decoder.decodeRegion(region, options);
+        } catch (IllegalArgumentException e) {
+            // The bitmap could not be reused
+            if (previousStrip == null) {
+                pool.put(options.inBitmap);
+            }
+            options.inBitmap = null;
+            strip = decoder.decodeRegion(region, options);
+        }
+        if (strip == null) {
+            throw new IOException("Could not decode image region: " + region);
+        }
+        if (previousStrip != null && previousStrip != strip) {
+            pool.put(previousStrip);
+        }
+        return strip;
+    }
+
+    private void drawSampled(String sourcePath, ResizePlanner.ResizePlan plan, Canvas canvas)
+            throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = plan.getSampleSize();
+        Bitmap sampled = BitmapFactory.decodeFile(sourcePath, options);
+        if (sampled == null) {
+            throw new IOException("Could not decode image: " + sourcePath);
+        }
+        canvas.drawBitmap(sampled, null,
+                new RectF(0, 0, plan.getTargetWidth(), plan.getTargetHeight()),
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+        sampled.recycle();
+    }
+
+    private void write(Bitmap bitmap, String outputPath, int quality,
+            @Nullable byte[] exifSegment) throws IOException {
+        OutputStream out = new JpegExifOutputStream(
+                new BufferedOutputStream(new FileOutputStream(outputPath)), exifSegment);
+        try {
+            if (!bitmap.compress(Bitmap.CompressFormat.JPEG, quality, out)) {
+                throw new IOException("Could not save image: " + outputPath);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Only the EXIF header of the source is read
+     */
+    @Nullable
+    private byte[] getExifSegment(String sourcePath) {
+        try {
+            ExifInterface exif = new ExifInterface(sourcePath);
+            int orientation = exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, 0);
+            String dateTime = exif.getAttribute(ExifInterface.TAG_DATETIME);
+            return JpegExifOutputStream.createSegment(orientation, dateTime);
+        } catch (IOException e) {
+            Timber.e(e);
+            return null;
+        }
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
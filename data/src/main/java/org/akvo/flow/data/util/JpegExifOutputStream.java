@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.util;
+
+import android.support.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Inserts an EXIF segment right after the start of image marker of the JPEG stream written
+ * through it, so that metadata is carried over while the image is compressed, instead of
+ * rewriting the whole file afterwards.
+ */
+public class JpegExifOutputStream extends FilterOutputStream {
+
+    private static final int START_OF_IMAGE_LENGTH = 2;
+
+    private static final int MARKER_APP1 = 0xFFE1;
+    private static final byte[] EXIF_HEADER = { 'E', 'x', 'i', 'f', 0, 0 };
+    private static final int TIFF_HEADER_LENGTH = 8;
+    private static final int IFD_ENTRY_LENGTH = 12;
+
+    private static final int TAG_ORIENTATION = 0x0112;
+    private static final int TAG_DATETIME = 0x0132;
+    private static final int TYPE_ASCII = 2;
+    private static final int TYPE_SHORT = 3;
+    private static final int DATETIME_LENGTH = 20; // "YYYY:MM:DD HH:MM:SS" and its terminator
+
+    @Nullable
+    private final byte[] segment;
+    private long written;
+
+    /**
+     * @param segment the EXIF segment to insert, if any
+     */
+    public JpegExifOutputStream(OutputStream out, @Nullable byte[] segment) {
+        super(out);
+        this.segment = segment;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        written++;
+        if (written == START_OF_IMAGE_LENGTH && segment != null) {
+            out.write(segment);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (segment != null && written < START_OF_IMAGE_LENGTH
+                && written + len >= START_OF_IMAGE_LENGTH) {
+            int head = (int) (START_OF_IMAGE_LENGTH - written);
+            out.write(b, off, head);
+            out.write(segment);
+            out.write(b, off + head, len - head);
+        } else {
+            out.write(b, off, len);
+        }
+        written += len;
+    }
+
+    /**
+     * Builds an APP1 segment holding an EXIF image file directory with the given tags
+     *
+     * @param orientation value of the orientation tag, 0 to leave it out
+     * @param dateTime    value of the date time tag, null to leave it out
+     * @return the segment, null if there is no tag to write
+     */
+    @Nullable
+    public static byte[] createSegment(int orientation, @Nullable String dateTime) {
+        boolean hasOrientation = orientation > 0;
+        boolean hasDateTime = dateTime != null && dateTime.length() == DATETIME_LENGTH - 1;
+        int entries = (hasOrientation ? 1 : 0) + (hasDateTime ? 1 : 0);
+        if (entries == 0) {
+            return null;
+        }
+
+        // Big endian TIFF header, followed by the directory and then the values not fitting in it
+        ByteArrayOutputStream tiff = new ByteArrayOutputStream();
+        tiff.write('M');
+        tiff.write('M');
+        writeShort(tiff, 42);
+        writeInt(tiff, TIFF_HEADER_LENGTH);
+        writeShort(tiff, entries);
+        int valuesOffset = TIFF_HEADER_LENGTH + 2 + entries * IFD_ENTRY_LENGTH + 4;
+        // Entries sorted by tag
+        if (hasOrientation) {
+            writeShort(tiff, TAG_ORIENTATION);
+            writeShort(tiff, TYPE_SHORT);
+            writeInt(tiff, 1);
+            writeShort(tiff, orientation);
+            writeShort(tiff, 0);
+        }
+        if (hasDateTime) {
+            writeShort(tiff, TAG_DATETIME);
+            writeShort(tiff, TYPE_ASCII);
+            writeInt(tiff, DATETIME_LENGTH);
+            writeInt(tiff, valuesOffset);
+        }
+        writeInt(tiff, 0); // no next directory
+        if (hasDateTime) {
+            byte[] value = dateTime.getBytes(Charset.forName("US-ASCII"));
+            tiff.write(value, 0, value.length);
+            tiff.write(0);
+        }
+
+        ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        writeShort(segment, MARKER_APP1);
+        writeShort(segment, 2 + EXIF_HEADER.length + tiff.size()); // including the length
+        segment.write(EXIF_HEADER, 0, EXIF_HEADER.length);
+        byte[] tiffBytes = tiff.toByteArray();
+        segment.write(tiffBytes, 0, tiffBytes.length);
+        return segment.toByteArray();
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write((value >> 8) & 0xFF);
+        out.write(value & 0xFF);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        writeShort(out, (value >> 16) & 0xFFFF);
+        writeShort(out, value & 0xFFFF);
+    }
+}
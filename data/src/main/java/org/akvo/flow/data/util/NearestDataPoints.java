@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.util;
+
+import android.location.Location;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.akvo.flow.domain.entity.DataPointPage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selects the datapoints nearest to a location, within a radius, for a nearest datapoints lookup
+ * or for one page of the datapoint list sorted by distance.
+ * <p>
+ * Candidates are first narrowed down to a bounding box of the radius, which the record location
+ * index can answer. Only the requested number of them is kept while they are added, so the
+ * candidates are never sorted as a whole. Distances are computed on the WGS84 ellipsoid, like the
+ * ones displayed in the datapoint list, so the order matches the real geodesic one. Datapoints at
+ * the same distance are sorted by id.
+ * <p>
+ * If the radius holds fewer datapoints than requested, the page may continue outside of it, so
+ * the search has to be done again with a larger radius, unless it already covers the whole
+ * globe.
+ */
+public class NearestDataPoints {
+
+    /**
+     * Shortest length of a degree of latitude, at the equator, and a slightly short length of a
+     * degree of longitude at the equator, that of the mean radius sphere. Using them never makes
+     * the bounding box too small.
+     */
+    private static final double MIN_METERS_PER_LATITUDE_DEGREE = 110574;
+    private static final double MIN_METERS_PER_LONGITUDE_DEGREE = 111195;
+
+    /**
+     * Longer than half the equator, so that any location of the globe is within this distance
+     */
+    public static final double MAX_DISTANCE = 20040000;
+
+    private static final Comparator<Candidate> NEAREST_FIRST = new Comparator<Candidate>() {
+        @Override
+        public int compare(Candidate c1, Candidate c2) {
+            int result = Float.compare(c1.distance, c2.distance);
+            return result != 0 ? result : c1.id.compareTo(c2.id);
+        }
+    };
+
+    private final double latitude;
+    private final double longitude;
+    private final double radius;
+    private final int count;
+    private final Float afterDistance;
+    private final String afterId;
+    private final PriorityQueue<Candidate> nearest;
+    private final float[] results = new float[1];
+
+    /**
+     * @param radius maximum distance, in meters
+     * @param count  maximum number of datapoints to select
+     * @param after  key of the last datapoint of the previous page, null for the first page. Its
+     *               value is the distance to the location, as written by {@link #getKeys()}.
+     */
+    public NearestDataPoints(double latitude, double longitude, double radius, int count,
+            @Nullable DataPointPage.Key after) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.radius = radius;
+        this.count = count;
+        this.afterDistance = after == null ? null : Float.valueOf(after.getValue());
+        this.afterId = after == null ? null : after.getId();
+        // The farthest of the selected datapoints is the head, to be replaced by nearer ones
+        this.nearest = new PriorityQueue<>(Math.max(1, count),
+                Collections.reverseOrder(NEAREST_FIRST));
+    }
+
+    public double getMinLatitude() {
+        return Math.max(-90, latitude - getLatitudeDelta());
+    }
+
+    public double getMaxLatitude() {
+        return Math.min(90, latitude + getLatitudeDelta());
+    }
+
+    /**
+     * @return the west edge of the box, greater than {@link #getMaxLongitude()} if the box
+     * crosses the antimeridian
+     */
+    public double getMinLongitude() {
+        double delta = getLongitudeDelta();
+        if (delta >= 180) {
+            return -180;
+        }
+        double min = longitude - delta;
+        return min < -180 ? min + 360 : min;
+    }
+
+    public double getMaxLongitude() {
+        double delta = getLongitudeDelta();
+        if (delta >= 180) {
+            return 180;
+        }
+        double max = longitude + delta;
+        return max > 180 ? max - 360 : max;
+    }
+
+    public void add(@NonNull String id, double latitude, double longitude) {
+        if (count <= 0) {
+            return;
+        }
+        float distance = distanceTo(latitude, longitude);
+        if (distance > radius) {
+            return;
+        }
+        Candidate candidate = new Candidate(id, distance);
+        if (afterDistance != null
+                && NEAREST_FIRST.compare(candidate, new Candidate(afterId, afterDistance)) <= 0) {
+            return;
+        }
+        if (nearest.size() < count) {
+            nearest.add(candidate);
+        } else if (NEAREST_FIRST.compare(candidate, nearest.peek()) < 0) {
+            nearest.poll();
+            nearest.add(candidate);
+        }
+    }
+
+    /**
+     * @return true if the page is complete, or if no datapoint can be found by searching again
+     * with a larger radius
+     */
+    public boolean isComplete() {
+        return nearest.size() >= count || radius >= MAX_DISTANCE;
+    }
+
+    /**
+     * @return the keys of the selected datapoints, the nearest first. Their values are the
+     * distances to the location.
+     */
+    @NonNull
+    public List<DataPointPage.Key> getKeys() {
+        List<Candidate> candidates = new ArrayList<>(nearest);
+        Collections.sort(candidates, NEAREST_FIRST);
+        List<DataPointPage.Key> keys = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            keys.add(new DataPointPage.Key(Float.toString(candidate.distance), candidate.id));
+        }
+        return keys;
+    }
+
+    /**
+     * @return the distance in meters from the location
+     */
+    float distanceTo(double latitude, double longitude) {
+        Location.distanceBetween(this.latitude, this.longitude, latitude, longitude, results);
+        return results[0];
+    }
+
+    private double getLatitudeDelta() {
+        return radius / MIN_METERS_PER_LATITUDE_DEGREE;
+    }
+
+    /**
+     * The longitude span of the radius grows with the latitude, so it is computed at the edge of
+     * the box nearest to a pole. Boxes reaching a pole include every longitude.
+     */
+    private double getLongitudeDelta() {
+        double edge = Math.max(Math.abs(getMinLatitude()), Math.abs(getMaxLatitude()));
+        double cos = Math.cos(Math.toRadians(edge));
+        if (edge >= 90 || cos <= 0) {
+            return 180;
+        }
+        return radius / (MIN_METERS_PER_LONGITUDE_DEGREE * cos);
+    }
+
+    private static class Candidate {
+
+        private final String id;
+        private final float distance;
+
+        Candidate(String id, float distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.util;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Plans how to shrink an image to the configured size with a bounded amount of memory, whatever
+ * the resolution of the camera: the image is decoded in horizontal strips, subsampled by a power
+ * of two, and each strip is scaled into the output. Both the output and a strip are bounded by
+ * the configured size, so are the bitmaps held at once.
+ */
+public class ResizePlanner {
+
+    private final int maxStripPixels;
+
+    /**
+     * @param maxStripPixels pixels decoded at once. A strip has at least one row, so it is
+     *                       exceeded by images decoded wider than that
+     */
+    public ResizePlanner(int maxStripPixels) {
+        this.maxStripPixels = maxStripPixels;
+    }
+
+    /**
+     * @param size landscape size to fit the image in, swapped for portrait images
+     */
+    @NonNull
+    public ResizePlan plan(int sourceWidth, int sourceHeight, @NonNull ImageSize size) {
+        if (sourceHeight > sourceWidth) {
+            size = ImageSize.swapWidthHeightForPortrait(size);
+        }
+
+        // Fit the image in the requested size, keeping its aspect ratio. Never enlarge it
+        double scale = Math.min(1.0, Math.min((double) size.getWidth() / sourceWidth,
+                (double) size.getHeight() / sourceHeight));
+        int targetWidth = Math.max(1, (int) Math.round(sourceWidth * scale));
+        int targetHeight = Math.max(1, (int) Math.round(sourceHeight * scale));
+
+        // Largest power of two still decoding at least the output size, so that the decoded
+        // image is less than twice the output size on each side. Decoders round other values
+        // down to a power of two anyway.
+        int sampleSize = 1;
+        while (sourceWidth / (sampleSize * 2) >= targetWidth
+                && sourceHeight / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+
+        int decodedWidth = ceilDiv(sourceWidth, sampleSize);
+        int stripRows = Math.max(1, maxStripPixels / decodedWidth) * sampleSize;
+        return new ResizePlan(sourceWidth, sourceHeight, sampleSize, targetWidth, targetHeight,
+                Math.min(stripRows, sourceHeight));
+    }
+
+    public static class ResizePlan {
+
+        private final int sourceWidth;
+        private final int sourceHeight;
+        private final int sampleSize;
+        private final int targetWidth;
+        private final int targetHeight;
+        private final int stripRows;
+
+        ResizePlan(int sourceWidth, int sourceHeight, int sampleSize, int targetWidth,
+                int targetHeight, int stripRows) {
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+            this.sampleSize = sampleSize;
+            this.targetWidth = targetWidth;
+            this.targetHeight = targetHeight;
+            this.stripRows = stripRows;
+        }
+
+        public int getSampleSize() {
+            return sampleSize;
+        }
+
+        public int getTargetWidth() {
+            return targetWidth;
+        }
+
+        public int getTargetHeight() {
+            return targetHeight;
+        }
+
+        /**
+         * @return rows of the source image decoded at once, a multiple of the sample size
+         * unless the image is shorter
+         */
+        public int getStripRows() {
+            return stripRows;
+        }
+
+        public int getStripCount() {
+            return ceilDiv(sourceHeight, stripRows);
+        }
+
+        /**
+         * @return first row of the source image in the strip
+         */
+        public int getStripTop(int strip) {
+            return strip * stripRows;
+        }
+
+        /**
+         * @return row of the source image after the strip, the last strip being shorter unless
+         * the height of the image is a multiple of the strip rows
+         */
+        public int getStripBottom(int strip) {
+            return Math.min(sourceHeight, getStripTop(strip) + stripRows);
+        }
+
+        /**
+         * @return width of a strip once subsampled
+         */
+        public int getDecodedWidth() {
+            return ceilDiv(sourceWidth, sampleSize);
+        }
+
+        /**
+         * @return height of a strip once subsampled. A bitmap reused for a shorter strip keeps
+         * its previous height, only these rows of it are decoded
+         */
+        public int getDecodedHeight(int strip) {
+            return ceilDiv(getStripBottom(strip) - getStripTop(strip), sampleSize);
+        }
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
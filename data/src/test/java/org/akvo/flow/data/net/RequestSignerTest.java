@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.net;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RequestSignerTest {
+
+    @Test
+    public void sign_ShouldMatchRfc2202TestVector() throws Exception {
+        RequestSigner signer = new RequestSigner("Jefe");
+
+        byte[] hmac = signer.sign("what do ya want for nothing?");
+
+        assertEquals("effcdf6ae5eb2fa2d27416d5f184df9c259a7c79", toHex(hmac));
+    }
+
+    @Test
+    public void sign_ShouldReturnSameResultWhenReused() throws Exception {
+        RequestSigner signer = new RequestSigner("Jefe");
+
+        String first = toHex(signer.sign("payload"));
+        String second = toHex(signer.sign("payload"));
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void getRfc1123Date_ShouldFormatInGmt() throws Exception {
+        String date = RequestSigner.getRfc1123Date(1522750530000L);
+
+        assertEquals("Tue, 03 Apr 2018 10:15:30 GMT", date);
+    }
+
+    @Test
+    public void getRfc1123Date_ShouldUpdateOnNextSecond() throws Exception {
+        RequestSigner.getRfc1123Date(1522750530000L);
+
+        String date = RequestSigner.getRfc1123Date(1522750531000L);
+
+        assertEquals("Tue, 03 Apr 2018 10:15:31 GMT", date);
+    }
+
+    private String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FileFingerprintsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final FileFingerprints fingerprints = new FileFingerprints(2);
+
+    @Test
+    public void sameContentShouldCompareChecksums() throws IOException {
+        File file1 = createFile("a.jpg", "image");
+        File file2 = createFile("b.jpg", "image");
+        File file3 = createFile("c.jpg", "other");
+
+        assertTrue(fingerprints.sameContent(file1, file2));
+        assertFalse(fingerprints.sameContent(file1, file3));
+    }
+
+    @Test
+    public void sameContentShouldNotHashFilesOfDifferentSize() throws IOException {
+        File file1 = createFile("a.jpg", "image");
+        File file2 = createFile("b.jpg", "larger image");
+
+        assertFalse(fingerprints.sameContent(file1, file2));
+        assertEquals(0, fingerprints.size());
+    }
+
+    @Test
+    public void sameContentShouldIgnoreMissingFiles() throws IOException {
+        File file = new File(folder.getRoot(), "missing.jpg");
+
+        assertFalse(fingerprints.sameContent(file, file));
+    }
+
+    @Test
+    public void getChecksumShouldReuseChecksumOfUnchangedFile() throws IOException {
+        File file = createFile("a.jpg", "image");
+
+        assertSame(fingerprints.getChecksum(file), fingerprints.getChecksum(file));
+    }
+
+    @Test
+    public void getChecksumShouldComputeChecksumOfModifiedFile() throws IOException {
+        File file = createFile("a.jpg", "image");
+        byte[] checksum = fingerprints.getChecksum(file);
+
+        write(file, "new image");
+
+        assertNotSame(checksum, fingerprints.getChecksum(file));
+    }
+
+    @Test
+    public void getChecksumShouldKeepMostRecentChecksums() throws IOException {
+        File file1 = createFile("a.jpg", "a");
+        File file2 = createFile("b.jpg", "b");
+        File file3 = createFile("c.jpg", "c");
+        byte[] checksum1 = fingerprints.getChecksum(file1);
+        fingerprints.getChecksum(file2);
+        fingerprints.getChecksum(file3);
+
+        assertEquals(2, fingerprints.size());
+        assertNotSame(checksum1, fingerprints.getChecksum(file1));
+    }
+
+    private File createFile(String name, String content) throws IOException {
+        File file = folder.newFile(name);
+        write(file, content);
+        return file;
+    }
+
+    private void write(File file, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
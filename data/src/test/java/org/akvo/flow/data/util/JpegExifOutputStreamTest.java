@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class JpegExifOutputStreamTest {
+
+    private static final byte[] JPEG = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 1, 2 };
+
+    @Test
+    public void createSegmentShouldWriteOrientation() {
+        byte[] segment = JpegExifOutputStream.createSegment(6, null);
+
+        assertEquals(0xFFE1, readShort(segment, 0));
+        assertEquals(segment.length - 2, readShort(segment, 2));
+        assertArrayEquals(new byte[] { 'E', 'x', 'i', 'f', 0, 0 },
+                Arrays.copyOfRange(segment, 4, 10));
+        // TIFF header, then a directory of one entry
+        assertEquals('M', segment[10]);
+        assertEquals(42, readShort(segment, 12));
+        assertEquals(1, readShort(segment, 18));
+        assertEquals(0x0112, readShort(segment, 20));
+        assertEquals(6, readShort(segment, 28));
+    }
+
+    @Test
+    public void createSegmentShouldWriteDateTimeAfterDirectory() {
+        byte[] segment = JpegExifOutputStream.createSegment(1, "2018:05:04 10:20:30");
+
+        assertEquals(2, readShort(segment, 18));
+        assertEquals(0x0132, readShort(segment, 32));
+        int offset = readShort(segment, 40) << 16 | readShort(segment, 42);
+        assertEquals("2018:05:04 10:20:30",
+                new String(segment, 10 + offset, 19));
+        assertEquals(0, segment[10 + offset + 19]);
+        assertEquals(segment.length, 10 + offset + 20);
+    }
+
+    @Test
+    public void createSegmentShouldSkipMissingTags() {
+        assertNull(JpegExifOutputStream.createSegment(0, null));
+        assertNull(JpegExifOutputStream.createSegment(0, "invalid"));
+    }
+
+    @Test
+    public void streamShouldInsertSegmentAfterStartOfImage() throws IOException {
+        byte[] segment = JpegExifOutputStream.createSegment(3, null);
+
+        assertArrayEquals(expected(segment), write(segment, JPEG.length));
+        assertArrayEquals(expected(segment), write(segment, 1));
+        assertArrayEquals(expected(segment), write(segment, 2));
+    }
+
+    @Test
+    public void streamShouldCopyJpegWithoutSegment() throws IOException {
+        assertArrayEquals(JPEG, write(null, 3));
+    }
+
+    private byte[] write(byte[] segment, int chunkSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream out = new JpegExifOutputStream(bytes, segment);
+        for (int i = 0; i < JPEG.length; i += chunkSize) {
+            int length = Math.min(chunkSize, JPEG.length - i);
+            if (length == 1) {
+                out.write(JPEG[i]);
+            } else {
+                out.write(JPEG, i, length);
+            }
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private byte[] expected(byte[] segment) {
+        byte[] expected = new byte[JPEG.length + segment.length];
+        System.arraycopy(JPEG, 0, expected, 0, 2);
+        System.arraycopy(segment, 0, expected, 2, segment.length);
+        System.arraycopy(JPEG, 2, expected, 2 + segment.length, JPEG.length - 2);
+        return expected;
+    }
+
+    private int readShort(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 8 | (bytes[offset + 1] & 0xFF);
+    }
+}
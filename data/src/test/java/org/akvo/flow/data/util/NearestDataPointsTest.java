@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.util;
+
+import org.akvo.flow.domain.entity.DataPointPage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NearestDataPointsTest {
+
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void boxShouldContainRadius() {
+        NearestDataPoints nearest = create(10, 20, 10000, 5, null);
+
+        assertEquals(10 - 0.0904, nearest.getMinLatitude(), DELTA);
+        assertEquals(10 + 0.0904, nearest.getMaxLatitude(), DELTA);
+        assertTrue(nearest.getMinLongitude() < 20 - 0.0913);
+        assertTrue(nearest.getMaxLongitude() > 20 + 0.0913);
+    }
+
+    @Test
+    public void boxShouldWrapAroundAntimeridian() {
+        NearestDataPoints nearest = create(0, 179.99, 10000, 5, null);
+
+        assertEquals(179.99 - 0.0899, nearest.getMinLongitude(), DELTA);
+        assertEquals(-180 + 0.0799, nearest.getMaxLongitude(), DELTA);
+        assertTrue(nearest.getMinLongitude() > nearest.getMaxLongitude());
+    }
+
+    @Test
+    public void boxReachingPoleShouldIncludeEveryLongitude() {
+        NearestDataPoints nearest = create(89.95, 20, 10000, 5, null);
+
+        assertEquals(90, nearest.getMaxLatitude(), DELTA);
+        assertEquals(-180, nearest.getMinLongitude(), DELTA);
+        assertEquals(180, nearest.getMaxLongitude(), DELTA);
+    }
+
+    @Test
+    public void shouldKeepNearestDataPointsWithinRadius() {
+        NearestDataPoints nearest = create(0, 0, 1000, 3, null);
+        nearest.add("far", 0, 0.005);
+        nearest.add("outside", 0, 0.05);
+        nearest.add("nearest", 0, 0.001);
+        nearest.add("farthest", 0, 0.007);
+        nearest.add("near", 0.003, 0);
+
+        assertEquals(Arrays.asList("nearest", "near", "far"), ids(nearest.getKeys()));
+        assertTrue(nearest.isComplete());
+    }
+
+    @Test
+    public void shouldSortSameDistanceById() {
+        NearestDataPoints nearest = create(0, 0, 1000, 3, null);
+        nearest.add("c", 0, 0.001);
+        nearest.add("a", 0, -0.001);
+        nearest.add("b", 0, 0.001);
+
+        assertEquals(Arrays.asList("a", "b", "c"), ids(nearest.getKeys()));
+    }
+
+    @Test
+    public void shouldContinueAfterKey() {
+        NearestDataPoints first = create(0, 0, 1000, 2, null);
+        addLine(first);
+        List<DataPointPage.Key> firstPage = first.getKeys();
+
+        NearestDataPoints second = create(0, 0, 1000, 2, firstPage.get(1));
+        addLine(second);
+
+        assertEquals(Arrays.asList("a", "b"), ids(firstPage));
+        assertEquals(Arrays.asList("c", "d"), ids(second.getKeys()));
+    }
+
+    @Test
+    public void shouldNotBeCompleteWhileRadiusCanGrow() {
+        NearestDataPoints nearest = create(0, 0, 1000, 2, null);
+        nearest.add("a", 0, 0.001);
+
+        assertFalse(nearest.isComplete());
+        assertTrue(create(0, 0, NearestDataPoints.MAX_DISTANCE, 2, null).isComplete());
+    }
+
+    private void addLine(NearestDataPoints nearest) {
+        // b and c are at the same distance
+        nearest.add("d", 0, 0.003);
+        nearest.add("c", 0, -0.002);
+        nearest.add("b", 0, 0.002);
+        nearest.add("a", 0, 0.001);
+    }
+
+    private static NearestDataPoints create(double latitude, double longitude, double radius,
+            int count, DataPointPage.Key after) {
+        return new NearestDataPoints(latitude, longitude, radius, count, after) {
+            @Override
+            float distanceTo(double toLatitude, double toLongitude) {
+                return haversine(latitude, longitude, toLatitude, toLongitude);
+            }
+        };
+    }
+
+    /**
+     * Distance on the mean radius sphere, as Location is not available in unit tests
+     */
+    private static float haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return (float) (6371009 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
+    }
+
+    private static List<String> ids(List<DataPointPage.Key> keys) {
+        List<String> ids = new ArrayList<>();
+        for (DataPointPage.Key key : keys) {
+            ids.add(key.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.data.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResizePlannerTest {
+
+    private static final int MAX_STRIP_PIXELS = 512 * 1024;
+
+    private final ResizePlanner planner = new ResizePlanner(MAX_STRIP_PIXELS);
+
+    @Test
+    public void planShouldFitImageInSize() {
+        ResizePlanner.ResizePlan plan = planner.plan(4000, 3000, new ImageSize(640, 480));
+
+        assertEquals(640, plan.getTargetWidth());
+        assertEquals(480, plan.getTargetHeight());
+    }
+
+    @Test
+    public void planShouldKeepAspectRatio() {
+        ResizePlanner.ResizePlan plan = planner.plan(4000, 2000, new ImageSize(640, 480));
+
+        assertEquals(640, plan.getTargetWidth());
+        assertEquals(320, plan.getTargetHeight());
+    }
+
+    @Test
+    public void planShouldSwapSizeForPortraitImages() {
+        ResizePlanner.ResizePlan plan = planner.plan(3000, 4000, new ImageSize(640, 480));
+
+        assertEquals(480, plan.getTargetWidth());
+        assertEquals(640, plan.getTargetHeight());
+    }
+
+    @Test
+    public void planShouldNotEnlargeSmallImages() {
+        ResizePlanner.ResizePlan plan = planner.plan(300, 200, new ImageSize(640, 480));
+
+        assertEquals(300, plan.getTargetWidth());
+        assertEquals(200, plan.getTargetHeight());
+        assertEquals(1, plan.getSampleSize());
+        assertEquals(200, plan.getStripRows());
+    }
+
+    @Test
+    public void planShouldSampleByLargestPowerOfTwoKeepingTargetSize() {
+        ResizePlanner.ResizePlan plan = planner.plan(4000, 3000, new ImageSize(640, 480));
+
+        // 4000 / 4 = 1000 >= 640, while 4000 / 8 = 500 < 640
+        assertEquals(4, plan.getSampleSize());
+    }
+
+    @Test
+    public void planShouldBoundDecodedPixelsWhateverTheResolution() {
+        ImageSize size = new ImageSize(1280, 980);
+        int[][] sensors = { { 4000, 3000 }, { 5312, 2988 }, { 8000, 6000 }, { 9248, 6936 } };
+        for (int[] sensor : sensors) {
+            ResizePlanner.ResizePlan plan = planner.plan(sensor[0], sensor[1], size);
+            int decodedWidth = (sensor[0] + plan.getSampleSize() - 1) / plan.getSampleSize();
+            int stripPixels = decodedWidth * plan.getStripRows() / plan.getSampleSize();
+
+            assertTrue(decodedWidth < 2 * plan.getTargetWidth());
+            assertTrue(stripPixels <= MAX_STRIP_PIXELS);
+            assertEquals(0, plan.getStripRows() % plan.getSampleSize());
+        }
+    }
+
+    @Test
+    public void planShouldDecodeOnlyRemainingRowsOfLastStrip() {
+        // 1000 rows in strips of 256: the last strip has 232 rows
+        ResizePlanner planner = new ResizePlanner(256 * 1000);
+        ResizePlanner.ResizePlan plan = planner.plan(1000, 1000, new ImageSize(1000, 1000));
+
+        assertEquals(256, plan.getStripRows());
+        assertEquals(4, plan.getStripCount());
+        assertEquals(768, plan.getStripTop(3));
+        assertEquals(1000, plan.getStripBottom(3));
+        assertEquals(1000, plan.getDecodedWidth());
+        assertEquals(256, plan.getDecodedHeight(2));
+        assertEquals(232, plan.getDecodedHeight(3));
+    }
+
+    @Test
+    public void planShouldRoundUpSubsampledRowsOfLastStrip() {
+        ResizePlanner.ResizePlan plan = planner.plan(4000, 3001, new ImageSize(640, 480));
+        int last = plan.getStripCount() - 1;
+        int lastRows = plan.getStripBottom(last) - plan.getStripTop(last);
+
+        assertTrue(3001 % plan.getStripRows() != 0);
+        assertEquals(3001, plan.getStripBottom(last));
+        assertEquals((lastRows + plan.getSampleSize() - 1) / plan.getSampleSize(),
+                plan.getDecodedHeight(last));
+        assertTrue(plan.getDecodedHeight(last) < plan.getStripRows() / plan.getSampleSize());
+    }
+}
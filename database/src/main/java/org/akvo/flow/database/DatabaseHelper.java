@@ -20,14 +20,16 @@
 
 package org.akvo.flow.database;
 
-import android.content.ContentValues;
 import android.content.Context;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
-import android.util.Pair;
 
 import org.akvo.flow.database.migration.MigrationListener;
-import org.akvo.flow.database.migration.ResponseMigrationHelper;
+import org.akvo.flow.database.migration.ResponseIndexMigration;
+import org.akvo.flow.database.migration.ResponseIterationMigration;
+import org.akvo.flow.database.migration.ResumableMigration;
+import org.akvo.flow.database.migration.UndoableMigration;
 import org.akvo.flow.database.upgrade.UpgraderFactory;
 
 import java.util.Map;
@@ -51,13 +53,34 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final int VER_PREFERENCES_MIGRATE = 83;
     public static final int VER_LANGUAGES_MIGRATE = 84;
     public static final int VER_RESPONSE_ITERATION = 85;
-    static final int DATABASE_VERSION = VER_RESPONSE_ITERATION;
+    public static final int VER_STATS = 86;
+    public static final int VER_RECORD_STATUS = 87;
+    public static final int VER_RECORD_SEARCH = 88;
+    public static final int VER_RECORD_LOCATION = 89;
+    public static final int VER_MAP_CLUSTERS = 90;
+    public static final int VER_RECORD_CHANGES = 91;
+    public static final int VER_AUTO_VACUUM = 92;
+    public static final int VER_RESPONSE_ARCHIVE = 93;
+    public static final int VER_SIGNATURE_FILES = 94;
+    public static final int VER_RESUMABLE_MIGRATIONS = 95;
+    public static final int VER_RESPONSE_INDEX = 96;
+    static final int DATABASE_VERSION = VER_RESPONSE_INDEX;
+
+    static final String MIGRATION_RESPONSE_ITERATION = "response_iteration";
+    static final String MIGRATION_SIGNATURE_FILES = "signature_files";
+    static final String MIGRATION_ARCHIVED_SIGNATURE_FILES = "archived_signature_files";
 
     private static SQLiteDatabase database;
     private static final Object LOCK_OBJ = new Object();
     private volatile static int instanceCount = 0;
     private final MigrationListener migrationListener;
     private final LanguageTable languageTable;
+    private final StatsTable statsTable = new StatsTable();
+    private final RecordSearchTable recordSearchTable = new RecordSearchTable();
+    private final MapClusterTable mapClusterTable = new MapClusterTable();
+    private final RecordChangeTable recordChangeTable = new RecordChangeTable();
+    private final ResponseArchiveTable responseArchiveTable = new ResponseArchiveTable();
+    private final PendingMigrationTable pendingMigrationTable = new PendingMigrationTable();
 
     public DatabaseHelper(Context context, LanguageTable languageTable,
             MigrationListener migrationListener) {
@@ -131,6 +154,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + RecordColumns.LATITUDE + " REAL,"// REFERENCES ...
                 + RecordColumns.LONGITUDE + " REAL,"// REFERENCES ...
                 + RecordColumns.LAST_MODIFIED + " INTEGER NOT NULL DEFAULT 0,"
+                + RecordColumns.STATUS + " INTEGER NOT NULL DEFAULT 0,"
                 + "UNIQUE (" + RecordColumns.RECORD_ID + ") ON CONFLICT REPLACE)");
 
         db.execSQL("CREATE TABLE " + Tables.TRANSMISSION + " ("
@@ -149,7 +173,16 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + SyncTimeColumns.TIME + " TEXT,"
                 + "UNIQUE (" + SyncTimeColumns.SURVEY_GROUP_ID + ") ON CONFLICT REPLACE)");
         languageTable.onCreate(db);
+        statsTable.onCreate(db);
+        recordSearchTable.onCreate(db);
+        mapClusterTable.onCreate(db);
+        recordChangeTable.onCreate(db);
+        responseArchiveTable.onCreate(db);
+        pendingMigrationTable.onCreate(db);
         createIndexes(db);
+        createRecordListIndexes(db);
+        createRecordLocationIndex(db);
+        createRecordStatusTriggers(db);
     }
 
     @Override
@@ -158,6 +191,97 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         new UpgraderFactory().createUpgrader(oldVersion, this, db).upgrade();
     }
 
+    /**
+     * @return true if data migrations scheduled by an upgrade have not completed yet
+     */
+    public boolean hasPendingMigrations(SQLiteDatabase db) {
+        return !pendingMigrationTable.getPending(db).isEmpty();
+    }
+
+    /**
+     * Runs the pending data migrations, one batch per transaction. This may take a while on large
+     * databases, so it must be called from a background thread. A migration which fails, or whose
+     * batch does not move on, is left pending and resumed from its last completed batch the next
+     * time this is called.
+     *
+     * @return true if all the migrations completed, false if any is still pending
+     */
+    public boolean resumeMigrations(SQLiteDatabase db) {
+        for (Map.Entry<String, Long> pending : pendingMigrationTable.getPending(db).entrySet()) {
+            String name = pending.getKey();
+            long position = pending.getValue();
+            ResumableMigration migration = getMigration(name);
+            long start = System.currentTimeMillis();
+            int batches = 0;
+            try {
+                if (migration == null) {
+                    pendingMigrationTable.remove(db, name);
+                    continue;
+                }
+                while (position != ResumableMigration.DONE) {
+                    long next = migrateBatch(db, name, migration, position);
+                    if (next == position) {
+                        Timber.e("Migration %s stopped at %d after %d batches", name, position,
+                                batches);
+                        return false;
+                    }
+                    position = next;
+                    batches++;
+                }
+                Timber.i("Migration %s completed in %d batches, %d ms", name, batches,
+                        System.currentTimeMillis() - start);
+            } catch (SQLException e) {
+                Timber.e(e, "Migration %s failed after %d batches", name, batches);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long migrateBatch(SQLiteDatabase db, String name, ResumableMigration migration,
+            long position) {
+        boolean committed = false;
+        try {
+            db.beginTransaction();
+            try {
+                position = migration.migrateBatch(db, position);
+                if (position == ResumableMigration.DONE) {
+                    pendingMigrationTable.remove(db, name);
+                } else {
+                    pendingMigrationTable.setPosition(db, name, position);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            committed = true;
+        } finally {
+            if (!committed && migration instanceof UndoableMigration) {
+                ((UndoableMigration) migration).onBatchRolledBack();
+            }
+        }
+        return position;
+    }
+
+    private ResumableMigration getMigration(String name) {
+        switch (name) {
+            case MIGRATION_RESPONSE_ITERATION:
+                return new ResponseIterationMigration();
+            case MIGRATION_SIGNATURE_FILES:
+                return migrationListener.getSignatureMigration();
+            case MIGRATION_ARCHIVED_SIGNATURE_FILES:
+                return migrationListener.getArchivedSignatureMigration();
+            default:
+                Timber.w("Unknown migration %s", name);
+                return null;
+        }
+    }
+
+    private void scheduleMigration(SQLiteDatabase db, String name) {
+        pendingMigrationTable.onCreate(db);
+        pendingMigrationTable.add(db, name);
+    }
+
     public void upgradeFromPreferences(SQLiteDatabase db) {
         languageTable.onCreate(db);
         migrationListener.migrateLanguages(db);
@@ -202,10 +326,65 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public void upgradeFromLanguages(SQLiteDatabase db) {
         db.execSQL("ALTER TABLE " + Tables.RESPONSE
                 + " ADD COLUMN " + ResponseColumns.ITERATION + " INTEGER NOT NULL DEFAULT 0");
-        ResponseMigrationHelper responseMigrationHelper = new ResponseMigrationHelper();
-        Map<Pair<String, String>, ContentValues> responseMigrationData = responseMigrationHelper
-                .obtainResponseMigrationData(db);
-        responseMigrationHelper.migrateResponses(responseMigrationData, db);
+        scheduleMigration(db, MIGRATION_RESPONSE_ITERATION);
+    }
+
+    public void upgradeFromResponseIteration(SQLiteDatabase db) {
+        statsTable.onCreate(db);
+        statsTable.rebuild(db);
+    }
+
+    public void upgradeFromStats(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + Tables.RECORD
+                + " ADD COLUMN " + RecordColumns.STATUS + " INTEGER NOT NULL DEFAULT 0");
+        createRecordListIndexes(db);
+        db.execSQL("UPDATE " + Tables.RECORD + " SET " + RecordColumns.STATUS + " = "
+                + recordStatus(Tables.RECORD + "." + RecordColumns.RECORD_ID));
+        createRecordStatusTriggers(db);
+    }
+
+    public void upgradeFromRecordStatus(SQLiteDatabase db) {
+        recordSearchTable.onCreate(db);
+        recordSearchTable.rebuild(db);
+    }
+
+    public void upgradeFromRecordSearch(SQLiteDatabase db) {
+        createRecordLocationIndex(db);
+    }
+
+    public void upgradeFromRecordLocation(SQLiteDatabase db) {
+        mapClusterTable.onCreate(db);
+    }
+
+    public void upgradeFromMapClusters(SQLiteDatabase db) {
+        recordChangeTable.onCreate(db);
+    }
+
+    /**
+     * The database is converted by the next {@link DatabaseMaintenance#run(SQLiteDatabase)}
+     */
+    public void upgradeFromRecordChanges(SQLiteDatabase db) {
+        DatabaseMaintenance.enableIncrementalVacuum(db);
+    }
+
+    public void upgradeFromAutoVacuum(SQLiteDatabase db) {
+        responseArchiveTable.onCreate(db);
+    }
+
+    public void upgradeFromResponseArchive(SQLiteDatabase db) {
+        scheduleMigration(db, MIGRATION_SIGNATURE_FILES);
+        scheduleMigration(db, MIGRATION_ARCHIVED_SIGNATURE_FILES);
+    }
+
+    public void upgradeFromSignatureFiles(SQLiteDatabase db) {
+        pendingMigrationTable.onCreate(db);
+    }
+
+    /**
+     * The unique index is created right away, so that saving a response never adds a duplicate
+     */
+    public void upgradeFromResumableMigrations(SQLiteDatabase db) {
+        new ResponseIndexMigration().migrate(db);
     }
 
     @Override
@@ -240,10 +419,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     }
 
     private void createIndexes(SQLiteDatabase db) {
-        // Included in point updates
-        db.execSQL("CREATE INDEX response_idx ON " + Tables.RESPONSE + "("
-                + ResponseColumns.SURVEY_INSTANCE_ID + ", " + ResponseColumns.QUESTION_ID
-                + ")");
+        // Unique, so that saving a response replaces the previous one
+        db.execSQL(ResponseIndexMigration.getCreateIndexSql());
         db.execSQL("CREATE INDEX record_name_idx ON " + Tables.RECORD
                 + "(" + RecordColumns.NAME + ")");
         db.execSQL("CREATE INDEX response_status_idx ON " + Tables.SURVEY_INSTANCE
@@ -252,6 +429,77 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + "(" + SurveyInstanceColumns.SUBMITTED_DATE + ")");
     }
 
+    /**
+     * Indexes matching the datapoint list orderings, so that pages are read straight from them
+     */
+    private void createRecordListIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS instance_record_idx ON " + Tables.SURVEY_INSTANCE
+                + "(" + SurveyInstanceColumns.RECORD_ID + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS record_date_idx ON " + Tables.RECORD + "("
+                + RecordColumns.SURVEY_GROUP_ID + ", " + RecordColumns.LAST_MODIFIED + ", "
+                + RecordColumns.RECORD_ID + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS record_group_name_idx ON " + Tables.RECORD + "("
+                + RecordColumns.SURVEY_GROUP_ID + ", " + RecordColumns.NAME + " COLLATE NOCASE, "
+                + RecordColumns.RECORD_ID + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS record_status_idx ON " + Tables.RECORD + "("
+                + RecordColumns.SURVEY_GROUP_ID + ", " + RecordColumns.STATUS + ", "
+                + RecordColumns.RECORD_ID + ")");
+    }
+
+    /**
+     * Spatial index of the records: nearby records are looked up within a bounding box, which
+     * seeks to its latitude range and filters longitudes within the index
+     */
+    private void createRecordLocationIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS record_location_idx ON " + Tables.RECORD + "("
+                + RecordColumns.SURVEY_GROUP_ID + ", " + RecordColumns.LATITUDE + ", "
+                + RecordColumns.LONGITUDE + ")");
+    }
+
+    /**
+     * record.status holds the lowest status of the record form instances, 0 if it has none.
+     * These triggers keep it up to date whichever way survey_instance is modified.
+     */
+    private void createRecordStatusTriggers(SQLiteDatabase db) {
+        String updateNew = updateRecordStatus("NEW." + SurveyInstanceColumns.RECORD_ID);
+        String updateOld = updateRecordStatus("OLD." + SurveyInstanceColumns.RECORD_ID);
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS record_status_instance_insert AFTER INSERT ON "
+                + Tables.SURVEY_INSTANCE + " BEGIN " + updateNew + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS record_status_instance_delete AFTER DELETE ON "
+                + Tables.SURVEY_INSTANCE + " BEGIN " + updateOld + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS record_status_instance_update AFTER UPDATE OF "
+                + SurveyInstanceColumns.STATUS + ", " + SurveyInstanceColumns.RECORD_ID + " ON "
+                + Tables.SURVEY_INSTANCE + " BEGIN " + updateNew + " " + updateOld + " END");
+        // Rows removed by ON CONFLICT REPLACE do not fire delete triggers
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS record_status_instance_replace BEFORE INSERT ON "
+                + Tables.SURVEY_INSTANCE + " BEGIN UPDATE " + Tables.RECORD + " SET "
+                + RecordColumns.STATUS + " = IFNULL((SELECT MIN(" + SurveyInstanceColumns.STATUS
+                + ") FROM " + Tables.SURVEY_INSTANCE + " WHERE "
+                + SurveyInstanceColumns.RECORD_ID + " = " + Tables.RECORD + "."
+                + RecordColumns.RECORD_ID + " AND " + SurveyInstanceColumns.UUID
+                + " != NEW." + SurveyInstanceColumns.UUID + "), 0) WHERE "
+                + RecordColumns.RECORD_ID + " IN (SELECT " + SurveyInstanceColumns.RECORD_ID
+                + " FROM " + Tables.SURVEY_INSTANCE + " WHERE " + SurveyInstanceColumns.UUID
+                + " = NEW." + SurveyInstanceColumns.UUID + "); END");
+        // Records are replaced when synced, the new row must get the status back
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS record_status_record_insert AFTER INSERT ON "
+                + Tables.RECORD + " BEGIN UPDATE " + Tables.RECORD + " SET "
+                + RecordColumns.STATUS + " = " + recordStatus("NEW." + RecordColumns.RECORD_ID)
+                + " WHERE " + RecordColumns._ID + " = NEW." + RecordColumns._ID + "; END");
+    }
+
+    private String updateRecordStatus(String recordId) {
+        return "UPDATE " + Tables.RECORD + " SET " + RecordColumns.STATUS + " = "
+                + recordStatus(recordId) + " WHERE " + RecordColumns.RECORD_ID + " = "
+                + recordId + ";";
+    }
+
+    private String recordStatus(String recordId) {
+        return "IFNULL((SELECT MIN(" + SurveyInstanceColumns.STATUS + ") FROM "
+                + Tables.SURVEY_INSTANCE + " WHERE " + SurveyInstanceColumns.RECORD_ID + " = "
+                + recordId + "), 0)";
+    }
+
     public void dropAllTables(SQLiteDatabase db) {
         db.execSQL("DROP TABLE IF EXISTS " + Tables.RESPONSE);
         db.execSQL("DROP TABLE IF EXISTS " + Tables.SYNC_TIME);
@@ -262,5 +510,11 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL("DROP TABLE IF EXISTS " + Tables.SURVEY_INSTANCE);
         db.execSQL("DROP TABLE IF EXISTS " + Tables.RECORD);
         db.execSQL("DROP TABLE IF EXISTS " + Tables.TRANSMISSION);
+        statsTable.dropTable(db);
+        recordSearchTable.dropTable(db);
+        mapClusterTable.dropTable(db);
+        recordChangeTable.dropTable(db);
+        responseArchiveTable.dropTable(db);
+        pendingMigrationTable.dropTable(db);
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Gives the space of deleted rows back to the file system, and refreshes the statistics the
+ * query planner uses to choose between indexes.
+ * <p>
+ * Databases use incremental auto-vacuum, so the free pages only need to be moved to the end of
+ * the file and truncated. They are switched to it by their first maintenance, as Android creates
+ * a table before the database can be configured, and the full VACUUM needed to convert it can
+ * not run within the upgrade transaction.
+ */
+public class DatabaseMaintenance {
+
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    /**
+     * Takes effect after the next full VACUUM
+     */
+    public static void enableIncrementalVacuum(SQLiteDatabase db) {
+        db.execSQL("PRAGMA auto_vacuum = " + AUTO_VACUUM_INCREMENTAL);
+    }
+
+    /**
+     * Vacuums and analyzes the database. It must not be called within a transaction.
+     */
+    public void run(SQLiteDatabase db) {
+        if (queryLong(db, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            enableIncrementalVacuum(db);
+            db.execSQL("VACUUM");
+        } else {
+            // The pragma frees one page per returned row, so all of them have to be read
+            Cursor cursor = db.rawQuery("PRAGMA incremental_vacuum", null);
+            cursor.getCount();
+            cursor.close();
+        }
+        db.execSQL("ANALYZE");
+    }
+
+    public DatabaseSize getSize(SQLiteDatabase db) {
+        long pageSize = queryLong(db, "PRAGMA page_size");
+        long totalBytes = queryLong(db, "PRAGMA page_count") * pageSize;
+        long freeBytes = queryLong(db, "PRAGMA freelist_count") * pageSize;
+        Map<String, Long> tableRows = new LinkedHashMap<>();
+        Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'table'"
+                + " AND name NOT LIKE 'sqlite_%' AND name NOT LIKE 'android_%' ORDER BY name",
+                null);
+        try {
+            while (cursor.moveToNext()) {
+                String table = cursor.getString(0);
+                tableRows.put(table, queryLong(db, "SELECT COUNT(*) FROM \"" + table + "\""));
+            }
+        } finally {
+            cursor.close();
+        }
+        return new DatabaseSize(totalBytes, freeBytes, tableRows);
+    }
+
+    private long queryLong(SQLiteDatabase db, String sql) {
+        return DatabaseUtils.longForQuery(db, sql, null);
+    }
+}
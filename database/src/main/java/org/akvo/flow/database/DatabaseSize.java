@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database;
+
+import java.util.Map;
+
+/**
+ * Size of the database file, and number of rows of every table. SQLite on Android is not built
+ * with the dbstat table, so the bytes used by every table are not known.
+ */
+public class DatabaseSize {
+
+    private final long totalBytes;
+    private final long freeBytes;
+    private final Map<String, Long> tableRows;
+
+    public DatabaseSize(long totalBytes, long freeBytes, Map<String, Long> tableRows) {
+        this.totalBytes = totalBytes;
+        this.freeBytes = freeBytes;
+        this.tableRows = tableRows;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return the bytes of the unused pages, which a vacuum gives back to the file system
+     */
+    public long getFreeBytes() {
+        return freeBytes;
+    }
+
+    /**
+     * @return the number of rows of every table, by table name
+     */
+    public Map<String, Long> getTableRows() {
+        return tableRows;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Precomputed clusters of the located records of every survey group, for each map zoom level.
+ * <p>
+ * At zoom level z the world is divided in a grid of square cells of 360 / 2^(z+1) degrees, about
+ * 128dp wide on the map, and every cell with records holds their number and mean position.
+ * Cells of a level are the union of 4 cells of the next one, so every level is built from the
+ * one below it, and only the deepest one reads the record table. The map then loads only the
+ * cells in view. Triggers on the record table drop the clusters of a survey group whenever its
+ * records are added, removed or moved, and they are built again the next time they are needed.
+ * <p>
+ * Built survey groups have a marker row at {@link #BUILT_ZOOM}, so that a group without located
+ * records is not built again every time the map moves. The triggers drop it with the clusters.
+ */
+public class MapClusterTable {
+
+    public static final String TABLE_NAME = "map_cluster";
+    public static final String COLUMN_SURVEY_GROUP_ID = "survey_group_id";
+    public static final String COLUMN_ZOOM = "zoom";
+    public static final String COLUMN_X = "x";
+    public static final String COLUMN_Y = "y";
+    public static final String COLUMN_COUNT = "count";
+    public static final String COLUMN_LATITUDE = "latitude";
+    public static final String COLUMN_LONGITUDE = "longitude";
+    public static final String COLUMN_RECORD_ID = "record_id";// Only meaningful if count is 1
+
+    /**
+     * Deepest clustered zoom level, with cells of about 1km. Records are displayed one by one on
+     * closer zoom levels.
+     */
+    public static final int MAX_ZOOM = 14;
+
+    /**
+     * Zoom level of the marker row of the built survey groups, below any map zoom level
+     */
+    public static final int BUILT_ZOOM = -1;
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+            + COLUMN_SURVEY_GROUP_ID + " INTEGER NOT NULL,"
+            + COLUMN_ZOOM + " INTEGER NOT NULL,"
+            + COLUMN_X + " INTEGER NOT NULL,"
+            + COLUMN_Y + " INTEGER NOT NULL,"
+            + COLUMN_COUNT + " INTEGER NOT NULL,"
+            + COLUMN_LATITUDE + " REAL NOT NULL,"
+            + COLUMN_LONGITUDE + " REAL NOT NULL,"
+            + COLUMN_RECORD_ID + " TEXT,"
+            + "PRIMARY KEY (" + COLUMN_SURVEY_GROUP_ID + ", " + COLUMN_ZOOM + ", " + COLUMN_X
+            + ", " + COLUMN_Y + "))";
+
+    public void onCreate(SQLiteDatabase db) {
+        for (String sql : getCreateSql()) {
+            db.execSQL(sql);
+        }
+    }
+
+    public void dropTable(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+    }
+
+    /**
+     * Builds all the cluster levels of a survey group, replacing the existing ones
+     */
+    public void build(SQLiteDatabase db, long surveyGroupId) {
+        Object[] args = new Object[] { String.valueOf(surveyGroupId) };
+        for (String sql : getBuildSql()) {
+            db.execSQL(sql, args);
+        }
+    }
+
+    /**
+     * @return the statements creating the table and its triggers
+     */
+    static String[] getCreateSql() {
+        String deleteNew = deleteClusters("NEW." + RecordColumns.SURVEY_GROUP_ID);
+        String deleteOld = deleteClusters("OLD." + RecordColumns.SURVEY_GROUP_ID);
+        return new String[] {
+                CREATE_TABLE,
+                "CREATE TRIGGER IF NOT EXISTS map_cluster_insert AFTER INSERT ON "
+                        + Tables.RECORD + " BEGIN " + deleteNew + " END",
+                "CREATE TRIGGER IF NOT EXISTS map_cluster_delete AFTER DELETE ON "
+                        + Tables.RECORD + " BEGIN " + deleteOld + " END",
+                "CREATE TRIGGER IF NOT EXISTS map_cluster_update AFTER UPDATE OF "
+                        + RecordColumns.LATITUDE + ", " + RecordColumns.LONGITUDE + ", "
+                        + RecordColumns.SURVEY_GROUP_ID + " ON " + Tables.RECORD
+                        + " BEGIN " + deleteNew + " " + deleteOld + " END",
+                // Rows removed by ON CONFLICT REPLACE do not fire delete triggers
+                "CREATE TRIGGER IF NOT EXISTS map_cluster_replace BEFORE INSERT ON "
+                        + Tables.RECORD + " BEGIN DELETE FROM " + TABLE_NAME + " WHERE "
+                        + COLUMN_SURVEY_GROUP_ID + " IN (SELECT "
+                        + RecordColumns.SURVEY_GROUP_ID + " FROM " + Tables.RECORD + " WHERE "
+                        + RecordColumns.RECORD_ID + " = NEW." + RecordColumns.RECORD_ID
+                        + "); END"
+        };
+    }
+
+    /**
+     * @return the statements building the clusters of a survey group, each taking the survey
+     * group id as only argument
+     */
+    static String[] getBuildSql() {
+        double size = getCellSize(MAX_ZOOM);
+        long maxX = getCellCount(MAX_ZOOM) - 1;
+        long maxY = maxX / 2;
+        String[] statements = new String[MAX_ZOOM + 3];
+        statements[0] = "DELETE FROM " + TABLE_NAME + " WHERE " + COLUMN_SURVEY_GROUP_ID + " = ?";
+        statements[1] = "INSERT INTO " + TABLE_NAME + " SELECT "
+                + RecordColumns.SURVEY_GROUP_ID + ", " + MAX_ZOOM + ", "
+                + clamp("(" + RecordColumns.LONGITUDE + " + 180) / " + size, maxX) + " AS cx, "
+                + clamp("(90 - " + RecordColumns.LATITUDE + ") / " + size, maxY) + " AS cy, "
+                + "COUNT(*), AVG(" + RecordColumns.LATITUDE + "), AVG(" + RecordColumns.LONGITUDE
+                + "), MIN(" + RecordColumns.RECORD_ID + ")"
+                + " FROM " + Tables.RECORD
+                + " WHERE " + RecordColumns.SURVEY_GROUP_ID + " = ?"
+                + " AND " + RecordColumns.LATITUDE + " IS NOT NULL"
+                + " AND " + RecordColumns.LONGITUDE + " IS NOT NULL"
+                + " GROUP BY cx, cy";
+        for (int zoom = MAX_ZOOM - 1; zoom >= 0; zoom--) {
+            statements[MAX_ZOOM + 1 - zoom] = "INSERT INTO " + TABLE_NAME + " SELECT "
+                    + COLUMN_SURVEY_GROUP_ID + ", " + zoom + ", "
+                    + COLUMN_X + " / 2 AS cx, " + COLUMN_Y + " / 2 AS cy, SUM(" + COLUMN_COUNT
+                    + "), SUM(" + COLUMN_LATITUDE + " * " + COLUMN_COUNT + ") / SUM("
+                    + COLUMN_COUNT + "), SUM(" + COLUMN_LONGITUDE + " * " + COLUMN_COUNT
+                    + ") / SUM(" + COLUMN_COUNT + "), MIN(" + COLUMN_RECORD_ID + ")"
+                    + " FROM " + TABLE_NAME
+                    + " WHERE " + COLUMN_SURVEY_GROUP_ID + " = ? AND " + COLUMN_ZOOM + " = "
+                    + (zoom + 1)
+                    + " GROUP BY cx, cy";
+        }
+        statements[MAX_ZOOM + 2] = "INSERT INTO " + TABLE_NAME + " VALUES (?, " + BUILT_ZOOM
+                + ", 0, 0, 0, 0, 0, NULL)";
+        return statements;
+    }
+
+    /**
+     * @return the query returning a row if the clusters of a survey group are built, taking the
+     * survey group id as only argument
+     */
+    public static String getBuiltSql() {
+        return "SELECT 1 FROM " + TABLE_NAME + " WHERE " + COLUMN_SURVEY_GROUP_ID + " = ? AND "
+                + COLUMN_ZOOM + " = " + BUILT_ZOOM + " LIMIT 1";
+    }
+
+    /**
+     * @return the width and height of the cells of a zoom level, in degrees
+     */
+    public static double getCellSize(int zoom) {
+        return 360d / getCellCount(zoom);
+    }
+
+    /**
+     * @return the column of the cell containing the longitude
+     */
+    public static long getCellX(double longitude, int zoom) {
+        long x = (long) Math.floor((longitude + 180) / getCellSize(zoom));
+        return Math.max(0, Math.min(getCellCount(zoom) - 1, x));
+    }
+
+    /**
+     * @return the row of the cell containing the latitude, rows are numbered from the north
+     */
+    public static long getCellY(double latitude, int zoom) {
+        long y = (long) Math.floor((90 - latitude) / getCellSize(zoom));
+        return Math.max(0, Math.min(getCellCount(zoom) / 2 - 1, y));
+    }
+
+    /**
+     * @return the number of cell columns of a zoom level, there are half as many rows
+     */
+    private static long getCellCount(int zoom) {
+        return 1L << (zoom + 1);
+    }
+
+    private static String clamp(String value, long max) {
+        return "MAX(0, MIN(" + max + ", CAST(" + value + " AS INTEGER)))";
+    }
+
+    private static String deleteClusters(String surveyGroupId) {
+        return "DELETE FROM " + TABLE_NAME + " WHERE " + COLUMN_SURVEY_GROUP_ID + " = "
+                + surveyGroupId + ";";
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Data migrations scheduled by a database upgrade and not completed yet, with the position
+ * each one has reached.
+ * <p>
+ * Upgrades only change the schema and add their migrations here, in the same transaction. The
+ * data is migrated in batches by a background job started with the app, each batch in its own
+ * transaction along with the new position, so a migration interrupted by the app being killed
+ * resumes where it stopped.
+ */
+public class PendingMigrationTable {
+
+    public static final String TABLE_NAME = "pending_migration";
+    public static final String COLUMN_NAME = "name";
+    public static final String COLUMN_POSITION = "position";
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+            + COLUMN_NAME + " TEXT PRIMARY KEY ON CONFLICT IGNORE,"
+            + COLUMN_POSITION + " INTEGER NOT NULL DEFAULT 0)";
+
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE);
+    }
+
+    public void dropTable(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+    }
+
+    public void add(SQLiteDatabase db, String name) {
+        ContentValues values = new ContentValues(1);
+        values.put(COLUMN_NAME, name);
+        db.insert(TABLE_NAME, null, values);
+    }
+
+    public void setPosition(SQLiteDatabase db, String name, long position) {
+        ContentValues values = new ContentValues(1);
+        values.put(COLUMN_POSITION, position);
+        db.update(TABLE_NAME, values, COLUMN_NAME + " = ?", new String[] { name });
+    }
+
+    public void remove(SQLiteDatabase db, String name) {
+        db.delete(TABLE_NAME, COLUMN_NAME + " = ?", new String[] { name });
+    }
+
+    /**
+     * @return the positions of the pending migrations, in the order they were scheduled
+     */
+    public Map<String, Long> getPending(SQLiteDatabase db) {
+        Map<String, Long> positions = new LinkedHashMap<>();
+        Cursor cursor = db.query(TABLE_NAME, new String[] { COLUMN_NAME, COLUMN_POSITION }, null,
+                null, null, null, "rowid");
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                positions.put(cursor.getString(0), cursor.getLong(1));
+            }
+            cursor.close();
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Log of the records which were inserted, updated or deleted, so that lists can refresh only
+ * the datapoints which changed.
+ * <p>
+ * Triggers on the record table add a row for every change, including the status updates made by
+ * the record status triggers. Each record keeps only its latest row, so the table never grows
+ * beyond the number of records ever stored. Rows are numbered in change order: readers remember
+ * the last number they read and only query the rows added after it.
+ */
+public class RecordChangeTable {
+
+    public static final String TABLE_NAME = "record_change";
+    public static final String COLUMN_ID = "_id";
+    public static final String COLUMN_RECORD_ID = "record_id";
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+            + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+            + COLUMN_RECORD_ID + " TEXT NOT NULL,"
+            + "UNIQUE (" + COLUMN_RECORD_ID + ") ON CONFLICT REPLACE)";
+
+    public void onCreate(SQLiteDatabase db) {
+        for (String sql : getCreateSql()) {
+            db.execSQL(sql);
+        }
+    }
+
+    public void dropTable(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+    }
+
+    /**
+     * @return the query returning the number of the last change, to start reading after it
+     */
+    public static String getLastChangeIdSql() {
+        return "SELECT MAX(" + COLUMN_ID + ") FROM " + TABLE_NAME;
+    }
+
+    /**
+     * @return the query returning the number and record id of the changes made after the
+     * change number given as only argument, in change order
+     */
+    public static String getChangesSql() {
+        return "SELECT " + COLUMN_ID + ", " + COLUMN_RECORD_ID + " FROM " + TABLE_NAME
+                + " WHERE " + COLUMN_ID + " > ? ORDER BY " + COLUMN_ID;
+    }
+
+    /**
+     * @return the statements creating the table and its triggers
+     */
+    static String[] getCreateSql() {
+        String logNew = logChange("NEW." + RecordColumns.RECORD_ID);
+        String logOld = logChange("OLD." + RecordColumns.RECORD_ID);
+        return new String[] {
+                CREATE_TABLE,
+                "CREATE TRIGGER IF NOT EXISTS record_change_insert AFTER INSERT ON "
+                        + Tables.RECORD + " BEGIN " + logNew + " END",
+                "CREATE TRIGGER IF NOT EXISTS record_change_delete AFTER DELETE ON "
+                        + Tables.RECORD + " BEGIN " + logOld + " END",
+                "CREATE TRIGGER IF NOT EXISTS record_change_update AFTER UPDATE ON "
+                        + Tables.RECORD + " BEGIN " + logNew + " " + logOld + " END"
+        };
+    }
+
+    private static String logChange(String recordId) {
+        return "INSERT INTO " + TABLE_NAME + " (" + COLUMN_RECORD_ID + ") VALUES (" + recordId
+                + ");";
+    }
+}
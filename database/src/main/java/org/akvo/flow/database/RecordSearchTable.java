@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.Nullable;
+
+/**
+ * Full text index of the record names and ids, used to search datapoints.
+ * <p>
+ * The docid of every row is the _id of its record. Rows are kept up to date by triggers on the
+ * record table, so both synced and locally edited records are searchable. FTS3 is used as FTS4
+ * is not available on every supported Android version. Its simple tokenizer only folds ASCII
+ * letters, so searches are case insensitive for those only.
+ */
+public class RecordSearchTable {
+
+    public static final String TABLE_NAME = "record_fts";
+    public static final String COLUMN_DOCID = "docid";
+    public static final String COLUMN_NAME = "name";
+    public static final String COLUMN_RECORD_ID = "record_id";
+
+    static final int MIN_PREFIX_LENGTH = 3;
+
+    private static final String CREATE_TABLE = "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_NAME
+            + " USING fts3(" + COLUMN_NAME + ", " + COLUMN_RECORD_ID + ")";
+
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE);
+        createTriggers(db);
+    }
+
+    /**
+     * Indexes all the existing records again
+     */
+    public void rebuild(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLE_NAME);
+        db.execSQL("INSERT INTO " + TABLE_NAME + " (" + COLUMN_DOCID + ", " + COLUMN_NAME + ", "
+                + COLUMN_RECORD_ID + ") SELECT " + RecordColumns._ID + ", " + RecordColumns.NAME
+                + ", " + RecordColumns.RECORD_ID + " FROM " + Tables.RECORD);
+    }
+
+    public void dropTable(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+    }
+
+    /**
+     * Turns the text typed by the user into a full text query matching the records which have
+     * words starting with every word of the text, in any order. Words shorter than {@link
+     * #MIN_PREFIX_LENGTH} must match whole words, as most records have a word starting with them.
+     *
+     * @return the query, or null if the text has no word to search for
+     */
+    @Nullable
+    public static String getMatchQuery(@Nullable String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                // Lower case words can not be taken as operators such as OR or NEAR
+                char c = text.charAt(i);
+                query.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+                i++;
+            }
+            if (i - start >= MIN_PREFIX_LENGTH) {
+                query.append('*');
+            }
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
+    private void createTriggers(SQLiteDatabase db) {
+        String insert = "INSERT INTO " + TABLE_NAME + " (" + COLUMN_DOCID + ", " + COLUMN_NAME
+                + ", " + COLUMN_RECORD_ID + ") VALUES (NEW." + RecordColumns._ID + ", NEW."
+                + RecordColumns.NAME + ", NEW." + RecordColumns.RECORD_ID + ");";
+        String delete = "DELETE FROM " + TABLE_NAME + " WHERE " + COLUMN_DOCID + " = OLD."
+                + RecordColumns._ID + ";";
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS record_fts_insert AFTER INSERT ON "
+                + Tables.RECORD + " BEGIN " + insert + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS record_fts_delete AFTER DELETE ON "
+                + Tables.RECORD + " BEGIN " + delete + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS record_fts_update AFTER UPDATE OF "
+                + RecordColumns.NAME + ", " + RecordColumns.RECORD_ID + " ON " + Tables.RECORD
+                + " BEGIN " + delete + " " + insert + " END");
+        // Rows removed by ON CONFLICT REPLACE do not fire delete triggers
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS record_fts_replace BEFORE INSERT ON "
+                + Tables.RECORD + " BEGIN DELETE FROM " + TABLE_NAME + " WHERE " + COLUMN_DOCID
+                + " IN (SELECT " + RecordColumns._ID + " FROM " + Tables.RECORD + " WHERE "
+                + RecordColumns.RECORD_ID + " = NEW." + RecordColumns.RECORD_ID + "); END");
+    }
+}
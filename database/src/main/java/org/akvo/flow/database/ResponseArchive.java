@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The responses of an archived form instance, as stored in the {@link ResponseArchiveTable}: the
+ * column names, then every row, all the values as nullable strings, gzipped. Answers are mostly
+ * repeated option texts, dates and numbers, which compress well.
+ */
+public class ResponseArchive {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final String[] columns;
+    private final List<String[]> rows;
+
+    public ResponseArchive(String[] columns, List<String[]> rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    public String[] getColumns() {
+        return columns;
+    }
+
+    public List<String[]> getRows() {
+        return rows;
+    }
+
+    public byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes));
+        try {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(columns.length);
+            for (String column : columns) {
+                writeString(out, column);
+            }
+            out.writeInt(rows.size());
+            for (String[] row : rows) {
+                for (int i = 0; i < columns.length; i++) {
+                    writeString(out, row[i]);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    public static ResponseArchive fromBytes(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(bytes)));
+        try {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unknown response archive version " + version);
+            }
+            String[] columns = new String[in.readInt()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = readString(in);
+            }
+            int rowCount = in.readInt();
+            List<String[]> rows = new ArrayList<>(rowCount);
+            for (int r = 0; r < rowCount; r++) {
+                String[] row = new String[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    row[i] = readString(in);
+                }
+                rows.add(row);
+            }
+            return new ResponseArchive(columns, rows);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes the length first, as writeUTF is limited to 64KB and answers such as signatures
+     * can be longer
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Archive of the responses of old synced and downloaded form instances, one compressed {@link
+ * ResponseArchive} per instance.
+ * <p>
+ * Those instances can not be edited any more, yet their responses made up most of the response
+ * table and slowed down every query on it. Once archived they are only read when the instance is
+ * opened. Instances updated by a datapoint sync get their responses back in the response table
+ * first. Triggers delete the archive of an instance with the instance.
+ */
+public class ResponseArchiveTable {
+
+    public static final String TABLE_NAME = "response_archive";
+    public static final String COLUMN_SURVEY_INSTANCE_ID = "survey_instance_id";
+    public static final String COLUMN_RESPONSES = "responses";
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+            + COLUMN_SURVEY_INSTANCE_ID + " INTEGER PRIMARY KEY,"
+            + COLUMN_RESPONSES + " BLOB NOT NULL)";
+
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE);
+        createTriggers(db);
+    }
+
+    public void dropTable(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+    }
+
+    /**
+     * Archives the responses of the synced and downloaded instances synced before the given
+     * time, one transaction per instance so that the database is never locked for long
+     *
+     * @return the number of archived instances
+     */
+    public int archive(SQLiteDatabase db, long syncedBefore) {
+        List<Long> instanceIds = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT " + SurveyInstanceColumns._ID
+                + " FROM " + Tables.SURVEY_INSTANCE
+                + " WHERE " + SurveyInstanceColumns.STATUS + " IN ("
+                + SurveyInstanceStatus.SYNCED + ", " + SurveyInstanceStatus.DOWNLOADED + ")"
+                + " AND " + SurveyInstanceColumns.SYNC_DATE + " < ?"
+                + " AND " + SurveyInstanceColumns._ID + " IN (SELECT "
+                + ResponseColumns.SURVEY_INSTANCE_ID + " FROM " + Tables.RESPONSE + ")",
+                new String[] { String.valueOf(syncedBefore) });
+        try {
+            while (cursor.moveToNext()) {
+                instanceIds.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        int archived = 0;
+        for (long instanceId : instanceIds) {
+            db.beginTransaction();
+            try {
+                if (archiveInstance(db, instanceId)) {
+                    db.setTransactionSuccessful();
+                    archived++;
+                }
+            } finally {
+                db.endTransaction();
+            }
+        }
+        return archived;
+    }
+
+    public boolean isArchived(SQLiteDatabase db, long surveyInstanceId) {
+        Cursor cursor = db.rawQuery("SELECT 1 FROM " + TABLE_NAME + " WHERE "
+                        + COLUMN_SURVEY_INSTANCE_ID + " = ?",
+                new String[] { String.valueOf(surveyInstanceId) });
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return the ids of the archived instances greater than the given one, in id order
+     */
+    public List<Long> getInstanceIds(SQLiteDatabase db, long afterId, int limit) {
+        List<Long> instanceIds = new ArrayList<>();
+        Cursor cursor = db.query(TABLE_NAME, new String[] { COLUMN_SURVEY_INSTANCE_ID },
+                COLUMN_SURVEY_INSTANCE_ID + " > ?", new String[] { String.valueOf(afterId) },
+                null, null, COLUMN_SURVEY_INSTANCE_ID, String.valueOf(limit));
+        try {
+            while (cursor.moveToNext()) {
+                instanceIds.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return instanceIds;
+    }
+
+    /**
+     * Replaces the archived responses of an instance, for data migrations
+     */
+    public void update(SQLiteDatabase db, long surveyInstanceId, ResponseArchive archive)
+            throws IOException {
+        ContentValues values = new ContentValues(1);
+        values.put(COLUMN_RESPONSES, archive.toBytes());
+        db.update(TABLE_NAME, values, COLUMN_SURVEY_INSTANCE_ID + " = ?",
+                new String[] { String.valueOf(surveyInstanceId) });
+    }
+
+    /**
+     * @return the archived responses of an instance, with the columns they were archived with,
+     * or null if the instance is not archived
+     */
+    @Nullable
+    public Cursor getResponses(SQLiteDatabase db, long surveyInstanceId) {
+        ResponseArchive archive = read(db, surveyInstanceId);
+        if (archive == null) {
+            return null;
+        }
+        MatrixCursor cursor = new MatrixCursor(archive.getColumns(), archive.getRows().size());
+        for (String[] row : archive.getRows()) {
+            cursor.addRow(row);
+        }
+        return cursor;
+    }
+
+    /**
+     * Moves the archived responses of an instance back to the response table, so that they can
+     * be updated. Must be called within a transaction.
+     */
+    public void restore(SQLiteDatabase db, long surveyInstanceId) {
+        ResponseArchive archive = read(db, surveyInstanceId);
+        if (archive == null) {
+            return;
+        }
+        String[] columns = archive.getColumns();
+        for (String[] row : archive.getRows()) {
+            ContentValues values = new ContentValues(columns.length);
+            for (int i = 0; i < columns.length; i++) {
+                values.put(columns[i], row[i]);
+            }
+            db.insert(Tables.RESPONSE, null, values);
+        }
+        delete(db, surveyInstanceId);
+    }
+
+    private boolean archiveInstance(SQLiteDatabase db, long surveyInstanceId) {
+        String[] args = { String.valueOf(surveyInstanceId) };
+        Cursor cursor = db.query(Tables.RESPONSE, SurveyDbAdapter.RESPONSE_COLUMNS,
+                ResponseColumns.SURVEY_INSTANCE_ID + " = ?", args, null, null, null);
+        List<String[]> rows = new ArrayList<>(cursor.getCount());
+        try {
+            while (cursor.moveToNext()) {
+                String[] row = new String[SurveyDbAdapter.RESPONSE_COLUMNS.length];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = cursor.getString(i);
+                }
+                rows.add(row);
+            }
+        } finally {
+            cursor.close();
+        }
+        byte[] bytes;
+        try {
+            bytes = new ResponseArchive(SurveyDbAdapter.RESPONSE_COLUMNS, rows).toBytes();
+        } catch (IOException e) {
+            Timber.e(e, "Error archiving the responses of %d", surveyInstanceId);
+            return false;
+        }
+        ContentValues values = new ContentValues(2);
+        values.put(COLUMN_SURVEY_INSTANCE_ID, surveyInstanceId);
+        values.put(COLUMN_RESPONSES, bytes);
+        db.insertOrThrow(TABLE_NAME, null, values);
+        db.delete(Tables.RESPONSE, ResponseColumns.SURVEY_INSTANCE_ID + " = ?", args);
+        return true;
+    }
+
+    /**
+     * @return the archive of an instance, or null if the instance is not archived or its archive
+     * can not be read
+     */
+    @Nullable
+    public ResponseArchive read(SQLiteDatabase db, long surveyInstanceId) {
+        Cursor cursor = db.query(TABLE_NAME, new String[] { COLUMN_RESPONSES },
+                COLUMN_SURVEY_INSTANCE_ID + " = ?",
+                new String[] { String.valueOf(surveyInstanceId) }, null, null, null);
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return ResponseArchive.fromBytes(cursor.getBlob(0));
+        } catch (IOException e) {
+            Timber.e(e, "Error reading the archived responses of %d", surveyInstanceId);
+            return null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void delete(SQLiteDatabase db, long surveyInstanceId) {
+        db.delete(TABLE_NAME, COLUMN_SURVEY_INSTANCE_ID + " = ?",
+                new String[] { String.valueOf(surveyInstanceId) });
+    }
+
+    private void createTriggers(SQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS response_archive_delete AFTER DELETE ON "
+                + Tables.SURVEY_INSTANCE + " BEGIN DELETE FROM " + TABLE_NAME + " WHERE "
+                + COLUMN_SURVEY_INSTANCE_ID + " = OLD." + SurveyInstanceColumns._ID + "; END");
+        // Rows removed by ON CONFLICT REPLACE do not fire delete triggers
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS response_archive_replace BEFORE INSERT ON "
+                + Tables.SURVEY_INSTANCE + " BEGIN DELETE FROM " + TABLE_NAME + " WHERE "
+                + COLUMN_SURVEY_INSTANCE_ID + " IN (SELECT " + SurveyInstanceColumns._ID
+                + " FROM " + Tables.SURVEY_INSTANCE + " WHERE " + SurveyInstanceColumns.UUID
+                + " = NEW." + SurveyInstanceColumns.UUID + "); END");
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Per survey group counters of records and form instances, bucketed by time.
+ * <p>
+ * Every row holds the number of records modified, or form instances submitted, exported or
+ * synced, within a {@link #BUCKET_MS} interval. The counters are kept up to date by triggers on
+ * the record and survey_instance tables, so reading the statistics of a survey group never scans
+ * those tables. Buckets are 15 minutes long because every time zone offset is a multiple of that,
+ * which keeps local day boundaries aligned with bucket boundaries.
+ */
+public class StatsTable {
+
+    public static final String TABLE_NAME = "stats";
+    public static final String COLUMN_SURVEY_GROUP_ID = "survey_group_id";
+    public static final String COLUMN_KIND = "kind";
+    public static final String COLUMN_BUCKET = "bucket";
+    public static final String COLUMN_COUNT = "count";
+
+    public static final long BUCKET_MS = 15 * 60 * 1000;
+
+    public static final int KIND_RECORD_MODIFIED = 0;
+    public static final int KIND_FORM_SUBMITTED = 1;
+    public static final int KIND_FORM_EXPORTED = 2;
+    public static final int KIND_FORM_SYNCED = 3;
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+            + COLUMN_SURVEY_GROUP_ID + " INTEGER NOT NULL,"
+            + COLUMN_KIND + " INTEGER NOT NULL,"
+            + COLUMN_BUCKET + " INTEGER NOT NULL,"
+            + COLUMN_COUNT + " INTEGER NOT NULL DEFAULT 0,"
+            + "PRIMARY KEY (" + COLUMN_SURVEY_GROUP_ID + ", " + COLUMN_KIND + ", "
+            + COLUMN_BUCKET + "))";
+
+    private static final String[] INSTANCE_DATE_COLUMNS = {
+            SurveyInstanceColumns.SUBMITTED_DATE,
+            SurveyInstanceColumns.EXPORTED_DATE,
+            SurveyInstanceColumns.SYNC_DATE
+    };
+
+    private static final int[] INSTANCE_DATE_KINDS = {
+            KIND_FORM_SUBMITTED,
+            KIND_FORM_EXPORTED,
+            KIND_FORM_SYNCED
+    };
+
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE);
+        createRecordTriggers(db);
+        for (int i = 0; i < INSTANCE_DATE_COLUMNS.length; i++) {
+            createFormInstanceTriggers(db, INSTANCE_DATE_COLUMNS[i], INSTANCE_DATE_KINDS[i]);
+        }
+    }
+
+    /**
+     * Recomputes all the counters from the record and survey_instance tables
+     */
+    public void rebuild(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLE_NAME);
+        db.execSQL("INSERT INTO " + TABLE_NAME + " SELECT "
+                + RecordColumns.SURVEY_GROUP_ID + ", " + KIND_RECORD_MODIFIED + ", "
+                + bucket(RecordColumns.LAST_MODIFIED) + " AS b, COUNT(*)"
+                + " FROM " + Tables.RECORD
+                + " WHERE " + RecordColumns.LAST_MODIFIED + " > 0"
+                + " AND " + RecordColumns.SURVEY_GROUP_ID + " IS NOT NULL"
+                + " GROUP BY " + RecordColumns.SURVEY_GROUP_ID + ", b");
+        for (int i = 0; i < INSTANCE_DATE_COLUMNS.length; i++) {
+            String column = "si." + INSTANCE_DATE_COLUMNS[i];
+            db.execSQL("INSERT INTO " + TABLE_NAME + " SELECT "
+                    + "s." + SurveyColumns.SURVEY_GROUP_ID + ", " + INSTANCE_DATE_KINDS[i] + ", "
+                    + bucket(column) + " AS b, COUNT(*)"
+                    + " FROM " + Tables.SURVEY_INSTANCE + " AS si JOIN " + Tables.SURVEY
+                    + " AS s ON si." + SurveyInstanceColumns.SURVEY_ID
+                    + " = s." + SurveyColumns.SURVEY_ID
+                    + " WHERE " + column + " > 0"
+                    + " AND s." + SurveyColumns.SURVEY_GROUP_ID + " IS NOT NULL"
+                    + " GROUP BY s." + SurveyColumns.SURVEY_GROUP_ID + ", b");
+        }
+    }
+
+    public void dropTable(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+    }
+
+    private void createRecordTriggers(SQLiteDatabase db) {
+        String lastModified = RecordColumns.LAST_MODIFIED;
+        String groupId = RecordColumns.SURVEY_GROUP_ID;
+        createTrigger(db, "stats_record_insert", "AFTER INSERT ON " + Tables.RECORD,
+                "NEW." + lastModified + " > 0",
+                increment("NEW." + groupId, KIND_RECORD_MODIFIED, "NEW." + lastModified, 1));
+        createTrigger(db, "stats_record_delete", "AFTER DELETE ON " + Tables.RECORD,
+                "OLD." + lastModified + " > 0",
+                increment("OLD." + groupId, KIND_RECORD_MODIFIED, "OLD." + lastModified, -1));
+        String update = "AFTER UPDATE OF " + lastModified + ", " + groupId
+                + " ON " + Tables.RECORD;
+        createTrigger(db, "stats_record_update_old", update,
+                "OLD." + lastModified + " > 0",
+                increment("OLD." + groupId, KIND_RECORD_MODIFIED, "OLD." + lastModified, -1));
+        createTrigger(db, "stats_record_update_new", update,
+                "NEW." + lastModified + " > 0",
+                increment("NEW." + groupId, KIND_RECORD_MODIFIED, "NEW." + lastModified, 1));
+        // Rows removed by ON CONFLICT REPLACE do not fire delete triggers
+        createTrigger(db, "stats_record_replace", "BEFORE INSERT ON " + Tables.RECORD, null,
+                decrementExisting(KIND_RECORD_MODIFIED, "r." + groupId, "r." + lastModified,
+                        Tables.RECORD + " AS r WHERE r." + RecordColumns.RECORD_ID
+                                + " = NEW." + RecordColumns.RECORD_ID));
+    }
+
+    private void createFormInstanceTriggers(SQLiteDatabase db, String column, int kind) {
+        String surveyId = "NEW." + SurveyInstanceColumns.SURVEY_ID;
+        String oldSurveyId = "OLD." + SurveyInstanceColumns.SURVEY_ID;
+        String name = "stats_" + column;
+        createTrigger(db, name + "_insert", "AFTER INSERT ON " + Tables.SURVEY_INSTANCE,
+                "NEW." + column + " > 0",
+                increment(surveyGroupOf(surveyId), kind, "NEW." + column, 1));
+        createTrigger(db, name + "_delete", "AFTER DELETE ON " + Tables.SURVEY_INSTANCE,
+                "OLD." + column + " > 0",
+                increment(surveyGroupOf(oldSurveyId), kind, "OLD." + column, -1));
+        String update = "AFTER UPDATE OF " + column + ", " + SurveyInstanceColumns.SURVEY_ID
+                + " ON " + Tables.SURVEY_INSTANCE;
+        createTrigger(db, name + "_update_old", update,
+                "OLD." + column + " > 0",
+                increment(surveyGroupOf(oldSurveyId), kind, "OLD." + column, -1));
+        createTrigger(db, name + "_update_new", update,
+                "NEW." + column + " > 0",
+                increment(surveyGroupOf(surveyId), kind, "NEW." + column, 1));
+        createTrigger(db, name + "_replace", "BEFORE INSERT ON " + Tables.SURVEY_INSTANCE, null,
+                decrementExisting(kind, "s." + SurveyColumns.SURVEY_GROUP_ID, "si." + column,
+                        Tables.SURVEY_INSTANCE + " AS si JOIN " + Tables.SURVEY + " AS s ON si."
+                                + SurveyInstanceColumns.SURVEY_ID + " = s."
+                                + SurveyColumns.SURVEY_ID + " WHERE si."
+                                + SurveyInstanceColumns.UUID + " = NEW."
+                                + SurveyInstanceColumns.UUID));
+    }
+
+    private void createTrigger(SQLiteDatabase db, String name, String event, String condition,
+            String body) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + name + " " + event + " FOR EACH ROW"
+                + (condition != null ? " WHEN " + condition : "")
+                + " BEGIN " + body + " END");
+    }
+
+    /**
+     * Adds delta to the counter of the bucket containing the given time. Rows with a null survey
+     * group are ignored thanks to the NOT NULL constraint.
+     */
+    private String increment(String groupId, int kind, String time, int delta) {
+        String where = " WHERE " + COLUMN_SURVEY_GROUP_ID + " = " + groupId
+                + " AND " + COLUMN_KIND + " = " + kind
+                + " AND " + COLUMN_BUCKET + " = " + bucket(time);
+        String insert = "INSERT OR IGNORE INTO " + TABLE_NAME + " (" + COLUMN_SURVEY_GROUP_ID
+                + ", " + COLUMN_KIND + ", " + COLUMN_BUCKET + ", " + COLUMN_COUNT + ") VALUES ("
+                + groupId + ", " + kind + ", " + bucket(time) + ", 0); ";
+        return (delta > 0 ? insert : "")
+                + "UPDATE " + TABLE_NAME + " SET " + COLUMN_COUNT + " = " + COLUMN_COUNT
+                + (delta >= 0 ? " + " : " - ") + Math.abs(delta) + where + "; "
+                + "DELETE FROM " + TABLE_NAME + where + " AND " + COLUMN_COUNT + " <= 0;";
+    }
+
+    /**
+     * Decrements the counters of the rows an insert is about to replace
+     *
+     * @param from the rows which will be replaced, as "table ... WHERE condition"
+     */
+    private String decrementExisting(int kind, String group, String time, String from) {
+        return "UPDATE " + TABLE_NAME + " SET " + COLUMN_COUNT + " = " + COLUMN_COUNT + " - 1"
+                + " WHERE " + COLUMN_KIND + " = " + kind
+                + " AND EXISTS (SELECT 1 FROM " + from
+                + " AND " + time + " > 0"
+                + " AND " + group + " = " + TABLE_NAME + "." + COLUMN_SURVEY_GROUP_ID
+                + " AND " + bucket(time) + " = " + TABLE_NAME + "." + COLUMN_BUCKET + ");";
+    }
+
+    private String surveyGroupOf(String surveyId) {
+        return "(SELECT " + SurveyColumns.SURVEY_GROUP_ID + " FROM " + Tables.SURVEY
+                + " WHERE " + SurveyColumns.SURVEY_ID + " = " + surveyId + ")";
+    }
+
+    private static String bucket(String time) {
+        return "(" + time + " / " + BUCKET_MS + ")";
+    }
+}
@@ -29,6 +29,7 @@ import android.database.sqlite.SQLiteDatabase;
 import org.akvo.flow.database.migration.MigrationListener;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import timber.log.Timber;
@@ -48,10 +49,6 @@ public class SurveyDbAdapter {
     private static final String SURVEY_INSTANCE_JOIN_SURVEY = "survey_instance "
             + "JOIN survey ON survey_instance.survey_id = survey.survey_id "
             + "JOIN survey_group ON survey.survey_group_id=survey_group.survey_group_id";
-    private static final String SURVEY_INSTANCE_JOIN_SURVEY_AND_RESPONSE = "survey_instance "
-            + "JOIN survey ON survey_instance.survey_id = survey.survey_id "
-            + "JOIN survey_group ON survey.survey_group_id=survey_group.survey_group_id "
-            + "JOIN response ON survey_instance._id=response.survey_instance_id";
 
     public static final String SURVEY_JOIN_SURVEY_INSTANCE =
             "survey LEFT OUTER JOIN survey_instance ON "
@@ -63,6 +60,8 @@ public class SurveyDbAdapter {
             ResponseColumns.INCLUDE, ResponseColumns.FILENAME, ResponseColumns.ITERATION
     };
 
+    private final ResponseArchiveTable responseArchiveTable = new ResponseArchiveTable();
+
     private DatabaseHelper databaseHelper;
     private SQLiteDatabase database;
 
@@ -100,6 +99,24 @@ public class SurveyDbAdapter {
         }
     }
 
+    /**
+     * @return true if data migrations scheduled by an upgrade have not completed yet, in which
+     * case the responses must not be read before {@link #resumeMigrations()} completes them
+     */
+    public boolean hasPendingMigrations() {
+        return databaseHelper.hasPendingMigrations(database);
+    }
+
+    /**
+     * Completes the data migrations scheduled by an upgrade. Must not be called from the main
+     * thread.
+     *
+     * @return true if all the migrations completed, false if any failed and is still pending
+     */
+    public boolean resumeMigrations() {
+        return databaseHelper.resumeMigrations(database);
+    }
+
     public Cursor getSurveyInstancesByStatus(int status) {
         return database.query(Tables.SURVEY_INSTANCE,
                 new String[] { SurveyInstanceColumns._ID, SurveyInstanceColumns.UUID },
@@ -218,12 +235,28 @@ public class SurveyDbAdapter {
         return cursor;
     }
 
+    /**
+     * Loads the responses of a survey instance, from the archive if it was archived
+     */
     public Cursor getResponses(long surveyInstanceId) {
-        return database.query(Tables.RESPONSE,
+        Cursor cursor = database.query(Tables.RESPONSE,
                 RESPONSE_COLUMNS,
                 ResponseColumns.SURVEY_INSTANCE_ID + " = ?",
                 new String[] { String.valueOf(surveyInstanceId) },
                 null, null, null);
+        if (cursor != null && cursor.getCount() == 0) {
+            Cursor archivedResponses = responseArchiveTable
+                    .getResponses(database, surveyInstanceId);
+            if (archivedResponses != null) {
+                cursor.close();
+                return archivedResponses;
+            }
+        }
+        return cursor;
+    }
+
+    public boolean isArchived(long surveyInstanceId) {
+        return responseArchiveTable.isArchived(database, surveyInstanceId);
     }
 
     /**
@@ -246,38 +279,43 @@ public class SurveyDbAdapter {
         return database.query(Tables.RESPONSE,
                 RESPONSE_COLUMNS,
                 ResponseColumns.SURVEY_INSTANCE_ID + " = ? AND " + ResponseColumns.QUESTION_ID
-                        + " =? AND " + "CAST(" + ResponseColumns.ITERATION + " as TEXT) = ? ",
+                        + " = ? AND " + ResponseColumns.ITERATION + " = ?",
                 new String[] { String.valueOf(surveyInstanceId), questionId,
                         String.valueOf(iteration)
                 },
                 null, null, null);
     }
 
-    public long updateSurveyResponse(Long responseToSaveId,
-            ContentValues initialValues) {
-        long insertedResponseId = -1;
-        if (responseToSaveId == null) {
-            insertedResponseId = insertResponse(initialValues);
-        } else {
-            if (updateResponse(responseToSaveId, initialValues) > 0) {
-                insertedResponseId = responseToSaveId;
-            }
-        }
-        return insertedResponseId;
-    }
-
     /**
-     * Inserts new response
-     * @param initialValues
-     * @return the id of the inserted row
+     * Saves a response, replacing the one of the same form instance, question and iteration in
+     * a single write thanks to the unique response index. Responses to questions outside
+     * repeatable groups, which have a negative iteration, also replace the ones saved with an
+     * iteration by former versions.
+     *
+     * @return the id of the saved response, -1 if it could not be saved
      */
-    private long insertResponse(ContentValues initialValues) {
-        return database.insert(Tables.RESPONSE, null, initialValues);
-    }
-
-    private int updateResponse(long responseToSaveId, ContentValues initialValues) {
-        return database.update(Tables.RESPONSE, initialValues, ResponseColumns._ID + "=?",
-                new String[] { String.valueOf(responseToSaveId)});
+    public long saveResponse(ContentValues values) {
+        Integer iteration = values.getAsInteger(ResponseColumns.ITERATION);
+        if (iteration == null || iteration >= 0) {
+            return database.insertWithOnConflict(Tables.RESPONSE, null, values,
+                    SQLiteDatabase.CONFLICT_REPLACE);
+        }
+        database.beginTransaction();
+        try {
+            database.delete(Tables.RESPONSE, ResponseColumns.SURVEY_INSTANCE_ID + " = ? AND "
+                            + ResponseColumns.QUESTION_ID + " = ? AND "
+                            + ResponseColumns.ITERATION + " >= 0",
+                    new String[] {
+                            values.getAsString(ResponseColumns.SURVEY_INSTANCE_ID),
+                            values.getAsString(ResponseColumns.QUESTION_ID)
+                    });
+            long id = database.insertWithOnConflict(Tables.RESPONSE, null, values,
+                    SQLiteDatabase.CONFLICT_REPLACE);
+            database.setTransactionSuccessful();
+            return id;
+        } finally {
+            database.endTransaction();
+        }
     }
 
     /**
@@ -393,6 +431,32 @@ public class SurveyDbAdapter {
                 });
     }
 
+    /**
+     * Delete the responses of a repeatable group iteration, in a single statement which looks up
+     * every question of the group in the response index
+     *
+     * @param questionIds ids of the questions of the group
+     */
+    public void deleteRepetition(long surveyInstanceId, Collection<String> questionIds,
+            int iteration) {
+        if (questionIds.isEmpty()) {
+            return;
+        }
+        StringBuilder selection = new StringBuilder(ResponseColumns.SURVEY_INSTANCE_ID
+                + " = ? AND " + ResponseColumns.ITERATION + " = ? AND "
+                + ResponseColumns.QUESTION_ID + " IN (");
+        List<String> args = new ArrayList<>(questionIds.size() + 2);
+        args.add(String.valueOf(surveyInstanceId));
+        args.add(String.valueOf(iteration));
+        for (String questionId : questionIds) {
+            selection.append(args.size() > 2 ? ", ?" : "?");
+            args.add(questionId);
+        }
+        selection.append(")");
+        database.delete(Tables.RESPONSE, selection.toString(),
+                args.toArray(new String[args.size()]));
+    }
+
     public void createTransmission(long surveyInstanceId, String formID, String filename) {
         createTransmission(surveyInstanceId, formID, filename, TransmissionStatus.QUEUED);
     }
@@ -507,6 +571,7 @@ public class SurveyDbAdapter {
 
     public void deleteAllResponses() {
         executeSql("DELETE FROM " + Tables.RESPONSE);
+        executeSql("DELETE FROM " + ResponseArchiveTable.TABLE_NAME);
     }
 
     /**
@@ -639,11 +704,17 @@ public class SurveyDbAdapter {
      * by submission date (desc).
      */
     public Cursor getFormInstancesWithResponses(String recordId) {
-        return database.query(SURVEY_INSTANCE_JOIN_SURVEY_AND_RESPONSE,
+        String instanceId = Tables.SURVEY_INSTANCE + "." + SurveyInstanceColumns._ID;
+        return database.query(SURVEY_INSTANCE_JOIN_SURVEY,
                 FormInstanceQuery.PROJECTION,
-                Tables.SURVEY_INSTANCE + "." + SurveyInstanceColumns.RECORD_ID + "= ?",
+                Tables.SURVEY_INSTANCE + "." + SurveyInstanceColumns.RECORD_ID + "= ?"
+                        + " AND (EXISTS (SELECT 1 FROM " + Tables.RESPONSE + " WHERE "
+                        + ResponseColumns.SURVEY_INSTANCE_ID + " = " + instanceId + ")"
+                        + " OR " + instanceId + " IN (SELECT "
+                        + ResponseArchiveTable.COLUMN_SURVEY_INSTANCE_ID + " FROM "
+                        + ResponseArchiveTable.TABLE_NAME + "))",
                 new String[] { recordId },
-                ResponseColumns.SURVEY_INSTANCE_ID, null,
+                null, null,
                 "CASE WHEN survey.survey_id = survey_group.register_survey_id THEN 0 ELSE 1 END, "
                         + SurveyInstanceColumns.START_DATE + " DESC");
     }
@@ -742,13 +813,16 @@ public class SurveyDbAdapter {
     }
 
     /**
-     * Delete any SurveyInstance that contains no response.
+     * Delete any SurveyInstance that contains no response, neither live nor archived.
      */
     public void deleteEmptySurveyInstances() {
         executeSql("DELETE FROM " + Tables.SURVEY_INSTANCE
                 + " WHERE " + SurveyInstanceColumns._ID + " NOT IN "
                 + "(SELECT DISTINCT " + ResponseColumns.SURVEY_INSTANCE_ID
-                + " FROM " + Tables.RESPONSE + ")");
+                + " FROM " + Tables.RESPONSE + ")"
+                + " AND " + SurveyInstanceColumns._ID + " NOT IN "
+                + "(SELECT " + ResponseArchiveTable.COLUMN_SURVEY_INSTANCE_ID
+                + " FROM " + ResponseArchiveTable.TABLE_NAME + ")");
     }
 
     /**
@@ -780,6 +854,26 @@ public class SurveyDbAdapter {
         return cursor;
     }
 
+    /**
+     * Aggregates the stats counters of a survey group in a single query. Buckets older than
+     * sinceTime are summed together under the bucket -1, newer ones are returned individually.
+     *
+     * @return a cursor with the columns kind, bucket and count
+     */
+    public Cursor getStats(long surveyGroupId, long sinceTime) {
+        return database.rawQuery("SELECT " + StatsTable.COLUMN_KIND + ", "
+                        + "CASE WHEN " + StatsTable.COLUMN_BUCKET + " >= ? THEN "
+                        + StatsTable.COLUMN_BUCKET + " ELSE -1 END AS b, "
+                        + "SUM(" + StatsTable.COLUMN_COUNT + ")"
+                        + " FROM " + StatsTable.TABLE_NAME
+                        + " WHERE " + StatsTable.COLUMN_SURVEY_GROUP_ID + " = ?"
+                        + " GROUP BY " + StatsTable.COLUMN_KIND + ", b",
+                new String[] {
+                        String.valueOf(sinceTime / StatsTable.BUCKET_MS),
+                        String.valueOf(surveyGroupId)
+                });
+    }
+
     public Cursor getDataPointForms(long surveyGroupId, String recordId) {
         String table = SurveyDbAdapter.SURVEY_JOIN_SURVEY_INSTANCE;
         if (recordId != null) {
@@ -22,12 +22,18 @@ package org.akvo.flow.database.britedb;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.MergeCursor;
 import android.support.annotation.Nullable;
 
 import com.squareup.sqlbrite2.BriteDatabase;
 import com.squareup.sqlbrite2.SqlBrite;
 
+import org.akvo.flow.database.DatabaseMaintenance;
+import org.akvo.flow.database.DatabaseSize;
+import org.akvo.flow.database.MapClusterTable;
+import org.akvo.flow.database.RecordChangeTable;
 import org.akvo.flow.database.RecordColumns;
+import org.akvo.flow.database.ResponseArchiveTable;
 import org.akvo.flow.database.ResponseColumns;
 import org.akvo.flow.database.SurveyColumns;
 import org.akvo.flow.database.SurveyGroupColumns;
@@ -39,114 +45,280 @@ import org.akvo.flow.database.TransmissionStatus;
 import org.akvo.flow.database.UserColumns;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import io.reactivex.Observable;
 import io.reactivex.ObservableSource;
 import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import io.reactivex.schedulers.Schedulers;
 import timber.log.Timber;
 
-import static org.akvo.flow.database.Constants.ORDER_BY_DATE;
-import static org.akvo.flow.database.Constants.ORDER_BY_DISTANCE;
-import static org.akvo.flow.database.Constants.ORDER_BY_NAME;
-import static org.akvo.flow.database.Constants.ORDER_BY_STATUS;
-
 public class BriteSurveyDbAdapter {
 
     private static final int DOES_NOT_EXIST = -1;
 
+    /**
+     * Writes closer in time than this are notified together
+     */
+    private static final long RECORD_CHANGES_DEBOUNCE_MILLIS = 300;
+
+    /**
+     * Below the limit of 999 arguments per statement of SQLite
+     */
+    private static final int MAX_IDS_PER_QUERY = 500;
+
     private final BriteDatabase briteDatabase;
+    private final MapClusterTable mapClusterTable = new MapClusterTable();
+    private final DatabaseMaintenance databaseMaintenance = new DatabaseMaintenance();
+    private final ResponseArchiveTable responseArchiveTable = new ResponseArchiveTable();
 
     public BriteSurveyDbAdapter(BriteDatabase briteDatabase) {
         this.briteDatabase = briteDatabase;
     }
 
     /**
-     * Filters surveyed locales based on the parameters passed in.
+     * Loads a single page of datapoints. Besides the record columns and the status, every row
+     * has a sort_value column, to be passed as afterValue, together with the record id as
+     * afterId, to load the following page.
+     */
+    public Cursor getDataPointsPage(long surveyGroupId, int orderBy, @Nullable String afterValue,
+            @Nullable String afterId, int limit) {
+        DataPointsPageQuery query = new DataPointsPageQuery(surveyGroupId, orderBy, afterValue,
+                afterId);
+        return briteDatabase.query(query.getSql(limit), query.getArgs());
+    }
+
+    /**
+     * Loads a single page of the datapoints matching the searched text, using the same sort_value
+     * keys as {@link #getDataPointsPage}
+     *
+     * @return the page, or null if the text has nothing to search for
      */
-    public Observable<Cursor> getFilteredDataPoints(long surveyGroupId, Double latitude,
-            Double longitude, int orderBy) {
-        String queryString = "SELECT sl.*,"
-                + " MIN(r." + SurveyInstanceColumns.STATUS + ") as " + SurveyInstanceColumns.STATUS
-                + " FROM "
-                + Tables.RECORD + " AS sl LEFT JOIN " + Tables.SURVEY_INSTANCE + " AS r ON "
-                + "sl." + RecordColumns.RECORD_ID + "=" + "r." + SurveyInstanceColumns.RECORD_ID;
-        String whereClause = " WHERE sl." + RecordColumns.SURVEY_GROUP_ID + " =?";
-        String groupBy = " GROUP BY sl." + RecordColumns.RECORD_ID;
-
-        String orderByStr = "";
-        switch (orderBy) {
-            case ORDER_BY_DATE:
-                orderByStr = " ORDER BY " + RecordColumns.LAST_MODIFIED + " DESC";
-                break;
-            case ORDER_BY_DISTANCE:
-                if (latitude != null && longitude != null) {
-                    orderByStr = getOrderByDistanceString(latitude, longitude);
-                }
-                break;
-            case ORDER_BY_STATUS:
-                orderByStr = " ORDER BY " + " MIN(r." + SurveyInstanceColumns.STATUS + ")";
-                break;
-            case ORDER_BY_NAME:
-                orderByStr = " ORDER BY " + RecordColumns.NAME + " COLLATE NOCASE ASC";
-                break;
-            default:
-                break;
+    @Nullable
+    public Cursor searchDataPoints(long surveyGroupId, String text, @Nullable String afterValue,
+            @Nullable String afterId, int limit) {
+        DataPointsSearchQuery query = new DataPointsSearchQuery(surveyGroupId, text, afterValue,
+                afterId);
+        if (!query.hasMatchQuery()) {
+            return null;
         }
+        return briteDatabase.query(query.getSql(limit), query.getArgs());
+    }
 
-        String[] whereValues = new String[] { String.valueOf(surveyGroupId) };
-        List<String> tables = new ArrayList<>(2);
-        tables.add(Tables.RECORD);
-        tables.add(Tables.SURVEY_INSTANCE);
-        return briteDatabase
-                .createQuery(tables, queryString + whereClause + groupBy + orderByStr, whereValues)
-                .concatMap(
-                        new Function<SqlBrite.Query, Observable<Cursor>>() {
+    /**
+     * Loads the record id and sort_value of the datapoints of the list following the given key,
+     * in the order of {@link #getDataPointsPage}, without reading the other record columns
+     */
+    public Cursor getDataPointIds(long surveyGroupId, int orderBy, @Nullable String afterValue,
+            @Nullable String afterId, int limit) {
+        DataPointsPageQuery query = new DataPointsPageQuery(surveyGroupId, orderBy, afterValue,
+                afterId);
+        return briteDatabase.query(query.getIdsSql(limit), query.getArgs());
+    }
+
+    /**
+     * Loads the record id and sort_value of the datapoints matching the searched text following
+     * the given key, in the order of {@link #searchDataPoints}
+     *
+     * @return the ids, or null if the text has nothing to search for
+     */
+    @Nullable
+    public Cursor searchDataPointIds(long surveyGroupId, String text,
+            @Nullable String afterValue, @Nullable String afterId, int limit) {
+        DataPointsSearchQuery query = new DataPointsSearchQuery(surveyGroupId, text, afterValue,
+                afterId);
+        if (!query.hasMatchQuery()) {
+            return null;
+        }
+        return briteDatabase.query(query.getIdsSql(limit), query.getArgs());
+    }
+
+    /**
+     * Loads the datapoints of a survey group with the given record ids, in no particular order
+     */
+    public Cursor getDataPoints(long surveyGroupId, List<String> recordIds) {
+        int queries = (recordIds.size() + MAX_IDS_PER_QUERY - 1) / MAX_IDS_PER_QUERY;
+        Cursor[] cursors = new Cursor[queries];
+        for (int i = 0; i < queries; i++) {
+            List<String> ids = recordIds.subList(i * MAX_IDS_PER_QUERY,
+                    Math.min(recordIds.size(), (i + 1) * MAX_IDS_PER_QUERY));
+            StringBuilder placeholders = new StringBuilder();
+            List<String> args = new ArrayList<>(ids.size() + 1);
+            args.add(String.valueOf(surveyGroupId));
+            for (String id : ids) {
+                placeholders.append(placeholders.length() == 0 ? "?" : ", ?");
+                args.add(id);
+            }
+            String sqlQuery = "SELECT * FROM " + Tables.RECORD
+                    + " WHERE " + RecordColumns.SURVEY_GROUP_ID + " = ?"
+                    + " AND " + RecordColumns.RECORD_ID + " IN (" + placeholders + ")";
+            cursors[i] = briteDatabase.query(sqlQuery, args.toArray(new String[args.size()]));
+        }
+        return new MergeCursor(cursors);
+    }
+
+    /**
+     * Emits the ids of the records inserted, updated or deleted since the subscription, read
+     * from the record change log. SqlBrite notifies the writes made in a transaction once it
+     * ends, and notifications closer than {@link #RECORD_CHANGES_DEBOUNCE_MILLIS} are merged, so
+     * a datapoint sync only results in a few emissions. Writes made without SqlBrite are logged
+     * too, but only notified along with the next SqlBrite write.
+     */
+    public Observable<Set<String>> getRecordChanges() {
+        return Observable.defer(new Callable<ObservableSource<Set<String>>>() {
+            @Override
+            public ObservableSource<Set<String>> call() {
+                final AtomicLong lastChangeId = new AtomicLong(getLastRecordChangeId());
+                // The record status is updated by triggers, which SqlBrite does not see
+                List<String> tables = new ArrayList<>(2);
+                tables.add(Tables.RECORD);
+                tables.add(Tables.SURVEY_INSTANCE);
+                return briteDatabase.createQuery(tables, "SELECT 1")
+                        .skip(1)
+                        .debounce(RECORD_CHANGES_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS,
+                                Schedulers.io())
+                        .map(new Function<SqlBrite.Query, Set<String>>() {
+                            @Override
+                            public Set<String> apply(SqlBrite.Query query) {
+                                return readRecordChanges(lastChangeId);
+                            }
+                        })
+                        .filter(new Predicate<Set<String>>() {
                             @Override
-                            public Observable<Cursor> apply(SqlBrite.Query query) {
-                                return Observable.just(query.run());
+                            public boolean test(Set<String> recordIds) {
+                                return !recordIds.isEmpty();
                             }
                         });
+            }
+        });
+    }
+
+    private long getLastRecordChangeId() {
+        Cursor cursor = briteDatabase.query(RecordChangeTable.getLastChangeIdSql());
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private Set<String> readRecordChanges(AtomicLong lastChangeId) {
+        Cursor cursor = briteDatabase.query(RecordChangeTable.getChangesSql(),
+                String.valueOf(lastChangeId.get()));
+        Set<String> recordIds = new HashSet<>();
+        try {
+            while (cursor.moveToNext()) {
+                lastChangeId.set(cursor.getLong(0));
+                recordIds.add(cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        return recordIds;
     }
 
     /**
-     * Uses a simple planar approximation of distance
+     * Loads the located datapoints within a bounding box, using the record location index. If
+     * minLongitude is greater than maxLongitude the box crosses the antimeridian.
      */
-    private String getOrderByDistanceString(Double latitude, Double longitude) {
-        Double fudge = correctDistanceForShortening(latitude);
+    public Cursor getDataPointsInBox(long surveyGroupId, double minLatitude, double maxLatitude,
+            double minLongitude, double maxLongitude) {
+        String longitudeOperator = minLongitude <= maxLongitude ? " AND " : " OR ";
+        String sqlQuery = "SELECT * FROM " + Tables.RECORD
+                + " WHERE " + RecordColumns.SURVEY_GROUP_ID + " = ?"
+                + " AND " + RecordColumns.LATITUDE + " BETWEEN ? AND ?"
+                + " AND (" + RecordColumns.LONGITUDE + " >= ?" + longitudeOperator
+                + RecordColumns.LONGITUDE + " <= ?)";
+        return briteDatabase.query(sqlQuery, String.valueOf(surveyGroupId),
+                String.valueOf(minLatitude), String.valueOf(maxLatitude),
+                String.valueOf(minLongitude), String.valueOf(maxLongitude));
+    }
 
-        String orderBy = " ORDER BY CASE WHEN " + RecordColumns.LATITUDE
-                + " IS NULL THEN 1 ELSE 0 END,"
-                + " ((%s - " + RecordColumns.LATITUDE + ") * (%s - "
-                + RecordColumns.LATITUDE
-                + ") + (%s - " + RecordColumns.LONGITUDE + ") * (%s - "
-                + RecordColumns.LONGITUDE + ") * %s)";
-        return String
-                .format(orderBy, latitude, latitude, longitude, longitude, fudge);
+    /**
+     * Loads the record id and location of the located datapoints within a bounding box, using
+     * the record location index, which holds all of them. If minLongitude is greater than
+     * maxLongitude the box crosses the antimeridian.
+     */
+    public Cursor getDataPointLocationsInBox(long surveyGroupId, double minLatitude,
+            double maxLatitude, double minLongitude, double maxLongitude) {
+        String longitudeOperator = minLongitude <= maxLongitude ? " AND " : " OR ";
+        String sqlQuery = "SELECT " + RecordColumns.RECORD_ID + ", " + RecordColumns.LATITUDE
+                + ", " + RecordColumns.LONGITUDE + " FROM " + Tables.RECORD
+                + " WHERE " + RecordColumns.SURVEY_GROUP_ID + " = ?"
+                + " AND " + RecordColumns.LATITUDE + " BETWEEN ? AND ?"
+                + " AND (" + RecordColumns.LONGITUDE + " >= ?" + longitudeOperator
+                + RecordColumns.LONGITUDE + " <= ?)";
+        return briteDatabase.query(sqlQuery, String.valueOf(surveyGroupId),
+                String.valueOf(minLatitude), String.valueOf(maxLatitude),
+                String.valueOf(minLongitude), String.valueOf(maxLongitude));
     }
 
     /**
-     * correct the distance for the shortening at higher latitudes
+     * Loads a page of the datapoints without location, which the datapoint list sorted by
+     * distance shows last, sorted by record id
      *
-     * @param latitude
-     * @return
+     * @param afterId record id of the last row of the previous page, null for the first page
      */
-    private double correctDistanceForShortening(Double latitude) {
-        return Math.pow(Math.cos(Math.toRadians(latitude)), 2);
+    public Cursor getDataPointsWithoutLocation(long surveyGroupId, @Nullable String afterId,
+            int limit) {
+        String sqlQuery = "SELECT * FROM " + Tables.RECORD
+                + " WHERE " + RecordColumns.SURVEY_GROUP_ID + " = ?"
+                + " AND " + RecordColumns.LATITUDE + " IS NULL"
+                + " AND " + RecordColumns.RECORD_ID + " > ?"
+                + " ORDER BY " + RecordColumns.RECORD_ID
+                + " LIMIT " + limit;
+        return briteDatabase.query(sqlQuery, String.valueOf(surveyGroupId),
+                afterId != null ? afterId : "");
     }
 
-    public Observable<Cursor> getDataPoints(long surveyGroupId) {
-        String sqlQuery =
-                "SELECT * FROM " + Tables.RECORD + " WHERE " + RecordColumns.SURVEY_GROUP_ID
-                        + " = ?";
-        return briteDatabase.createQuery(Tables.RECORD, sqlQuery,
-                String.valueOf(surveyGroupId)).concatMap(
-                new Function<SqlBrite.Query, Observable<? extends Cursor>>() {
-                    @Override
-                    public Observable<? extends Cursor> apply(SqlBrite.Query query) {
-                        return Observable.just(query.run());
-                    }
-                });
+    /**
+     * Loads the datapoint clusters of a zoom level within a bounding box, building the clusters
+     * of the survey group first if they are missing. If west is greater than east the box
+     * crosses the antimeridian. Single datapoint clusters include the datapoint name.
+     */
+    public Cursor getDataPointClusters(long surveyGroupId, double north, double east,
+            double south, double west, int zoom) {
+        if (!isClustered(surveyGroupId)) {
+            BriteDatabase.Transaction transaction = briteDatabase.newTransaction();
+            try {
+                mapClusterTable.build(briteDatabase.getWritableDatabase(), surveyGroupId);
+                transaction.markSuccessful();
+            } finally {
+                transaction.end();
+            }
+        }
+        long minX = MapClusterTable.getCellX(west, zoom);
+        long maxX = MapClusterTable.getCellX(east, zoom);
+        String xOperator = west <= east ? " AND " : " OR ";
+        String sqlQuery = "SELECT c.*, r." + RecordColumns.NAME
+                + " FROM " + MapClusterTable.TABLE_NAME + " AS c LEFT JOIN " + Tables.RECORD
+                + " AS r ON c." + MapClusterTable.COLUMN_COUNT + " = 1 AND r."
+                + RecordColumns.RECORD_ID + " = c." + MapClusterTable.COLUMN_RECORD_ID
+                + " WHERE c." + MapClusterTable.COLUMN_SURVEY_GROUP_ID + " = ?"
+                + " AND c." + MapClusterTable.COLUMN_ZOOM + " = ?"
+                + " AND c." + MapClusterTable.COLUMN_Y + " BETWEEN ? AND ?"
+                + " AND (c." + MapClusterTable.COLUMN_X + " >= ?" + xOperator
+                + "c." + MapClusterTable.COLUMN_X + " <= ?)";
+        return briteDatabase.query(sqlQuery, String.valueOf(surveyGroupId), String.valueOf(zoom),
+                String.valueOf(MapClusterTable.getCellY(north, zoom)),
+                String.valueOf(MapClusterTable.getCellY(south, zoom)),
+                String.valueOf(minX), String.valueOf(maxX));
+    }
+
+    private boolean isClustered(long surveyGroupId) {
+        Cursor cursor = briteDatabase.query(MapClusterTable.getBuiltSql(),
+                String.valueOf(surveyGroupId));
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
     }
 
     /**
@@ -203,6 +375,8 @@ public class BriteSurveyDbAdapter {
             cursor.close();
         }
         if (id != DOES_NOT_EXIST) {
+            // The synced responses may update only some of the archived ones
+            responseArchiveTable.restore(briteDatabase.getWritableDatabase(), id);
             briteDatabase.update(Tables.SURVEY_INSTANCE, values, SurveyInstanceColumns.UUID
                     + " = ?", surveyInstanceUuid);
         } else {
@@ -434,16 +608,14 @@ public class BriteSurveyDbAdapter {
         briteDatabase.delete(Tables.SURVEY_GROUP, null);
     }
 
-    public Cursor getSurveys(String surveyId, String surveyVersion) {
-        String sql = "SELECT " + SurveyColumns.SURVEY_ID + " FROM " + Tables.SURVEY + " WHERE " +
-                SurveyColumns.SURVEY_ID + " = ? and (" + SurveyColumns.VERSION + " >= ? or "
-                + SurveyColumns.DELETED + " = ?)";
-        String[] selectionArgs = {
-                surveyId,
-                surveyVersion,
-                String.valueOf(1)
-        };
-        return briteDatabase.query(sql, selectionArgs);
+    /**
+     * Versions of all the surveys on the device, including deleted ones, so that the installed
+     * version of any number of surveys can be checked with a single query
+     */
+    public Cursor getSurveyVersions() {
+        String sql = "SELECT " + SurveyColumns.SURVEY_ID + ", " + SurveyColumns.VERSION + ", "
+                + SurveyColumns.DELETED + " FROM " + Tables.SURVEY;
+        return briteDatabase.query(sql);
     }
 
     /**
@@ -490,4 +662,24 @@ public class BriteSurveyDbAdapter {
         }
         return userId;
     }
+
+    public DatabaseSize getDatabaseSize() {
+        return databaseMaintenance.getSize(briteDatabase.getReadableDatabase());
+    }
+
+    /**
+     * Moves the responses of the instances synced before the given time to the archive
+     *
+     * @return the number of archived instances
+     */
+    public int archiveResponses(long syncedBefore) {
+        return responseArchiveTable.archive(briteDatabase.getWritableDatabase(), syncedBefore);
+    }
+
+    /**
+     * Vacuums and analyzes the database, which may take a while on large ones
+     */
+    public void runMaintenance() {
+        databaseMaintenance.run(briteDatabase.getWritableDatabase());
+    }
 }
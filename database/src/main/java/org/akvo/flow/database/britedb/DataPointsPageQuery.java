@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database.britedb;
+
+import android.support.annotation.Nullable;
+
+import org.akvo.flow.database.RecordColumns;
+import org.akvo.flow.database.Tables;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.akvo.flow.database.Constants.ORDER_BY_NAME;
+import static org.akvo.flow.database.Constants.ORDER_BY_STATUS;
+
+/**
+ * Builds the query for one page of datapoints using keyset pagination: instead of an OFFSET,
+ * which makes SQLite walk over every skipped row, each page starts right after the sort value
+ * and record id of the last row of the previous page.
+ * <p>
+ * Every row includes a {@link #SORT_VALUE} column, the value to use as key when the row is the
+ * last one of a page. Pages sorted by distance are not read with this query but looked up in the
+ * record location index, see SurveyDataRepository. Without a location they are sorted by date.
+ * <p>
+ * Date, name and status orders match the record indexes created in DatabaseHelper, so those
+ * pages are read in index order without sorting. Each key condition starts with an inclusive
+ * bound on the sort column, which lets SQLite seek to the page start.
+ */
+class DataPointsPageQuery {
+
+    static final String SORT_VALUE = "sort_value";
+
+    private static final String ID = "sl." + RecordColumns.RECORD_ID;
+    private static final String STATUS = "sl." + RecordColumns.STATUS;
+    private static final String NAME = "sl." + RecordColumns.NAME;
+    private static final String LAST_MODIFIED = "sl." + RecordColumns.LAST_MODIFIED;
+
+    private final StringBuilder where = new StringBuilder();
+    private final List<String> args = new ArrayList<>();
+    private String sortValue;
+    private String orderBy;
+
+    /**
+     * @param afterValue sort value of the last row of the previous page, null for the first page
+     *                   or if that row had no value
+     * @param afterId    record id of the last row of the previous page, null for the first page
+     */
+    DataPointsPageQuery(long surveyGroupId, int order, @Nullable String afterValue,
+            @Nullable String afterId) {
+        where.append(" WHERE sl.").append(RecordColumns.SURVEY_GROUP_ID).append(" = ?");
+        args.add(String.valueOf(surveyGroupId));
+        boolean hasKey = afterId != null;
+        if (order == ORDER_BY_NAME) {
+            orderByName(hasKey, afterValue, afterId);
+        } else if (order == ORDER_BY_STATUS) {
+            sortValue = STATUS;
+            orderBy = STATUS + ", " + ID;
+            if (hasKey) {
+                where.append(" AND " + STATUS + " >= CAST(? AS INTEGER) AND (" + STATUS
+                        + " > CAST(? AS INTEGER) OR " + ID + " > ?)");
+                addArgs(afterValue, afterValue, afterId);
+            }
+        } else {
+            sortValue = LAST_MODIFIED;
+            orderBy = LAST_MODIFIED + " DESC, " + ID + " DESC";
+            if (hasKey) {
+                where.append(" AND " + LAST_MODIFIED + " <= CAST(? AS INTEGER) AND ("
+                        + LAST_MODIFIED + " < CAST(? AS INTEGER) OR " + ID + " < ?)");
+                addArgs(afterValue, afterValue, afterId);
+            }
+        }
+    }
+
+    String getSql(int limit) {
+        return getSql("sl.*", limit);
+    }
+
+    /**
+     * Selects only the record id and the sort value, which the date, name and status indexes
+     * hold, so SQLite does not need to read the records themselves
+     */
+    String getIdsSql(int limit) {
+        return getSql(ID, limit);
+    }
+
+    String[] getArgs() {
+        return args.toArray(new String[args.size()]);
+    }
+
+    private String getSql(String columns, int limit) {
+        return "SELECT " + columns + ", " + sortValue + " AS " + SORT_VALUE
+                + " FROM " + Tables.RECORD + " AS sl"
+                + where
+                + " ORDER BY " + orderBy
+                + " LIMIT " + limit;
+    }
+
+    /**
+     * Records without name sort first, as SQLite sorts NULL before any text
+     */
+    private void orderByName(boolean hasKey, @Nullable String afterValue, String afterId) {
+        String name = NAME + " COLLATE NOCASE";
+        sortValue = NAME;
+        orderBy = name + ", " + ID;
+        if (!hasKey) {
+            return;
+        }
+        if (afterValue == null) {
+            where.append(" AND (" + NAME + " IS NOT NULL OR " + ID + " > ?)");
+            addArgs(afterId);
+        } else {
+            where.append(" AND " + name + " >= ? AND (" + name + " > ? OR " + ID + " > ?)");
+            addArgs(afterValue, afterValue, afterId);
+        }
+    }
+
+    private void addArgs(String... values) {
+        for (String value : values) {
+            args.add(value != null ? value : "");
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.akvo.flow.database.britedb;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.akvo.flow.database.RecordColumns;
+import org.akvo.flow.database.RecordSearchTable;
+import org.akvo.flow.database.Tables;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the query for one page of datapoint search results.
+ * <p>
+ * Results are ranked: records whose name starts with the searched text come first, sorted by
+ * name, then those whose id starts with it, sorted by id, then the ones with matching words
+ * elsewhere in the name or id, found with the full text index and sorted by name. The rank
+ * digit and the name or id make the {@link DataPointsPageQuery#SORT_VALUE} of every row, which
+ * pages use as key like the datapoint list.
+ * <p>
+ * Each rank is a separate part of the query, limited to the page size, and the parts are read
+ * in rank order until the page is full. The first two walk the name and id indexes from the
+ * searched prefix, so a page only reads the full text matches once the prefix matches are all
+ * listed.
+ */
+class DataPointsSearchQuery {
+
+    private static final int RANK_NAME = 0;
+    private static final int RANK_ID = 1;
+    private static final int RANK_WORDS = 2;
+
+    private static final String ID = "sl." + RecordColumns.RECORD_ID;
+    private static final String NAME = "sl." + RecordColumns.NAME;
+    private static final String SORT_VALUE = DataPointsPageQuery.SORT_VALUE;
+
+    private final String matchQuery;
+    private final List<String> parts = new ArrayList<>();
+    private final List<String> sortValues = new ArrayList<>();
+    private final List<String> args = new ArrayList<>();
+
+    /**
+     * @param afterValue sort value of the last row of the previous page, null for the first page
+     * @param afterId    record id of the last row of the previous page, null for the first page
+     */
+    DataPointsSearchQuery(long surveyGroupId, @NonNull String text, @Nullable String afterValue,
+            @Nullable String afterId) {
+        matchQuery = RecordSearchTable.getMatchQuery(text);
+        String prefix = text.trim();
+        String likePrefix = escapeLike(prefix) + "%";
+        String group = String.valueOf(surveyGroupId);
+
+        int afterRank = RANK_NAME;
+        String afterSortValue = null;
+        if (afterId != null) {
+            if (afterValue != null && afterValue.length() > 0) {
+                afterRank = afterValue.charAt(0) - '0';
+                afterSortValue = afterValue.substring(1);
+            } else {
+                afterSortValue = "";
+            }
+        }
+
+        if (afterRank <= RANK_NAME) {
+            addNamePrefixPart(group, prefix, likePrefix, afterSortValue, afterId);
+        }
+        if (afterRank <= RANK_ID) {
+            addIdPrefixPart(group, prefix, likePrefix, afterRank == RANK_ID ? afterId : null);
+        }
+        if (matchQuery != null) {
+            addWordsPart(group, likePrefix, afterRank == RANK_WORDS ? afterSortValue : null,
+                    afterId);
+        }
+    }
+
+    /**
+     * @return false if the text has nothing to search for, so the query would match no record
+     */
+    boolean hasMatchQuery() {
+        return matchQuery != null;
+    }
+
+    String getSql(int limit) {
+        return getSql("sl.*", limit);
+    }
+
+    /**
+     * Selects only the record id and the sort value of the results
+     */
+    String getIdsSql(int limit) {
+        return getSql(ID, limit);
+    }
+
+    String[] getArgs() {
+        return args.toArray(new String[args.size()]);
+    }
+
+    /**
+     * The parts are concatenated in rank order and the page stops reading them once full, so
+     * no part after the last one needed is run
+     */
+    private String getSql(String columns, int limit) {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < parts.size(); i++) {
+            if (i > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append("SELECT * FROM (SELECT ").append(columns).append(", ")
+                    .append(sortValues.get(i)).append(" AS ").append(SORT_VALUE)
+                    .append(parts.get(i)).append(" LIMIT ").append(limit).append(")");
+        }
+        return sql.append(" LIMIT ").append(limit).toString();
+    }
+
+    /**
+     * Names starting with the text, read in the order of record_group_name_idx from the range
+     * of names with that prefix
+     */
+    private void addNamePrefixPart(String group, String prefix, String likePrefix,
+            @Nullable String afterName, @Nullable String afterId) {
+        StringBuilder where = new StringBuilder(" WHERE sl." + RecordColumns.SURVEY_GROUP_ID
+                + " = ? AND " + NAME + " >= ? COLLATE NOCASE");
+        args.add(group);
+        args.add(lowerCase(prefix));
+        String upperBound = getUpperBound(lowerCase(prefix));
+        if (upperBound != null) {
+            where.append(" AND " + NAME + " < ? COLLATE NOCASE");
+            args.add(upperBound);
+        }
+        where.append(" AND " + NAME + " LIKE ? ESCAPE '\\'");
+        args.add(likePrefix);
+        if (afterId != null) {
+            where.append(" AND " + NAME + " >= ? COLLATE NOCASE AND (" + NAME
+                    + " > ? COLLATE NOCASE OR " + ID + " > ?)");
+            args.add(afterName);
+            args.add(afterName);
+            args.add(afterId);
+        }
+        sortValues.add("'" + RANK_NAME + "' || " + NAME);
+        parts.add(" FROM " + Tables.RECORD + " AS sl" + where + " ORDER BY " + NAME
+                + " COLLATE NOCASE, " + ID);
+    }
+
+    /**
+     * Ids starting with the text, whose names do not, read in the order of the unique record id
+     * index from the range of ids with that prefix. Record ids are generated in lower case, by
+     * the app and the server, so the range is the one of the lower case prefix.
+     * The unary + keeps the survey group from picking an index, which would read the whole
+     * group, and from converting the argument, hence the cast.
+     */
+    private void addIdPrefixPart(String group, String prefix, String likePrefix,
+            @Nullable String afterId) {
+        String lowerPrefix = lowerCase(prefix);
+        StringBuilder where = new StringBuilder(" WHERE " + ID + " >= ?");
+        args.add(afterId != null && afterId.compareTo(lowerPrefix) > 0 ? afterId : lowerPrefix);
+        String upperBound = getUpperBound(lowerPrefix);
+        if (upperBound != null) {
+            where.append(" AND " + ID + " < ?");
+            args.add(upperBound);
+        }
+        if (afterId != null) {
+            where.append(" AND " + ID + " > ?");
+            args.add(afterId);
+        }
+        where.append(" AND +sl." + RecordColumns.SURVEY_GROUP_ID + " = CAST(? AS INTEGER)");
+        args.add(group);
+        where.append(" AND " + ID + " LIKE ? ESCAPE '\\' AND (" + NAME + " IS NULL OR " + NAME
+                + " NOT LIKE ? ESCAPE '\\')");
+        args.add(likePrefix);
+        args.add(likePrefix);
+        sortValues.add("'" + RANK_ID + "' || " + ID);
+        parts.add(" FROM " + Tables.RECORD + " AS sl" + where + " ORDER BY " + ID);
+    }
+
+    /**
+     * Records with words starting with the searched ones, which the previous parts did not list,
+     * looked up by row id from the full text matches rather than read from a survey group index
+     */
+    private void addWordsPart(String group, String likePrefix, @Nullable String afterName,
+            @Nullable String afterId) {
+        String name = "IFNULL(" + NAME + ", '')";
+        StringBuilder where = new StringBuilder(" WHERE +sl." + RecordColumns.SURVEY_GROUP_ID
+                + " = CAST(? AS INTEGER) AND sl." + RecordColumns._ID + " IN (SELECT "
+                + RecordSearchTable.COLUMN_DOCID + " FROM " + RecordSearchTable.TABLE_NAME
+                + " WHERE " + RecordSearchTable.TABLE_NAME + " MATCH ?)"
+                + " AND " + name + " NOT LIKE ? ESCAPE '\\'"
+                + " AND " + ID + " NOT LIKE ? ESCAPE '\\'");
+        args.add(group);
+        args.add(matchQuery);
+        args.add(likePrefix);
+        args.add(likePrefix);
+        if (afterName != null) {
+            where.append(" AND (" + name + " > ? COLLATE NOCASE OR (" + name
+                    + " = ? COLLATE NOCASE AND " + ID + " > ?))");
+            args.add(afterName);
+            args.add(afterName);
+            args.add(afterId);
+        }
+        sortValues.add("'" + RANK_WORDS + "' || " + name);
+        parts.add(" FROM " + Tables.RECORD + " AS sl" + where + " ORDER BY " + name
+                + " COLLATE NOCASE, " + ID);
+    }
+
+    /**
+     * @return the lowest text greater than all the texts starting with the given prefix, or null
+     * if there is none
+     */
+    @Nullable
+    private String getUpperBound(String prefix) {
+        int last = prefix.length() - 1;
+        if (last < 0 || prefix.charAt(last) == Character.MAX_VALUE) {
+            return null;
+        }
+        return prefix.substring(0, last) + (char) (prefix.charAt(last) + 1);
+    }
+
+    /**
+     * Folds the ASCII letters only, like NOCASE and LIKE
+     */
+    private String lowerCase(String text) {
+        StringBuilder lower = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            lower.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+        return lower.toString();
+    }
+
+    private String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -27,4 +27,15 @@ public interface MigrationListener {
     void migrateLanguages(SQLiteDatabase db);
 
     void migratePreferences(SQLiteDatabase db);
+
+    /**
+     * @return the migration moving the base64 images of the signature responses to files
+     */
+    ResumableMigration getSignatureMigration();
+
+    /**
+     * @return the migration moving the base64 images of the archived signature responses to
+     * files
+     */
+    ResumableMigration getArchivedSignatureMigration();
 }
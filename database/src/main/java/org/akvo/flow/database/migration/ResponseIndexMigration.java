@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database.migration;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.akvo.flow.database.ResponseColumns;
+import org.akvo.flow.database.Tables;
+
+/**
+ * Replaces the response index on the form instance and question ids with a unique one on the
+ * form instance, question id and iteration, so that saving a response replaces the previous
+ * one without reading it first.
+ * <p>
+ * It runs within the database upgrade, so that no response is ever saved without the index:
+ * responses saved twice by the former read then write are removed by a single DELETE, keeping
+ * the latest response of each question and iteration, before the index is created. Responses
+ * still waiting for {@link ResponseIterationMigration} keep the iteration in their question id,
+ * so they are unique as well.
+ */
+public class ResponseIndexMigration {
+
+    public static final String INDEX_NAME = "response_iteration_idx";
+
+    private static final String FORMER_INDEX_NAME = "response_idx";
+
+    public void migrate(SQLiteDatabase db) {
+        db.execSQL(getDeleteDuplicatesSql());
+        db.execSQL(getCreateIndexSql());
+        db.execSQL("DROP INDEX IF EXISTS " + FORMER_INDEX_NAME);
+    }
+
+    public static String getCreateIndexSql() {
+        return "CREATE UNIQUE INDEX IF NOT EXISTS " + INDEX_NAME + " ON " + Tables.RESPONSE + "("
+                + ResponseColumns.SURVEY_INSTANCE_ID + ", " + ResponseColumns.QUESTION_ID + ", "
+                + ResponseColumns.ITERATION + ")";
+    }
+
+    static String getDeleteDuplicatesSql() {
+        return "DELETE FROM " + Tables.RESPONSE + " WHERE " + ResponseColumns._ID
+                + " NOT IN (SELECT MAX(" + ResponseColumns._ID + ") FROM " + Tables.RESPONSE
+                + " GROUP BY " + ResponseColumns.SURVEY_INSTANCE_ID + ", "
+                + ResponseColumns.QUESTION_ID + ", " + ResponseColumns.ITERATION + ")";
+    }
+}
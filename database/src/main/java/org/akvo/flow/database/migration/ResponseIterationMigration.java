@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database.migration;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.akvo.flow.database.ResponseColumns;
+import org.akvo.flow.database.Tables;
+
+/**
+ * Moves the iteration of the repeated question responses, formerly added as a pipe to their
+ * question id, to the iteration column.
+ * <p>
+ * Every batch is a single UPDATE of a range of response ids, so responses are never loaded in
+ * memory and each batch only reads its own range of the table. The question id is
+ * split with ltrim as instr is not available in the SQLite of older Android versions. As with
+ * a split of the id on pipes, the question id is the text before the first pipe and the
+ * iteration the text between the first and the second one.
+ * <p>
+ * The unique response index exists already, so a migrated response replaces the one saved for
+ * the same question and iteration without it, if any.
+ */
+public class ResponseIterationMigration implements ResumableMigration {
+
+    static final int BATCH_SIZE = 10000;
+
+    private static final String ID = ResponseColumns.QUESTION_ID;
+    private static final String AFTER_PIPE = "substr(" + fromFirstPipe(ID) + ", 2)";
+
+    private final int batchSize;
+
+    public ResponseIterationMigration() {
+        this(BATCH_SIZE);
+    }
+
+    ResponseIterationMigration(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public long migrateBatch(SQLiteDatabase db, long position) {
+        long end = position + batchSize;
+        db.execSQL(getBatchSql(), new Object[] { position, end });
+        return end < getMaxId(db) ? end : DONE;
+    }
+
+    /**
+     * Migrates the responses with an id greater than the first argument and lower or equal to
+     * the second one
+     */
+    static String getBatchSql() {
+        return "UPDATE OR REPLACE " + Tables.RESPONSE + " SET "
+                + ID + " = " + beforeFirstPipe(ID) + ", "
+                + ResponseColumns.ITERATION + " = " + beforeFirstPipe(AFTER_PIPE)
+                + " WHERE " + ResponseColumns._ID + " > ? AND " + ResponseColumns._ID + " <= ?"
+                + " AND " + ID + " LIKE '%|%'";
+    }
+
+    static String getMaxIdSql() {
+        return "SELECT IFNULL(MAX(" + ResponseColumns._ID + "), 0) FROM " + Tables.RESPONSE;
+    }
+
+    private long getMaxId(SQLiteDatabase db) {
+        long maxId = 0;
+        Cursor cursor = db.rawQuery(getMaxIdSql(), null);
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                maxId = cursor.getLong(0);
+            }
+            cursor.close();
+        }
+        return maxId;
+    }
+
+    /**
+     * Removing every character but the pipe from the start of the text leaves it from the first
+     * pipe on
+     */
+    private static String fromFirstPipe(String text) {
+        return "ltrim(" + text + ", replace(" + text + ", '|', ''))";
+    }
+
+    private static String beforeFirstPipe(String text) {
+        return "substr(" + text + ", 1, length(" + text + ") - length(" + fromFirstPipe(text)
+                + "))";
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database.migration;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Data migration run in batches, each in its own transaction, until it is complete. Every
+ * batch starts at the position where the previous one stopped, usually a row id, so batches
+ * never read the rows already migrated and an interrupted migration resumes from its last
+ * completed batch.
+ */
+public interface ResumableMigration {
+
+    long DONE = -1;
+
+    /**
+     * Migrates the next batch of rows
+     *
+     * @param position where the previous batch stopped, 0 for the first one
+     * @return where this batch stopped, or {@link #DONE} if there is nothing left to migrate
+     */
+    long migrateBatch(SQLiteDatabase db, long position);
+}
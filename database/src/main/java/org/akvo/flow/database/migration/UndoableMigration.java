@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database.migration;
+
+/**
+ * Migration whose batches also change things outside of the database, such as files, which must
+ * be undone when the transaction of a batch is rolled back
+ */
+public interface UndoableMigration extends ResumableMigration {
+
+    /**
+     * Undoes what the last batch did outside of the database, once its transaction was rolled
+     * back
+     */
+    void onBatchRolledBack();
+}
@@ -49,6 +49,28 @@ public class UpgraderFactory {
                     databaseUpgrader.addUpgrader(new PreferencesUpgrader(helper, db));
                 case DatabaseHelper.VER_LANGUAGES_MIGRATE:
                     databaseUpgrader.addUpgrader(new LanguagesUpgrader(helper, db));
+                case DatabaseHelper.VER_RESPONSE_ITERATION:
+                    databaseUpgrader.addUpgrader(new ResponseIterationUpgrader(helper, db));
+                case DatabaseHelper.VER_STATS:
+                    databaseUpgrader.addUpgrader(new StatsUpgrader(helper, db));
+                case DatabaseHelper.VER_RECORD_STATUS:
+                    databaseUpgrader.addUpgrader(new RecordStatusUpgrader(helper, db));
+                case DatabaseHelper.VER_RECORD_SEARCH:
+                    databaseUpgrader.addUpgrader(new RecordSearchUpgrader(helper, db));
+                case DatabaseHelper.VER_RECORD_LOCATION:
+                    databaseUpgrader.addUpgrader(new RecordLocationUpgrader(helper, db));
+                case DatabaseHelper.VER_MAP_CLUSTERS:
+                    databaseUpgrader.addUpgrader(new MapClustersUpgrader(helper, db));
+                case DatabaseHelper.VER_RECORD_CHANGES:
+                    databaseUpgrader.addUpgrader(new RecordChangesUpgrader(helper, db));
+                case DatabaseHelper.VER_AUTO_VACUUM:
+                    databaseUpgrader.addUpgrader(new AutoVacuumUpgrader(helper, db));
+                case DatabaseHelper.VER_RESPONSE_ARCHIVE:
+                    databaseUpgrader.addUpgrader(new ResponseArchiveUpgrader(helper, db));
+                case DatabaseHelper.VER_SIGNATURE_FILES:
+                    databaseUpgrader.addUpgrader(new SignatureFilesUpgrader(helper, db));
+                case DatabaseHelper.VER_RESUMABLE_MIGRATIONS:
+                    databaseUpgrader.addUpgrader(new ResumableMigrationsUpgrader(helper, db));
                 default:
                     break;
             }
@@ -23,6 +23,8 @@ package org.akvo.flow.database.upgrade;
 import java.util.ArrayList;
 import java.util.List;
 
+import timber.log.Timber;
+
 public class UpgraderVisitor implements DatabaseUpgrader {
 
     private final List<DatabaseUpgrader> upgraders = new ArrayList<>();
@@ -34,7 +36,10 @@ public class UpgraderVisitor implements DatabaseUpgrader {
     @Override
     public void upgrade() {
         for (DatabaseUpgrader upgrader : upgraders) {
+            long start = System.currentTimeMillis();
             upgrader.upgrade();
+            Timber.d("%s took %d ms", upgrader.getClass().getSimpleName(),
+                    System.currentTimeMillis() - start);
         }
     }
 
@@ -80,6 +80,17 @@ public class DatabaseHelperTest {
         verify(helper, times(1)).upgradeFromCaddisfly(mockDb);
         verify(helper, times(1)).upgradeFromPreferences(mockDb);
         verify(helper, times(1)).upgradeFromLanguages(mockDb);
+        verify(helper, times(1)).upgradeFromResponseIteration(mockDb);
+        verify(helper, times(1)).upgradeFromStats(mockDb);
+        verify(helper, times(1)).upgradeFromRecordStatus(mockDb);
+        verify(helper, times(1)).upgradeFromRecordSearch(mockDb);
+        verify(helper, times(1)).upgradeFromRecordLocation(mockDb);
+        verify(helper, times(1)).upgradeFromMapClusters(mockDb);
+        verify(helper, times(1)).upgradeFromRecordChanges(mockDb);
+        verify(helper, times(1)).upgradeFromAutoVacuum(mockDb);
+        verify(helper, times(1)).upgradeFromResponseArchive(mockDb);
+        verify(helper, times(1)).upgradeFromSignatureFiles(mockDb);
+        verify(helper, times(1)).upgradeFromResumableMigrations(mockDb);
     }
 
     private void configureDatabaseHelper(DatabaseHelper helper) {
@@ -90,6 +101,17 @@ public class DatabaseHelperTest {
         doNothing().when(helper).upgradeFromCaddisfly(any(SQLiteDatabase.class));
         doNothing().when(helper).upgradeFromPreferences(any(SQLiteDatabase.class));
         doNothing().when(helper).upgradeFromLanguages(any(SQLiteDatabase.class));
+        doNothing().when(helper).upgradeFromResponseIteration(any(SQLiteDatabase.class));
+        doNothing().when(helper).upgradeFromStats(any(SQLiteDatabase.class));
+        doNothing().when(helper).upgradeFromRecordStatus(any(SQLiteDatabase.class));
+        doNothing().when(helper).upgradeFromRecordSearch(any(SQLiteDatabase.class));
+        doNothing().when(helper).upgradeFromRecordLocation(any(SQLiteDatabase.class));
+        doNothing().when(helper).upgradeFromMapClusters(any(SQLiteDatabase.class));
+        doNothing().when(helper).upgradeFromRecordChanges(any(SQLiteDatabase.class));
+        doNothing().when(helper).upgradeFromAutoVacuum(any(SQLiteDatabase.class));
+        doNothing().when(helper).upgradeFromResponseArchive(any(SQLiteDatabase.class));
+        doNothing().when(helper).upgradeFromSignatureFiles(any(SQLiteDatabase.class));
+        doNothing().when(helper).upgradeFromResumableMigrations(any(SQLiteDatabase.class));
     }
 
     @Test
@@ -107,6 +129,17 @@ public class DatabaseHelperTest {
         verify(helper, times(1)).upgradeFromCaddisfly(mockDb);
         verify(helper, times(1)).upgradeFromPreferences(mockDb);
         verify(helper, times(1)).upgradeFromLanguages(mockDb);
+        verify(helper, times(1)).upgradeFromResponseIteration(mockDb);
+        verify(helper, times(1)).upgradeFromStats(mockDb);
+        verify(helper, times(1)).upgradeFromRecordStatus(mockDb);
+        verify(helper, times(1)).upgradeFromRecordSearch(mockDb);
+        verify(helper, times(1)).upgradeFromRecordLocation(mockDb);
+        verify(helper, times(1)).upgradeFromMapClusters(mockDb);
+        verify(helper, times(1)).upgradeFromRecordChanges(mockDb);
+        verify(helper, times(1)).upgradeFromAutoVacuum(mockDb);
+        verify(helper, times(1)).upgradeFromResponseArchive(mockDb);
+        verify(helper, times(1)).upgradeFromSignatureFiles(mockDb);
+        verify(helper, times(1)).upgradeFromResumableMigrations(mockDb);
     }
 
     @Test
@@ -124,6 +157,17 @@ public class DatabaseHelperTest {
         verify(helper, times(1)).upgradeFromCaddisfly(mockDb);
         verify(helper, times(1)).upgradeFromPreferences(mockDb);
         verify(helper, times(1)).upgradeFromLanguages(mockDb);
+        verify(helper, times(1)).upgradeFromResponseIteration(mockDb);
+        verify(helper, times(1)).upgradeFromStats(mockDb);
+        verify(helper, times(1)).upgradeFromRecordStatus(mockDb);
+        verify(helper, times(1)).upgradeFromRecordSearch(mockDb);
+        verify(helper, times(1)).upgradeFromRecordLocation(mockDb);
+        verify(helper, times(1)).upgradeFromMapClusters(mockDb);
+        verify(helper, times(1)).upgradeFromRecordChanges(mockDb);
+        verify(helper, times(1)).upgradeFromAutoVacuum(mockDb);
+        verify(helper, times(1)).upgradeFromResponseArchive(mockDb);
+        verify(helper, times(1)).upgradeFromSignatureFiles(mockDb);
+        verify(helper, times(1)).upgradeFromResumableMigrations(mockDb);
     }
 
     @Test
@@ -141,6 +185,17 @@ public class DatabaseHelperTest {
         verify(helper, times(1)).upgradeFromCaddisfly(mockDb);
         verify(helper, times(1)).upgradeFromPreferences(mockDb);
         verify(helper, times(1)).upgradeFromLanguages(mockDb);
+        verify(helper, times(1)).upgradeFromResponseIteration(mockDb);
+        verify(helper, times(1)).upgradeFromStats(mockDb);
+        verify(helper, times(1)).upgradeFromRecordStatus(mockDb);
+        verify(helper, times(1)).upgradeFromRecordSearch(mockDb);
+        verify(helper, times(1)).upgradeFromRecordLocation(mockDb);
+        verify(helper, times(1)).upgradeFromMapClusters(mockDb);
+        verify(helper, times(1)).upgradeFromRecordChanges(mockDb);
+        verify(helper, times(1)).upgradeFromAutoVacuum(mockDb);
+        verify(helper, times(1)).upgradeFromResponseArchive(mockDb);
+        verify(helper, times(1)).upgradeFromSignatureFiles(mockDb);
+        verify(helper, times(1)).upgradeFromResumableMigrations(mockDb);
     }
 
     @Test
@@ -158,6 +213,17 @@ public class DatabaseHelperTest {
         verify(helper, times(1)).upgradeFromCaddisfly(mockDb);
         verify(helper, times(1)).upgradeFromPreferences(mockDb);
         verify(helper, times(1)).upgradeFromLanguages(mockDb);
+        verify(helper, times(1)).upgradeFromResponseIteration(mockDb);
+        verify(helper, times(1)).upgradeFromStats(mockDb);
+        verify(helper, times(1)).upgradeFromRecordStatus(mockDb);
+        verify(helper, times(1)).upgradeFromRecordSearch(mockDb);
+        verify(helper, times(1)).upgradeFromRecordLocation(mockDb);
+        verify(helper, times(1)).upgradeFromMapClusters(mockDb);
+        verify(helper, times(1)).upgradeFromRecordChanges(mockDb);
+        verify(helper, times(1)).upgradeFromAutoVacuum(mockDb);
+        verify(helper, times(1)).upgradeFromResponseArchive(mockDb);
+        verify(helper, times(1)).upgradeFromSignatureFiles(mockDb);
+        verify(helper, times(1)).upgradeFromResumableMigrations(mockDb);
     }
 
     @Test
@@ -175,6 +241,17 @@ public class DatabaseHelperTest {
         verify(helper, times(0)).upgradeFromCaddisfly(mockDb);
         verify(helper, times(1)).upgradeFromPreferences(mockDb);
         verify(helper, times(1)).upgradeFromLanguages(mockDb);
+        verify(helper, times(1)).upgradeFromResponseIteration(mockDb);
+        verify(helper, times(1)).upgradeFromStats(mockDb);
+        verify(helper, times(1)).upgradeFromRecordStatus(mockDb);
+        verify(helper, times(1)).upgradeFromRecordSearch(mockDb);
+        verify(helper, times(1)).upgradeFromRecordLocation(mockDb);
+        verify(helper, times(1)).upgradeFromMapClusters(mockDb);
+        verify(helper, times(1)).upgradeFromRecordChanges(mockDb);
+        verify(helper, times(1)).upgradeFromAutoVacuum(mockDb);
+        verify(helper, times(1)).upgradeFromResponseArchive(mockDb);
+        verify(helper, times(1)).upgradeFromSignatureFiles(mockDb);
+        verify(helper, times(1)).upgradeFromResumableMigrations(mockDb);
     }
 
     @Test
@@ -192,5 +269,16 @@ public class DatabaseHelperTest {
         verify(helper, times(0)).upgradeFromCaddisfly(mockDb);
         verify(helper, times(0)).upgradeFromPreferences(mockDb);
         verify(helper, times(1)).upgradeFromLanguages(mockDb);
+        verify(helper, times(1)).upgradeFromResponseIteration(mockDb);
+        verify(helper, times(1)).upgradeFromStats(mockDb);
+        verify(helper, times(1)).upgradeFromRecordStatus(mockDb);
+        verify(helper, times(1)).upgradeFromRecordSearch(mockDb);
+        verify(helper, times(1)).upgradeFromRecordLocation(mockDb);
+        verify(helper, times(1)).upgradeFromMapClusters(mockDb);
+        verify(helper, times(1)).upgradeFromRecordChanges(mockDb);
+        verify(helper, times(1)).upgradeFromAutoVacuum(mockDb);
+        verify(helper, times(1)).upgradeFromResponseArchive(mockDb);
+        verify(helper, times(1)).upgradeFromSignatureFiles(mockDb);
+        verify(helper, times(1)).upgradeFromResumableMigrations(mockDb);
     }
 }
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MapClusterTableTest {
+
+    private static final double DELTA = 0.000001;
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        execute("CREATE TABLE record (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "record_id TEXT, survey_group_id INTEGER, name TEXT, latitude REAL,"
+                + "longitude REAL, UNIQUE (record_id) ON CONFLICT REPLACE)");
+        for (String sql : MapClusterTable.getCreateSql()) {
+            execute(sql);
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void cellSizeShouldHalveWithEveryZoomLevel() {
+        assertEquals(180, MapClusterTable.getCellSize(0), DELTA);
+        assertEquals(90, MapClusterTable.getCellSize(1), DELTA);
+        assertEquals(360d / 32768, MapClusterTable.getCellSize(MapClusterTable.MAX_ZOOM), DELTA);
+    }
+
+    @Test
+    public void cellsShouldBeNumberedFromNorthWest() {
+        assertEquals(0, MapClusterTable.getCellX(-180, 1));
+        assertEquals(1, MapClusterTable.getCellX(-90, 1));
+        assertEquals(3, MapClusterTable.getCellX(179.9, 1));
+        assertEquals(0, MapClusterTable.getCellY(89.9, 1));
+        assertEquals(1, MapClusterTable.getCellY(-0.1, 1));
+    }
+
+    @Test
+    public void cellsShouldIncludeWorldEdges() {
+        assertEquals(3, MapClusterTable.getCellX(180, 1));
+        assertEquals(0, MapClusterTable.getCellY(90, 1));
+        assertEquals(1, MapClusterTable.getCellY(-90, 1));
+        assertEquals(0, MapClusterTable.getCellX(-200, 1));
+    }
+
+    @Test
+    public void buildShouldClusterEveryZoomLevel() throws SQLException {
+        insert("a", 1, 10.0, 10.0);
+        insert("b", 1, 10.0, 20.0);
+        insert("c", 1, -10.0, -10.0);
+        insert("d", 1, null, null);
+        insert("e", 2, 10.0, 10.0);
+
+        build(1);
+
+        assertEquals(2, queryLong("SELECT COUNT(*) FROM map_cluster WHERE zoom = 0"));
+        assertEquals(3, queryLong("SELECT SUM(count) FROM map_cluster WHERE zoom = 0"));
+        assertEquals(3, queryLong("SELECT COUNT(*) FROM map_cluster WHERE zoom = 14"));
+        assertEquals(15.0, queryDouble("SELECT longitude FROM map_cluster WHERE zoom = 0"
+                + " AND count = 2"), DELTA);
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM map_cluster WHERE survey_group_id = 2"));
+        for (int zoom = 0; zoom <= MapClusterTable.MAX_ZOOM; zoom++) {
+            assertEquals(3, queryLong("SELECT SUM(count) FROM map_cluster WHERE zoom = " + zoom));
+        }
+    }
+
+    @Test
+    public void buildShouldMarkGroupWithoutLocatedRecords() throws SQLException {
+        insert("a", 1, null, null);
+
+        build(1);
+
+        assertTrue(isBuilt(1));
+        assertFalse(isBuilt(2));
+        assertEquals(1, queryLong("SELECT COUNT(*) FROM map_cluster"));
+    }
+
+    @Test
+    public void buildShouldReplaceClusters() throws SQLException {
+        insert("a", 1, 10.0, 10.0);
+        build(1);
+
+        build(1);
+
+        assertEquals(1, queryLong("SELECT COUNT(*) FROM map_cluster WHERE zoom = 0"));
+        assertTrue(isBuilt(1));
+    }
+
+    @Test
+    public void insertShouldDropClustersOfGroup() throws SQLException {
+        insert("a", 1, 10.0, 10.0);
+        insert("b", 2, 10.0, 10.0);
+        build(1);
+        build(2);
+
+        insert("c", 1, null, null);
+
+        assertFalse(isBuilt(1));
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM map_cluster WHERE survey_group_id = 1"));
+        assertTrue(isBuilt(2));
+    }
+
+    @Test
+    public void moveShouldDropClustersOfGroup() throws SQLException {
+        insert("a", 1, 10.0, 10.0);
+        build(1);
+
+        execute("UPDATE record SET latitude = 20 WHERE record_id = 'a'");
+
+        assertFalse(isBuilt(1));
+    }
+
+    @Test
+    public void renameShouldKeepClusters() throws SQLException {
+        insert("a", 1, 10.0, 10.0);
+        build(1);
+
+        execute("UPDATE record SET name = 'Well' WHERE record_id = 'a'");
+
+        assertTrue(isBuilt(1));
+    }
+
+    @Test
+    public void deleteShouldDropClustersOfGroup() throws SQLException {
+        insert("a", 1, 10.0, 10.0);
+        build(1);
+
+        execute("DELETE FROM record WHERE record_id = 'a'");
+
+        assertFalse(isBuilt(1));
+    }
+
+    @Test
+    public void replaceShouldDropClustersOfPreviousGroup() throws SQLException {
+        insert("a", 1, 10.0, 10.0);
+        build(1);
+        build(2);
+
+        insert("a", 2, 10.0, 10.0);
+
+        assertFalse(isBuilt(1));
+        assertFalse(isBuilt(2));
+    }
+
+    private void build(long surveyGroupId) throws SQLException {
+        for (String sql : MapClusterTable.getBuildSql()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setString(1, String.valueOf(surveyGroupId));
+            statement.executeUpdate();
+            statement.close();
+        }
+    }
+
+    private boolean isBuilt(long surveyGroupId) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(MapClusterTable.getBuiltSql());
+        statement.setString(1, String.valueOf(surveyGroupId));
+        ResultSet result = statement.executeQuery();
+        boolean built = result.next();
+        statement.close();
+        return built;
+    }
+
+    private void insert(String id, long surveyGroupId, Double latitude, Double longitude)
+            throws SQLException {
+        PreparedStatement statement = connection.prepareStatement("INSERT INTO record"
+                + " (record_id, survey_group_id, latitude, longitude) VALUES (?, ?, ?, ?)");
+        statement.setString(1, id);
+        statement.setLong(2, surveyGroupId);
+        statement.setObject(3, latitude);
+        statement.setObject(4, longitude);
+        statement.executeUpdate();
+        statement.close();
+    }
+
+    private void execute(String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        statement.execute(sql);
+        statement.close();
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery(sql);
+        result.next();
+        long value = result.getLong(1);
+        statement.close();
+        return value;
+    }
+
+    private double queryDouble(String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery(sql);
+        result.next();
+        double value = result.getDouble(1);
+        statement.close();
+        return value;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package org.akvo.flow.database;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RecordChangeTableTest {
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        execute("CREATE TABLE record (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "record_id TEXT, survey_group_id INTEGER, name TEXT,"
+                + "UNIQUE (record_id) ON CONFLICT REPLACE)");
+        for (String sql : RecordChangeTable.getCreateSql()) {
+            execute(sql);
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void shouldLogInsertedRecords() throws SQLException {
+        execute("INSERT INTO record (record_id, name) VALUES ('a', 'A')");
+        execute("INSERT INTO record (record_id, name) VALUES ('b', 'B')");
+
+        assertEquals(Arrays.asList("a", "b"), getChanges(0));
+    }
+
+    @Test
+    public void shouldLogUpdatedRecords() throws SQLException {
+        execute("INSERT INTO record (record_id, name) VALUES ('a', 'A')");
+        execute("INSERT INTO record (record_id, name) VALUES ('b', 'B')");
+        long lastId = getLastChangeId();
+
+        execute("UPDATE record SET name = 'A2' WHERE record_id = 'a'");
+
+        assertEquals(Arrays.asList("a"), getChanges(lastId));
+    }
+
+    @Test
+    public void shouldLogDeletedRecords() throws SQLException {
+        execute("INSERT INTO record (record_id, name) VALUES ('a', 'A')");
+        long lastId = getLastChangeId();
+
+        execute("DELETE FROM record WHERE record_id = 'a'");
+
+        assertEquals(Arrays.asList("a"), getChanges(lastId));
+    }
+
+    @Test
+    public void shouldLogBothIdsOfRenamedRecords() throws SQLException {
+        execute("INSERT INTO record (record_id, name) VALUES ('a', 'A')");
+        long lastId = getLastChangeId();
+
+        execute("UPDATE record SET record_id = 'b' WHERE record_id = 'a'");
+
+        List<String> changes = getChanges(lastId);
+        assertEquals(2, changes.size());
+        assertTrue(changes.containsAll(Arrays.asList("a", "b")));
+    }
+
+    @Test
+    public void shouldKeepOnlyTheLatestChangeOfARecord() throws SQLException {
+        execute("INSERT INTO record (record_id, name) VALUES ('a', 'A')");
+        execute("INSERT INTO record (record_id, name) VALUES ('b', 'B')");
+        execute("UPDATE record SET name = 'A2' WHERE record_id = 'a'");
+
+        assertEquals(Arrays.asList("b", "a"), getChanges(0));
+        assertEquals(2, count("SELECT COUNT(*) FROM record_change"));
+    }
+
+    @Test
+    public void shouldReturnOnlyTheChangesAfterTheLastOneRead() throws SQLException {
+        execute("INSERT INTO record (record_id, name) VALUES ('a', 'A')");
+        execute("INSERT INTO record (record_id, name) VALUES ('b', 'B')");
+        long lastId = getLastChangeId();
+
+        execute("INSERT INTO record (record_id, name) VALUES ('c', 'C')");
+        execute("UPDATE record SET name = 'A2' WHERE record_id = 'a'");
+
+        assertEquals(Arrays.asList("c", "a"), getChanges(lastId));
+        assertEquals(0, getChanges(getLastChangeId()).size());
+    }
+
+    @Test
+    public void lastChangeIdShouldBeZeroWithoutChanges() throws SQLException {
+        assertEquals(0, getLastChangeId());
+    }
+
+    private long getLastChangeId() throws SQLException {
+        return count(RecordChangeTable.getLastChangeIdSql());
+    }
+
+    private List<String> getChanges(long afterId) throws SQLException {
+        List<String> recordIds = new ArrayList<>();
+        PreparedStatement statement = connection.prepareStatement(
+                RecordChangeTable.getChangesSql());
+        try {
+            statement.setString(1, String.valueOf(afterId));
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                recordIds.add(resultSet.getString(2));
+            }
+        } finally {
+            statement.close();
+        }
+        return recordIds;
+    }
+
+    private long count(String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet resultSet = statement.executeQuery(sql);
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        } finally {
+            statement.close();
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute(sql);
+        } finally {
+            statement.close();
+        }
+    }
+}
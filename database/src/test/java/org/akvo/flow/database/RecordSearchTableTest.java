@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RecordSearchTableTest {
+
+    @Test
+    public void getMatchQueryShouldMatchPrefixOfEveryWord() {
+        assertEquals("water* point*", RecordSearchTable.getMatchQuery("Water point"));
+    }
+
+    @Test
+    public void getMatchQueryShouldSplitOnPunctuation() {
+        assertEquals("ab12* cd34*", RecordSearchTable.getMatchQuery("  ab12-CD34 "));
+    }
+
+    @Test
+    public void getMatchQueryShouldNotCreateOperators() {
+        assertEquals("wells* or not* pumps*",
+                RecordSearchTable.getMatchQuery("wells OR -NOT \"pumps\""));
+    }
+
+    @Test
+    public void getMatchQueryShouldMatchShortWordsWhole() {
+        assertEquals("school* 12 b", RecordSearchTable.getMatchQuery("School 12 b"));
+    }
+
+    @Test
+    public void getMatchQueryShouldKeepNonAsciiLetters() {
+        assertEquals("école*", RecordSearchTable.getMatchQuery("école"));
+    }
+
+    @Test
+    public void getMatchQueryShouldReturnNullWithoutWords() {
+        assertNull(RecordSearchTable.getMatchQuery(" - * "));
+        assertNull(RecordSearchTable.getMatchQuery(null));
+    }
+}
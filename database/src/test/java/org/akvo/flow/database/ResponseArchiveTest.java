@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ResponseArchiveTest {
+
+    private static final String[] COLUMNS = { "_id", "question_id", "answer", "filename" };
+
+    @Test
+    public void fromBytesShouldReadWrittenRows() throws IOException {
+        List<String[]> rows = Arrays.asList(new String[] { "1", "q1", "Pump", null },
+                new String[] { "2", "q2", "école|ñandú", "/sdcard/photo.jpg" });
+
+        ResponseArchive archive = ResponseArchive
+                .fromBytes(new ResponseArchive(COLUMNS, rows).toBytes());
+
+        assertArrayEquals(COLUMNS, archive.getColumns());
+        assertEquals(2, archive.getRows().size());
+        assertArrayEquals(rows.get(0), archive.getRows().get(0));
+        assertArrayEquals(rows.get(1), archive.getRows().get(1));
+    }
+
+    @Test
+    public void fromBytesShouldReadAnswersLongerThan64KB() throws IOException {
+        char[] signature = new char[100000];
+        Arrays.fill(signature, 'A');
+        String[] row = { "1", "q1", new String(signature), null };
+
+        ResponseArchive archive = ResponseArchive.fromBytes(
+                new ResponseArchive(COLUMNS, Collections.singletonList(row)).toBytes());
+
+        assertArrayEquals(row, archive.getRows().get(0));
+    }
+
+    @Test
+    public void fromBytesShouldReadEmptyArchive() throws IOException {
+        ResponseArchive archive = ResponseArchive.fromBytes(
+                new ResponseArchive(COLUMNS, new ArrayList<String[]>()).toBytes());
+
+        assertArrayEquals(COLUMNS, archive.getColumns());
+        assertEquals(0, archive.getRows().size());
+    }
+
+    @Test(expected = IOException.class)
+    public void fromBytesShouldFailOnInvalidData() throws IOException {
+        ResponseArchive.fromBytes(new byte[] { 1, 2, 3 });
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database.britedb;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.akvo.flow.database.Constants.ORDER_BY_DATE;
+import static org.akvo.flow.database.Constants.ORDER_BY_DISTANCE;
+import static org.akvo.flow.database.Constants.ORDER_BY_NAME;
+import static org.akvo.flow.database.Constants.ORDER_BY_STATUS;
+import static org.junit.Assert.assertEquals;
+
+public class DataPointsPageQueryTest {
+
+    private static final long SURVEY_GROUP_ID = 1L;
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        Statement statement = connection.createStatement();
+        statement.execute("CREATE TABLE record (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "record_id TEXT, survey_group_id INTEGER, name TEXT, latitude REAL,"
+                + "longitude REAL, last_modified INTEGER NOT NULL DEFAULT 0,"
+                + "status INTEGER NOT NULL DEFAULT 0)");
+        statement.close();
+        insert("a", "Well", 1, 300L, 0.0, 0.0);
+        insert("b", "well", 0, 300L, 0.0, 0.0);
+        insert("c", null, 1, 200L, 1.0, 0.0);
+        insert("d", "Pump", 0, 300L, -1.0, 0.0);
+        insert("e", null, 2, 100L, null, null);
+        insert("f", "Well", 1, 200L, 0.0, 1.0);
+        insert("g", "Tank", 2, 100L, null, null);
+        insertInOtherGroup("h");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void dateOrderShouldBreakTiesWithIdDescending() throws SQLException {
+        List<String> expected = Arrays.asList("d", "b", "a", "f", "c", "g", "e");
+
+        assertPagesMatch(expected, ORDER_BY_DATE);
+    }
+
+    @Test
+    public void nameOrderShouldListRecordsWithoutNameFirst() throws SQLException {
+        List<String> expected = Arrays.asList("c", "e", "d", "g", "a", "b", "f");
+
+        assertPagesMatch(expected, ORDER_BY_NAME);
+    }
+
+    @Test
+    public void statusOrderShouldBreakTiesWithIdAscending() throws SQLException {
+        List<String> expected = Arrays.asList("b", "d", "a", "c", "f", "e", "g");
+
+        assertPagesMatch(expected, ORDER_BY_STATUS);
+    }
+
+    @Test
+    public void distanceOrderShouldFallBackToDate() throws SQLException {
+        List<String> expected = Arrays.asList("d", "b", "a", "f", "c", "g", "e");
+
+        assertPagesMatch(expected, ORDER_BY_DISTANCE);
+    }
+
+    /**
+     * Reads the records with every page size, so that every record is the last one of a page
+     */
+    private void assertPagesMatch(List<String> expected, int order) throws SQLException {
+        for (int pageSize = 1; pageSize <= expected.size() + 1; pageSize++) {
+            assertEquals("Page size " + pageSize, expected,
+                    readAllPages(order, pageSize, false));
+            assertEquals("Ids page size " + pageSize, expected,
+                    readAllPages(order, pageSize, true));
+        }
+    }
+
+    private List<String> readAllPages(int order, int pageSize, boolean idsOnly)
+            throws SQLException {
+        List<String> ids = new ArrayList<>();
+        String afterValue = null;
+        String afterId = null;
+        while (true) {
+            DataPointsPageQuery query = new DataPointsPageQuery(SURVEY_GROUP_ID, order,
+                    afterValue, afterId);
+            PreparedStatement statement = connection.prepareStatement(
+                    idsOnly ? query.getIdsSql(pageSize) : query.getSql(pageSize));
+            String[] args = query.getArgs();
+            for (int i = 0; i < args.length; i++) {
+                statement.setString(i + 1, args[i]);
+            }
+            ResultSet result = statement.executeQuery();
+            int count = 0;
+            while (result.next()) {
+                afterId = result.getString("record_id");
+                afterValue = result.getString(DataPointsPageQuery.SORT_VALUE);
+                ids.add(afterId);
+                count++;
+            }
+            statement.close();
+            if (count < pageSize) {
+                return ids;
+            }
+        }
+    }
+
+    private void insert(String id, String name, int status, long lastModified,
+            Double latitude, Double longitude) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement("INSERT INTO record"
+                + " (record_id, survey_group_id, name, status, last_modified, latitude,"
+                + " longitude) VALUES (?, ?, ?, ?, ?, ?, ?)");
+        statement.setString(1, id);
+        statement.setLong(2, SURVEY_GROUP_ID);
+        statement.setString(3, name);
+        statement.setInt(4, status);
+        statement.setLong(5, lastModified);
+        statement.setObject(6, latitude);
+        statement.setObject(7, longitude);
+        statement.executeUpdate();
+        statement.close();
+    }
+
+    private void insertInOtherGroup(String id) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO record (record_id, survey_group_id) VALUES (?, ?)");
+        statement.setString(1, id);
+        statement.setLong(2, SURVEY_GROUP_ID + 1);
+        statement.executeUpdate();
+        statement.close();
+    }
+}
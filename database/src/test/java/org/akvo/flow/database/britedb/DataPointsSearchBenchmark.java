@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database.britedb;
+
+import org.akvo.flow.database.RecordSearchTable;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times datapoint searches against generated databases of 100k and 1M records, stored in files
+ * like on a device. Run with:
+ * <pre>
+ * ./gradlew :database:testDebugUnitTest -Dflow.benchmark=true --tests '*DataPointsSearchBenchmark'
+ * </pre>
+ * Records are spread over 4 survey groups and named after a few common words and a number, so
+ * that short prefixes match a large part of the group. Every search reads the first page and
+ * the following one, as the list does when scrolled.
+ */
+public class DataPointsSearchBenchmark {
+
+    private static final int SURVEY_GROUPS = 4;
+    private static final int PAGE_SIZE = 50;
+    private static final int RUNS = 20;
+    private static final String[] WORDS = {
+            "Water", "Point", "School", "Clinic", "Well", "Pump", "Tank", "Market"
+    };
+    private static final String[] SEARCHES = {
+            "w", "water", "water point", "school 123", "12345", "abcd-001", "nothing"
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Boolean.getBoolean("flow.benchmark"));
+    }
+
+    @Test
+    public void search100kRecords() throws Exception {
+        benchmark(100000);
+    }
+
+    @Test
+    public void search1MRecords() throws Exception {
+        benchmark(1000000);
+    }
+
+    private void benchmark(int records) throws Exception {
+        File file = folder.newFile("surveydata-" + records);
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        try {
+            long start = System.currentTimeMillis();
+            generate(connection, records);
+            report(records, "generate and index", System.currentTimeMillis() - start);
+
+            for (String text : SEARCHES) {
+                long slowest = 0;
+                long total = 0;
+                int results = 0;
+                for (int run = 0; run < RUNS; run++) {
+                    long searchStart = System.nanoTime();
+                    results = searchTwoPages(connection, text);
+                    long elapsed = (System.nanoTime() - searchStart) / 1000000;
+                    slowest = Math.max(slowest, elapsed);
+                    total += elapsed;
+                }
+                report(records, "search '" + text + "', " + results + " results, average "
+                        + total / RUNS + " ms, slowest", slowest);
+            }
+            assertTrue(searchTwoPages(connection, "water") > 0);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * @return the number of records read
+     */
+    private int searchTwoPages(Connection connection, String text) throws SQLException {
+        String afterValue = null;
+        String afterId = null;
+        int count = 0;
+        for (int page = 0; page < 2; page++) {
+            DataPointsSearchQuery query = new DataPointsSearchQuery(1, text, afterValue,
+                    afterId);
+            PreparedStatement statement = connection.prepareStatement(query.getSql(PAGE_SIZE));
+            String[] args = query.getArgs();
+            for (int i = 0; i < args.length; i++) {
+                statement.setString(i + 1, args[i]);
+            }
+            ResultSet result = statement.executeQuery();
+            int pageCount = 0;
+            while (result.next()) {
+                afterId = result.getString("record_id");
+                afterValue = result.getString(DataPointsPageQuery.SORT_VALUE);
+                pageCount++;
+            }
+            statement.close();
+            count += pageCount;
+            if (pageCount < PAGE_SIZE) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private void generate(Connection connection, int records) throws SQLException {
+        execute(connection, "CREATE TABLE record (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "record_id TEXT, survey_group_id INTEGER, name TEXT, latitude REAL,"
+                + "longitude REAL, last_modified INTEGER NOT NULL DEFAULT 0,"
+                + "status INTEGER NOT NULL DEFAULT 0, UNIQUE (record_id) ON CONFLICT REPLACE)");
+        // Same index as DatabaseHelper, which the name prefixes are read from
+        execute(connection, "CREATE INDEX record_group_name_idx ON record"
+                + "(survey_group_id, name COLLATE NOCASE, record_id)");
+        execute(connection, "CREATE VIRTUAL TABLE " + RecordSearchTable.TABLE_NAME
+                + " USING fts3(" + RecordSearchTable.COLUMN_NAME + ", "
+                + RecordSearchTable.COLUMN_RECORD_ID + ")");
+        connection.setAutoCommit(false);
+        PreparedStatement statement = connection.prepareStatement("INSERT INTO record"
+                + " (record_id, survey_group_id, name) VALUES (?, ?, ?)");
+        for (int i = 0; i < records; i++) {
+            statement.setString(1, String.format("abcd-%04d-%04d", i / 10000, i % 10000));
+            statement.setInt(2, i % SURVEY_GROUPS + 1);
+            statement.setString(3, WORDS[i % WORDS.length] + " " + WORDS[i / 7 % WORDS.length]
+                    + " " + i);
+            statement.addBatch();
+            if (i % 10000 == 9999) {
+                statement.executeBatch();
+            }
+        }
+        statement.executeBatch();
+        statement.close();
+        // Same statement as RecordSearchTable.rebuild()
+        execute(connection, "INSERT INTO " + RecordSearchTable.TABLE_NAME + " ("
+                + RecordSearchTable.COLUMN_DOCID + ", " + RecordSearchTable.COLUMN_NAME + ", "
+                + RecordSearchTable.COLUMN_RECORD_ID + ") SELECT _id, name, record_id FROM record");
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    private void execute(Connection connection, String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        statement.execute(sql);
+        statement.close();
+    }
+
+    private void report(int records, String step, long millis) {
+        System.out.println(String.format("%d records, %s: %d ms", records, step, millis));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database.britedb;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DataPointsSearchQueryTest {
+
+    private static final long SURVEY_GROUP_ID = 1L;
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        execute("CREATE TABLE record (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "record_id TEXT, survey_group_id INTEGER, name TEXT,"
+                + "UNIQUE (record_id) ON CONFLICT REPLACE)");
+        execute("CREATE INDEX record_group_name_idx ON record"
+                + "(survey_group_id, name COLLATE NOCASE, record_id)");
+        execute("CREATE VIRTUAL TABLE record_fts USING fts3(name, record_id)");
+        insert("wa12-0001", "Well 2", SURVEY_GROUP_ID);
+        insert("ab12-0002", "well 1", SURVEY_GROUP_ID);
+        insert("ab12-0003", "Water Well", SURVEY_GROUP_ID);
+        insert("we12-0004", "Pump", SURVEY_GROUP_ID);
+        insert("we12-0005", null, SURVEY_GROUP_ID);
+        insert("ab12-0006", "Old well", SURVEY_GROUP_ID);
+        insert("ab12-0007", "Tank", SURVEY_GROUP_ID);
+        insert("ab12-0008", "Well 1", SURVEY_GROUP_ID);
+        insert("we12-0009", "Well", SURVEY_GROUP_ID + 1);
+        insert("ab12-0010", "Pump we12", SURVEY_GROUP_ID);
+        insert("ab12-0011", "We12 tank", SURVEY_GROUP_ID);
+        execute("INSERT INTO record_fts (docid, name, record_id)"
+                + " SELECT _id, name, record_id FROM record");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void searchShouldRankNamesThenIdsThenWords() throws SQLException {
+        List<String> expected = Arrays.asList("ab12-0011", "we12-0004", "we12-0005",
+                "ab12-0010");
+
+        assertPagesMatch(expected, "WE12");
+    }
+
+    @Test
+    public void searchShouldSortNamesIgnoringCase() throws SQLException {
+        List<String> expected = Arrays.asList("ab12-0002", "ab12-0008", "wa12-0001",
+                "ab12-0006", "ab12-0003");
+
+        assertPagesMatch(expected, "wel");
+    }
+
+    @Test
+    public void shortSearchShouldOnlyMatchPrefixes() throws SQLException {
+        List<String> expected = Arrays.asList("ab12-0003", "ab12-0011", "ab12-0002",
+                "ab12-0008", "wa12-0001", "we12-0004", "we12-0005");
+
+        assertPagesMatch(expected, "w");
+    }
+
+    @Test
+    public void searchShouldMatchEveryWordOfNames() throws SQLException {
+        List<String> expected = Collections.singletonList("ab12-0003");
+
+        assertPagesMatch(expected, "well wat");
+    }
+
+    @Test
+    public void searchShouldEscapeLikeWildcards() throws SQLException {
+        assertPagesMatch(Collections.<String>emptyList(), "w%");
+    }
+
+    /**
+     * Reads the records with every page size, so that every record is the last one of a page
+     */
+    private void assertPagesMatch(List<String> expected, String text) throws SQLException {
+        for (int pageSize = 1; pageSize <= expected.size() + 1; pageSize++) {
+            assertEquals("Page size " + pageSize, expected,
+                    readAllPages(text, pageSize, false));
+            assertEquals("Ids page size " + pageSize, expected,
+                    readAllPages(text, pageSize, true));
+        }
+    }
+
+    private List<String> readAllPages(String text, int pageSize, boolean idsOnly)
+            throws SQLException {
+        List<String> ids = new ArrayList<>();
+        String afterValue = null;
+        String afterId = null;
+        while (true) {
+            DataPointsSearchQuery query = new DataPointsSearchQuery(SURVEY_GROUP_ID, text,
+                    afterValue, afterId);
+            PreparedStatement statement = connection.prepareStatement(
+                    idsOnly ? query.getIdsSql(pageSize) : query.getSql(pageSize));
+            String[] args = query.getArgs();
+            for (int i = 0; i < args.length; i++) {
+                statement.setString(i + 1, args[i]);
+            }
+            ResultSet result = statement.executeQuery();
+            int count = 0;
+            while (result.next()) {
+                afterId = result.getString("record_id");
+                afterValue = result.getString(DataPointsPageQuery.SORT_VALUE);
+                ids.add(afterId);
+                count++;
+            }
+            statement.close();
+            if (count < pageSize) {
+                return ids;
+            }
+        }
+    }
+
+    private void insert(String id, String name, long surveyGroupId) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement("INSERT INTO record"
+                + " (record_id, survey_group_id, name) VALUES (?, ?, ?)");
+        statement.setString(1, id);
+        statement.setLong(2, surveyGroupId);
+        statement.setString(3, name);
+        statement.executeUpdate();
+        statement.close();
+    }
+
+    private void execute(String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        statement.execute(sql);
+        statement.close();
+    }
+}
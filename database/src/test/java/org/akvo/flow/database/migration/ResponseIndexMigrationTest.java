@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package org.akvo.flow.database.migration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ResponseIndexMigrationTest {
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        Statement statement = connection.createStatement();
+        statement.execute("CREATE TABLE response (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "survey_instance_id INTEGER NOT NULL, question_id TEXT NOT NULL,"
+                + "answer TEXT, iteration INTEGER NOT NULL DEFAULT 0)");
+        statement.close();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void deleteDuplicatesShouldKeepLatestResponse() throws SQLException {
+        insert("INSERT", "1", 0, "first");
+        insert("INSERT", "1", 0, "second");
+        insert("INSERT", "1", 1, "other iteration");
+
+        execute(ResponseIndexMigration.getDeleteDuplicatesSql());
+
+        assertEquals(2, count());
+        assertEquals("second", getAnswer("1", 0));
+        assertEquals("other iteration", getAnswer("1", 1));
+    }
+
+    @Test
+    public void indexShouldRejectDuplicateResponses() throws SQLException {
+        execute(ResponseIndexMigration.getCreateIndexSql());
+        insert("INSERT", "1", 0, "first");
+
+        try {
+            insert("INSERT", "1", 0, "second");
+            fail("Duplicate response saved");
+        } catch (SQLException e) {
+            assertEquals(1, count());
+        }
+    }
+
+    @Test
+    public void replaceShouldOverwriteSavedResponse() throws SQLException {
+        execute(ResponseIndexMigration.getCreateIndexSql());
+        insert("INSERT", "1", 0, "first");
+        insert("INSERT", "1", -1, "no iteration");
+
+        insert("INSERT OR REPLACE", "1", 0, "second");
+
+        assertEquals(2, count());
+        assertEquals("second", getAnswer("1", 0));
+        assertEquals("no iteration", getAnswer("1", -1));
+    }
+
+    private void execute(String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        statement.execute(sql);
+        statement.close();
+    }
+
+    private void insert(String command, String questionId, int iteration, String answer)
+            throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(command
+                + " INTO response (survey_instance_id, question_id, iteration, answer)"
+                + " VALUES (1, ?, ?, ?)");
+        statement.setString(1, questionId);
+        statement.setInt(2, iteration);
+        statement.setString(3, answer);
+        statement.executeUpdate();
+        statement.close();
+    }
+
+    private int count() throws SQLException {
+        Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM response");
+        result.next();
+        int count = result.getInt(1);
+        statement.close();
+        return count;
+    }
+
+    private String getAnswer(String questionId, int iteration) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                "SELECT answer FROM response WHERE question_id = ? AND iteration = ?");
+        statement.setString(1, questionId);
+        statement.setInt(2, iteration);
+        ResultSet result = statement.executeQuery();
+        result.next();
+        String answer = result.getString(1);
+        statement.close();
+        return answer;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database.migration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+
+public class ResponseIterationMigrationTest {
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        Statement statement = connection.createStatement();
+        statement.execute("CREATE TABLE response (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "survey_instance_id INTEGER NOT NULL, question_id TEXT NOT NULL,"
+                + "iteration INTEGER NOT NULL DEFAULT 0)");
+        statement.close();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void batchShouldMoveIterationToItsColumn() throws SQLException {
+        insert("12|3");
+
+        migrate(0, 10);
+
+        assertResponse(1, "12", "3");
+    }
+
+    @Test
+    public void batchShouldKeepResponsesWithoutIteration() throws SQLException {
+        insert("12");
+
+        migrate(0, 10);
+
+        assertResponse(1, "12", "0");
+    }
+
+    @Test
+    public void batchShouldSplitOnFirstPipes() throws SQLException {
+        insert("q-1|10|2");
+        insert("7|");
+        insert("|4");
+
+        migrate(0, 10);
+
+        assertResponse(1, "q-1", "10");
+        assertResponse(2, "7", "");
+        assertResponse(3, "", "4");
+    }
+
+    @Test
+    public void batchShouldOnlyMigrateItsRange() throws SQLException {
+        for (int i = 0; i < 5; i++) {
+            insert("q|" + i);
+        }
+
+        assertEquals(2, migrate(1, 3));
+        assertResponse(1, "q|0", "0");
+        assertResponse(2, "q", "1");
+        assertResponse(3, "q", "2");
+        assertResponse(4, "q|3", "0");
+    }
+
+    @Test
+    public void batchShouldNotMigrateResponsesAgain() throws SQLException {
+        insert("q|1|2");
+
+        assertEquals(1, migrate(0, 10));
+        assertEquals(0, migrate(0, 10));
+        assertResponse(1, "q", "1");
+    }
+
+    @Test
+    public void batchShouldReplaceResponseAlreadySavedWithoutIteration() throws SQLException {
+        Statement statement = connection.createStatement();
+        statement.execute(ResponseIndexMigration.getCreateIndexSql());
+        statement.close();
+        insert("q");
+        insert("q|0");
+
+        migrate(0, 10);
+
+        assertResponse(2, "q", "0");
+        statement = connection.createStatement();
+        ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM response");
+        result.next();
+        assertEquals(1, result.getInt(1));
+        statement.close();
+    }
+
+    @Test
+    public void maxIdShouldBeZeroWithoutResponses() throws SQLException {
+        Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery(ResponseIterationMigration.getMaxIdSql());
+        result.next();
+        assertEquals(0, result.getLong(1));
+        statement.close();
+    }
+
+    private void insert(String questionId) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO response (survey_instance_id, question_id) VALUES (1, ?)");
+        statement.setString(1, questionId);
+        statement.executeUpdate();
+        statement.close();
+    }
+
+    private int migrate(long position, long end) throws SQLException {
+        PreparedStatement statement = connection
+                .prepareStatement(ResponseIterationMigration.getBatchSql());
+        statement.setLong(1, position);
+        statement.setLong(2, end);
+        int changes = statement.executeUpdate();
+        statement.close();
+        return changes;
+    }
+
+    private void assertResponse(long id, String questionId, String iteration)
+            throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                "SELECT question_id, iteration FROM response WHERE _id = ?");
+        statement.setLong(1, id);
+        ResultSet result = statement.executeQuery();
+        result.next();
+        assertEquals(questionId, result.getString(1));
+        assertEquals(iteration, result.getString(2));
+        statement.close();
+    }
+}
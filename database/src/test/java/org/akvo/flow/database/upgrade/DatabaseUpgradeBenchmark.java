@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.database.upgrade;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.akvo.flow.database.DatabaseHelper;
+import org.akvo.flow.database.LanguageTable;
+import org.akvo.flow.database.migration.MigrationListener;
+import org.akvo.flow.database.migration.ResumableMigration;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times every step of the upgrade from {@code VER_LANGUAGES_MIGRATE}, the last version without
+ * response iterations, against generated databases of 100k and 1M responses stored in files
+ * like on a device. Run with:
+ * <pre>
+ * ./gradlew :database:testDebugUnitTest -Dflow.benchmark=true --tests '*DatabaseUpgradeBenchmark'
+ * </pre>
+ * The upgraders run in a single transaction, as in {@link DatabaseHelper#onUpgrade}, and the
+ * resumable migrations run afterwards batch by batch, as in the migration service. Every form
+ * instance has 20 responses, 10 of them to a question repeated twice with the iteration in the
+ * question id, and one of them saved twice, so that the unique response index has duplicates
+ * to remove.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class DatabaseUpgradeBenchmark {
+
+    private static final int RESPONSES_PER_INSTANCE = 20;
+    private static final int REPEATED_RESPONSES_PER_INSTANCE = 10;
+    private static final int INSTANCES_PER_RECORD = 2;
+    private static final int SURVEY_GROUPS = 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Boolean.getBoolean("flow.benchmark"));
+    }
+
+    @Test
+    public void upgrade100kResponses() throws Exception {
+        benchmark(100000);
+    }
+
+    @Test
+    public void upgrade1MResponses() throws Exception {
+        benchmark(1000000);
+    }
+
+    private void benchmark(int responses) throws Exception {
+        File file = new File(folder.getRoot(), "surveydata-" + responses);
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        try {
+            long start = System.currentTimeMillis();
+            createSchema(db);
+            generate(db, responses);
+            report(responses, "generate", start);
+
+            DatabaseHelper helper = new DatabaseHelper(RuntimeEnvironment.application,
+                    new LanguageTable(), new NoSignaturesMigrationListener());
+            UpgraderVisitor upgrader = (UpgraderVisitor) new UpgraderFactory()
+                    .createUpgrader(DatabaseHelper.VER_LANGUAGES_MIGRATE, helper, db);
+            long upgradeStart = System.currentTimeMillis();
+            db.beginTransaction();
+            try {
+                for (DatabaseUpgrader step : upgrader.getUpgraders()) {
+                    start = System.currentTimeMillis();
+                    step.upgrade();
+                    report(responses, step.getClass().getSimpleName(), start);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            report(responses, "upgrade", upgradeStart);
+
+            start = System.currentTimeMillis();
+            assertTrue(helper.resumeMigrations(db));
+            report(responses, "resume migrations", start);
+
+            int instances = responses / RESPONSES_PER_INSTANCE;
+            assertEquals(0, queryLong(db,
+                    "SELECT COUNT(*) FROM response WHERE question_id LIKE '%|%'"));
+            assertEquals(responses - instances, queryLong(db, "SELECT COUNT(*) FROM response"));
+            assertEquals(instances * REPEATED_RESPONSES_PER_INSTANCE / 2,
+                    queryLong(db, "SELECT COUNT(*) FROM response WHERE iteration = 1"));
+            assertEquals(instances / INSTANCES_PER_RECORD,
+                    queryLong(db, "SELECT COUNT(*) FROM record_fts"));
+        } finally {
+            db.close();
+        }
+    }
+
+    /**
+     * The tables and indexes of {@code VER_LANGUAGES_MIGRATE}, without the columns added since
+     */
+    private void createSchema(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE user (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "name TEXT NOT NULL, email TEXT, deleted INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE TABLE survey (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "survey_id TEXT NOT NULL, survey_group_id INTEGER, display_name TEXT NOT NULL,"
+                + "version REAL, type TEXT, location TEXT, filename TEXT, language TEXT,"
+                + "help_downloaded_flag INTEGER NOT NULL DEFAULT 0,"
+                + "deleted INTEGER NOT NULL DEFAULT 0,"
+                + "UNIQUE (survey_id) ON CONFLICT REPLACE)");
+        db.execSQL("CREATE TABLE survey_group (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "survey_group_id INTEGER, name TEXT, register_survey_id TEXT,"
+                + "monitored INTEGER NOT NULL DEFAULT 0,"
+                + "UNIQUE (survey_group_id) ON CONFLICT REPLACE)");
+        db.execSQL("CREATE TABLE survey_instance (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "uuid TEXT, survey_id TEXT NOT NULL, user_id INTEGER, start_date INTEGER,"
+                + "saved_date INTEGER, submitted_date INTEGER, surveyed_locale_id TEXT,"
+                + "status INTEGER, exported_date INTEGER, sync_date INTEGER,"
+                + "duration INTEGER NOT NULL DEFAULT 0, submitter TEXT, version REAL,"
+                + "UNIQUE (uuid) ON CONFLICT REPLACE)");
+        db.execSQL("CREATE TABLE response (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "survey_instance_id INTEGER NOT NULL, question_id TEXT NOT NULL,"
+                + "answer TEXT NOT NULL, type TEXT NOT NULL,"
+                + "include INTEGER NOT NULL DEFAULT 1, filename TEXT)");
+        db.execSQL("CREATE TABLE record (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "record_id TEXT, survey_group_id INTEGER, name TEXT, latitude REAL,"
+                + "longitude REAL, last_modified INTEGER NOT NULL DEFAULT 0,"
+                + "UNIQUE (record_id) ON CONFLICT REPLACE)");
+        db.execSQL("CREATE TABLE transmission (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "survey_instance_id INTEGER NOT NULL, survey_id TEXT, filename TEXT,"
+                + "status INTEGER, start_date INTEGER, end_date INTEGER,"
+                + "UNIQUE (filename) ON CONFLICT REPLACE)");
+        db.execSQL("CREATE TABLE sync_time (_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "survey_group_id INTEGER, time TEXT,"
+                + "UNIQUE (survey_group_id) ON CONFLICT REPLACE)");
+        new LanguageTable().onCreate(db);
+        db.execSQL("CREATE INDEX response_idx ON response(survey_instance_id, question_id)");
+        db.execSQL("CREATE INDEX record_name_idx ON record(name)");
+        db.execSQL("CREATE INDEX response_status_idx ON survey_instance(status)");
+        db.execSQL("CREATE INDEX response_modified_idx ON survey_instance(submitted_date)");
+    }
+
+    private void generate(SQLiteDatabase db, int responses) {
+        int instances = responses / RESPONSES_PER_INSTANCE;
+        long now = System.currentTimeMillis();
+        db.beginTransaction();
+        try {
+            for (int group = 0; group < SURVEY_GROUPS; group++) {
+                db.execSQL("INSERT INTO survey_group (survey_group_id, name, monitored)"
+                        + " VALUES (?, ?, 1)", new Object[] { group, "Group " + group });
+                db.execSQL("INSERT INTO survey (survey_id, survey_group_id, display_name)"
+                        + " VALUES (?, ?, ?)", new Object[] { "s" + group, group, "Form " + group });
+            }
+            SQLiteStatement record = db.compileStatement("INSERT INTO record"
+                    + " (record_id, survey_group_id, name, latitude, longitude, last_modified)"
+                    + " VALUES (?, ?, ?, ?, ?, ?)");
+            SQLiteStatement instance = db.compileStatement("INSERT INTO survey_instance"
+                    + " (_id, uuid, survey_id, surveyed_locale_id, status, start_date,"
+                    + " saved_date, submitted_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+            for (int i = 0; i < instances; i++) {
+                int recordNumber = i / INSTANCES_PER_RECORD;
+                long group = recordNumber % SURVEY_GROUPS;
+                String recordId = "abcd-" + recordNumber;
+                long date = now - i * 60000L;
+                if (i % INSTANCES_PER_RECORD == 0) {
+                    record.bindString(1, recordId);
+                    record.bindLong(2, group);
+                    record.bindString(3, "Water point " + recordNumber);
+                    record.bindDouble(4, -10 + (recordNumber % 1000) * 0.02);
+                    record.bindDouble(5, 30 + (recordNumber / 1000) * 0.02);
+                    record.bindLong(6, date);
+                    record.executeInsert();
+                }
+                instance.bindLong(1, i);
+                instance.bindString(2, "uuid-" + i);
+                instance.bindString(3, "s" + group);
+                instance.bindString(4, recordId);
+                instance.bindLong(5, i % 4);
+                instance.bindLong(6, date);
+                instance.bindLong(7, date);
+                instance.bindLong(8, date);
+                instance.executeInsert();
+            }
+            record.close();
+            instance.close();
+
+            SQLiteStatement response = db.compileStatement("INSERT INTO response"
+                    + " (survey_instance_id, question_id, answer, type) VALUES (?, ?, ?, 'VALUE')");
+            for (int i = 0; i < responses; i++) {
+                int question = i % RESPONSES_PER_INSTANCE;
+                String questionId = String.valueOf(1000000 + question);
+                if (question < REPEATED_RESPONSES_PER_INSTANCE) {
+                    questionId = String.valueOf(2000000 + question / 2) + "|" + question % 2;
+                } else if (question == RESPONSES_PER_INSTANCE - 1) {
+                    // Saved again as the previous one, before the unique response index
+                    questionId = String.valueOf(1000000 + question - 1);
+                }
+                response.bindLong(1, i / RESPONSES_PER_INSTANCE);
+                response.bindString(2, questionId);
+                response.bindString(3, "Answer " + i);
+                response.executeInsert();
+            }
+            response.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private long queryLong(SQLiteDatabase db, String sql) {
+        Cursor cursor = db.rawQuery(sql, null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void report(int responses, String step, long start) {
+        System.out.println(String.format("%d responses, %s: %d ms", responses, step,
+                System.currentTimeMillis() - start));
+    }
+
+    private static class NoSignaturesMigrationListener implements MigrationListener {
+
+        private final ResumableMigration noSignatures = new ResumableMigration() {
+            @Override
+            public long migrateBatch(SQLiteDatabase db, long position) {
+                return DONE;
+            }
+        };
+
+        @Override
+        public void migrateLanguages(SQLiteDatabase db) {
+            // Nothing to migrate
+        }
+
+        @Override
+        public void migratePreferences(SQLiteDatabase db) {
+            // Nothing to migrate
+        }
+
+        @Override
+        public ResumableMigration getSignatureMigration() {
+            return noSignatures;
+        }
+
+        @Override
+        public ResumableMigration getArchivedSignatureMigration() {
+            return noSignatures;
+        }
+    }
+}
@@ -49,7 +49,7 @@ public class UpgraderFactoryTest {
         UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
                 .createUpgrader(DatabaseHelper.VER_LAUNCH, null, null);
 
-        assertEquals(7, upgrader.getUpgraders().size());
+        assertEquals(18, upgrader.getUpgraders().size());
         assertTrue(containsLaunchUpgrader(upgrader.getUpgraders()));
         assertTrue(containsFormSubmitterUpgrader(upgrader.getUpgraders()));
         assertTrue(containsFormCheckUpgrader(upgrader.getUpgraders()));
@@ -57,6 +57,17 @@ public class UpgraderFactoryTest {
         assertTrue(containsCaddisflyUpgrader(upgrader.getUpgraders()));
         assertTrue(containsPreferencesUpgrader(upgrader.getUpgraders()));
         assertTrue(containsLanguagesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseIterationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsStatsUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordStatusUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordSearchUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordLocationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsMapClustersUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
     }
 
     @Test
@@ -65,7 +76,7 @@ public class UpgraderFactoryTest {
         UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
                 .createUpgrader(DatabaseHelper.VER_FORM_SUBMITTER, null, null);
 
-        assertEquals(6, upgrader.getUpgraders().size());
+        assertEquals(17, upgrader.getUpgraders().size());
         assertFalse(containsLaunchUpgrader(upgrader.getUpgraders()));
         assertTrue(containsFormSubmitterUpgrader(upgrader.getUpgraders()));
         assertTrue(containsFormCheckUpgrader(upgrader.getUpgraders()));
@@ -73,6 +84,17 @@ public class UpgraderFactoryTest {
         assertTrue(containsCaddisflyUpgrader(upgrader.getUpgraders()));
         assertTrue(containsPreferencesUpgrader(upgrader.getUpgraders()));
         assertTrue(containsLanguagesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseIterationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsStatsUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordStatusUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordSearchUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordLocationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsMapClustersUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
     }
 
     @Test
@@ -81,7 +103,7 @@ public class UpgraderFactoryTest {
         UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
                 .createUpgrader(DatabaseHelper.VER_FORM_DEL_CHECK, null, null);
 
-        assertEquals(5, upgrader.getUpgraders().size());
+        assertEquals(16, upgrader.getUpgraders().size());
         assertFalse(containsLaunchUpgrader(upgrader.getUpgraders()));
         assertFalse(containsFormSubmitterUpgrader(upgrader.getUpgraders()));
         assertTrue(containsFormCheckUpgrader(upgrader.getUpgraders()));
@@ -89,6 +111,17 @@ public class UpgraderFactoryTest {
         assertTrue(containsCaddisflyUpgrader(upgrader.getUpgraders()));
         assertTrue(containsPreferencesUpgrader(upgrader.getUpgraders()));
         assertTrue(containsLanguagesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseIterationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsStatsUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordStatusUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordSearchUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordLocationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsMapClustersUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
     }
 
     @Test
@@ -97,7 +130,7 @@ public class UpgraderFactoryTest {
         UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
                 .createUpgrader(DatabaseHelper.VER_FORM_VERSION, null, null);
 
-        assertEquals(4, upgrader.getUpgraders().size());
+        assertEquals(15, upgrader.getUpgraders().size());
         assertFalse(containsLaunchUpgrader(upgrader.getUpgraders()));
         assertFalse(containsFormSubmitterUpgrader(upgrader.getUpgraders()));
         assertFalse(containsFormCheckUpgrader(upgrader.getUpgraders()));
@@ -105,6 +138,17 @@ public class UpgraderFactoryTest {
         assertTrue(containsCaddisflyUpgrader(upgrader.getUpgraders()));
         assertTrue(containsPreferencesUpgrader(upgrader.getUpgraders()));
         assertTrue(containsLanguagesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseIterationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsStatsUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordStatusUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordSearchUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordLocationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsMapClustersUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
     }
 
     @Test
@@ -113,7 +157,7 @@ public class UpgraderFactoryTest {
         UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
                 .createUpgrader(DatabaseHelper.VER_CADDISFLY_QN, null, null);
 
-        assertEquals(3, upgrader.getUpgraders().size());
+        assertEquals(14, upgrader.getUpgraders().size());
         assertFalse(containsLaunchUpgrader(upgrader.getUpgraders()));
         assertFalse(containsFormSubmitterUpgrader(upgrader.getUpgraders()));
         assertFalse(containsFormCheckUpgrader(upgrader.getUpgraders()));
@@ -121,6 +165,17 @@ public class UpgraderFactoryTest {
         assertTrue(containsCaddisflyUpgrader(upgrader.getUpgraders()));
         assertTrue(containsPreferencesUpgrader(upgrader.getUpgraders()));
         assertTrue(containsLanguagesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseIterationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsStatsUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordStatusUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordSearchUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordLocationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsMapClustersUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
     }
 
     @Test
@@ -129,7 +184,7 @@ public class UpgraderFactoryTest {
         UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
                 .createUpgrader(DatabaseHelper.VER_PREFERENCES_MIGRATE, null, null);
 
-        assertEquals(2, upgrader.getUpgraders().size());
+        assertEquals(13, upgrader.getUpgraders().size());
         assertFalse(containsLaunchUpgrader(upgrader.getUpgraders()));
         assertFalse(containsFormSubmitterUpgrader(upgrader.getUpgraders()));
         assertFalse(containsFormCheckUpgrader(upgrader.getUpgraders()));
@@ -137,6 +192,17 @@ public class UpgraderFactoryTest {
         assertFalse(containsCaddisflyUpgrader(upgrader.getUpgraders()));
         assertTrue(containsPreferencesUpgrader(upgrader.getUpgraders()));
         assertTrue(containsLanguagesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseIterationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsStatsUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordStatusUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordSearchUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordLocationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsMapClustersUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
     }
 
     @Test
@@ -145,7 +211,7 @@ public class UpgraderFactoryTest {
         UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
                 .createUpgrader(DatabaseHelper.VER_LANGUAGES_MIGRATE, null, null);
 
-        assertEquals(1, upgrader.getUpgraders().size());
+        assertEquals(12, upgrader.getUpgraders().size());
         assertFalse(containsLaunchUpgrader(upgrader.getUpgraders()));
         assertFalse(containsFormSubmitterUpgrader(upgrader.getUpgraders()));
         assertFalse(containsFormCheckUpgrader(upgrader.getUpgraders()));
@@ -153,14 +219,196 @@ public class UpgraderFactoryTest {
         assertFalse(containsCaddisflyUpgrader(upgrader.getUpgraders()));
         assertFalse(containsPreferencesUpgrader(upgrader.getUpgraders()));
         assertTrue(containsLanguagesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseIterationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsStatsUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordStatusUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordSearchUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordLocationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsMapClustersUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
     }
 
     @Test
-    public void createUpgraderShouldCreateNoUpgraderWhenResponseIteration() {
+    public void createUpgraderShouldCreateCorrectUpgraderWhenResponseIteration() {
         UpgraderFactory upgraderFactory = new UpgraderFactory();
         UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
                 .createUpgrader(DatabaseHelper.VER_RESPONSE_ITERATION, null, null);
 
+        assertEquals(11, upgrader.getUpgraders().size());
+        assertFalse(containsLanguagesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseIterationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsStatsUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordStatusUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordSearchUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordLocationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsMapClustersUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
+    }
+
+    @Test
+    public void createUpgraderShouldCreateCorrectUpgraderWhenStats() {
+        UpgraderFactory upgraderFactory = new UpgraderFactory();
+        UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
+                .createUpgrader(DatabaseHelper.VER_STATS, null, null);
+
+        assertEquals(10, upgrader.getUpgraders().size());
+        assertFalse(containsResponseIterationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsStatsUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordStatusUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordSearchUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordLocationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsMapClustersUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
+    }
+
+    @Test
+    public void createUpgraderShouldCreateCorrectUpgraderWhenRecordStatus() {
+        UpgraderFactory upgraderFactory = new UpgraderFactory();
+
+        UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
+                .createUpgrader(DatabaseHelper.VER_RECORD_STATUS, null, null);
+
+        assertEquals(9, upgrader.getUpgraders().size());
+        assertFalse(containsStatsUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordStatusUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordSearchUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordLocationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsMapClustersUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
+    }
+
+    @Test
+    public void createUpgraderShouldCreateCorrectUpgraderWhenRecordSearch() {
+        UpgraderFactory upgraderFactory = new UpgraderFactory();
+        UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
+                .createUpgrader(DatabaseHelper.VER_RECORD_SEARCH, null, null);
+
+        assertEquals(8, upgrader.getUpgraders().size());
+        assertFalse(containsRecordStatusUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordSearchUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordLocationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsMapClustersUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
+    }
+
+    @Test
+    public void createUpgraderShouldCreateCorrectUpgraderWhenRecordLocation() {
+        UpgraderFactory upgraderFactory = new UpgraderFactory();
+        UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
+                .createUpgrader(DatabaseHelper.VER_RECORD_LOCATION, null, null);
+
+        assertEquals(7, upgrader.getUpgraders().size());
+        assertFalse(containsRecordSearchUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordLocationUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsMapClustersUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
+    }
+
+    @Test
+    public void createUpgraderShouldCreateCorrectUpgraderWhenMapClusters() {
+        UpgraderFactory upgraderFactory = new UpgraderFactory();
+        UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
+                .createUpgrader(DatabaseHelper.VER_MAP_CLUSTERS, null, null);
+
+        assertEquals(6, upgrader.getUpgraders().size());
+        assertTrue(containsMapClustersUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
+    }
+
+    @Test
+    public void createUpgraderShouldCreateCorrectUpgraderWhenRecordChanges() {
+        UpgraderFactory upgraderFactory = new UpgraderFactory();
+        UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
+                .createUpgrader(DatabaseHelper.VER_RECORD_CHANGES, null, null);
+
+        assertEquals(5, upgrader.getUpgraders().size());
+        assertTrue(containsRecordChangesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
+    }
+
+    @Test
+    public void createUpgraderShouldCreateCorrectUpgraderWhenAutoVacuum() {
+        UpgraderFactory upgraderFactory = new UpgraderFactory();
+        UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
+                .createUpgrader(DatabaseHelper.VER_AUTO_VACUUM, null, null);
+
+        assertEquals(4, upgrader.getUpgraders().size());
+        assertTrue(containsAutoVacuumUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
+    }
+
+    @Test
+    public void createUpgraderShouldCreateCorrectUpgraderWhenResponseArchive() {
+        UpgraderFactory upgraderFactory = new UpgraderFactory();
+        UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
+                .createUpgrader(DatabaseHelper.VER_RESPONSE_ARCHIVE, null, null);
+
+        assertEquals(3, upgrader.getUpgraders().size());
+        assertTrue(containsResponseArchiveUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
+    }
+
+    @Test
+    public void createUpgraderShouldCreateCorrectUpgraderWhenSignatureFiles() {
+        UpgraderFactory upgraderFactory = new UpgraderFactory();
+        UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
+                .createUpgrader(DatabaseHelper.VER_SIGNATURE_FILES, null, null);
+
+        assertEquals(2, upgrader.getUpgraders().size());
+        assertTrue(containsSignatureFilesUpgrader(upgrader.getUpgraders()));
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
+    }
+
+    @Test
+    public void createUpgraderShouldCreateCorrectUpgraderWhenResumableMigrations() {
+        UpgraderFactory upgraderFactory = new UpgraderFactory();
+        UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
+                .createUpgrader(DatabaseHelper.VER_RESUMABLE_MIGRATIONS, null, null);
+
+        assertEquals(1, upgrader.getUpgraders().size());
+        assertTrue(containsResumableMigrationsUpgrader(upgrader.getUpgraders()));
+    }
+
+    @Test
+    public void createUpgraderShouldCreateNoUpgraderWhenResponseIndex() {
+        UpgraderFactory upgraderFactory = new UpgraderFactory();
+        UpgraderVisitor upgrader = (UpgraderVisitor) upgraderFactory
+                .createUpgrader(DatabaseHelper.VER_RESPONSE_INDEX, null, null);
+
         assertEquals(0, upgrader.getUpgraders().size());
     }
 
@@ -226,4 +474,103 @@ public class UpgraderFactoryTest {
         }
         return false;
     }
+
+    private boolean containsResponseIterationUpgrader(List<DatabaseUpgrader> upgraders) {
+        for (DatabaseUpgrader upgrader : upgraders) {
+            if (upgrader instanceof ResponseIterationUpgrader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsStatsUpgrader(List<DatabaseUpgrader> upgraders) {
+        for (DatabaseUpgrader upgrader : upgraders) {
+            if (upgrader instanceof StatsUpgrader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsRecordStatusUpgrader(List<DatabaseUpgrader> upgraders) {
+        for (DatabaseUpgrader upgrader : upgraders) {
+            if (upgrader instanceof RecordStatusUpgrader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsRecordSearchUpgrader(List<DatabaseUpgrader> upgraders) {
+        for (DatabaseUpgrader upgrader : upgraders) {
+            if (upgrader instanceof RecordSearchUpgrader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsRecordLocationUpgrader(List<DatabaseUpgrader> upgraders) {
+        for (DatabaseUpgrader upgrader : upgraders) {
+            if (upgrader instanceof RecordLocationUpgrader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsMapClustersUpgrader(List<DatabaseUpgrader> upgraders) {
+        for (DatabaseUpgrader upgrader : upgraders) {
+            if (upgrader instanceof MapClustersUpgrader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsRecordChangesUpgrader(List<DatabaseUpgrader> upgraders) {
+        for (DatabaseUpgrader upgrader : upgraders) {
+            if (upgrader instanceof RecordChangesUpgrader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsAutoVacuumUpgrader(List<DatabaseUpgrader> upgraders) {
+        for (DatabaseUpgrader upgrader : upgraders) {
+            if (upgrader instanceof AutoVacuumUpgrader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsResponseArchiveUpgrader(List<DatabaseUpgrader> upgraders) {
+        for (DatabaseUpgrader upgrader : upgraders) {
+            if (upgrader instanceof ResponseArchiveUpgrader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsSignatureFilesUpgrader(List<DatabaseUpgrader> upgraders) {
+        for (DatabaseUpgrader upgrader : upgraders) {
+            if (upgrader instanceof SignatureFilesUpgrader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsResumableMigrationsUpgrader(List<DatabaseUpgrader> upgraders) {
+        for (DatabaseUpgrader upgrader : upgraders) {
+            if (upgrader instanceof ResumableMigrationsUpgrader) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.domain.entity;
+
+/**
+ * Datapoints grouped together on the map, or a single datapoint when the count is 1
+ */
+public class DataPointCluster {
+
+    private final double latitude;
+    private final double longitude;
+    private final int count;
+    private final String dataPointId;
+    private final String dataPointName;
+
+    public DataPointCluster(double latitude, double longitude, int count, String dataPointId,
+            String dataPointName) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.count = count;
+        this.dataPointId = dataPointId;
+        this.dataPointName = dataPointName;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the id of the datapoint if the cluster has a single one, null otherwise
+     */
+    public String getDataPointId() {
+        return count == 1 ? dataPointId : null;
+    }
+
+    public String getDataPointName() {
+        return count == 1 ? dataPointName : null;
+    }
+}
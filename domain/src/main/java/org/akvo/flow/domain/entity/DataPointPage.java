@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.domain.entity;
+
+import java.util.List;
+
+/**
+ * A page of datapoints, in the requested order, their keys and the key to fetch the following one
+ */
+public class DataPointPage {
+
+    private final List<DataPoint> dataPoints;
+    private final List<Key> keys;
+    private final Key nextKey;
+
+    public DataPointPage(List<DataPoint> dataPoints, List<Key> keys, Key nextKey) {
+        this.dataPoints = dataPoints;
+        this.keys = keys;
+        this.nextKey = nextKey;
+    }
+
+    public List<DataPoint> getDataPoints() {
+        return dataPoints;
+    }
+
+    /**
+     * @return the key of each datapoint, in the same order
+     */
+    public List<Key> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return the key of the next page, null if this is the last one
+     */
+    public Key getNextKey() {
+        return nextKey;
+    }
+
+    /**
+     * Position of a datapoint in the sort order: the value of the sort column
+     * and the datapoint id, which breaks ties. Pages start right after it, so inserting or
+     * removing datapoints does not shift the following pages.
+     */
+    public static class Key {
+
+        private final String value;
+        private final String id;
+
+        public Key(String value, String id) {
+            this.value = value;
+            this.id = id;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String getId() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.domain.entity;
+
+import java.util.List;
+
+/**
+ * The displayed datapoints of a list, refreshed after some of them changed: the keys of all of
+ * them, in list order, but only the datapoints which changed or were not displayed before
+ */
+public class DataPointWindow {
+
+    private final List<DataPointPage.Key> keys;
+    private final List<DataPoint> dataPoints;
+    private final DataPointPage.Key nextKey;
+
+    public DataPointWindow(List<DataPointPage.Key> keys, List<DataPoint> dataPoints,
+            DataPointPage.Key nextKey) {
+        this.keys = keys;
+        this.dataPoints = dataPoints;
+        this.nextKey = nextKey;
+    }
+
+    public List<DataPointPage.Key> getKeys() {
+        return keys;
+    }
+
+    public List<DataPoint> getDataPoints() {
+        return dataPoints;
+    }
+
+    /**
+     * @return the key of the page following the last datapoint, null if there are no more
+     */
+    public DataPointPage.Key getNextKey() {
+        return nextKey;
+    }
+}
@@ -27,14 +27,16 @@ public class UserSettings {
     private final String language;
     private final int imageSize;
     private final String identifier;
+    private final boolean mediaPrefetch;
 
     public UserSettings(boolean screenOn, boolean dataEnabled, String language, int imageSize,
-            String identifier) {
+            String identifier, boolean mediaPrefetch) {
         this.screenOn = screenOn;
         this.dataEnabled = dataEnabled;
         this.language = language;
         this.imageSize = imageSize;
         this.identifier = identifier;
+        this.mediaPrefetch = mediaPrefetch;
     }
 
     public boolean isScreenOn() {
@@ -56,4 +58,8 @@ public class UserSettings {
     public String getIdentifier() {
         return identifier;
     }
+
+    public boolean isMediaPrefetch() {
+        return mediaPrefetch;
+    }
 }
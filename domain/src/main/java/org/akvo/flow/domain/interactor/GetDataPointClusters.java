@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.domain.interactor;
+
+import org.akvo.flow.domain.executor.PostExecutionThread;
+import org.akvo.flow.domain.executor.ThreadExecutor;
+import org.akvo.flow.domain.repository.SurveyRepository;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import io.reactivex.Observable;
+
+/**
+ * Loads the datapoint clusters of a survey group within the visible map bounds
+ */
+public class GetDataPointClusters extends UseCase {
+
+    public static final String KEY_SURVEY_GROUP_ID = "survey_group_id";
+    public static final String KEY_NORTH = "north";
+    public static final String KEY_EAST = "east";
+    public static final String KEY_SOUTH = "south";
+    public static final String KEY_WEST = "west";
+    public static final String KEY_ZOOM = "zoom";
+
+    private final SurveyRepository surveyRepository;
+
+    @Inject
+    protected GetDataPointClusters(ThreadExecutor threadExecutor,
+            PostExecutionThread postExecutionThread, SurveyRepository surveyRepository) {
+        super(threadExecutor, postExecutionThread);
+        this.surveyRepository = surveyRepository;
+    }
+
+    @Override
+    protected <T> Observable buildUseCaseObservable(Map<String, T> parameters) {
+        if (parameters == null || parameters.get(KEY_SURVEY_GROUP_ID) == null
+                || parameters.get(KEY_NORTH) == null || parameters.get(KEY_EAST) == null
+                || parameters.get(KEY_SOUTH) == null || parameters.get(KEY_WEST) == null
+                || parameters.get(KEY_ZOOM) == null) {
+            return Observable.error(new IllegalArgumentException("Missing map parameters"));
+        }
+        Long surveyGroupId = (Long) parameters.get(KEY_SURVEY_GROUP_ID);
+        Double north = (Double) parameters.get(KEY_NORTH);
+        Double east = (Double) parameters.get(KEY_EAST);
+        Double south = (Double) parameters.get(KEY_SOUTH);
+        Double west = (Double) parameters.get(KEY_WEST);
+        Integer zoom = (Integer) parameters.get(KEY_ZOOM);
+        return surveyRepository
+                .getDataPointClusters(surveyGroupId, north, east, south, west, zoom);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.domain.interactor;
+
+import org.akvo.flow.domain.executor.PostExecutionThread;
+import org.akvo.flow.domain.executor.ThreadExecutor;
+import org.akvo.flow.domain.repository.SurveyRepository;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import io.reactivex.Observable;
+
+/**
+ * Loads the saved datapoints of a survey group nearest to a location, within a radius
+ */
+public class GetNearestDataPoints extends UseCase {
+
+    public static final String KEY_SURVEY_GROUP_ID = "survey_group_id";
+    public static final String KEY_LATITUDE = "latitude";
+    public static final String KEY_LONGITUDE = "longitude";
+    public static final String KEY_RADIUS = "radius";
+    public static final String KEY_COUNT = "count";
+
+    private final SurveyRepository surveyRepository;
+
+    @Inject
+    protected GetNearestDataPoints(ThreadExecutor threadExecutor,
+            PostExecutionThread postExecutionThread, SurveyRepository surveyRepository) {
+        super(threadExecutor, postExecutionThread);
+        this.surveyRepository = surveyRepository;
+    }
+
+    @Override
+    protected <T> Observable buildUseCaseObservable(Map<String, T> parameters) {
+        if (parameters == null || parameters.get(KEY_SURVEY_GROUP_ID) == null
+                || parameters.get(KEY_LATITUDE) == null || parameters.get(KEY_LONGITUDE) == null
+                || parameters.get(KEY_RADIUS) == null || parameters.get(KEY_COUNT) == null) {
+            return Observable.error(new IllegalArgumentException("Missing location parameters"));
+        }
+        Long surveyGroupId = (Long) parameters.get(KEY_SURVEY_GROUP_ID);
+        Double latitude = (Double) parameters.get(KEY_LATITUDE);
+        Double longitude = (Double) parameters.get(KEY_LONGITUDE);
+        Double radius = (Double) parameters.get(KEY_RADIUS);
+        Integer count = (Integer) parameters.get(KEY_COUNT);
+        return surveyRepository
+                .getNearestDataPoints(surveyGroupId, latitude, longitude, radius, count);
+    }
+}
@@ -30,7 +30,7 @@ import java.util.Map;
 import javax.inject.Inject;
 
 import io.reactivex.Observable;
-import io.reactivex.functions.Function5;
+import io.reactivex.functions.Function6;
 
 public class GetUserSettings extends UseCase {
 
@@ -47,13 +47,13 @@ public class GetUserSettings extends UseCase {
     protected <T> Observable buildUseCaseObservable(Map<String, T> parameters) {
         return Observable.zip(userRepository.keepScreenOn(), userRepository.mobileSyncAllowed(),
                 userRepository.getAppLanguage(), userRepository.getImageSize(),
-                userRepository.getDeviceId(),
-                new Function5<Boolean, Boolean, String, Integer, String, UserSettings>() {
+                userRepository.getDeviceId(), userRepository.mediaPrefetchEnabled(),
+                new Function6<Boolean, Boolean, String, Integer, String, Boolean, UserSettings>() {
                     @Override
                     public UserSettings apply(Boolean screenOn, Boolean mobileSync, String language,
-                            Integer imageSize, String deviceId) {
+                            Integer imageSize, String deviceId, Boolean mediaPrefetch) {
                         return new UserSettings(screenOn, mobileSync, language, imageSize,
-                                deviceId);
+                                deviceId, mediaPrefetch);
                     }
                 });
     }
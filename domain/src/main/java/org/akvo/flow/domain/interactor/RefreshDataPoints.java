@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.domain.interactor;
+
+import org.akvo.flow.domain.entity.DataPointPage;
+import org.akvo.flow.domain.executor.PostExecutionThread;
+import org.akvo.flow.domain.executor.ThreadExecutor;
+import org.akvo.flow.domain.repository.SurveyRepository;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import io.reactivex.Observable;
+
+/**
+ * Lists the displayed datapoints of a survey group again after some of them changed, loading
+ * only the changed ones and the ones not displayed yet
+ */
+public class RefreshDataPoints extends UseCase {
+
+    public static final String KEY_SURVEY_GROUP_ID = "survey_group_id";
+    public static final String KEY_LATITUDE = "latitude";
+    public static final String KEY_LONGITUDE = "longitude";
+    public static final String KEY_ORDER_BY = "order_by";
+    public static final String KEY_TEXT = "text";
+    public static final String KEY_AFTER = "after";
+    public static final String KEY_LIMIT = "limit";
+    public static final String KEY_CHANGED_IDS = "changed_ids";
+    public static final String KEY_DISPLAYED_IDS = "displayed_ids";
+
+    private final SurveyRepository surveyRepository;
+
+    @Inject
+    protected RefreshDataPoints(ThreadExecutor threadExecutor,
+            PostExecutionThread postExecutionThread, SurveyRepository surveyRepository) {
+        super(threadExecutor, postExecutionThread);
+        this.surveyRepository = surveyRepository;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected <T> Observable buildUseCaseObservable(Map<String, T> parameters) {
+        if (parameters == null || parameters.get(KEY_SURVEY_GROUP_ID) == null
+                || parameters.get(KEY_ORDER_BY) == null || parameters.get(KEY_LIMIT) == null) {
+            return Observable.error(new IllegalArgumentException("Missing refresh parameters"));
+        }
+        Long surveyGroupId = (Long) parameters.get(KEY_SURVEY_GROUP_ID);
+        Double latitude = (Double) parameters.get(KEY_LATITUDE);
+        Double longitude = (Double) parameters.get(KEY_LONGITUDE);
+        Integer orderBy = (Integer) parameters.get(KEY_ORDER_BY);
+        String text = (String) parameters.get(KEY_TEXT);
+        DataPointPage.Key after = (DataPointPage.Key) parameters.get(KEY_AFTER);
+        Integer limit = (Integer) parameters.get(KEY_LIMIT);
+        Set<String> changedIds = (Set<String>) parameters.get(KEY_CHANGED_IDS);
+        Set<String> displayedIds = (Set<String>) parameters.get(KEY_DISPLAYED_IDS);
+        return surveyRepository.getDataPointWindow(surveyGroupId, latitude, longitude, orderBy,
+                text, after, limit,
+                changedIds == null ? Collections.<String>emptySet() : changedIds,
+                displayedIds == null ? Collections.<String>emptySet() : displayedIds);
+    }
+}
@@ -63,9 +63,15 @@ public class SaveResizedImage extends UseCase {
         return userRepository.getImageSize()
                 .concatMap(new Function<Integer, Observable<Boolean>>() {
                     @Override
-                    public Observable<Boolean> apply(Integer imageSize) throws Exception {
-                        return fileRepository
-                                .saveResizedImage(originalFilePath, resizedFilePath, imageSize);
+                    public Observable<Boolean> apply(final Integer imageSize) throws Exception {
+                        return userRepository.getImageQuality()
+                                .concatMap(new Function<Integer, Observable<Boolean>>() {
+                                    @Override
+                                    public Observable<Boolean> apply(Integer quality) {
+                                        return fileRepository.saveResizedImage(originalFilePath,
+                                                resizedFilePath, imageSize, quality);
+                                    }
+                                });
                     }
                 });
 
@@ -28,5 +28,6 @@ public interface FileRepository {
 
     Observable<Boolean> saveImage(Bitmap bitmap, String fileName, String resizedFilePath);
 
-    Observable<Boolean> saveResizedImage(String fileName, String resizedFilePath, int imageSize);
+    Observable<Boolean> saveResizedImage(String fileName, String resizedFilePath, int imageSize,
+            int quality);
 }
@@ -21,11 +21,15 @@
 package org.akvo.flow.domain.repository;
 
 import org.akvo.flow.domain.entity.DataPoint;
+import org.akvo.flow.domain.entity.DataPointCluster;
+import org.akvo.flow.domain.entity.DataPointPage;
+import org.akvo.flow.domain.entity.DataPointWindow;
 import org.akvo.flow.domain.entity.Survey;
 import org.akvo.flow.domain.entity.Survey;
 import org.akvo.flow.domain.entity.User;
 
 import java.util.List;
+import java.util.Set;
 
 import io.reactivex.Flowable;
 import io.reactivex.Observable;
@@ -34,8 +38,58 @@ public interface SurveyRepository {
 
     Observable<List<Survey>> getSurveys();
 
-    Observable<List<DataPoint>> getDataPoints(Long surveyGroupId, Double latitude,
-            Double longitude, Integer orderBy);
+    /**
+     * @param latitude  location of the user, pages sorted by distance are sorted by date without
+     *                  it
+     * @param after     key of the previous page, null for the first page
+     */
+    Observable<DataPointPage> getDataPointsPage(long surveyGroupId, Double latitude,
+            Double longitude, int orderBy, DataPointPage.Key after, int limit);
+
+    /**
+     * @param text  the searched text, matched against the start of the datapoint name and id
+     *              words
+     * @param after key of the previous page, null for the first page
+     */
+    Observable<DataPointPage> searchDataPoints(long surveyGroupId, String text,
+            DataPointPage.Key after, int limit);
+
+    /**
+     * Lists the displayed datapoints again after some of them changed, only reading the changed
+     * ones and the ones not displayed yet
+     *
+     * @param text         the searched text, null if all the datapoints are listed
+     * @param after        key of the datapoint before the first displayed one, null if the list
+     *                     starts at the first datapoint
+     * @param limit        the number of datapoints to list
+     * @param changedIds   ids of the datapoints which changed
+     * @param displayedIds ids of the datapoints currently displayed
+     */
+    Observable<DataPointWindow> getDataPointWindow(long surveyGroupId, Double latitude,
+            Double longitude, int orderBy, String text, DataPointPage.Key after, int limit,
+            Set<String> changedIds, Set<String> displayedIds);
+
+    /**
+     * @return the ids of the datapoints saved, synced or deleted since the subscription, in
+     * batches
+     */
+    Observable<Set<String>> getDataPointChanges();
+
+    /**
+     * @param radius maximum distance to the location, in meters
+     * @param count  maximum number of datapoints to return
+     * @return the located datapoints within the radius, the nearest first
+     */
+    Observable<List<DataPoint>> getNearestDataPoints(long surveyGroupId, double latitude,
+            double longitude, double radius, int count);
+
+    /**
+     * @param zoom the map zoom level, datapoints are not clustered on the closest ones
+     * @return the datapoint clusters within the bounds, west is greater than east if they cross
+     * the antimeridian
+     */
+    Observable<List<DataPointCluster>> getDataPointClusters(long surveyGroupId, double north,
+            double east, double south, double west, int zoom);
 
     Flowable<Integer> syncRemoteDataPoints(long surveyGroupId);
 
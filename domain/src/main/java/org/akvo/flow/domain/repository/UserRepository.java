@@ -32,8 +32,12 @@ public interface UserRepository {
 
     Observable<Integer> getImageSize();
 
+    Observable<Integer> getImageQuality();
+
     Observable<String> getDeviceId();
 
+    Observable<Boolean> mediaPrefetchEnabled();
+
     Observable<Boolean> saveScreenOnPreference(Boolean keepScreenOn);
 
     Observable<Boolean> saveEnableMobileDataPreference(Boolean enable);
@@ -42,6 +46,8 @@ public interface UserRepository {
 
     Observable<Boolean> saveImageSizePreference(Integer size);
 
+    Observable<Boolean> saveMediaPrefetchPreference(Boolean enable);
+
     Observable<Long> getSelectedSurvey();
 
     Observable<Boolean> clearSelectedSurvey();
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2018 Stichting Akvo (Akvo Foundation)
+ *
+ * This file is part of Akvo Flow.
+ *
+ * Akvo Flow is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Akvo Flow is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Akvo Flow.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.akvo.flow.benchmark;
+
+import org.akvo.flow.data.net.RequestSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.GeneralSecurityException;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Signatures per second of a typical S3 GET payload. The "legacy" benchmarks reproduce what
+ * S3Api and HMACInterceptor did before RequestSigner: a new Mac and date formatter per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RequestSignerBenchmark {
+
+    private static final String SECRET = "wJalrXUtnFEMI/K7MDENG/bPxRfiCYEXAMPLEKEY";
+    private static final String PAYLOAD_GET = "GET\n\n\n%s\n/%s/%s";
+    private static final String BUCKET = "akvoflow";
+    private static final String OBJECT_KEY = "surveys/1234567890.zip";
+
+    private RequestSigner signer;
+    private String payload;
+
+    @Setup
+    public void setUp() {
+        signer = new RequestSigner(SECRET);
+        payload = String.format(PAYLOAD_GET, RequestSigner.getRfc1123Date(), BUCKET, OBJECT_KEY);
+    }
+
+    @Benchmark
+    public byte[] sign() {
+        return signer.sign(payload);
+    }
+
+    @Benchmark
+    public byte[] signLegacy() throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(RequestSigner.HMAC_SHA_1_ALGORITHM);
+        mac.init(new SecretKeySpec(SECRET.getBytes(), RequestSigner.HMAC_SHA_1_ALGORITHM));
+        return mac.doFinal(payload.getBytes());
+    }
+
+    @Benchmark
+    public String date() {
+        return RequestSigner.getRfc1123Date();
+    }
+
+    @Benchmark
+    public String dateLegacy() {
+        DateFormat df = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss ", Locale.US);
+        df.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return df.format(new Date()) + "GMT";
+    }
+
+    @Benchmark
+    public byte[] signRequest() {
+        String date = RequestSigner.getRfc1123Date();
+        return signer.sign(String.format(PAYLOAD_GET, date, BUCKET, OBJECT_KEY));
+    }
+}